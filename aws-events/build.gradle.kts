@@ -0,0 +1,13 @@
+base {
+	archivesBaseName = "cloudwatch-lambda-event-dispatcher-aws-events"
+}
+
+dependencies {
+	api(project(":"))
+	implementation("com.google.code.gson:gson:${versions.gson}")
+
+	testImplementation("com.amazonaws:aws-lambda-java-core:${versions.awsLambdaCore}")
+	testImplementation("org.junit.jupiter:junit-jupiter-api:${versions.junit}")
+	testImplementation("org.assertj:assertj-core:${versions.assertj}")
+	testRuntime("org.junit.jupiter:junit-jupiter-engine:${versions.junit}")
+}
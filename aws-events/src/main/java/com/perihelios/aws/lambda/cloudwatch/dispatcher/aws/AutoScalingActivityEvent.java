@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+/**
+ * Base class of the events emitted by Auto Scaling when it launches or terminates an instance in a group.
+ * <p>
+ * Each outcome has its own detail type, and so its own subclass; all share the same detail. See the
+ * <a href="https://docs.aws.amazon.com/autoscaling/ec2/userguide/cloud-watch-events.html">AWS docs</a>.
+ * </p>
+ */
+public abstract class AutoScalingActivityEvent extends CloudWatchEvent {
+	private final String activityId;
+	private final String requestId;
+	private final String autoScalingGroupName;
+	private final String ec2InstanceId;
+	private final AutoScalingActivityStatus statusCode;
+	private final String statusMessage;
+	private final String description;
+	private final String cause;
+	private final ZonedDateTime startTime;
+	private final ZonedDateTime endTime;
+	private final Map<String, String> details;
+
+	AutoScalingActivityEvent(AutoScalingActivityEventAdapter.Detail detail) {
+		this.activityId = detail.activityId;
+		this.requestId = detail.requestId;
+		this.autoScalingGroupName = detail.autoScalingGroupName;
+		this.ec2InstanceId = detail.ec2InstanceId;
+		this.statusCode = detail.statusCode;
+		this.statusMessage = detail.statusMessage;
+		this.description = detail.description;
+		this.cause = detail.cause;
+		this.startTime = detail.startTime;
+		this.endTime = detail.endTime;
+		this.details = detail.details;
+	}
+
+	/**
+	 * Returns the ID of the scaling activity.
+	 *
+	 * @return the activity ID
+	 */
+	public String activityId() {
+		return activityId;
+	}
+
+	/**
+	 * Returns the ID of the request that caused the activity.
+	 *
+	 * @return the request ID, or {@code null} if absent
+	 */
+	public String requestId() {
+		return requestId;
+	}
+
+	/**
+	 * Returns the name of the Auto Scaling group.
+	 *
+	 * @return the group name
+	 */
+	public String autoScalingGroupName() {
+		return autoScalingGroupName;
+	}
+
+	/**
+	 * Returns the ID of the instance launched or terminated.
+	 *
+	 * @return the instance ID, or {@code null} if no instance was launched
+	 */
+	public String ec2InstanceId() {
+		return ec2InstanceId;
+	}
+
+	/**
+	 * Returns the status of the activity.
+	 *
+	 * @return the activity status, or {@code null} if absent or unknown to this library
+	 */
+	public AutoScalingActivityStatus statusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Returns a description of the status, typically explaining a failure.
+	 *
+	 * @return the status message, or {@code null} if absent
+	 */
+	public String statusMessage() {
+		return statusMessage;
+	}
+
+	/**
+	 * Returns a description of the activity.
+	 *
+	 * @return the activity description
+	 */
+	public String description() {
+		return description;
+	}
+
+	/**
+	 * Returns the reason the activity began.
+	 *
+	 * @return the cause of the activity
+	 */
+	public String cause() {
+		return cause;
+	}
+
+	/**
+	 * Returns the time the activity started.
+	 *
+	 * @return the start time, or {@code null} if absent
+	 */
+	public ZonedDateTime startTime() {
+		return startTime;
+	}
+
+	/**
+	 * Returns the time the activity ended.
+	 *
+	 * @return the end time, or {@code null} if absent
+	 */
+	public ZonedDateTime endTime() {
+		return endTime;
+	}
+
+	/**
+	 * Returns further details of the activity, such as {@code Availability Zone} and {@code Subnet ID}.
+	 *
+	 * @return unmodifiable map of details; empty if none were given
+	 */
+	public Map<String, String> details() {
+		return details;
+	}
+}
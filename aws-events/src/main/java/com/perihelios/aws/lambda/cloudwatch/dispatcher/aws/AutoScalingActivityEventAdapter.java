@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextEnum;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextNullIfPresent;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextString;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextTime;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.writeProperty;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Binds the detail shared by all {@link AutoScalingActivityEvent} subclasses; each subclass names the nested adapter
+ * that constructs it.
+ */
+abstract class AutoScalingActivityEventAdapter<T extends AutoScalingActivityEvent> extends TypeAdapter<T> {
+	private final Function<Detail, T> constructor;
+
+	private AutoScalingActivityEventAdapter(Function<Detail, T> constructor) {
+		this.constructor = constructor;
+	}
+
+	@Override
+	public void write(JsonWriter out, T value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		writeProperty(out, "ActivityId", value.activityId());
+		writeProperty(out, "RequestId", value.requestId());
+		writeProperty(out, "AutoScalingGroupName", value.autoScalingGroupName());
+		writeProperty(out, "EC2InstanceId", value.ec2InstanceId());
+		writeProperty(out, "StatusCode", value.statusCode() == null ? null : value.statusCode().value());
+		writeProperty(out, "StatusMessage", value.statusMessage());
+		writeProperty(out, "Description", value.description());
+		writeProperty(out, "Cause", value.cause());
+		writeProperty(out, "StartTime", value.startTime());
+		writeProperty(out, "EndTime", value.endTime());
+
+		out.name("Details").beginObject();
+		for (Map.Entry<String, String> entry : value.details().entrySet()) {
+			writeProperty(out, entry.getKey(), entry.getValue());
+		}
+		out.endObject();
+
+		out.endObject();
+	}
+
+	@Override
+	public T read(JsonReader in) throws IOException {
+		if (nextNullIfPresent(in)) {
+			return null;
+		}
+
+		Detail detail = new Detail();
+
+		in.beginObject();
+
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "ActivityId":
+					detail.activityId = nextString(in);
+					break;
+				case "RequestId":
+					detail.requestId = nextString(in);
+					break;
+				case "AutoScalingGroupName":
+					detail.autoScalingGroupName = nextString(in);
+					break;
+				case "EC2InstanceId":
+					detail.ec2InstanceId = nextString(in);
+					break;
+				case "StatusCode":
+					detail.statusCode = nextEnum(in, AutoScalingActivityStatus::fromValue);
+					break;
+				case "StatusMessage":
+					detail.statusMessage = nextString(in);
+					break;
+				case "Description":
+					detail.description = nextString(in);
+					break;
+				case "Cause":
+					detail.cause = nextString(in);
+					break;
+				case "StartTime":
+					detail.startTime = nextTime(in);
+					break;
+				case "EndTime":
+					detail.endTime = nextTime(in);
+					break;
+				case "Details":
+					detail.details = readDetails(in);
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		return constructor.apply(detail);
+	}
+
+	private static Map<String, String> readDetails(JsonReader in) throws IOException {
+		if (nextNullIfPresent(in)) {
+			return emptyMap();
+		}
+
+		Map<String, String> details = new LinkedHashMap<>();
+
+		in.beginObject();
+		while (in.hasNext()) {
+			details.put(in.nextName(), nextString(in));
+		}
+		in.endObject();
+
+		return unmodifiableMap(details);
+	}
+
+	static final class Detail {
+		String activityId;
+		String requestId;
+		String autoScalingGroupName;
+		String ec2InstanceId;
+		AutoScalingActivityStatus statusCode;
+		String statusMessage;
+		String description;
+		String cause;
+		ZonedDateTime startTime;
+		ZonedDateTime endTime;
+		Map<String, String> details = emptyMap();
+	}
+
+	static final class Launch extends AutoScalingActivityEventAdapter<AutoScalingInstanceLaunchEvent> {
+		Launch() {
+			super(AutoScalingInstanceLaunchEvent::new);
+		}
+	}
+
+	static final class LaunchFailed extends AutoScalingActivityEventAdapter<AutoScalingInstanceLaunchFailedEvent> {
+		LaunchFailed() {
+			super(AutoScalingInstanceLaunchFailedEvent::new);
+		}
+	}
+
+	static final class Terminate extends AutoScalingActivityEventAdapter<AutoScalingInstanceTerminateEvent> {
+		Terminate() {
+			super(AutoScalingInstanceTerminateEvent::new);
+		}
+	}
+
+	static final class TerminateFailed
+			extends AutoScalingActivityEventAdapter<AutoScalingInstanceTerminateFailedEvent> {
+		TerminateFailed() {
+			super(AutoScalingInstanceTerminateFailedEvent::new);
+		}
+	}
+}
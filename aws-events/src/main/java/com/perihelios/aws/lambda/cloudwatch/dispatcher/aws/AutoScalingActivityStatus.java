@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Status of an Auto Scaling activity, as reported in an {@link AutoScalingActivityEvent}.
+ */
+public enum AutoScalingActivityStatus {
+	@SerializedName("PendingSpotBidPlacement")
+	PENDING_SPOT_BID_PLACEMENT("PendingSpotBidPlacement"),
+
+	@SerializedName("WaitingForSpotInstanceRequestId")
+	WAITING_FOR_SPOT_INSTANCE_REQUEST_ID("WaitingForSpotInstanceRequestId"),
+
+	@SerializedName("WaitingForSpotInstanceId")
+	WAITING_FOR_SPOT_INSTANCE_ID("WaitingForSpotInstanceId"),
+
+	@SerializedName("WaitingForInstanceId")
+	WAITING_FOR_INSTANCE_ID("WaitingForInstanceId"),
+
+	@SerializedName("PreInService")
+	PRE_IN_SERVICE("PreInService"),
+
+	@SerializedName("InProgress")
+	IN_PROGRESS("InProgress"),
+
+	@SerializedName("WaitingForELBConnectionDraining")
+	WAITING_FOR_ELB_CONNECTION_DRAINING("WaitingForELBConnectionDraining"),
+
+	@SerializedName("MidLifecycleAction")
+	MID_LIFECYCLE_ACTION("MidLifecycleAction"),
+
+	@SerializedName("WaitingForInstanceWarmup")
+	WAITING_FOR_INSTANCE_WARMUP("WaitingForInstanceWarmup"),
+
+	@SerializedName("Successful")
+	SUCCESSFUL("Successful"),
+
+	@SerializedName("Failed")
+	FAILED("Failed"),
+
+	@SerializedName("Cancelled")
+	CANCELLED("Cancelled"),
+
+	;
+
+	private final String value;
+
+	AutoScalingActivityStatus(String value) {
+		this.value = value;
+	}
+
+	/**
+	 * Returns the status as it appears in the event.
+	 *
+	 * @return the JSON value of the status
+	 */
+	public String value() {
+		return value;
+	}
+
+	/**
+	 * Looks up the status named by a value as it appears in the event.
+	 *
+	 * @param value JSON value of the status
+	 * @return the matching status, or {@code null} if the value names no known status
+	 */
+	public static AutoScalingActivityStatus fromValue(String value) {
+		switch (value) {
+			case "PendingSpotBidPlacement":
+				return PENDING_SPOT_BID_PLACEMENT;
+			case "WaitingForSpotInstanceRequestId":
+				return WAITING_FOR_SPOT_INSTANCE_REQUEST_ID;
+			case "WaitingForSpotInstanceId":
+				return WAITING_FOR_SPOT_INSTANCE_ID;
+			case "WaitingForInstanceId":
+				return WAITING_FOR_INSTANCE_ID;
+			case "PreInService":
+				return PRE_IN_SERVICE;
+			case "InProgress":
+				return IN_PROGRESS;
+			case "WaitingForELBConnectionDraining":
+				return WAITING_FOR_ELB_CONNECTION_DRAINING;
+			case "MidLifecycleAction":
+				return MID_LIFECYCLE_ACTION;
+			case "WaitingForInstanceWarmup":
+				return WAITING_FOR_INSTANCE_WARMUP;
+			case "Successful":
+				return SUCCESSFUL;
+			case "Failed":
+				return FAILED;
+			case "Cancelled":
+				return CANCELLED;
+			default:
+				return null;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+
+/**
+ * Event emitted by Auto Scaling when it successfully terminates an instance.
+ */
+@DetailType("EC2 Instance Terminate Successful")
+@JsonAdapter(AutoScalingActivityEventAdapter.Terminate.class)
+public class AutoScalingInstanceTerminateEvent extends AutoScalingActivityEvent {
+	AutoScalingInstanceTerminateEvent(AutoScalingActivityEventAdapter.Detail detail) {
+		super(detail);
+	}
+}
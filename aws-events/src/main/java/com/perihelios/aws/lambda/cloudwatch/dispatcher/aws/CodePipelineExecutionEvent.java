@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+
+/**
+ * Event emitted by CodePipeline when the state of a pipeline execution changes.
+ * <p>
+ * See the
+ * <a href="https://docs.aws.amazon.com/codepipeline/latest/userguide/detect-state-changes-cloudwatch-events.html">AWS
+ * docs</a>.
+ * </p>
+ */
+@DetailType("CodePipeline Pipeline Execution State Change")
+@JsonAdapter(CodePipelineExecutionEventAdapter.Pipeline.class)
+public class CodePipelineExecutionEvent extends CloudWatchEvent {
+	private final String pipeline;
+	private final String executionId;
+	private final CodePipelineExecutionState state;
+	private final long version;
+
+	CodePipelineExecutionEvent(String pipeline, String executionId, CodePipelineExecutionState state, long version) {
+		this.pipeline = pipeline;
+		this.executionId = executionId;
+		this.state = state;
+		this.version = version;
+	}
+
+	/**
+	 * Returns the name of the pipeline.
+	 *
+	 * @return the pipeline name
+	 */
+	public String pipeline() {
+		return pipeline;
+	}
+
+	/**
+	 * Returns the ID of the pipeline execution.
+	 *
+	 * @return the execution ID
+	 */
+	public String executionId() {
+		return executionId;
+	}
+
+	/**
+	 * Returns the state into which the execution has moved.
+	 *
+	 * @return the new state, or {@code null} if absent or unknown to this library
+	 */
+	public CodePipelineExecutionState state() {
+		return state;
+	}
+
+	/**
+	 * Returns the version of the pipeline's structure.
+	 *
+	 * @return the pipeline version
+	 */
+	public long version() {
+		return version;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextEnum;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextLong;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextNullIfPresent;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextString;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.writeProperty;
+
+/**
+ * Binds the detail of {@link CodePipelineExecutionEvent} and its subclasses; each names the nested adapter that
+ * constructs it.
+ */
+abstract class CodePipelineExecutionEventAdapter<T extends CodePipelineExecutionEvent> extends TypeAdapter<T> {
+	private CodePipelineExecutionEventAdapter() {
+	}
+
+	abstract T create(
+			String pipeline, String executionId, CodePipelineExecutionState state, long version, String stage
+	);
+
+	@Override
+	public void write(JsonWriter out, T value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		writeProperty(out, "pipeline", value.pipeline());
+		writeProperty(out, "execution-id", value.executionId());
+		writeProperty(out, "state", value.state() == null ? null : value.state().value());
+		writeProperty(out, "version", value.version());
+
+		if (value instanceof CodePipelineStageExecutionEvent) {
+			writeProperty(out, "stage", ((CodePipelineStageExecutionEvent) value).stage());
+		}
+
+		out.endObject();
+	}
+
+	@Override
+	public T read(JsonReader in) throws IOException {
+		if (nextNullIfPresent(in)) {
+			return null;
+		}
+
+		String pipeline = null;
+		String executionId = null;
+		CodePipelineExecutionState state = null;
+		long version = 0;
+		String stage = null;
+
+		in.beginObject();
+
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "pipeline":
+					pipeline = nextString(in);
+					break;
+				case "execution-id":
+					executionId = nextString(in);
+					break;
+				case "state":
+					state = nextEnum(in, CodePipelineExecutionState::fromValue);
+					break;
+				case "version":
+					version = nextLong(in);
+					break;
+				case "stage":
+					stage = nextString(in);
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		return create(pipeline, executionId, state, version, stage);
+	}
+
+	static final class Pipeline extends CodePipelineExecutionEventAdapter<CodePipelineExecutionEvent> {
+		@Override
+		CodePipelineExecutionEvent create(
+				String pipeline, String executionId, CodePipelineExecutionState state, long version, String stage
+		) {
+			return new CodePipelineExecutionEvent(pipeline, executionId, state, version);
+		}
+	}
+
+	static final class Stage extends CodePipelineExecutionEventAdapter<CodePipelineStageExecutionEvent> {
+		@Override
+		CodePipelineStageExecutionEvent create(
+				String pipeline, String executionId, CodePipelineExecutionState state, long version, String stage
+		) {
+			return new CodePipelineStageExecutionEvent(pipeline, executionId, state, version, stage);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * State of a pipeline or stage execution, as reported in a {@link CodePipelineExecutionEvent}.
+ */
+public enum CodePipelineExecutionState {
+	@SerializedName("STARTED")
+	STARTED,
+
+	@SerializedName("SUCCEEDED")
+	SUCCEEDED,
+
+	@SerializedName("RESUMED")
+	RESUMED,
+
+	@SerializedName("FAILED")
+	FAILED,
+
+	@SerializedName("CANCELED")
+	CANCELED,
+
+	@SerializedName("SUPERSEDED")
+	SUPERSEDED,
+
+	@SerializedName("STOPPING")
+	STOPPING,
+
+	@SerializedName("STOPPED")
+	STOPPED,
+
+	;
+
+	/**
+	 * Returns the state as it appears in the event.
+	 *
+	 * @return the JSON value of the state
+	 */
+	public String value() {
+		return name();
+	}
+
+	/**
+	 * Looks up the state named by a value as it appears in the event.
+	 *
+	 * @param value JSON value of the state
+	 * @return the matching state, or {@code null} if the value names no known state
+	 */
+	public static CodePipelineExecutionState fromValue(String value) {
+		switch (value) {
+			case "STARTED":
+				return STARTED;
+			case "SUCCEEDED":
+				return SUCCEEDED;
+			case "RESUMED":
+				return RESUMED;
+			case "FAILED":
+				return FAILED;
+			case "CANCELED":
+				return CANCELED;
+			case "SUPERSEDED":
+				return SUPERSEDED;
+			case "STOPPING":
+				return STOPPING;
+			case "STOPPED":
+				return STOPPED;
+			default:
+				return null;
+		}
+	}
+}
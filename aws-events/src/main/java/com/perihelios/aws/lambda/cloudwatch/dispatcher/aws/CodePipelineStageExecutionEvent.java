@@ -0,0 +1,48 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+
+/**
+ * Event emitted by CodePipeline when the state of a stage within a pipeline execution changes.
+ * <p>
+ * Stage events have a detail type of their own; a handler registered for {@link CodePipelineExecutionEvent} does not
+ * receive them.
+ * </p>
+ */
+@DetailType("CodePipeline Stage Execution State Change")
+@JsonAdapter(CodePipelineExecutionEventAdapter.Stage.class)
+public class CodePipelineStageExecutionEvent extends CodePipelineExecutionEvent {
+	private final String stage;
+
+	CodePipelineStageExecutionEvent(
+			String pipeline, String executionId, CodePipelineExecutionState state, long version, String stage
+	) {
+		super(pipeline, executionId, state, version);
+		this.stage = stage;
+	}
+
+	/**
+	 * Returns the name of the stage.
+	 *
+	 * @return the stage name
+	 */
+	public String stage() {
+		return stage;
+	}
+}
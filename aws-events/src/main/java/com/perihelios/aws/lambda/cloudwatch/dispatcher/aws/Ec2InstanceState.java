@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * State of an EC2 instance, as reported in an {@link Ec2InstanceStateChangeEvent}.
+ */
+public enum Ec2InstanceState {
+	@SerializedName("pending")
+	PENDING("pending"),
+
+	@SerializedName("running")
+	RUNNING("running"),
+
+	@SerializedName("shutting-down")
+	SHUTTING_DOWN("shutting-down"),
+
+	@SerializedName("stopping")
+	STOPPING("stopping"),
+
+	@SerializedName("stopped")
+	STOPPED("stopped"),
+
+	@SerializedName("terminated")
+	TERMINATED("terminated"),
+
+	;
+
+	private final String value;
+
+	Ec2InstanceState(String value) {
+		this.value = value;
+	}
+
+	/**
+	 * Returns the state as it appears in the event.
+	 *
+	 * @return the JSON value of the state
+	 */
+	public String value() {
+		return value;
+	}
+
+	/**
+	 * Looks up the state named by a value as it appears in the event.
+	 *
+	 * @param value JSON value of the state
+	 * @return the matching state, or {@code null} if the value names no known state
+	 */
+	public static Ec2InstanceState fromValue(String value) {
+		switch (value) {
+			case "pending":
+				return PENDING;
+			case "running":
+				return RUNNING;
+			case "shutting-down":
+				return SHUTTING_DOWN;
+			case "stopping":
+				return STOPPING;
+			case "stopped":
+				return STOPPED;
+			case "terminated":
+				return TERMINATED;
+			default:
+				return null;
+		}
+	}
+}
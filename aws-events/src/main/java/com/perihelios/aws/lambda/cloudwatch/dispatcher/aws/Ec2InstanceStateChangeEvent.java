@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+
+/**
+ * Event emitted by EC2 when an instance changes state.
+ * <p>
+ * See the
+ * <a href="https://docs.aws.amazon.com/AmazonCloudWatch/latest/events/EventTypes.html#ec2_event_type">AWS docs</a>.
+ * </p>
+ */
+@DetailType("EC2 Instance State-change Notification")
+@JsonAdapter(Ec2InstanceStateChangeEventAdapter.class)
+public class Ec2InstanceStateChangeEvent extends CloudWatchEvent {
+	private final String instanceId;
+	private final Ec2InstanceState state;
+
+	Ec2InstanceStateChangeEvent(String instanceId, Ec2InstanceState state) {
+		this.instanceId = instanceId;
+		this.state = state;
+	}
+
+	/**
+	 * Returns the ID of the instance that changed state.
+	 *
+	 * @return the instance ID, such as {@code i-abcd1111}
+	 */
+	public String instanceId() {
+		return instanceId;
+	}
+
+	/**
+	 * Returns the state into which the instance has moved.
+	 *
+	 * @return the new state, or {@code null} if the event names a state unknown to this library
+	 */
+	public Ec2InstanceState state() {
+		return state;
+	}
+}
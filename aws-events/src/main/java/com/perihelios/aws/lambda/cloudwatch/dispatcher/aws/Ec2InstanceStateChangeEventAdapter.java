@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextEnum;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextNullIfPresent;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextString;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.writeProperty;
+
+class Ec2InstanceStateChangeEventAdapter extends TypeAdapter<Ec2InstanceStateChangeEvent> {
+	@Override
+	public void write(JsonWriter out, Ec2InstanceStateChangeEvent value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		writeProperty(out, "instance-id", value.instanceId());
+		writeProperty(out, "state", value.state() == null ? null : value.state().value());
+		out.endObject();
+	}
+
+	@Override
+	public Ec2InstanceStateChangeEvent read(JsonReader in) throws IOException {
+		if (nextNullIfPresent(in)) {
+			return null;
+		}
+
+		String instanceId = null;
+		Ec2InstanceState state = null;
+
+		in.beginObject();
+
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "instance-id":
+					instanceId = nextString(in);
+					break;
+				case "state":
+					state = nextEnum(in, Ec2InstanceState::fromValue);
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		return new Ec2InstanceStateChangeEvent(instanceId, state);
+	}
+}
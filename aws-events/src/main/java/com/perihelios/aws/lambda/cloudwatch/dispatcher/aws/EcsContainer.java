@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+/**
+ * A container within the task of an {@link EcsTaskStateChangeEvent}.
+ */
+public class EcsContainer {
+	private final String containerArn;
+	private final String name;
+	private final EcsTaskStatus lastStatus;
+	private final Integer exitCode;
+	private final String reason;
+
+	EcsContainer(String containerArn, String name, EcsTaskStatus lastStatus, Integer exitCode, String reason) {
+		this.containerArn = containerArn;
+		this.name = name;
+		this.lastStatus = lastStatus;
+		this.exitCode = exitCode;
+		this.reason = reason;
+	}
+
+	/**
+	 * Returns the ARN of the container.
+	 *
+	 * @return the container ARN
+	 */
+	public String containerArn() {
+		return containerArn;
+	}
+
+	/**
+	 * Returns the name of the container, from the task definition.
+	 *
+	 * @return the container name
+	 */
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * Returns the last known status of the container.
+	 *
+	 * @return the container status, or {@code null} if absent or unknown to this library
+	 */
+	public EcsTaskStatus lastStatus() {
+		return lastStatus;
+	}
+
+	/**
+	 * Returns the exit code of the container.
+	 *
+	 * @return the exit code, or {@code null} if the container has not exited
+	 */
+	public Integer exitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * Returns a further explanation of the container's status.
+	 *
+	 * @return the reason, or {@code null} if none was given
+	 */
+	public String reason() {
+		return reason;
+	}
+}
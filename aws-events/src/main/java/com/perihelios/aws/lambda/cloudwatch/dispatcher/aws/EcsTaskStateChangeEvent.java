@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Event emitted by ECS when the status of a task, or of one of its containers, changes.
+ * <p>
+ * See the
+ * <a href="https://docs.aws.amazon.com/AmazonECS/latest/developerguide/ecs_cwe_events.html">AWS docs</a>.
+ * </p>
+ */
+@DetailType("ECS Task State Change")
+@JsonAdapter(EcsTaskStateChangeEventAdapter.class)
+public class EcsTaskStateChangeEvent extends CloudWatchEvent {
+	private final String clusterArn;
+	private final String taskArn;
+	private final String taskDefinitionArn;
+	private final String group;
+	private final String launchType;
+	private final EcsTaskStatus lastStatus;
+	private final EcsTaskStatus desiredStatus;
+	private final String stoppedReason;
+	private final String stopCode;
+	private final long version;
+	private final ZonedDateTime createdAt;
+	private final ZonedDateTime startedAt;
+	private final ZonedDateTime stoppedAt;
+	private final List<EcsContainer> containers;
+
+	EcsTaskStateChangeEvent(
+			String clusterArn, String taskArn, String taskDefinitionArn, String group, String launchType,
+			EcsTaskStatus lastStatus, EcsTaskStatus desiredStatus, String stoppedReason, String stopCode, long version,
+			ZonedDateTime createdAt, ZonedDateTime startedAt, ZonedDateTime stoppedAt, List<EcsContainer> containers
+	) {
+		this.clusterArn = clusterArn;
+		this.taskArn = taskArn;
+		this.taskDefinitionArn = taskDefinitionArn;
+		this.group = group;
+		this.launchType = launchType;
+		this.lastStatus = lastStatus;
+		this.desiredStatus = desiredStatus;
+		this.stoppedReason = stoppedReason;
+		this.stopCode = stopCode;
+		this.version = version;
+		this.createdAt = createdAt;
+		this.startedAt = startedAt;
+		this.stoppedAt = stoppedAt;
+		this.containers = containers;
+	}
+
+	/**
+	 * Returns the ARN of the cluster running the task.
+	 *
+	 * @return the cluster ARN
+	 */
+	public String clusterArn() {
+		return clusterArn;
+	}
+
+	/**
+	 * Returns the ARN of the task.
+	 *
+	 * @return the task ARN
+	 */
+	public String taskArn() {
+		return taskArn;
+	}
+
+	/**
+	 * Returns the ARN of the task definition from which the task was started.
+	 *
+	 * @return the task definition ARN
+	 */
+	public String taskDefinitionArn() {
+		return taskDefinitionArn;
+	}
+
+	/**
+	 * Returns the group of the task, such as {@code service:my-service} for a task started by a service.
+	 *
+	 * @return the task group, or {@code null} if absent
+	 */
+	public String group() {
+		return group;
+	}
+
+	/**
+	 * Returns the launch type of the task.
+	 *
+	 * @return the launch type, such as {@code EC2} or {@code FARGATE}, or {@code null} if absent
+	 */
+	public String launchType() {
+		return launchType;
+	}
+
+	/**
+	 * Returns the last known status of the task.
+	 *
+	 * @return the task status, or {@code null} if absent or unknown to this library
+	 */
+	public EcsTaskStatus lastStatus() {
+		return lastStatus;
+	}
+
+	/**
+	 * Returns the status toward which the task is moving.
+	 *
+	 * @return the desired status, or {@code null} if absent or unknown to this library
+	 */
+	public EcsTaskStatus desiredStatus() {
+		return desiredStatus;
+	}
+
+	/**
+	 * Returns the reason the task was stopped.
+	 *
+	 * @return the reason, or {@code null} if the task has not stopped
+	 */
+	public String stoppedReason() {
+		return stoppedReason;
+	}
+
+	/**
+	 * Returns the code classifying why the task was stopped.
+	 *
+	 * @return the stop code, such as {@code EssentialContainerExited}, or {@code null} if the task has not stopped
+	 */
+	public String stopCode() {
+		return stopCode;
+	}
+
+	/**
+	 * Returns the version of the task's state; events for a task can arrive out of order, and a later state has a
+	 * higher version.
+	 *
+	 * @return the state version
+	 */
+	public long version() {
+		return version;
+	}
+
+	/**
+	 * Returns the time the task was created.
+	 *
+	 * @return the creation time, or {@code null} if absent
+	 */
+	public ZonedDateTime createdAt() {
+		return createdAt;
+	}
+
+	/**
+	 * Returns the time the task started.
+	 *
+	 * @return the start time, or {@code null} if the task has not started
+	 */
+	public ZonedDateTime startedAt() {
+		return startedAt;
+	}
+
+	/**
+	 * Returns the time the task stopped.
+	 *
+	 * @return the stop time, or {@code null} if the task has not stopped
+	 */
+	public ZonedDateTime stoppedAt() {
+		return stoppedAt;
+	}
+
+	/**
+	 * Returns the containers of the task.
+	 *
+	 * @return unmodifiable list of containers; empty if none were listed
+	 */
+	public List<EcsContainer> containers() {
+		return containers;
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextEnum;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextInteger;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextLong;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextNullIfPresent;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextString;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.nextTime;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.aws.StreamingJson.writeProperty;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+class EcsTaskStateChangeEventAdapter extends TypeAdapter<EcsTaskStateChangeEvent> {
+	@Override
+	public void write(JsonWriter out, EcsTaskStateChangeEvent value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		writeProperty(out, "clusterArn", value.clusterArn());
+		writeProperty(out, "taskArn", value.taskArn());
+		writeProperty(out, "taskDefinitionArn", value.taskDefinitionArn());
+		writeProperty(out, "group", value.group());
+		writeProperty(out, "launchType", value.launchType());
+		writeProperty(out, "lastStatus", value.lastStatus() == null ? null : value.lastStatus().value());
+		writeProperty(out, "desiredStatus", value.desiredStatus() == null ? null : value.desiredStatus().value());
+		writeProperty(out, "stoppedReason", value.stoppedReason());
+		writeProperty(out, "stopCode", value.stopCode());
+		writeProperty(out, "version", value.version());
+		writeProperty(out, "createdAt", value.createdAt());
+		writeProperty(out, "startedAt", value.startedAt());
+		writeProperty(out, "stoppedAt", value.stoppedAt());
+
+		out.name("containers").beginArray();
+		for (EcsContainer container : value.containers()) {
+			writeContainer(out, container);
+		}
+		out.endArray();
+
+		out.endObject();
+	}
+
+	@Override
+	public EcsTaskStateChangeEvent read(JsonReader in) throws IOException {
+		if (nextNullIfPresent(in)) {
+			return null;
+		}
+
+		String clusterArn = null;
+		String taskArn = null;
+		String taskDefinitionArn = null;
+		String group = null;
+		String launchType = null;
+		EcsTaskStatus lastStatus = null;
+		EcsTaskStatus desiredStatus = null;
+		String stoppedReason = null;
+		String stopCode = null;
+		long version = 0;
+		ZonedDateTime createdAt = null;
+		ZonedDateTime startedAt = null;
+		ZonedDateTime stoppedAt = null;
+		List<EcsContainer> containers = emptyList();
+
+		in.beginObject();
+
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "clusterArn":
+					clusterArn = nextString(in);
+					break;
+				case "taskArn":
+					taskArn = nextString(in);
+					break;
+				case "taskDefinitionArn":
+					taskDefinitionArn = nextString(in);
+					break;
+				case "group":
+					group = nextString(in);
+					break;
+				case "launchType":
+					launchType = nextString(in);
+					break;
+				case "lastStatus":
+					lastStatus = nextEnum(in, EcsTaskStatus::fromValue);
+					break;
+				case "desiredStatus":
+					desiredStatus = nextEnum(in, EcsTaskStatus::fromValue);
+					break;
+				case "stoppedReason":
+					stoppedReason = nextString(in);
+					break;
+				case "stopCode":
+					stopCode = nextString(in);
+					break;
+				case "version":
+					version = nextLong(in);
+					break;
+				case "createdAt":
+					createdAt = nextTime(in);
+					break;
+				case "startedAt":
+					startedAt = nextTime(in);
+					break;
+				case "stoppedAt":
+					stoppedAt = nextTime(in);
+					break;
+				case "containers":
+					containers = readContainers(in);
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		return new EcsTaskStateChangeEvent(
+				clusterArn, taskArn, taskDefinitionArn, group, launchType, lastStatus, desiredStatus, stoppedReason,
+				stopCode, version, createdAt, startedAt, stoppedAt, containers
+		);
+	}
+
+	private static List<EcsContainer> readContainers(JsonReader in) throws IOException {
+		if (nextNullIfPresent(in)) {
+			return emptyList();
+		}
+
+		List<EcsContainer> containers = new ArrayList<>();
+
+		in.beginArray();
+		while (in.hasNext()) {
+			containers.add(readContainer(in));
+		}
+		in.endArray();
+
+		return unmodifiableList(containers);
+	}
+
+	private static EcsContainer readContainer(JsonReader in) throws IOException {
+		String containerArn = null;
+		String name = null;
+		EcsTaskStatus lastStatus = null;
+		Integer exitCode = null;
+		String reason = null;
+
+		in.beginObject();
+
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "containerArn":
+					containerArn = nextString(in);
+					break;
+				case "name":
+					name = nextString(in);
+					break;
+				case "lastStatus":
+					lastStatus = nextEnum(in, EcsTaskStatus::fromValue);
+					break;
+				case "exitCode":
+					exitCode = nextInteger(in);
+					break;
+				case "reason":
+					reason = nextString(in);
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+
+		in.endObject();
+
+		return new EcsContainer(containerArn, name, lastStatus, exitCode, reason);
+	}
+
+	private static void writeContainer(JsonWriter out, EcsContainer container) throws IOException {
+		out.beginObject();
+		writeProperty(out, "containerArn", container.containerArn());
+		writeProperty(out, "name", container.name());
+		writeProperty(out, "lastStatus", container.lastStatus() == null ? null : container.lastStatus().value());
+		writeProperty(out, "exitCode", container.exitCode());
+		writeProperty(out, "reason", container.reason());
+		out.endObject();
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Lifecycle status of an ECS task or container, as reported in an {@link EcsTaskStateChangeEvent}.
+ */
+public enum EcsTaskStatus {
+	@SerializedName("PROVISIONING")
+	PROVISIONING,
+
+	@SerializedName("PENDING")
+	PENDING,
+
+	@SerializedName("ACTIVATING")
+	ACTIVATING,
+
+	@SerializedName("RUNNING")
+	RUNNING,
+
+	@SerializedName("DEACTIVATING")
+	DEACTIVATING,
+
+	@SerializedName("STOPPING")
+	STOPPING,
+
+	@SerializedName("DEPROVISIONING")
+	DEPROVISIONING,
+
+	@SerializedName("STOPPED")
+	STOPPED,
+
+	;
+
+	/**
+	 * Returns the status as it appears in the event.
+	 *
+	 * @return the JSON value of the status
+	 */
+	public String value() {
+		return name();
+	}
+
+	/**
+	 * Looks up the status named by a value as it appears in the event.
+	 *
+	 * @param value JSON value of the status
+	 * @return the matching status, or {@code null} if the value names no known status
+	 */
+	public static EcsTaskStatus fromValue(String value) {
+		switch (value) {
+			case "PROVISIONING":
+				return PROVISIONING;
+			case "PENDING":
+				return PENDING;
+			case "ACTIVATING":
+				return ACTIVATING;
+			case "RUNNING":
+				return RUNNING;
+			case "DEACTIVATING":
+				return DEACTIVATING;
+			case "STOPPING":
+				return STOPPING;
+			case "DEPROVISIONING":
+				return DEPROVISIONING;
+			case "STOPPED":
+				return STOPPED;
+			default:
+				return null;
+		}
+	}
+}
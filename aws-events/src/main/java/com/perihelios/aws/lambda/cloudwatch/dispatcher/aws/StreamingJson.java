@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.ZonedDateTime;
+import java.util.function.Function;
+
+import static com.google.gson.stream.JsonToken.NULL;
+import static java.time.ZoneOffset.UTC;
+import static java.time.format.DateTimeFormatter.ISO_ZONED_DATE_TIME;
+
+/**
+ * Token-level reading and writing shared by the adapters in this package.
+ * <p>
+ * Absent and {@code null} properties alike are read as {@code null} (or zero, for primitives), and {@code null}
+ * values are omitted when writing, as GSON does by default.
+ * </p>
+ */
+final class StreamingJson {
+	private StreamingJson() {
+	}
+
+	static boolean nextNullIfPresent(JsonReader in) throws IOException {
+		if (in.peek() == NULL) {
+			in.nextNull();
+
+			return true;
+		}
+
+		return false;
+	}
+
+	static String nextString(JsonReader in) throws IOException {
+		return nextNullIfPresent(in) ? null : in.nextString();
+	}
+
+	static Integer nextInteger(JsonReader in) throws IOException {
+		return nextNullIfPresent(in) ? null : in.nextInt();
+	}
+
+	static long nextLong(JsonReader in) throws IOException {
+		return nextNullIfPresent(in) ? 0 : in.nextLong();
+	}
+
+	static ZonedDateTime nextTime(JsonReader in) throws IOException {
+		return nextNullIfPresent(in) ? null : parseTime(in.nextString());
+	}
+
+	/**
+	 * Parses a timestamp, taking a fast path for the UTC form AWS services use, such as
+	 * {@code 2020-01-23T17:57:34.402Z}, and falling back to {@code ISO_ZONED_DATE_TIME} for anything else.
+	 */
+	static ZonedDateTime parseTime(String text) {
+		int length = text.length();
+
+		if (length < 20 || text.charAt(length - 1) != 'Z' || text.charAt(4) != '-' || text.charAt(7) != '-' ||
+				text.charAt(10) != 'T' || text.charAt(13) != ':' || text.charAt(16) != ':') {
+			return ZonedDateTime.parse(text, ISO_ZONED_DATE_TIME);
+		}
+
+		int nanos = 0;
+
+		if (length > 20) {
+			int digits = length - 21;
+
+			if (text.charAt(19) != '.' || digits < 1 || digits > 9) {
+				return ZonedDateTime.parse(text, ISO_ZONED_DATE_TIME);
+			}
+
+			nanos = digits(text, 20, length - 1);
+			for (int i = digits; i < 9; i++) {
+				nanos *= 10;
+			}
+		}
+
+		int year = digits(text, 0, 4);
+		int month = digits(text, 5, 7);
+		int day = digits(text, 8, 10);
+		int hour = digits(text, 11, 13);
+		int minute = digits(text, 14, 16);
+		int second = digits(text, 17, 19);
+
+		if ((year | month | day | hour | minute | second | nanos) < 0) {
+			return ZonedDateTime.parse(text, ISO_ZONED_DATE_TIME);
+		}
+
+		try {
+			return ZonedDateTime.of(year, month, day, hour, minute, second, nanos, UTC);
+		} catch (DateTimeException e) {
+			return ZonedDateTime.parse(text, ISO_ZONED_DATE_TIME);
+		}
+	}
+
+	private static int digits(String text, int start, int end) {
+		int value = 0;
+
+		for (int i = start; i < end; i++) {
+			int digit = text.charAt(i) - '0';
+
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+
+			value = value * 10 + digit;
+		}
+
+		return value;
+	}
+
+	static <E extends Enum<E>> E nextEnum(JsonReader in, Function<String, E> fromValue) throws IOException {
+		return nextNullIfPresent(in) ? null : fromValue.apply(in.nextString());
+	}
+
+	static void writeProperty(JsonWriter out, String name, String value) throws IOException {
+		if (value != null) {
+			out.name(name).value(value);
+		}
+	}
+
+	static void writeProperty(JsonWriter out, String name, Number value) throws IOException {
+		if (value != null) {
+			out.name(name).value(value);
+		}
+	}
+
+	static void writeProperty(JsonWriter out, String name, ZonedDateTime value) throws IOException {
+		if (value != null) {
+			out.name(name).value(value.format(ISO_ZONED_DATE_TIME));
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.google.gson.Gson;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AwsEventsTest {
+	@Test
+	void binds_ec2_instance_state_change() {
+		Ec2InstanceStateChangeEvent event =
+				dispatch("/ec2-instance-state-change.json", Ec2InstanceStateChangeEvent.class);
+
+		assertThat(event.instanceId()).isEqualTo("i-abcd1111");
+		assertThat(event.state()).isEqualTo(Ec2InstanceState.SHUTTING_DOWN);
+		assertThat(event.header().source()).isEqualTo("aws.ec2");
+	}
+
+	@Test
+	void binds_ecs_task_state_change() {
+		EcsTaskStateChangeEvent event = dispatch("/ecs-task-state-change.json", EcsTaskStateChangeEvent.class);
+
+		assertThat(event.clusterArn()).isEqualTo("arn:aws:ecs:us-west-2:111122223333:cluster/FargateCluster");
+		assertThat(event.taskArn())
+				.isEqualTo("arn:aws:ecs:us-west-2:111122223333:task/FargateCluster/c13b4cb40f1f4fe4a2971f76ae5a47ad");
+		assertThat(event.taskDefinitionArn())
+				.isEqualTo("arn:aws:ecs:us-west-2:111122223333:task-definition/sample-fargate:1");
+		assertThat(event.group()).isEqualTo("family:sample-fargate");
+		assertThat(event.launchType()).isEqualTo("FARGATE");
+		assertThat(event.lastStatus()).isEqualTo(EcsTaskStatus.STOPPED);
+		assertThat(event.desiredStatus()).isEqualTo(EcsTaskStatus.STOPPED);
+		assertThat(event.stoppedReason()).isEqualTo("Essential container in task exited");
+		assertThat(event.stopCode()).isEqualTo("EssentialContainerExited");
+		assertThat(event.version()).isEqualTo(5);
+		assertThat(event.createdAt()).isEqualTo(ZonedDateTime.parse("2020-01-23T17:57:34.402Z"));
+		assertThat(event.startedAt()).isEqualTo(ZonedDateTime.parse("2020-01-23T17:57:38.116Z"));
+		assertThat(event.stoppedAt()).isEqualTo(ZonedDateTime.parse("2020-01-23T17:57:58.228Z"));
+
+		assertThat(event.containers()).hasSize(1);
+		EcsContainer container = event.containers().get(0);
+		assertThat(container.name()).isEqualTo("FargateApp");
+		assertThat(container.lastStatus()).isEqualTo(EcsTaskStatus.STOPPED);
+		assertThat(container.exitCode()).isEqualTo(1);
+		assertThat(container.reason()).isEqualTo("Application exited");
+	}
+
+	@Test
+	void binds_auto_scaling_launch() {
+		AutoScalingInstanceLaunchEvent event =
+				dispatch("/autoscaling-launch-successful.json", AutoScalingInstanceLaunchEvent.class);
+
+		assertThat(event.activityId()).isEqualTo("9cabb81f-42de-417d-8aa7-ce16bf026590");
+		assertThat(event.autoScalingGroupName()).isEqualTo("sampleLuanchSucASG");
+		assertThat(event.ec2InstanceId()).isEqualTo("i-b188560f");
+		assertThat(event.statusCode()).isEqualTo(AutoScalingActivityStatus.IN_PROGRESS);
+		assertThat(event.statusMessage()).isNull();
+		assertThat(event.startTime()).isEqualTo(ZonedDateTime.parse("2015-11-11T21:31:13.671Z"));
+		assertThat(event.endTime()).isEqualTo(ZonedDateTime.parse("2015-11-11T21:31:47.208Z"));
+		assertThat(event.details())
+				.containsEntry("Availability Zone", "us-east-1b")
+				.containsEntry("Subnet ID", "subnet-95bfcebe");
+	}
+
+	@Test
+	void binds_code_pipeline_stage_execution_with_quoted_version() {
+		CodePipelineStageExecutionEvent event =
+				dispatch("/codepipeline-stage-execution.json", CodePipelineStageExecutionEvent.class);
+
+		assertThat(event.pipeline()).isEqualTo("myPipeline");
+		assertThat(event.executionId()).isEqualTo("01234567-0123-0123-0123-012345678901");
+		assertThat(event.stage()).isEqualTo("Prod");
+		assertThat(event.state()).isEqualTo(CodePipelineExecutionState.STARTED);
+		assertThat(event.version()).isEqualTo(1);
+	}
+
+	@Test
+	void maps_unknown_enum_values_to_null() {
+		Ec2InstanceStateChangeEvent event = new Gson().fromJson(
+				"{\"instance-id\": \"i-1\", \"state\": \"hibernating\"}", Ec2InstanceStateChangeEvent.class
+		);
+
+		assertThat(event.instanceId()).isEqualTo("i-1");
+		assertThat(event.state()).isNull();
+	}
+
+	@Test
+	void enum_mappings_agree_with_serialized_names() {
+		Gson gson = new Gson();
+
+		for (Ec2InstanceState value : Ec2InstanceState.values()) {
+			assertThat(gson.toJson(value)).isEqualTo('"' + value.value() + '"');
+			assertThat(Ec2InstanceState.fromValue(value.value())).isEqualTo(value);
+		}
+		for (EcsTaskStatus value : EcsTaskStatus.values()) {
+			assertThat(gson.toJson(value)).isEqualTo('"' + value.value() + '"');
+			assertThat(EcsTaskStatus.fromValue(value.value())).isEqualTo(value);
+		}
+		for (AutoScalingActivityStatus value : AutoScalingActivityStatus.values()) {
+			assertThat(gson.toJson(value)).isEqualTo('"' + value.value() + '"');
+			assertThat(AutoScalingActivityStatus.fromValue(value.value())).isEqualTo(value);
+		}
+		for (CodePipelineExecutionState value : CodePipelineExecutionState.values()) {
+			assertThat(gson.toJson(value)).isEqualTo('"' + value.value() + '"');
+			assertThat(CodePipelineExecutionState.fromValue(value.value())).isEqualTo(value);
+		}
+	}
+
+	@Test
+	void writes_detail_readable_by_the_same_adapter() {
+		Gson gson = new Gson();
+		EcsTaskStateChangeEvent original = dispatch("/ecs-task-state-change.json", EcsTaskStateChangeEvent.class);
+
+		EcsTaskStateChangeEvent copy = gson.fromJson(gson.toJson(original), EcsTaskStateChangeEvent.class);
+
+		assertThat(copy).isEqualToIgnoringGivenFields(original, "containers", "header");
+		assertThat(copy.containers()).usingFieldByFieldElementComparator().isEqualTo(original.containers());
+
+		AutoScalingInstanceTerminateEvent terminate = gson.fromJson(
+				"{\"EC2InstanceId\": \"i-1\", \"StatusCode\": \"Successful\", \"Details\": {\"Subnet ID\": \"s-1\"}}",
+				AutoScalingInstanceTerminateEvent.class
+		);
+
+		assertThat(gson.toJson(terminate)).isEqualTo(
+				"{\"EC2InstanceId\":\"i-1\",\"StatusCode\":\"Successful\",\"Details\":{\"Subnet ID\":\"s-1\"}}"
+		);
+		assertThat(terminate.details()).isEqualTo(singletonMap("Subnet ID", "s-1"));
+	}
+
+	static <T extends CloudWatchEvent> T dispatch(String resource, Class<T> type) {
+		AtomicReference<T> received = new AtomicReference<>();
+
+		new CloudWatchEventDispatcher(AwsEventsTest.class.getResourceAsStream(resource), null)
+				.withEventHandler(type, (event, context) -> received.set(event))
+				.dispatch();
+
+		assertThat(received.get()).as("event dispatched from %s", resource).isNotNull();
+
+		return received.get();
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares dispatch of the same event through a prebuilt adapter and through the dispatcher's reflective binding,
+ * publishing the median and 99th percentile dispatch time and the allocation per event of each, and checking that the
+ * prebuilt adapter allocates no more.
+ */
+class BindingBenchmarkTest {
+	private static final int WARMUP = 20_000;
+	private static final int MEASURED = 20_000;
+
+	@Test
+	void compares_prebuilt_and_reflective_binding(TestReporter reporter) throws IOException {
+		byte[] message = readAllBytes("/ecs-task-state-change.json");
+
+		EcsTaskStateChangeEvent[] prebuilt = new EcsTaskStateChangeEvent[1];
+		ReflectiveEcsTaskStateChangeEvent[] reflective = new ReflectiveEcsTaskStateChangeEvent[1];
+
+		BiConsumer<EcsTaskStateChangeEvent, Context> prebuiltHandler = (event, context) -> prebuilt[0] = event;
+		BiConsumer<ReflectiveEcsTaskStateChangeEvent, Context> reflectiveHandler =
+				(event, context) -> reflective[0] = event;
+
+		for (int i = 0; i < WARMUP; i++) {
+			dispatch(message, EcsTaskStateChangeEvent.class, prebuiltHandler);
+			dispatch(message, ReflectiveEcsTaskStateChangeEvent.class, reflectiveHandler);
+		}
+
+		Sample reflectiveSample = measure(message, ReflectiveEcsTaskStateChangeEvent.class, reflectiveHandler);
+		Sample prebuiltSample = measure(message, EcsTaskStateChangeEvent.class, prebuiltHandler);
+
+		reporter.publishEntry("prebuilt adapter", prebuiltSample.toString());
+		reporter.publishEntry("reflective binding", reflectiveSample.toString());
+
+		assertThat(prebuilt[0].taskArn()).isEqualTo(reflective[0].taskArn);
+		assertThat(prebuilt[0].lastStatus()).isEqualTo(reflective[0].lastStatus);
+		assertThat(prebuilt[0].stoppedAt()).isEqualTo(reflective[0].stoppedAt);
+		assertThat(prebuilt[0].containers().get(0).exitCode()).isEqualTo(reflective[0].containers.get(0).exitCode);
+
+		assertThat(prebuiltSample.bytesPerEvent).isLessThanOrEqualTo(reflectiveSample.bytesPerEvent);
+	}
+
+	private static <T extends CloudWatchEvent> Sample measure(
+			byte[] message, Class<T> type, BiConsumer<T, Context> handler
+	) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long[] nanos = new long[MEASURED];
+
+		long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+		for (int i = 0; i < MEASURED; i++) {
+			long start = System.nanoTime();
+			dispatch(message, type, handler);
+			nanos[i] = System.nanoTime() - start;
+		}
+		long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+		Arrays.sort(nanos);
+
+		return new Sample(nanos[MEASURED / 2], nanos[MEASURED * 99 / 100], allocated / MEASURED);
+	}
+
+	private static <T extends CloudWatchEvent> void dispatch(
+			byte[] message, Class<T> type, BiConsumer<T, Context> handler
+	) {
+		new CloudWatchEventDispatcher(new ByteArrayInputStream(message), null)
+				.withEventHandler(type, handler)
+				.dispatch();
+	}
+
+	private static byte[] readAllBytes(String resource) throws IOException {
+		try (InputStream in = BindingBenchmarkTest.class.getResourceAsStream(resource)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private static final class Sample {
+		private final long medianNanos;
+		private final long p99Nanos;
+		private final long bytesPerEvent;
+
+		Sample(long medianNanos, long p99Nanos, long bytesPerEvent) {
+			this.medianNanos = medianNanos;
+			this.p99Nanos = p99Nanos;
+			this.bytesPerEvent = bytesPerEvent;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("median=%.1fus p99=%.1fus allocated=%dB/event",
+					medianNanos / 1e3, p99Nanos / 1e3, bytesPerEvent);
+		}
+	}
+
+	@DetailType("ECS Task State Change")
+	static class ReflectiveEcsTaskStateChangeEvent extends CloudWatchEvent {
+		String clusterArn;
+		String taskArn;
+		String taskDefinitionArn;
+		String group;
+		String launchType;
+		EcsTaskStatus lastStatus;
+		EcsTaskStatus desiredStatus;
+		String stoppedReason;
+		String stopCode;
+		long version;
+		ZonedDateTime createdAt;
+		ZonedDateTime startedAt;
+		ZonedDateTime stoppedAt;
+		List<Container> containers;
+	}
+
+	static class Container {
+		String containerArn;
+		String name;
+		EcsTaskStatus lastStatus;
+		Integer exitCode;
+		String reason;
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aws;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+
+import static java.time.format.DateTimeFormatter.ISO_ZONED_DATE_TIME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingJsonTest {
+	@Test
+	void parses_times_as_iso_zoned_date_time_does() {
+		String[] times = {
+				"2015-11-11T21:29:54Z",
+				"2020-01-23T17:57:34.402Z",
+				"2020-01-23T17:57:34.4Z",
+				"2020-01-23T17:57:34.123456789Z",
+				"2020-02-29T00:00:00Z",
+				"2020-01-23T17:57:34.Z",
+				"2020-01-23T17:57:34.402+02:00",
+				"2020-01-23T17:57:34-05:00[America/New_York]",
+		};
+
+		for (String time : times) {
+			assertThat(StreamingJson.parseTime(time)).as(time)
+					.isEqualTo(ZonedDateTime.parse(time, ISO_ZONED_DATE_TIME));
+		}
+	}
+
+	@Test
+	void rejects_invalid_times() {
+		String[] times = {"2019-02-29T00:00:00Z", "2019-01-01T24:00:00Z", "2019-0a-01T00:00:00Z"};
+
+		for (String time : times) {
+			assertThatThrownBy(() -> StreamingJson.parseTime(time)).as(time).isInstanceOf(DateTimeParseException.class);
+		}
+	}
+}
@@ -134,13 +134,23 @@ tasks {
 		archiveClassifier.set("javadoc")
 	}
 
+	// The library JAR with the annotation processor registered as a service, so that the processor runs only for
+	// projects that ask for it, rather than for every project compiling against the library
+	val processorJar by registering(Jar::class) {
+		dependsOn(JavaPlugin.CLASSES_TASK_NAME)
+		from(sourceSets["main"].output)
+		from("src/processor/resources")
+		archiveClassifier.set("processor")
+	}
+
 	artifacts {
 		add("archives", sourcesJar)
 		add("archives", javadocJar)
+		add("archives", processorJar)
 	}
 
 	build {
-		dependsOn(githubAwsLambdaCoreJavadoc, githubJavadoc, javadocJar, sourcesJar)
+		dependsOn(githubAwsLambdaCoreJavadoc, githubJavadoc, javadocJar, sourcesJar, processorJar)
 	}
 }
 
@@ -150,6 +160,7 @@ publishing {
 			from(components["java"])
 			artifact(tasks["sourcesJar"])
 			artifact(tasks["javadocJar"])
+			artifact(tasks["processorJar"])
 
 			pom {
 				name.set("AWS CloudWatch Event Dispatcher for AWS Lambda")
@@ -7,6 +7,8 @@ dependencies {
 	implementation("com.google.code.gson:gson:${versions.gson}")
 	implementation(project(":"))
 
+	annotationProcessor(project(":"))
+
 	testImplementation("org.junit.jupiter:junit-jupiter-api:${versions.junit}")
 	testImplementation("org.mockito:mockito-core:${versions.mockito}")
 	testImplementation("org.assertj:assertj-core:${versions.assertj}")
@@ -21,6 +23,12 @@ dependencies {
 }
 
 tasks {
+	compileJava {
+		options.compilerArgs.addAll(listOf(
+				"-processor", "com.perihelios.aws.lambda.cloudwatch.dispatcher.nativeimage.ReflectionConfigProcessor"
+		))
+	}
+
 	test {
 		dependsOn(shadowJar)
 	}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.test;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.synthetic.SyntheticEventGenerator;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime.InvocationResult;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime.LocalRuntimeApi;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime.LocalRuntimeDriver;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime.LocalRuntimeDriver.HandlerSample;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime.ShadedHandler;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime.Summary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalRuntimeLatencyTest {
+	private static final int WARM_INVOCATIONS = 5_000;
+
+	@Test
+	void measuresColdAndWarmInvocations(TestReporter reporter) throws Exception {
+		SyntheticEventGenerator events = new SyntheticEventGenerator(1).withEventType(CustomEvent.class, 1);
+
+		try (
+				LocalRuntimeApi api = new LocalRuntimeApi(Duration.ofSeconds(30));
+				LocalRuntimeDriver driver = LocalRuntimeDriver.start(
+						api.address(), ShadedHandler.load("/lambda.jar", Lambda.class.getName() + "::handle")
+				)
+		) {
+			InvocationResult cold = api.invoke(events.next().getBytes(UTF_8)).get(30, SECONDS);
+
+			List<CompletableFuture<InvocationResult>> pending = new ArrayList<>(WARM_INVOCATIONS);
+			long[] latencies = new long[WARM_INVOCATIONS];
+
+			for (int i = 0; i < WARM_INVOCATIONS; i++) {
+				pending.add(api.invoke(events.next().getBytes(UTF_8)));
+				latencies[i] = pending.get(i).get(30, SECONDS).serviceNanos();
+			}
+
+			assertThat(cold.succeeded()).isTrue();
+			assertThat(pending).allSatisfy(result -> assertThat(result.join().succeeded()).isTrue());
+
+			List<HandlerSample> samples = driver.samples();
+			long[] warmHandler = samples.stream().skip(1).mapToLong(HandlerSample::nanos).toArray();
+			long[] warmAllocated = samples.stream().skip(1).mapToLong(HandlerSample::allocatedBytes).toArray();
+
+			assertThat(samples).hasSize(WARM_INVOCATIONS + 1);
+
+			reporter.publishEntry("cold service time", String.format("%.1fms", cold.serviceNanos() / 1e6));
+			reporter.publishEntry("cold handler time", String.format("%.1fms", samples.get(0).nanos() / 1e6));
+			reporter.publishEntry("cold allocation", samples.get(0).allocatedBytes() + "B");
+			reporter.publishEntry("warm service time", Summary.of(latencies).format(1e3, "us"));
+			reporter.publishEntry("warm handler time", Summary.of(warmHandler).format(1e3, "us"));
+			reporter.publishEntry("warm allocation", Summary.of(warmAllocated).format(1, "B"));
+		}
+	}
+}
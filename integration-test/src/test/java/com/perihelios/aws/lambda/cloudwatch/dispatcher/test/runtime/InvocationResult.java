@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime;
+
+/**
+ * Outcome of one invocation through {@link LocalRuntimeApi}.
+ */
+public class InvocationResult {
+	private final String requestId;
+	private final boolean succeeded;
+	private final byte[] body;
+	private final long latencyNanos;
+	private final long serviceNanos;
+
+	InvocationResult(String requestId, boolean succeeded, byte[] body, long latencyNanos, long serviceNanos) {
+		this.requestId = requestId;
+		this.succeeded = succeeded;
+		this.body = body;
+		this.latencyNanos = latencyNanos;
+		this.serviceNanos = serviceNanos;
+	}
+
+	/**
+	 * Returns the request ID assigned to the invocation.
+	 *
+	 * @return request ID
+	 */
+	public String requestId() {
+		return requestId;
+	}
+
+	/**
+	 * Indicates whether the runtime posted a response (rather than an error) for the invocation.
+	 *
+	 * @return {@code true} if the invocation succeeded
+	 */
+	public boolean succeeded() {
+		return succeeded;
+	}
+
+	/**
+	 * Returns the response or error body posted by the runtime.
+	 *
+	 * @return posted body
+	 */
+	public byte[] body() {
+		return body;
+	}
+
+	/**
+	 * Returns the time from submission of the invocation to receipt of its outcome, including queueing.
+	 *
+	 * @return end-to-end latency, in nanoseconds
+	 */
+	public long latencyNanos() {
+		return latencyNanos;
+	}
+
+	/**
+	 * Returns the time from delivery of the invocation to the runtime to receipt of its outcome.
+	 *
+	 * @return service time, in nanoseconds
+	 */
+	public long serviceNanos() {
+		return serviceNanos;
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+class LocalContext implements Context {
+	private final String requestId;
+	private final String functionArn;
+	private final long deadlineMillis;
+	private final LambdaLogger logger;
+
+	LocalContext(String requestId, String functionArn, long deadlineMillis, LambdaLogger logger) {
+		this.requestId = requestId;
+		this.functionArn = functionArn;
+		this.deadlineMillis = deadlineMillis;
+		this.logger = logger;
+	}
+
+	@Override
+	public String getAwsRequestId() {
+		return requestId;
+	}
+
+	@Override
+	public String getLogGroupName() {
+		return "/aws/lambda/local";
+	}
+
+	@Override
+	public String getLogStreamName() {
+		return "local";
+	}
+
+	@Override
+	public String getFunctionName() {
+		return "local";
+	}
+
+	@Override
+	public String getFunctionVersion() {
+		return "$LATEST";
+	}
+
+	@Override
+	public String getInvokedFunctionArn() {
+		return functionArn;
+	}
+
+	@Override
+	public CognitoIdentity getIdentity() {
+		return null;
+	}
+
+	@Override
+	public ClientContext getClientContext() {
+		return null;
+	}
+
+	@Override
+	public int getRemainingTimeInMillis() {
+		return (int) Math.max(0, deadlineMillis - System.currentTimeMillis());
+	}
+
+	@Override
+	public int getMemoryLimitInMB() {
+		return (int) (Runtime.getRuntime().maxMemory() / (1024 * 1024));
+	}
+
+	@Override
+	public LambdaLogger getLogger() {
+		return logger;
+	}
+}
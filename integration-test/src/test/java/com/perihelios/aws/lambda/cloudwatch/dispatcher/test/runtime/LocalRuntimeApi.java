@@ -0,0 +1,236 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * In-process stand-in for the AWS Lambda Runtime API, as polled by custom runtimes and by the managed Java runtime.
+ * <p>
+ * Implements {@code GET /2018-06-01/runtime/invocation/next}, {@code POST .../invocation/{id}/response},
+ * {@code POST .../invocation/{id}/error} and {@code POST .../init/error}. Events submitted via {@link #invoke(byte[])}
+ * are queued and handed, in order, to runtime clients polling for the next invocation; the returned future completes
+ * when the client posts the response or error for that invocation.
+ * </p>
+ */
+public class LocalRuntimeApi implements AutoCloseable {
+	private static final String INVOCATION = "/2018-06-01/runtime/invocation/";
+	private static final String INIT_ERROR = "/2018-06-01/runtime/init/error";
+
+	static {
+		// Without TCP_NODELAY, small responses wait on delayed ACKs, adding tens of milliseconds to every invocation
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final long timeoutMillis;
+	private final BlockingQueue<Invocation> pending = new LinkedBlockingQueue<>();
+	private final Map<String, Invocation> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong requestIds = new AtomicLong();
+
+	private volatile String initError;
+
+	/**
+	 * Starts a stand-in server on an ephemeral loopback port.
+	 *
+	 * @param functionTimeout timeout reported to the runtime for each invocation, via the deadline header
+	 * @throws IOException if the server cannot be started
+	 */
+	public LocalRuntimeApi(Duration functionTimeout) throws IOException {
+		this.timeoutMillis = functionTimeout.toMillis();
+		this.executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "local-runtime-api");
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Returns the host and port of the server, in the form expected in the {@code AWS_LAMBDA_RUNTIME_API} environment
+	 * variable.
+	 *
+	 * @return server address
+	 */
+	public String address() {
+		InetSocketAddress address = server.getAddress();
+
+		return address.getHostString() + ":" + address.getPort();
+	}
+
+	/**
+	 * Queues an invocation.
+	 *
+	 * @param event invocation payload
+	 * @return future completed when the runtime reports the outcome of the invocation
+	 */
+	public CompletableFuture<InvocationResult> invoke(byte[] event) {
+		Invocation invocation = new Invocation("local-" + requestIds.incrementAndGet(), event);
+		pending.add(invocation);
+
+		return invocation.future;
+	}
+
+	/**
+	 * Returns the body of the most recent initialization error reported by the runtime.
+	 *
+	 * @return initialization error, or {@code null} if none was reported
+	 */
+	public String initError() {
+		return initError;
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String path = exchange.getRequestURI().getPath();
+			String method = exchange.getRequestMethod();
+
+			if (method.equals("GET") && path.equals(INVOCATION + "next")) {
+				next(exchange);
+			} else if (method.equals("POST") && path.equals(INIT_ERROR)) {
+				initError = new String(readBody(exchange), UTF_8);
+				respond(exchange, 202, new byte[0]);
+			} else if (method.equals("POST") && path.startsWith(INVOCATION)) {
+				complete(exchange, path.substring(INVOCATION.length()));
+			} else {
+				respond(exchange, 404, new byte[0]);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void next(HttpExchange exchange) throws IOException {
+		Invocation invocation;
+		try {
+			invocation = pending.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		inFlight.put(invocation.requestId, invocation);
+		invocation.deliveredNanos = System.nanoTime();
+
+		exchange.getResponseHeaders().add("Lambda-Runtime-Aws-Request-Id", invocation.requestId);
+		exchange.getResponseHeaders().add(
+				"Lambda-Runtime-Deadline-Ms", Long.toString(System.currentTimeMillis() + timeoutMillis)
+		);
+		exchange.getResponseHeaders().add(
+				"Lambda-Runtime-Invoked-Function-Arn", "arn:aws:lambda:local:000000000000:function:local"
+		);
+		exchange.getResponseHeaders().add("Lambda-Runtime-Trace-Id", "Root=1-00000000-" + invocation.requestId);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+
+		respond(exchange, 200, invocation.event);
+	}
+
+	private void complete(HttpExchange exchange, String rest) throws IOException {
+		int slash = rest.indexOf('/');
+		String requestId = slash < 0 ? rest : rest.substring(0, slash);
+		String outcome = slash < 0 ? "" : rest.substring(slash + 1);
+
+		Invocation invocation = inFlight.remove(requestId);
+		byte[] body = readBody(exchange);
+
+		if (invocation == null || !(outcome.equals("response") || outcome.equals("error"))) {
+			respond(exchange, 404, new byte[0]);
+			return;
+		}
+
+		respond(exchange, 202, new byte[0]);
+
+		long now = System.nanoTime();
+		invocation.future.complete(new InvocationResult(
+				requestId,
+				outcome.equals("response"),
+				body,
+				now - invocation.submittedNanos,
+				now - invocation.deliveredNanos
+		));
+	}
+
+	private static byte[] readBody(HttpExchange exchange) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+		byte[] buffer = new byte[8192];
+
+		try (InputStream in = exchange.getRequestBody()) {
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				body.write(buffer, 0, read);
+			}
+		}
+
+		return body.toByteArray();
+	}
+
+	private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+
+		if (body.length > 0) {
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		}
+	}
+
+	private static class Invocation {
+		private final String requestId;
+		private final byte[] event;
+		private final long submittedNanos = System.nanoTime();
+		private final CompletableFuture<InvocationResult> future = new CompletableFuture<>();
+
+		private volatile long deliveredNanos;
+
+		Invocation(String requestId, byte[] event) {
+			this.requestId = requestId;
+			this.event = event;
+		}
+	}
+}
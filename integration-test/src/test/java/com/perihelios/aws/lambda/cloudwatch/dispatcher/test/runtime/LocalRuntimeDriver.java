@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime;
+
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Minimal runtime client that polls a Runtime API (such as {@link LocalRuntimeApi}) and invokes a
+ * {@link ShadedHandler} for each invocation, as the managed Java runtime does.
+ * <p>
+ * The time spent in the handler, and the bytes it allocates, are recorded for every invocation (see
+ * {@link #samples()}); allocation is measured with {@code com.sun.management.ThreadMXBean}, on the single thread
+ * that runs all invocations.
+ * </p>
+ */
+public class LocalRuntimeDriver implements AutoCloseable {
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private final String baseUrl;
+	private final ShadedHandler handler;
+	private final Thread thread;
+	private final List<HandlerSample> samples = new CopyOnWriteArrayList<>();
+	private final LambdaLogger logger = new DiscardingLogger();
+
+	private volatile boolean running = true;
+
+	private LocalRuntimeDriver(String runtimeApi, ShadedHandler handler) {
+		this.baseUrl = "http://" + runtimeApi + "/2018-06-01/runtime/invocation/";
+		this.handler = handler;
+		this.thread = new Thread(this::loop, "local-runtime-driver");
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts polling for invocations.
+	 *
+	 * @param runtimeApi host and port of the Runtime API
+	 * @param handler    handler to invoke
+	 * @return the running driver
+	 */
+	public static LocalRuntimeDriver start(String runtimeApi, ShadedHandler handler) {
+		LocalRuntimeDriver driver = new LocalRuntimeDriver(runtimeApi, handler);
+		driver.thread.start();
+
+		return driver;
+	}
+
+	/**
+	 * Returns measurements of all invocations handled so far, in order.
+	 *
+	 * @return handler measurements
+	 */
+	public List<HandlerSample> samples() {
+		return samples;
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		thread.interrupt();
+	}
+
+	private void loop() {
+		boolean allocationSupported = THREADS.isThreadAllocatedMemorySupported();
+		long threadId = Thread.currentThread().getId();
+
+		while (running) {
+			try {
+				HttpURLConnection next = (HttpURLConnection) new URL(baseUrl + "next").openConnection();
+				byte[] event = readFully(next.getInputStream());
+
+				String requestId = next.getHeaderField("Lambda-Runtime-Aws-Request-Id");
+				LocalContext context = new LocalContext(
+						requestId,
+						next.getHeaderField("Lambda-Runtime-Invoked-Function-Arn"),
+						Long.parseLong(next.getHeaderField("Lambda-Runtime-Deadline-Ms")),
+						logger
+				);
+
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				String outcome = "response";
+
+				long allocatedBefore = allocationSupported ? THREADS.getThreadAllocatedBytes(threadId) : 0;
+				long start = System.nanoTime();
+
+				try {
+					handler.invoke(new ByteArrayInputStream(event), output, context);
+				} catch (Throwable t) {
+					outcome = "error";
+					output.reset();
+					output.write(errorJson(t));
+				}
+
+				long nanos = System.nanoTime() - start;
+				long allocated = allocationSupported ? THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore : -1;
+
+				samples.add(new HandlerSample(requestId, nanos, allocated));
+
+				post(baseUrl + requestId + "/" + outcome, output.toByteArray());
+			} catch (IOException e) {
+				if (running) {
+					throw new IllegalStateException("Runtime API request failed", e);
+				}
+			}
+		}
+	}
+
+	private static void post(String url, byte[] body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(body.length);
+
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body);
+		}
+
+		readFully(connection.getInputStream());
+	}
+
+	private static byte[] readFully(InputStream stream) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+		byte[] buffer = new byte[8192];
+
+		try (InputStream in = stream) {
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				bytes.write(buffer, 0, read);
+			}
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private static byte[] errorJson(Throwable t) {
+		String message = String.valueOf(t.getMessage()).replace("\\", "\\\\").replace("\"", "\\\"");
+
+		return ("{\"errorType\":\"" + t.getClass().getName() + "\",\"errorMessage\":\"" + message + "\"}")
+				.getBytes(UTF_8);
+	}
+
+	/**
+	 * Measurement of one invocation of the handler.
+	 */
+	public static class HandlerSample {
+		private final String requestId;
+		private final long nanos;
+		private final long allocatedBytes;
+
+		HandlerSample(String requestId, long nanos, long allocatedBytes) {
+			this.requestId = requestId;
+			this.nanos = nanos;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		public String requestId() {
+			return requestId;
+		}
+
+		public long nanos() {
+			return nanos;
+		}
+
+		/**
+		 * Returns the bytes allocated on the runtime thread while the handler ran.
+		 *
+		 * @return allocated bytes, or {@code -1} if the JVM does not support allocation measurement
+		 */
+		public long allocatedBytes() {
+			return allocatedBytes;
+		}
+	}
+
+	private static class DiscardingLogger implements LambdaLogger {
+		@Override
+		public void log(String message) {
+		}
+
+		@Override
+		public void log(byte[] message) {
+		}
+	}
+}
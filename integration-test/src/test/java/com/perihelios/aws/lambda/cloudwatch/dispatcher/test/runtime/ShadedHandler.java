@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A Lambda handler method loaded from a deployment JAR, isolated from the test classpath as the managed runtime
+ * isolates it.
+ * <p>
+ * Classes are loaded from the JAR first; only the {@code com.amazonaws.services.lambda.runtime} interfaces, which the
+ * runtime itself provides, are shared with the caller, so that a caller-supplied {@link Context} can be passed in.
+ * </p>
+ */
+public class ShadedHandler {
+	private static final String RUNTIME_PACKAGE = "com.amazonaws.services.lambda.runtime.";
+
+	private final Object instance;
+	private final Method method;
+	private final boolean streamOutput;
+
+	private ShadedHandler(Object instance, Method method) {
+		this.instance = instance;
+		this.method = method;
+		this.streamOutput = method.getParameterCount() == 3;
+	}
+
+	/**
+	 * Loads a handler from a JAR on the classpath.
+	 *
+	 * @param jarResource classpath location of the deployment JAR (e.g., {@code /lambda.jar})
+	 * @param handler     handler in Lambda's {@code class::method} notation
+	 * @return the loaded handler
+	 */
+	public static ShadedHandler load(String jarResource, String handler) {
+		int separator = handler.indexOf("::");
+		String className = handler.substring(0, separator);
+		String methodName = handler.substring(separator + 2);
+
+		try {
+			ClassLoader loader = new ChildFirstClassLoader(extract(jarResource), ShadedHandler.class.getClassLoader());
+			Class<?> handlerClass = Class.forName(className, true, loader);
+
+			for (Method method : handlerClass.getMethods()) {
+				if (method.getName().equals(methodName) && isStreamHandlerSignature(method.getParameterTypes())) {
+					return new ShadedHandler(handlerClass.getConstructor().newInstance(), method);
+				}
+			}
+
+			throw new IllegalArgumentException("No stream handler method found: " + handler);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Cannot load handler " + handler, e);
+		}
+	}
+
+	/**
+	 * Invokes the handler.
+	 *
+	 * @param input   invocation payload
+	 * @param output  stream for the handler's response, if its signature accepts one
+	 * @param context Lambda context
+	 * @throws Throwable anything thrown by the handler
+	 */
+	public void invoke(InputStream input, OutputStream output, Context context) throws Throwable {
+		try {
+			if (streamOutput) {
+				method.invoke(instance, input, output, context);
+			} else {
+				method.invoke(instance, input, context);
+			}
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static boolean isStreamHandlerSignature(Class<?>[] types) {
+		return (types.length == 2 && types[0] == InputStream.class && types[1] == Context.class) ||
+				(types.length == 3 && types[0] == InputStream.class && types[1] == OutputStream.class &&
+						types[2] == Context.class);
+	}
+
+	private static URL extract(String jarResource) {
+		try (InputStream stream = ShadedHandler.class.getResourceAsStream(jarResource)) {
+			if (stream == null) {
+				throw new IllegalArgumentException("JAR not found on classpath: " + jarResource);
+			}
+
+			Path jar = Files.createTempFile("lambda", ".jar");
+			jar.toFile().deleteOnExit();
+			Files.copy(stream, jar, StandardCopyOption.REPLACE_EXISTING);
+
+			return jar.toUri().toURL();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static class ChildFirstClassLoader extends URLClassLoader {
+		ChildFirstClassLoader(URL jar, ClassLoader parent) {
+			super(new URL[]{jar}, parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (name.startsWith("java.") || name.startsWith(RUNTIME_PACKAGE)) {
+				return super.loadClass(name, resolve);
+			}
+
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> loaded = findLoadedClass(name);
+
+				if (loaded == null) {
+					try {
+						loaded = findClass(name);
+					} catch (ClassNotFoundException e) {
+						return super.loadClass(name, resolve);
+					}
+				}
+
+				if (resolve) {
+					resolveClass(loaded);
+				}
+
+				return loaded;
+			}
+		}
+	}
+}
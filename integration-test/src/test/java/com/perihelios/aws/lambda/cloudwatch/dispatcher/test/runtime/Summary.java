@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.test.runtime;
+
+import java.util.Arrays;
+
+/**
+ * Percentile summary of a set of measurements.
+ */
+public class Summary {
+	private final long[] sorted;
+
+	private Summary(long[] values) {
+		this.sorted = values.clone();
+		Arrays.sort(sorted);
+	}
+
+	/**
+	 * Summarizes measurements.
+	 *
+	 * @param values measurements, in any order
+	 * @return summary of {@code values}
+	 */
+	public static Summary of(long[] values) {
+		return new Summary(values);
+	}
+
+	public int count() {
+		return sorted.length;
+	}
+
+	/**
+	 * Returns a percentile of the measurements, by the nearest-rank method.
+	 *
+	 * @param percentile percentile to return, from 0 to 100
+	 * @return measurement at that percentile, or {@code 0} if there are no measurements
+	 */
+	public long percentile(double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+
+		int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+
+		return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+	}
+
+	public long max() {
+		return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+	}
+
+	public double mean() {
+		return sorted.length == 0 ? 0 : Arrays.stream(sorted).average().orElse(0);
+	}
+
+	/**
+	 * Formats the summary, dividing each measurement by {@code scale} and appending {@code unit}.
+	 *
+	 * @param scale divisor applied to measurements (e.g., {@code 1_000} to show nanoseconds as microseconds)
+	 * @param unit  unit label
+	 * @return formatted summary
+	 */
+	public String format(double scale, String unit) {
+		return String.format(
+				"n=%d mean=%.1f%s p50=%.1f%s p90=%.1f%s p99=%.1f%s max=%.1f%s",
+				count(),
+				mean() / scale, unit,
+				percentile(50) / scale, unit,
+				percentile(90) / scale, unit,
+				percentile(99) / scale, unit,
+				max() / scale, unit
+		);
+	}
+}
@@ -1,3 +1,4 @@
 rootProject.name = "cloudwatch-lambda-event-dispatcher"
 
+include(":aws-events")
 include(":integration-test")
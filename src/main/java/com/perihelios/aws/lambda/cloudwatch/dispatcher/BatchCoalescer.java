@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.Header;
+
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Finds the events of a batch that are superseded by others with the same coalescing key: the detail type, the
+ * {@code resources} of the event, and the value of the key extractor registered for the detail type. Of the events
+ * sharing a key, the one with the latest {@code time} is kept; ties, and events without a time, go to the later
+ * event in the batch.
+ */
+final class BatchCoalescer {
+	private final Map<String, Function<? super Header, ?>> keyExtractors;
+	private final Map<List<Object>, Candidate> latest = new HashMap<>();
+	private final Map<Integer, BatchResult.Item> superseded = new HashMap<>();
+
+	BatchCoalescer(Map<String, Function<? super Header, ?>> keyExtractors) {
+		this.keyExtractors = keyExtractors;
+	}
+
+	boolean coalesces(String detailType) {
+		return keyExtractors.containsKey(detailType);
+	}
+
+	void offer(int index, String detailType, Header header) {
+		List<Object> key = asList(detailType, header.resources(), keyExtractors.get(detailType).apply(header));
+		Candidate candidate = new Candidate(index, detailType, header.id(), header.time());
+		Candidate previous = latest.get(key);
+
+		if (previous != null && candidate.isBefore(previous)) {
+			supersede(candidate);
+		} else {
+			if (previous != null) {
+				supersede(previous);
+			}
+
+			latest.put(key, candidate);
+		}
+	}
+
+	/**
+	 * Returns the superseded events found so far, by index in the batch.
+	 */
+	Map<Integer, BatchResult.Item> superseded() {
+		return superseded;
+	}
+
+	private void supersede(Candidate candidate) {
+		superseded.put(candidate.index, new BatchResult.Item(
+				candidate.index, candidate.eventId, DispatchResult.superseded(candidate.detailType)
+		));
+	}
+
+	private static final class Candidate {
+		private final int index;
+		private final String detailType;
+		private final String eventId;
+		private final ZonedDateTime time;
+
+		Candidate(int index, String detailType, String eventId, ZonedDateTime time) {
+			this.index = index;
+			this.detailType = detailType;
+			this.eventId = eventId;
+			this.time = time;
+		}
+
+		boolean isBefore(Candidate other) {
+			return time != null && other.time != null && time.isBefore(other.time);
+		}
+	}
+}
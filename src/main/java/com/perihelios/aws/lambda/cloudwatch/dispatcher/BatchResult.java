@@ -0,0 +1,231 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.JsonPrimitive;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Outcome of dispatching a batch of events, as returned by {@link CloudWatchEventDispatcher#dispatchBatch()} and
+ * {@link CloudWatchEventDispatcher#dispatchRecords()}.
+ */
+public final class BatchResult {
+	private static final Set<Status> RETRYABLE = EnumSet.of(Status.FAILED, Status.DEFERRED);
+
+	private final List<Item> items;
+
+	BatchResult(List<Item> items) {
+		this.items = unmodifiableList(items);
+	}
+
+	/**
+	 * Returns the outcome for each event of the batch, in the order the events appear in the message.
+	 * <p>
+	 * If the message stopped being parseable partway through, the last item is {@link Status#MALFORMED MALFORMED},
+	 * and events after it (if any) are not represented.
+	 * </p>
+	 *
+	 * @return per-event outcomes
+	 */
+	public List<Item> items() {
+		return items;
+	}
+
+	/**
+	 * Returns the events that were not started because too little of the invocation's time remained.
+	 * <p>
+	 * Once one event is deferred, all following events are too, so these are always the tail of the batch.
+	 * </p>
+	 *
+	 * @return deferred events, in order
+	 */
+	public List<Item> deferred() {
+		return withStatus(Status.DEFERRED);
+	}
+
+	/**
+	 * Returns the events whose handlers threw.
+	 *
+	 * @return failed events, in order
+	 */
+	public List<Item> failed() {
+		return withStatus(Status.FAILED);
+	}
+
+	/**
+	 * Indicates whether every event of the batch was dispatched (or skipped as a duplicate, or as superseded).
+	 *
+	 * @return {@code true} if no event was rejected, failed or deferred
+	 */
+	public boolean isComplete() {
+		for (Item item : items) {
+			if (!item.isFinished()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the response by which a function consuming an SQS queue reports partial batch failure, naming the
+	 * messages that may succeed if redelivered: those whose handlers threw ({@link Status#FAILED FAILED}) or that were
+	 * not started ({@link Status#DEFERRED DEFERRED}).
+	 * <p>
+	 * Messages that can never be dispatched, because they are malformed, too large, not CloudWatch events, or of a
+	 * type with no handler, are not named, so SQS deletes them rather than redelivering them until they reach the
+	 * queue's dead-letter queue (if any). To redeliver other outcomes as well, use
+	 * {@link #toSqsBatchResponse(Set)}.
+	 * </p>
+	 *
+	 * @return JSON of the form {@code {"batchItemFailures":[{"itemIdentifier":"<messageId>"}]}}
+	 */
+	public String toSqsBatchResponse() {
+		return toSqsBatchResponse(RETRYABLE);
+	}
+
+	/**
+	 * Returns the response by which a function consuming an SQS queue reports partial batch failure, naming the
+	 * messages whose outcome is one of the given statuses, so that SQS redelivers only those.
+	 * <p>
+	 * The function's event source mapping must have {@code ReportBatchItemFailures} enabled, and the function must
+	 * return this response as its result; for example, by writing it to the output stream of a
+	 * {@link com.amazonaws.services.lambda.runtime.RequestStreamHandler RequestStreamHandler}. Whatever the given
+	 * statuses, if the records themselves could not be read to the end (so that the last item is
+	 * {@link Status#MALFORMED MALFORMED} with no record ID), the response names that item with an empty identifier,
+	 * which causes Lambda to treat the whole batch as failed; the records after it are not represented in the result,
+	 * and would otherwise be deleted unprocessed.
+	 * </p>
+	 *
+	 * @param redelivered statuses of the events whose messages are to be redelivered
+	 * @return JSON of the form {@code {"batchItemFailures":[{"itemIdentifier":"<messageId>"}]}}
+	 */
+	public String toSqsBatchResponse(Set<Status> redelivered) {
+		StringBuilder response = new StringBuilder("{\"batchItemFailures\":[");
+		boolean first = true;
+
+		for (Item item : items) {
+			boolean unreadable = item.recordId == null && item.result.status() == Status.MALFORMED;
+
+			if (!redelivered.contains(item.result.status()) && !unreadable) {
+				continue;
+			}
+
+			if (!first) {
+				response.append(',');
+			}
+			first = false;
+
+			String identifier = item.recordId == null ? "" : item.recordId;
+			response.append("{\"itemIdentifier\":").append(new JsonPrimitive(identifier)).append('}');
+		}
+
+		return response.append("]}").toString();
+	}
+
+	@Override
+	public String toString() {
+		return items.toString();
+	}
+
+	private List<Item> withStatus(Status status) {
+		List<Item> matching = new ArrayList<>();
+
+		for (Item item : items) {
+			if (item.result.status() == status) {
+				matching.add(item);
+			}
+		}
+
+		return matching;
+	}
+
+	/**
+	 * Outcome for one event of a batch.
+	 */
+	public static final class Item {
+		private final int index;
+		private final String recordId;
+		private final String eventId;
+		private final DispatchResult result;
+
+		Item(int index, String eventId, DispatchResult result) {
+			this(index, null, eventId, result);
+		}
+
+		Item(int index, String recordId, String eventId, DispatchResult result) {
+			this.index = index;
+			this.recordId = recordId;
+			this.eventId = eventId;
+			this.result = result;
+		}
+
+		/**
+		 * Returns the position of the event in the batch.
+		 *
+		 * @return zero-based index of the event
+		 */
+		public int index() {
+			return index;
+		}
+
+		/**
+		 * Returns the ID of the SQS message or SNS notification that carried the event, for batches dispatched by
+		 * {@link CloudWatchEventDispatcher#dispatchRecords()}.
+		 *
+		 * @return the message ID, or {@code null} if the event was not carried in a record, or the record could not
+		 * be read far enough to find one
+		 */
+		public String recordId() {
+			return recordId;
+		}
+
+		/**
+		 * Returns the {@code id} property of the event.
+		 *
+		 * @return the event ID, or {@code null} if the event could not be read far enough to find one
+		 */
+		public String eventId() {
+			return eventId;
+		}
+
+		/**
+		 * Returns the outcome of dispatching the event.
+		 *
+		 * @return the dispatch result
+		 */
+		public DispatchResult result() {
+			return result;
+		}
+
+		private boolean isFinished() {
+			return result.isDispatched() || result.status() == Status.DUPLICATE ||
+					result.status() == Status.SUPERSEDED;
+		}
+
+		@Override
+		public String toString() {
+			return index + (eventId == null ? "" : " (" + eventId + ")") + ": " + result;
+		}
+	}
+}
@@ -0,0 +1,580 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.gson.stream.JsonToken.NULL;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Produces type adapters that bind JSON objects through method handles, built once per class, rather than through
+ * GSON's per-field reflection.
+ * <p>
+ * Adapters are produced for concrete subclasses of {@link CloudWatchEvent}, for records, and for classes whose
+ * instance fields are all {@code final}. Instances are created through a no-argument constructor, after which fields
+ * are set through setter handles, which may write {@code final} fields. Records, whose fields cannot be written at
+ * all, are created through their canonical constructor; so are classes with only {@code final} fields and no
+ * no-argument constructor, if they declare a constructor whose parameter types match the types of their fields, in
+ * order.
+ * </p>
+ * <p>
+ * Field names follow GSON's rules: {@link SerializedName} is honored, and static and transient fields are ignored. A
+ * field's {@link JsonAdapter} may name a {@link TypeAdapter} or {@link TypeAdapterFactory}. Classes that cannot be
+ * bound this way&mdash;generic classes, classes using other GSON features, classes that are not of the shapes
+ * described above&mdash;are left to GSON.
+ * </p>
+ */
+final class BinderAdapterFactory implements TypeAdapterFactory {
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private static final Method IS_RECORD = classMethod("isRecord");
+	private static final Method GET_RECORD_COMPONENTS = classMethod("getRecordComponents");
+
+	@Override
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		Class<? super T> rawType = type.getRawType();
+
+		if (!isCandidate(rawType)) {
+			return null;
+		}
+
+		List<Field> fields = instanceFields(rawType);
+		if (fields == null) {
+			return null;
+		}
+
+		try {
+			Constructor<?> constructor;
+
+			if (isRecord(rawType)) {
+				constructor = fieldConstructor(rawType, fields);
+			} else {
+				constructor = noArgConstructor(rawType);
+
+				if (constructor == null && allFinal(fields)) {
+					constructor = fieldConstructor(rawType, fields);
+				}
+			}
+
+			if (constructor == null) {
+				return null;
+			}
+
+			BoundField[] boundFields = new BoundField[fields.size()];
+			for (int i = 0; i < boundFields.length; i++) {
+				boundFields[i] = bind(gson, fields.get(i), i, constructor.getParameterCount() > 0);
+
+				if (boundFields[i] == null) {
+					return null;
+				}
+			}
+
+			Map<String, BoundField> byName = index(boundFields);
+			if (byName == null) {
+				return null;
+			}
+
+			constructor.setAccessible(true);
+			MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+
+			if (constructor.getParameterCount() == 0) {
+				return new SetterBinder<>(handle.asType(methodType(Object.class)), boundFields, byName);
+			}
+
+			return new ConstructorBinder<>(
+					handle.asSpreader(Object[].class, boundFields.length)
+							.asType(methodType(Object.class, Object[].class)),
+					boundFields,
+					byName
+			);
+		} catch (IllegalAccessException | RuntimeException e) {
+			// Anything unexpected (such as a security manager refusing access) is left for GSON to deal with
+			return null;
+		}
+	}
+
+	private static boolean isCandidate(Class<?> type) {
+		if (type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum() ||
+				Modifier.isAbstract(type.getModifiers()) || type.getTypeParameters().length > 0 ||
+				type.getName().startsWith("java.") || type.isAnnotationPresent(JsonAdapter.class) ||
+				type.isAnonymousClass() || type.isLocalClass() ||
+				(type.isMemberClass() && !Modifier.isStatic(type.getModifiers()))) {
+
+			return false;
+		}
+
+		if (CloudWatchEvent.class.isAssignableFrom(type) || isRecord(type)) {
+			return true;
+		}
+
+		List<Field> fields = instanceFields(type);
+
+		return fields != null && !fields.isEmpty() && allFinal(fields);
+	}
+
+	/**
+	 * Returns the bindable instance fields of a class and its superclasses, or {@code null} if any field has a type
+	 * that depends on a type variable.
+	 */
+	private static List<Field> instanceFields(Class<?> type) {
+		List<Field> fields = new ArrayList<>();
+
+		for (Class<?> c = type; c != CloudWatchEvent.class && !c.getName().startsWith("java."); c = c.getSuperclass()) {
+			List<Field> declared = new ArrayList<>();
+
+			for (Field field : c.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+
+				if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+					continue;
+				}
+
+				if (dependsOnTypeVariable(field.getGenericType())) {
+					return null;
+				}
+
+				declared.add(field);
+			}
+
+			fields.addAll(0, declared);
+		}
+
+		if (isRecord(type)) {
+			orderByRecordComponents(type, fields);
+		}
+
+		return fields;
+	}
+
+	private static BoundField bind(Gson gson, Field field, int index, boolean constructorParameter)
+			throws IllegalAccessException {
+
+		TypeAdapter<?> adapter = fieldAdapter(gson, field);
+		if (adapter == null) {
+			return null;
+		}
+
+		field.setAccessible(true);
+
+		MethodHandle setter = constructorParameter ? null :
+				LOOKUP.unreflectSetter(field).asType(methodType(void.class, Object.class, Object.class));
+		MethodHandle getter = LOOKUP.unreflectGetter(field).asType(methodType(Object.class, Object.class));
+
+		SerializedName serializedName = field.getAnnotation(SerializedName.class);
+		String name = serializedName == null ? field.getName() : serializedName.value();
+		String[] alternates = serializedName == null ? new String[0] : serializedName.alternate();
+
+		return new BoundField(name, alternates, index, field.getType(), adapter, setter, getter);
+	}
+
+	private static TypeAdapter<?> fieldAdapter(Gson gson, Field field) {
+		TypeToken<?> fieldType = TypeToken.get(field.getGenericType());
+		JsonAdapter annotation = field.getAnnotation(JsonAdapter.class);
+
+		if (annotation == null) {
+			return gson.getAdapter(fieldType);
+		}
+
+		Object instance;
+		try {
+			Constructor<?> constructor = annotation.value().getDeclaredConstructor();
+			constructor.setAccessible(true);
+			instance = constructor.newInstance();
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+
+		TypeAdapter<?> adapter;
+		if (instance instanceof TypeAdapter) {
+			adapter = (TypeAdapter<?>) instance;
+		} else if (instance instanceof TypeAdapterFactory) {
+			adapter = ((TypeAdapterFactory) instance).create(gson, fieldType);
+		} else {
+			return null;
+		}
+
+		return adapter != null && annotation.nullSafe() ? adapter.nullSafe() : adapter;
+	}
+
+	private static Map<String, BoundField> index(BoundField[] fields) {
+		Map<String, BoundField> byName = new HashMap<>();
+
+		for (BoundField field : fields) {
+			if (byName.put(field.name, field) != null) {
+				return null;
+			}
+
+			for (String alternate : field.alternates) {
+				if (byName.put(alternate, field) != null) {
+					return null;
+				}
+			}
+		}
+
+		return byName;
+	}
+
+	private static Constructor<?> noArgConstructor(Class<?> type) {
+		try {
+			return type.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static Constructor<?> fieldConstructor(Class<?> type, List<Field> fields) {
+		Class<?>[] parameterTypes = new Class<?>[fields.size()];
+		for (int i = 0; i < parameterTypes.length; i++) {
+			parameterTypes[i] = fields.get(i).getType();
+		}
+
+		try {
+			return type.getDeclaredConstructor(parameterTypes);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static boolean allFinal(List<Field> fields) {
+		for (Field field : fields) {
+			if (!Modifier.isFinal(field.getModifiers())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean dependsOnTypeVariable(Type type) {
+		if (type instanceof TypeVariable) {
+			return true;
+		} else if (type instanceof ParameterizedType) {
+			for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+				if (dependsOnTypeVariable(argument)) {
+					return true;
+				}
+			}
+		} else if (type instanceof GenericArrayType) {
+			return dependsOnTypeVariable(((GenericArrayType) type).getGenericComponentType());
+		} else if (type instanceof WildcardType) {
+			WildcardType wildcard = (WildcardType) type;
+
+			return Arrays.stream(wildcard.getUpperBounds()).anyMatch(BinderAdapterFactory::dependsOnTypeVariable) ||
+					Arrays.stream(wildcard.getLowerBounds()).anyMatch(BinderAdapterFactory::dependsOnTypeVariable);
+		}
+
+		return false;
+	}
+
+	// Records are recognized reflectively, so that the library can still target Java 8
+
+	private static boolean isRecord(Class<?> type) {
+		try {
+			return IS_RECORD != null && (Boolean) IS_RECORD.invoke(type);
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+
+	private static void orderByRecordComponents(Class<?> type, List<Field> fields) {
+		try {
+			Object[] components = (Object[]) GET_RECORD_COMPONENTS.invoke(type);
+			Method getName = components.getClass().getComponentType().getMethod("getName");
+
+			List<Field> ordered = new ArrayList<>();
+			for (Object component : components) {
+				ordered.add(type.getDeclaredField((String) getName.invoke(component)));
+			}
+
+			fields.clear();
+			fields.addAll(ordered);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot read components of record " + type.getName(), e);
+		}
+	}
+
+	private static Method classMethod(String name) {
+		try {
+			return Class.class.getMethod(name);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		return type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+	}
+
+	private static final class BoundField {
+		private final String name;
+		private final String[] alternates;
+		private final int index;
+		private final boolean primitive;
+		private final Object defaultValue;
+		private final TypeAdapter<Object> adapter;
+		private final MethodHandle setter;
+		private final MethodHandle getter;
+
+		@SuppressWarnings("unchecked")
+		BoundField(String name, String[] alternates, int index, Class<?> type, TypeAdapter<?> adapter,
+				MethodHandle setter, MethodHandle getter) {
+
+			this.name = name;
+			this.alternates = alternates;
+			this.index = index;
+			this.primitive = type.isPrimitive();
+			this.defaultValue = defaultValue(type);
+			this.adapter = (TypeAdapter<Object>) adapter;
+			this.setter = setter;
+			this.getter = getter;
+		}
+	}
+
+	/**
+	 * Adapter produced by this factory; its bound fields are available to {@link EventWriter}, which writes them
+	 * individually.
+	 */
+	abstract static class Binder<T> extends TypeAdapter<T> {
+		private final BoundField[] fields;
+		private final Map<String, BoundField> byName;
+
+		Binder(BoundField[] fields, Map<String, BoundField> byName) {
+			this.fields = fields;
+			this.byName = byName;
+		}
+
+		@Override
+		public void write(JsonWriter out, T value) throws IOException {
+			if (value == null) {
+				out.nullValue();
+
+				return;
+			}
+
+			out.beginObject();
+
+			for (BoundField field : fields) {
+				Object fieldValue = fieldValue(value, field.index);
+
+				out.name(field.name);
+
+				if (fieldValue == null) {
+					out.nullValue();
+				} else {
+					field.adapter.write(out, fieldValue);
+				}
+			}
+
+			out.endObject();
+		}
+
+		@Override
+		public T read(JsonReader in) throws IOException {
+			if (in.peek() == NULL) {
+				in.nextNull();
+
+				return null;
+			}
+
+			Object target = start();
+
+			try {
+				in.beginObject();
+
+				while (in.hasNext()) {
+					BoundField field = byName.get(in.nextName());
+
+					if (field == null) {
+						in.skipValue();
+					} else {
+						Object value = field.adapter.read(in);
+
+						if (value != null || !field.primitive) {
+							set(target, field, value);
+						}
+					}
+				}
+
+				in.endObject();
+			} catch (IllegalStateException e) {
+				throw new JsonSyntaxException(e);
+			}
+
+			return finish(target);
+		}
+
+		int fieldCount() {
+			return fields.length;
+		}
+
+		/**
+		 * Returns the index of the field bound to a property, by its name or one of its alternate names.
+		 *
+		 * @return the index, or {@code -1} if no field is bound to the property
+		 */
+		int fieldIndex(String name) {
+			BoundField field = byName.get(name);
+
+			return field == null ? -1 : field.index;
+		}
+
+		String fieldName(int index) {
+			return fields[index].name;
+		}
+
+		/**
+		 * Returns the value a field has if its property is absent: {@code null}, or the default of a primitive type.
+		 */
+		Object fieldDefault(int index) {
+			return fields[index].defaultValue;
+		}
+
+		TypeAdapter<Object> fieldAdapter(int index) {
+			return fields[index].adapter;
+		}
+
+		Object fieldValue(Object value, int index) {
+			try {
+				return (Object) fields[index].getter.invokeExact(value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		abstract Object start();
+
+		abstract void set(Object target, BoundField field, Object value);
+
+		abstract T finish(Object target);
+
+		static RuntimeException rethrow(Throwable e) {
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			} else if (e instanceof Error) {
+				throw (Error) e;
+			}
+
+			throw new JsonIOException(e);
+		}
+	}
+
+	/**
+	 * Creates an instance up front, and sets its fields as their values are read.
+	 */
+	private static final class SetterBinder<T> extends Binder<T> {
+		private final MethodHandle constructor;
+
+		SetterBinder(MethodHandle constructor, BoundField[] fields, Map<String, BoundField> byName) {
+			super(fields, byName);
+
+			this.constructor = constructor;
+		}
+
+		@Override
+		Object start() {
+			try {
+				return (Object) constructor.invokeExact();
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		@Override
+		void set(Object target, BoundField field, Object value) {
+			try {
+				field.setter.invokeExact(target, value);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		T finish(Object target) {
+			return (T) target;
+		}
+	}
+
+	/**
+	 * Collects field values as they are read, and passes them to a constructor once the object is complete.
+	 */
+	private static final class ConstructorBinder<T> extends Binder<T> {
+		private final MethodHandle constructor;
+		private final Object[] defaults;
+
+		ConstructorBinder(MethodHandle constructor, BoundField[] fields, Map<String, BoundField> byName) {
+			super(fields, byName);
+
+			this.constructor = constructor;
+			this.defaults = new Object[fields.length];
+
+			for (BoundField field : fields) {
+				defaults[field.index] = field.defaultValue;
+			}
+		}
+
+		@Override
+		Object start() {
+			return defaults.clone();
+		}
+
+		@Override
+		void set(Object target, BoundField field, Object value) {
+			((Object[]) target)[field.index] = value;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		T finish(Object target) {
+			try {
+				return (T) (Object) constructor.invokeExact((Object[]) target);
+			} catch (Throwable e) {
+				throw rethrow(e);
+			}
+		}
+	}
+}
@@ -19,22 +19,48 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.aggregate.Aggregator;
 import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
 import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DiscriminatorValue;
 import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.Header;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.UnknownEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.SpanExporter;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackReader;
 import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+import static com.google.gson.stream.JsonToken.BEGIN_ARRAY;
+import static com.google.gson.stream.JsonToken.BEGIN_OBJECT;
+import static com.google.gson.stream.JsonToken.END_DOCUMENT;
+import static com.google.gson.stream.JsonToken.NULL;
+import static com.google.gson.stream.JsonToken.NUMBER;
+import static com.google.gson.stream.JsonToken.STRING;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.DateTimeFormatter.ISO_ZONED_DATE_TIME;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 
 /**
  * Main entry point of the API&mdash;all users of this library will create and configure an instance of this class.
@@ -52,26 +78,154 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  *     }
  *     ...
  * </pre>
+ * <p>
+ * The message is read as a stream of JSON tokens, not as a tree. The {@code detail} property is bound directly to the
+ * event type registered for the message's {@code detail-type}; properties of {@code detail}, at any depth, that do
+ * not correspond to fields of the event type are skipped without being materialized. This makes binding cheap for
+ * event types that map only a few fields of large events.
+ * </p>
+ * <p>
+ * An instance of this class dispatches a single message, and is not thread-safe. To configure handlers once and
+ * dispatch messages from many threads, use a {@link SharedEventDispatcher}.
+ * </p>
  */
 public class CloudWatchEventDispatcher {
-	private final String message;
+	static final Gson GSON = new GsonBuilder()
+			.registerTypeAdapter(ZonedDateTime.class, new ZonedDateTimeAdapter())
+			.registerTypeAdapterFactory(new BinderAdapterFactory())
+			.create();
+
+	private static final byte[] DETAIL_NAME = "detail".getBytes(UTF_8);
+
+	private final long readStart;
+	private final long readEnd;
+	private final DispatchResult readRejection;
+	private final byte[] messageBytes;
+	private final int messageStart;
+	private final int messageEnd;
+	private final boolean messageAscii;
 	private final Context context;
-	private final Map<String, BiConsumer<?, Context>> handlers;
-	private final Map<String, Class<? extends CloudWatchEvent>> eventTypes;
+	private final Map<String, BiFunction<?, Context, ?>> handlers;
+	private final Map<String, TypeAdapter<? extends CloudWatchEvent>> eventAdapters;
+	private final List<Aggregator<?>> aggregators;
+	private final Map<String, Function<? super Header, ?>> coalescingKeys;
 
+	private BiConsumer<? super UnknownEvent, Context> unknownEventHandler;
+	private RecentEventIds recentEventIds;
+	private HandlerLatencies handlerLatencies;
+	private long deadlineMarginMillis = -1;
 	private boolean logRawMessage;
+	private boolean retainEventBytes;
+	private EventSpool spool;
+	private DispatchPhaseListener phaseListener;
+	private DispatchTracer tracer;
+	private String message;
+	private Object handlerValue;
+	private RawJsonScanner elementScanner;
+	private int[] elementSpans;
+	private int elementCount;
 
 	/**
-	 * Creates a dispatcher for a CloudWatch event, ready for further configuration.
+	 * Creates a dispatcher for a CloudWatch event, ready for further configuration. The message is read within
+	 * {@link MessageLimits#DEFAULT the default limits}.
 	 *
 	 * @param message raw message stream, presumed to contain CloudWatch event JSON
 	 * @param context AWS Lambda context, to be passed to handlers as they are invoked
 	 */
 	public CloudWatchEventDispatcher(InputStream message, Context context) {
-		this.message = readQuickly(message).trim();
+		this(message, context, MessageLimits.DEFAULT);
+	}
+
+	/**
+	 * Creates a dispatcher for a CloudWatch event, reading the message within the given limits. Reading stops as soon
+	 * as a limit is exceeded; the message is then rejected by the terminal operation, with status
+	 * {@link DispatchResult.Status#TOO_LARGE TOO_LARGE}.
+	 *
+	 * @param message raw message stream, presumed to contain CloudWatch event JSON
+	 * @param context AWS Lambda context, to be passed to handlers as they are invoked
+	 * @param limits  maximum size and nesting depth of the message
+	 */
+	public CloudWatchEventDispatcher(InputStream message, Context context, MessageLimits limits) {
+		this(
+				message, limits, context,
+				new HashMap<>(), new HashMap<>(), new ArrayList<>(), new HashMap<>()
+		);
+	}
+
+	/**
+	 * Creates a single-use dispatcher sharing the (immutable) routing tables and settings of a shared dispatcher.
+	 */
+	CloudWatchEventDispatcher(InputStream message, Context context, SharedEventDispatcher shared) {
+		this(
+				message, shared.limits, context,
+				shared.handlers, shared.eventAdapters, shared.aggregators, shared.coalescingKeys
+		);
+
+		this.unknownEventHandler = shared.unknownEventHandler;
+		this.recentEventIds = shared.recentEventIds;
+		this.handlerLatencies = shared.handlerLatencies;
+		this.deadlineMarginMillis = shared.deadlineMarginMillis;
+		this.logRawMessage = shared.logRawMessage;
+		this.retainEventBytes = shared.retainEventBytes;
+		this.spool = shared.spool;
+
+		if (shared.spanExporter != null) {
+			withTracing(shared.spanExporter);
+		}
+	}
+
+	/**
+	 * Creates a dispatcher for a message, read into memory as bytes. The message is not decoded as a whole: it is
+	 * parsed through a {@link Utf8Reader}, and decoded into a {@code String} only if something (such as logging) needs
+	 * it as one. A message exceeding the limits is held as empty, and rejected when dispatched.
+	 */
+	private CloudWatchEventDispatcher(
+			InputStream stream, MessageLimits limits, Context context,
+			Map<String, BiFunction<?, Context, ?>> handlers,
+			Map<String, TypeAdapter<? extends CloudWatchEvent>> eventAdapters,
+			List<Aggregator<?>> aggregators,
+			Map<String, Function<? super Header, ?>> coalescingKeys) {
+
+		this.readStart = System.nanoTime();
+
+		MessageReader messageReader = new MessageReader(limits);
+		byte[] message;
+		try {
+			message = messageReader.read(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		this.readEnd = System.nanoTime();
+
+		if (message == null) {
+			message = new byte[0];
+			this.readRejection = DispatchResult.tooLarge(messageReader.rejection());
+		} else {
+			this.readRejection = null;
+		}
+
+		int start = 0;
+		int end = message.length;
+
+		// As String.trim(); bytes of multi-byte sequences are negative, so are never trimmed
+		while (start < end && message[start] >= 0 && message[start] <= ' ') {
+			start++;
+		}
+
+		while (end > start && message[end - 1] >= 0 && message[end - 1] <= ' ') {
+			end--;
+		}
+
+		this.messageBytes = message;
+		this.messageStart = start;
+		this.messageEnd = end;
+		this.messageAscii = Utf8Reader.isAscii(message, start, end);
 		this.context = context;
-		this.handlers = new HashMap<>();
-		this.eventTypes = new HashMap<>();
+		this.handlers = handlers;
+		this.eventAdapters = eventAdapters;
+		this.aggregators = aggregators;
+		this.coalescingKeys = coalescingKeys;
 	}
 
 	/**
@@ -89,19 +243,233 @@ public class CloudWatchEventDispatcher {
 	public <T extends CloudWatchEvent> CloudWatchEventDispatcher withEventHandler(
 			Class<T> eventType, BiConsumer<? super T, Context> handler) {
 
+		register(eventType, consumerFunction(handler), eventAdapters, handlers);
+
+		return this;
+	}
+
+	/**
+	 * Registers a handler that returns a value, for a particular CloudWatch event type.
+	 * <p>
+	 * Handlers registered this way are otherwise the same as those registered via
+	 * {@link #withEventHandler(Class, BiConsumer) withEventHandler()}. The value returned is written as the function's
+	 * response by {@link #dispatchTo(OutputStream)} and {@link #dispatchBatchTo(OutputStream)}, and ignored by the
+	 * other terminal operations.
+	 * </p>
+	 *
+	 * @param eventType class to which events will be unmarshalled
+	 * @param handler   function of events of {@code eventType} type, returning the response for the event (or
+	 *                  {@code null})
+	 * @param <T>       type of event, with type bounds ensuring compatibility between {@code eventType} and
+	 *                  {@code handler}
+	 * @return a reference to this object
+	 */
+	public <T extends CloudWatchEvent> CloudWatchEventDispatcher withEventFunction(
+			Class<T> eventType, BiFunction<? super T, Context, ?> handler) {
+
+		register(eventType, handler, eventAdapters, handlers);
+
+		return this;
+	}
+
+	static <T extends CloudWatchEvent> void register(
+			Class<T> eventType, BiFunction<? super T, Context, ?> handler,
+			Map<String, TypeAdapter<? extends CloudWatchEvent>> eventAdapters,
+			Map<String, BiFunction<?, Context, ?>> handlers) {
+
+		String typeDescription = detailTypeOf(eventType, "register event handler");
+
+		if (DiscriminatingAdapter.discriminatorOf(eventType) == null) {
+			eventAdapters.put(typeDescription, GSON.getAdapter(eventType));
+			handlers.put(typeDescription, handler);
+
+			return;
+		}
+
+		TypeAdapter<? extends CloudWatchEvent> existing = eventAdapters.get(typeDescription);
+		DiscriminatingAdapter router = DiscriminatingAdapter.including(
+				existing instanceof DiscriminatingAdapter ? (DiscriminatingAdapter) existing : null, eventType, handler
+		);
+
+		eventAdapters.put(typeDescription, router);
+		handlers.put(typeDescription, (BiFunction<CloudWatchEvent, Context, ?>) router::handle);
+	}
+
+	static <T> BiFunction<T, Context, ?> consumerFunction(BiConsumer<T, Context> handler) {
+		return (event, context) -> {
+			handler.accept(event, context);
+
+			return null;
+		};
+	}
+
+	static String detailTypeOf(Class<? extends CloudWatchEvent> eventType, String action) {
 		DetailType detailType = eventType.getAnnotation(DetailType.class);
 
+		// Subtypes selected by a discriminator share the detail type of the discriminated class
+		if (detailType == null && eventType.isAnnotationPresent(DiscriminatorValue.class)) {
+			for (Class<?> c = eventType.getSuperclass(); detailType == null && c != null; c = c.getSuperclass()) {
+				detailType = c.getAnnotation(DetailType.class);
+			}
+		}
+
 		if (detailType == null) {
 			throw new IllegalArgumentException(
-					"Cannot register event handler for event type " + eventType.getName() +
+					"Cannot " + action + " for event type " + eventType.getName() +
 							"; event type not annotated with " + DetailType.class.getName()
 			);
 		}
 
-		String typeDescription = detailType.value();
+		return detailType.value();
+	}
+
+	/**
+	 * Registers a handler for events whose {@code detail-type} matches none of the event types registered via
+	 * {@link #withEventHandler(Class, BiConsumer) withEventHandler()}.
+	 * <p>
+	 * Without such a handler, events of unknown type are rejected (see {@link #dispatch()} and
+	 * {@link #tryDispatch()}).
+	 *
+	 * @param handler consumer of events of unregistered types
+	 * @return a reference to this object
+	 */
+	public CloudWatchEventDispatcher withUnknownEventHandler(BiConsumer<? super UnknownEvent, Context> handler) {
+		unknownEventHandler = handler;
+
+		return this;
+	}
+
+	/**
+	 * Instructs the dispatcher to skip events whose IDs have recently been dispatched successfully.
+	 * <p>
+	 * An event's ID is remembered only after its handler returns normally, so an event whose handler threw will be
+	 * dispatched again if redelivered. See {@link RecentEventIds} for details.
+	 *
+	 * @param recentEventIds memory of recently dispatched event IDs, typically shared across invocations
+	 * @return a reference to this object
+	 */
+	public CloudWatchEventDispatcher withDeduplication(RecentEventIds recentEventIds) {
+		this.recentEventIds = recentEventIds;
+
+		return this;
+	}
+
+	/**
+	 * Instructs the dispatcher, when dispatching a batch, to deliver only the latest of the events of a type that
+	 * concern the same resources.
+	 * <p>
+	 * Equivalent to {@link #withCoalescing(Class, Function) withCoalescing()} with a key extractor that returns
+	 * {@code null}, so that events are keyed by their {@code resources} alone.
+	 *
+	 * @param eventType class of events to coalesce
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code eventType} is not annotated with {@link DetailType}
+	 */
+	public CloudWatchEventDispatcher withCoalescing(Class<? extends CloudWatchEvent> eventType) {
+		return withCoalescing(eventType, header -> null);
+	}
+
+	/**
+	 * Instructs the dispatcher, when dispatching a batch, to deliver only the latest of the events of a type that
+	 * share a key.
+	 * <p>
+	 * Events of the type are keyed by their {@code resources}, together with the value returned for the event's
+	 * header by {@code keyExtractor} (compared by {@link Object#equals(Object) equals()}). Of the events of a batch
+	 * sharing a key, only the one with the latest {@code time} is delivered; if times are equal or absent, the later
+	 * event in the batch wins. The others are reported as {@link DispatchResult.Status#SUPERSEDED SUPERSEDED}, without
+	 * their detail being bound. This suits state-change events, such as an instance moving through several states
+	 * within one batch, where only the latest state matters.
+	 * </p>
+	 * <p>
+	 * Keys are found in a first pass over the batch, before any event is dispatched, reading only the top-level
+	 * properties of each event; this is why the key extractor is given the header, not the event. The first pass is
+	 * made only if coalescing is configured. Events not in a batch (including a single event passed to
+	 * {@link #dispatchBatch()}) are never coalesced.
+	 * </p>
+	 *
+	 * @param eventType    class of events to coalesce
+	 * @param keyExtractor returns the part of an event's key other than its detail type and resources
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code eventType} is not annotated with {@link DetailType}
+	 */
+	public CloudWatchEventDispatcher withCoalescing(
+			Class<? extends CloudWatchEvent> eventType, Function<? super Header, ?> keyExtractor) {
+
+		coalescingKeys.put(detailTypeOf(eventType, "coalesce events"), keyExtractor);
+
+		return this;
+	}
+
+	/**
+	 * Instructs the dispatcher, when dispatching a batch, to stop starting events once the invocation's remaining time
+	 * falls below a margin.
+	 * <p>
+	 * Before each event of a batch, the dispatcher compares {@link Context#getRemainingTimeInMillis()}, less the
+	 * margin, with the expected time to handle the event: zero, unless latency estimates were supplied via
+	 * {@link #withLatencyEstimates(HandlerLatencies) withLatencyEstimates()}. If the event does not fit, it and all
+	 * following events are {@link DispatchResult.Status#DEFERRED DEFERRED}. The margin should cover whatever the
+	 * function does after dispatch returns (such as reporting deferred events).
+	 *
+	 * @param margin time to keep in reserve at the end of the invocation
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code margin} is negative
+	 */
+	public CloudWatchEventDispatcher withDeadlineMargin(Duration margin) {
+		if (margin.isNegative()) {
+			throw new IllegalArgumentException("Deadline margin must not be negative: " + margin);
+		}
+
+		deadlineMarginMillis = margin.toMillis();
+
+		return this;
+	}
+
+	/**
+	 * Instructs the dispatcher to record the latency of each handler call, and, when dispatching a batch with a
+	 * deadline margin, to start an event only if its estimated latency fits in the remaining time.
+	 *
+	 * @param handlerLatencies latency estimates, typically shared across invocations
+	 * @return a reference to this object
+	 */
+	public CloudWatchEventDispatcher withLatencyEstimates(HandlerLatencies handlerLatencies) {
+		this.handlerLatencies = handlerLatencies;
+
+		return this;
+	}
+
+	/**
+	 * Instructs the dispatcher to give an aggregator the opportunity to flush, after the event has been handled.
+	 * <p>
+	 * Handlers append records to the aggregator themselves; the dispatcher calls
+	 * {@link Aggregator#flushIfDue(Context)}, so that records do not wait beyond the aggregator's maximum age, and
+	 * are written before the invocation runs out of time. If the aggregator's sink fails, the failure is logged with
+	 * {@link Context#getLogger()}, and does not affect the outcome of the event, which has already been handled; the
+	 * records remain buffered. This method may be called more than once, to register several aggregators.
+	 *
+	 * @param aggregator aggregator appended to by handlers, typically shared across invocations
+	 * @return a reference to this object
+	 */
+	public CloudWatchEventDispatcher withAggregator(Aggregator<?> aggregator) {
+		aggregators.add(aggregator);
+
+		return this;
+	}
 
-		eventTypes.put(typeDescription, eventType);
-		handlers.put(typeDescription, handler);
+	/**
+	 * Instructs the dispatcher to append each event to a spool, just before calling the event's handler, so that it
+	 * can be dispatched again if the handler fails.
+	 * <p>
+	 * Events rejected by the dispatcher, or skipped as duplicates, are not spooled. Each event is spooled as its
+	 * original bytes: the events of a batch as they appear in the message, and events carried in records as the
+	 * unescaped record bodies.
+	 *
+	 * @param spool spool of events, typically shared across invocations
+	 * @return a reference to this object
+	 * @throws UncheckedIOException from the terminal operation, if an event cannot be appended to the spool; the
+	 *                              event's handler is not called
+	 */
+	public CloudWatchEventDispatcher withSpool(EventSpool spool) {
+		this.spool = spool;
 
 		return this;
 	}
@@ -126,6 +494,47 @@ public class CloudWatchEventDispatcher {
 		return this;
 	}
 
+	/**
+	 * Instructs the dispatcher to keep a copy of the bytes of each event it binds, for {@link EventWriter} to copy
+	 * properties that have not changed since the event was dispatched verbatim.
+	 * <p>
+	 * Only the event's own bytes are kept, not the rest of the message, and only for as long as the event itself is
+	 * reachable. Without this, events are encoded in full when written.
+	 *
+	 * @return a reference to this object
+	 */
+	public CloudWatchEventDispatcher retainEventBytes() {
+		retainEventBytes = true;
+
+		return this;
+	}
+
+	/**
+	 * Enables tracing: the dispatch of each event is timed, phase by phase, and exported when the event's dispatch
+	 * finishes, identified by the event's ID and the Lambda request ID.
+	 * <p>
+	 * A trace has a span for each phase of the dispatch: reading the message (for the first event of a message only),
+	 * parsing the event, binding its detail, binding its header, and calling its handler. Without tracing, the phases
+	 * are not timed, and nothing is allocated to record them.
+	 * </p>
+	 *
+	 * @param exporter destination of the traces, such as a
+	 *                 {@link com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.LoggerSpanExporter
+	 *                 LoggerSpanExporter}, or {@code null} to disable tracing
+	 * @return a reference to this object
+	 */
+	public CloudWatchEventDispatcher withTracing(SpanExporter exporter) {
+		this.tracer = exporter == null ? null : new DispatchTracer(exporter, context, readStart, readEnd);
+
+		return this;
+	}
+
+	CloudWatchEventDispatcher withPhaseListener(DispatchPhaseListener phaseListener) {
+		this.phaseListener = phaseListener;
+
+		return this;
+	}
+
 	/**
 	 * Dispatches the event to registered handlers.
 	 * <p>
@@ -135,94 +544,1014 @@ public class CloudWatchEventDispatcher {
 	 * @throws IllegalArgumentException if the message is not valid JSON, or if the message is missing
 	 *                                  {@code detail-type} or {@code detail} properties, or if the message's
 	 *                                  {@code detail-type} does not correspond to any event types registered via
-	 *                                  {@link #withEventHandler(Class, BiConsumer) withEventHandler()}
+	 *                                  {@link #withEventHandler(Class, BiConsumer) withEventHandler()} (and no
+	 *                                  handler was registered via
+	 *                                  {@link #withUnknownEventHandler(BiConsumer) withUnknownEventHandler()})
 	 */
 	public void dispatch() {
-		if (logRawMessage) {
-			context.getLogger().log("Raw message: " + message);
+		DispatchResult result = tryDispatch();
+
+		if (result.isRejected()) {
+			throw result.toException();
 		}
+	}
 
-		JsonObject jsonObject;
-		try {
-			jsonObject = new JsonParser().parse(message).getAsJsonObject();
-		} catch (Exception e) {
-			throw new IllegalArgumentException("Failed to parse message as JSON", e);
+	/**
+	 * Dispatches the event to registered handlers, writing the value returned by the handler to a function's output
+	 * stream, as an alternative terminal operation to {@link #dispatch()}, for functions implementing
+	 * {@link com.amazonaws.services.lambda.runtime.RequestStreamHandler RequestStreamHandler}.
+	 * <p>
+	 * The value returned by a handler registered via {@link #withEventFunction(Class, BiFunction) withEventFunction()}
+	 * is written as JSON, through the same adapters used to read events; {@code null} is written if the handler
+	 * returned {@code null}, or does not return a value, or if the event was skipped as a duplicate. The output stream
+	 * is flushed, but not closed.
+	 * </p>
+	 *
+	 * @param output stream to which to write the response
+	 * @throws IllegalArgumentException under the same conditions as {@link #dispatch()}, before anything is written
+	 * @throws UncheckedIOException     if the response cannot be written
+	 */
+	public void dispatchTo(OutputStream output) {
+		DispatchResult result = tryDispatch();
+
+		if (result.isRejected()) {
+			throw result.toException();
 		}
 
-		Gson gson = new GsonBuilder()
-				.registerTypeAdapter(ZonedDateTime.class, new ZonedDateTimeAdapter())
-				.create();
+		try {
+			ResponseWriter response = new ResponseWriter(output, GSON);
+			response.write(result.isDispatched() ? handlerValue : null);
+			response.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
 
-		JsonElement detailType = jsonObject.get("detail-type");
-		if (detailType == null) {
-			throw new IllegalArgumentException(
-					"Received message is not CloudWatch event (missing \"detail-type\" property)"
-			);
+	/**
+	 * Dispatches the event to registered handlers, reporting rather than throwing if the message cannot be
+	 * dispatched.
+	 * <p>
+	 * This is an alternative terminal operation to {@link #dispatch()}, for functions that expect to receive messages
+	 * they will not handle. The conditions under which {@code dispatch()} would throw are instead reported by the
+	 * status of the returned result. Exceptions thrown by handlers propagate to the caller.
+	 *
+	 * @return outcome of the dispatch
+	 */
+	public DispatchResult tryDispatch() {
+		if (tracer == null) {
+			return dispatchMessage();
 		}
 
-		JsonElement detail = jsonObject.get("detail");
-		if (detail == null) {
-			throw new IllegalArgumentException(
-					"Received message is not CloudWatch event (missing \"detail\" property)"
-			);
+		tracer.begin();
+
+		DispatchResult result;
+		try {
+			result = dispatchMessage();
+		} catch (RuntimeException | Error e) {
+			tracer.end(null, null, DispatchResult.Status.FAILED);
+			throw e;
 		}
 
-		String typeDescription = detailType.getAsString();
+		tracer.end(null, result.detailType(), result.status());
 
-		Class<? extends CloudWatchEvent> eventType = eventTypes.get(typeDescription);
-		if (eventType == null) {
-			throw new IllegalArgumentException(
-					"Received event of unknown type; detail-type field in message: " + typeDescription
-			);
+		return result;
+	}
+
+	private DispatchResult dispatchMessage() {
+		if (readRejection != null) {
+			return readRejection;
 		}
 
-		Header header = gson.fromJson(jsonObject, Header.class);
-		CloudWatchEvent event = gson.fromJson(detail, eventType);
-		event.setHeader(header);
+		if (logRawMessage) {
+			context.getLogger().log("Raw message: " + message());
+		}
 
-		// The generic type bounds used on the method that stores key/value pairs in the map make this type-safe
-		@SuppressWarnings("unchecked")
-		BiConsumer<Object, Context> handler =
-				(BiConsumer<Object, Context>) handlers.get(typeDescription);
+		enterPhase(DispatchPhaseListener.Phase.ENVELOPE);
 
-		handler.accept(event, context);
-	}
+		Envelope envelope = new Envelope();
+		envelope.locator = this::locateMessage;
 
-	private static String readQuickly(InputStream stream) {
 		try {
-			byte[] bytes = new byte[stream.available()];
+			JsonReader reader = newReader();
+
+			if (reader.peek() != BEGIN_OBJECT) {
+				return DispatchResult.malformed(null);
+			}
 
-			//noinspection ResultOfMethodCallIgnored
-			stream.read(bytes);
-			int next = stream.read();
+			readEnvelope(reader, envelope, new SpanSource(-1), true);
 
-			if (next < 0) {
-				return new String(bytes, UTF_8);
+			if (reader.peek() != END_DOCUMENT) {
+				throw new JsonSyntaxException("Did not consume the entire document.");
 			}
+		} catch (Exception e) {
+			return DispatchResult.malformed(e);
+		}
+
+		DispatchResult result = dispatchEnvelope(envelope);
+		enterPhase(DispatchPhaseListener.Phase.DONE);
+
+		return result;
+	}
+
+	/**
+	 * Dispatches each event of a batch to registered handlers, as a terminal operation alternative to
+	 * {@link #dispatch()}.
+	 * <p>
+	 * The message must be a JSON array of CloudWatch events (a single event, not in an array, is treated as a batch
+	 * of one). Events are dispatched in order; each is reported as for {@link #tryDispatch()}, except that exceptions
+	 * thrown by handlers are reported as {@link DispatchResult.Status#FAILED FAILED}, and do not prevent following
+	 * events from being dispatched. If a {@linkplain #withDeadlineMargin(Duration) deadline margin} is set, events
+	 * that do not fit in the invocation's remaining time are reported as {@link DispatchResult.Status#DEFERRED
+	 * DEFERRED}, for the function to hand back to its caller or requeue.
+	 * </p>
+	 * <p>
+	 * An event that is well-formed JSON, but cannot be bound (a property of the wrong type, for instance), is reported
+	 * as {@link DispatchResult.Status#MALFORMED MALFORMED}, and does not prevent following events from being
+	 * dispatched. If the message itself stops being parseable partway through, the batch ends with a
+	 * {@code MALFORMED} item; events up to that point will already have been dispatched.
+	 * </p>
+	 *
+	 * @return outcome of the dispatch of each event
+	 */
+	public BatchResult dispatchBatch() {
+		try {
+			return dispatchBatch(null);
+		} catch (IOException e) {
+			// Only writing the response can fail
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Dispatches each event of a batch to registered handlers, as for {@link #dispatchBatch()}, streaming the values
+	 * returned by handlers to a function's output stream.
+	 * <p>
+	 * The response is a JSON array with one element for each item of the result: the value returned by the handler of
+	 * each event dispatched, written as for {@link #dispatchTo(OutputStream)} as soon as the handler returns, and
+	 * {@code null} for every other item. The output stream is flushed, but not closed.
+	 * </p>
+	 *
+	 * @param output stream to which to write the response
+	 * @return outcome of the dispatch of each event
+	 * @throws UncheckedIOException if the response cannot be written
+	 */
+	public BatchResult dispatchBatchTo(OutputStream output) {
+		ResponseWriter response = new ResponseWriter(output, GSON);
+
+		try {
+			response.beginArray();
+			BatchResult result = dispatchBatch(response);
+			response.endArray();
+			response.flush();
 
-			return readSlowly(bytes, next, stream);
+			return result;
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
-		} finally {
-			try {
-				stream.close();
-			} catch (IOException ignore) {
+		}
+	}
+
+	private BatchResult dispatchBatch(ResponseWriter response) throws IOException {
+		List<BatchResult.Item> items = new ArrayList<>();
+
+		if (readRejection != null) {
+			addItem(items, new BatchResult.Item(0, null, readRejection), response);
+
+			return new BatchResult(items);
+		}
+
+		if (logRawMessage) {
+			context.getLogger().log("Raw message: " + message());
+		}
+
+		Map<Integer, BatchResult.Item> superseded = coalescingKeys.isEmpty() ? emptyMap() : supersededElements();
+		boolean deferring = false;
+		int index = 0;
+
+		try {
+			JsonReader reader = newReader();
+
+			if (reader.peek() == BEGIN_OBJECT) {
+				addItem(items, dispatchElement(reader, 0, new SpanSource(-1), this::locateMessage, false), response);
+			} else {
+				reader.beginArray();
+
+				while (reader.hasNext()) {
+					BatchResult.Item item = superseded.get(index);
+
+					if (item != null) {
+						reader.skipValue();
+					} else {
+						int element = index;
+
+						try {
+							item = dispatchElement(
+									reader, index, new SpanSource(index), raw -> locateElement(element, raw), deferring
+							);
+							deferring = item.result().status() == DispatchResult.Status.DEFERRED;
+						} catch (IOException | RuntimeException e) {
+							// Handler exceptions are captured by dispatchElement(); these are from parsing the event.
+							// If the batch itself is malformed, rather than just this event, the batch ends here
+							reader = readerAfterElement(index);
+
+							if (reader == null) {
+								throw e;
+							}
+
+							item = new BatchResult.Item(index, null, DispatchResult.malformed(e));
+						}
+					}
+
+					addItem(items, item, response);
+					index++;
+				}
+
+				reader.endArray();
+			}
+
+			if (reader.peek() != END_DOCUMENT) {
+				throw new JsonSyntaxException("Did not consume the entire document.");
 			}
+		} catch (Exception e) {
+			addItem(items, new BatchResult.Item(index, null, DispatchResult.malformed(e)), response);
+		}
+
+		return new BatchResult(items);
+	}
+
+	/**
+	 * Opens a new reader over the batch, positioned after an element that could not be parsed, as though the elements
+	 * up to and including it had been read. The element is located by scanning the batch's bytes.
+	 *
+	 * @return the reader, or {@code null} if the batch is malformed at the element, and cannot be read past it
+	 */
+	private JsonReader readerAfterElement(int index) throws IOException {
+		try {
+			scanElements(index);
+		} catch (MalformedJsonException e) {
+			return null;
 		}
+
+		int end = elementSpans[index * 2 + 1];
+
+		// A placeholder element opens the array, so that the reader continues at the separator after the element
+		PushbackReader rest = new PushbackReader(new Utf8Reader(messageBytes, end, messageEnd, messageAscii), 2);
+		rest.unread(new char[] {'[', '0'});
+
+		JsonReader reader = new JsonReader(rest);
+		reader.setLenient(true);
+		reader.beginArray();
+		reader.skipValue();
+
+		return reader;
 	}
 
-	private static String readSlowly(byte[] initial, int next, InputStream stream) throws IOException {
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(initial.length + 1 + 65_536);
-		byte[] buffer = new byte[65_536];
+	private void addItem(List<BatchResult.Item> items, BatchResult.Item item, ResponseWriter response)
+			throws IOException {
 
-		outputStream.write(initial);
-		outputStream.write(next);
+		items.add(item);
 
-		int read;
-		while ((read = stream.read(buffer)) >= 0) {
-			outputStream.write(buffer, 0, read);
+		if (response != null) {
+			response.write(item.result().isDispatched() ? handlerValue : null);
 		}
 
-		return new String(outputStream.toByteArray(), UTF_8);
+		handlerValue = null;
+	}
+
+	/**
+	 * Dispatches the CloudWatch event carried by each record of an SQS or SNS event, as a terminal operation
+	 * alternative to {@link #dispatch()}, for functions receiving events from a queue or topic targeted by an
+	 * EventBridge rule.
+	 * <p>
+	 * Each record carries its event as an escaped JSON string: in {@code body}, for SQS, or {@code Sns.Message}, for
+	 * SNS. The event is parsed directly from that string within the message, unescaping it as it is read, rather than
+	 * from a copy. Records are dispatched in order, and each is reported as for {@link #dispatchBatch()}, with the
+	 * record's message ID available from {@link BatchResult.Item#recordId()}; a record whose body is not a well-formed
+	 * event is reported as {@link DispatchResult.Status#MALFORMED MALFORMED} without affecting other records. A
+	 * function consuming an SQS queue can report the records to be redelivered with
+	 * {@link BatchResult#toSqsBatchResponse()}.
+	 * </p>
+	 * <p>
+	 * For an SNS topic delivering to an SQS queue, raw message delivery must be enabled on the subscription, so that
+	 * the body of each SQS message is the event itself, not an SNS notification.
+	 * </p>
+	 *
+	 * @return outcome of the dispatch of each record
+	 */
+	public BatchResult dispatchRecords() {
+		List<BatchResult.Item> items = new ArrayList<>();
+
+		if (readRejection != null) {
+			items.add(new BatchResult.Item(0, null, readRejection));
+
+			return new BatchResult(items);
+		}
+
+		if (logRawMessage) {
+			context.getLogger().log("Raw message: " + message());
+		}
+
+		Map<Integer, BatchResult.Item> superseded = coalescingKeys.isEmpty() ? emptyMap() : supersededRecords();
+		boolean deferring = false;
+		int index = 0;
+
+		try {
+			RecordScanner records = new RecordScanner(message());
+
+			if (!records.open()) {
+				items.add(new BatchResult.Item(0, null, DispatchResult.notCloudWatchEvent("Records")));
+
+				return new BatchResult(items);
+			}
+
+			for (RecordScanner.Record record = records.next(); record != null; record = records.next()) {
+				BatchResult.Item item = superseded.get(index);
+
+				if (item != null) {
+					item = new BatchResult.Item(index, record.id(), item.eventId(), item.result());
+				} else {
+					item = dispatchRecord(record, index, deferring);
+					deferring = item.result().status() == DispatchResult.Status.DEFERRED;
+				}
+
+				items.add(item);
+				index++;
+			}
+		} catch (MalformedJsonException e) {
+			items.add(new BatchResult.Item(index, null, DispatchResult.malformed(e)));
+		}
+
+		return new BatchResult(items);
+	}
+
+	private BatchResult.Item dispatchRecord(RecordScanner.Record record, int index, boolean deferring) {
+		if (record.bodyStart() < 0) {
+			return new BatchResult.Item(index, record.id(), null, DispatchResult.notCloudWatchEvent("body"));
+		}
+
+		EventSource source = recordSource(record);
+
+		BatchResult.Item item;
+		try {
+			item = dispatchElement(source.open(), index, source, raw -> locateRecord(record, raw), deferring);
+		} catch (IOException | RuntimeException e) {
+			// Handler exceptions are captured by dispatchElement(); these can only be from parsing the body
+			return new BatchResult.Item(index, record.id(), null, DispatchResult.malformed(e));
+		}
+
+		return new BatchResult.Item(index, record.id(), item.eventId(), item.result());
+	}
+
+	/**
+	 * Finds the superseded events of a batch, in a first pass over the message that skips each event's detail. If the
+	 * message stops being parseable partway through, only the events up to that point are coalesced; the dispatch pass
+	 * reports the malformed content.
+	 */
+	private Map<Integer, BatchResult.Item> supersededElements() {
+		BatchCoalescer coalescer = new BatchCoalescer(coalescingKeys);
+
+		try {
+			JsonReader reader = newReader();
+
+			if (reader.peek() == BEGIN_ARRAY) {
+				reader.beginArray();
+
+				for (int index = 0; reader.hasNext(); index++) {
+					offerForCoalescing(reader, index, coalescer);
+				}
+			}
+		} catch (IOException | RuntimeException ignore) {
+			// Reported by the dispatch pass
+		}
+
+		return coalescer.superseded();
+	}
+
+	private Map<Integer, BatchResult.Item> supersededRecords() {
+		BatchCoalescer coalescer = new BatchCoalescer(coalescingKeys);
+
+		try {
+			RecordScanner records = new RecordScanner(message());
+
+			if (records.open()) {
+				int index = 0;
+
+				for (RecordScanner.Record record = records.next(); record != null; record = records.next()) {
+					if (record.bodyStart() >= 0) {
+						try {
+							offerForCoalescing(recordSource(record).open(), index, coalescer);
+						} catch (IOException | RuntimeException ignore) {
+							// A malformed body is reported by the dispatch pass, and does not affect other records
+						}
+					}
+
+					index++;
+				}
+			}
+		} catch (MalformedJsonException ignore) {
+			// Reported by the dispatch pass
+		}
+
+		return coalescer.superseded();
+	}
+
+	private void offerForCoalescing(JsonReader reader, int index, BatchCoalescer coalescer) throws IOException {
+		if (reader.peek() != BEGIN_OBJECT) {
+			reader.skipValue();
+
+			return;
+		}
+
+		Envelope envelope = new Envelope();
+		readEnvelope(reader, envelope, null, false);
+
+		// Only an event that will itself be dispatched may supersede others
+		if (envelope.detailType != null && envelope.detailSkipped && coalescer.coalesces(envelope.detailType)) {
+			coalescer.offer(index, envelope.detailType, envelope.header());
+		}
+	}
+
+	private EventSource recordSource(RecordScanner.Record record) {
+		return () -> {
+			JsonReader reader = new JsonReader(new JsonStringReader(message(), record.bodyStart()));
+			reader.setLenient(true);
+
+			return reader;
+		};
+	}
+
+	private BatchResult.Item dispatchElement(JsonReader reader, int index, EventSource source,
+			RawEvent.Locator locator, boolean deferring) throws IOException {
+
+		if (tracer == null) {
+			return dispatchUntracedElement(reader, index, source, locator, deferring);
+		}
+
+		tracer.begin();
+
+		BatchResult.Item item;
+		try {
+			item = dispatchUntracedElement(reader, index, source, locator, deferring);
+		} catch (IOException | RuntimeException e) {
+			// Handler exceptions are captured; these can only be from parsing
+			tracer.end(null, null, DispatchResult.Status.MALFORMED);
+			throw e;
+		}
+
+		tracer.end(item.eventId(), item.result().detailType(), item.result().status());
+
+		return item;
+	}
+
+	private BatchResult.Item dispatchUntracedElement(JsonReader reader, int index, EventSource source,
+			RawEvent.Locator locator, boolean deferring) throws IOException {
+
+		enterPhase(DispatchPhaseListener.Phase.ENVELOPE);
+
+		if (reader.peek() != BEGIN_OBJECT) {
+			reader.skipValue();
+
+			return new BatchResult.Item(index, null, DispatchResult.malformed(null));
+		}
+
+		Envelope envelope = new Envelope();
+		envelope.locator = locator;
+		readEnvelope(reader, envelope, source, !deferring);
+
+		String eventId = envelope.id;
+
+		if (deferring || !fitsInRemainingTime(envelope.detailType)) {
+			return new BatchResult.Item(index, eventId, DispatchResult.deferred(envelope.detailType));
+		}
+
+		DispatchResult result;
+		try {
+			result = dispatchEnvelope(envelope);
+		} catch (RuntimeException e) {
+			result = DispatchResult.failed(envelope.detailType, e);
+		}
+
+		return new BatchResult.Item(index, eventId, result);
+	}
+
+	private boolean fitsInRemainingTime(String detailType) {
+		if (deadlineMarginMillis < 0 || context == null) {
+			return true;
+		}
+
+		long available = context.getRemainingTimeInMillis() - deadlineMarginMillis;
+		long needed = handlerLatencies == null ? 0 : handlerLatencies.estimateMillis(detailType);
+
+		return available > needed;
+	}
+
+	private DispatchResult dispatchEnvelope(Envelope envelope) {
+		if (envelope.detailType == null) {
+			return DispatchResult.notCloudWatchEvent("detail-type");
+		}
+
+		if (!envelope.hasDetail) {
+			return DispatchResult.notCloudWatchEvent("detail");
+		}
+
+		String typeDescription = envelope.detailType;
+
+		if (!eventAdapters.containsKey(typeDescription) && unknownEventHandler == null) {
+			return DispatchResult.unknownType(typeDescription);
+		}
+
+		if (envelope.detail == null) {
+			// Left unbound only when the discriminator of a discriminated detail type matched no registered class
+			return DispatchResult.unknownSubtype(typeDescription, envelope.discriminator, envelope.discriminatorValue);
+		}
+
+		enterPhase(DispatchPhaseListener.Phase.HEADER);
+		Header header = envelope.header();
+		RawEvent raw = new RawEvent(header, envelope.locator);
+
+		if (tracer != null) {
+			tracer.event(header.id(), typeDescription);
+		}
+
+		String id = header.id();
+		if (recentEventIds != null && id != null && recentEventIds.contains(id)) {
+			return DispatchResult.duplicate(typeDescription);
+		}
+
+		if (spool != null) {
+			spool(raw, id, typeDescription, header.time());
+		}
+
+		enterPhase(DispatchPhaseListener.Phase.HANDLER);
+
+		DispatchResult result;
+		long start = System.nanoTime();
+
+		try {
+			if (envelope.detail instanceof JsonElement) {
+				UnknownEvent event = new UnknownEvent(typeDescription, (JsonElement) envelope.detail);
+				event.setHeader(header);
+				retain(event, raw);
+
+				unknownEventHandler.accept(event, context);
+				result = DispatchResult.fallback(typeDescription);
+			} else {
+				CloudWatchEvent event = (CloudWatchEvent) envelope.detail;
+				event.setHeader(header);
+				retain(event, raw);
+
+				// The generic type bounds used on the method that stores key/value pairs in the map make this
+				// type-safe
+				@SuppressWarnings("unchecked")
+				BiFunction<Object, Context, ?> handler =
+						(BiFunction<Object, Context, ?>) handlers.get(typeDescription);
+
+				handlerValue = handler.apply(event, context);
+				result = DispatchResult.dispatched(typeDescription);
+			}
+		} finally {
+			if (handlerLatencies != null) {
+				handlerLatencies.record(typeDescription, System.nanoTime() - start);
+			}
+		}
+
+		if (recentEventIds != null && id != null) {
+			recentEventIds.add(id);
+		}
+
+		flushAggregators();
+
+		return result;
+	}
+
+	/**
+	 * Gives each aggregator the opportunity to flush. The event has already been handled, so a failing sink is logged
+	 * rather than attributed to the event; the aggregator keeps its records, and offers them again on its next flush.
+	 */
+	private void flushAggregators() {
+		for (Aggregator<?> aggregator : aggregators) {
+			try {
+				aggregator.flushIfDue(context);
+			} catch (RuntimeException e) {
+				if (context != null) {
+					context.getLogger().log("Aggregator flush failed; " + aggregator.size() + " records remain " +
+							"buffered: " + e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads one event from the reader, binding the detail as it is encountered (if {@code bindDetail} is set). In the
+	 * unusual case that {@code detail} precedes {@code detail-type}, the detail is skipped, and bound in a second pass
+	 * over the event, from the start of the event as positioned by {@code source}.
+	 */
+	private void readEnvelope(JsonReader reader, Envelope envelope, EventSource source, boolean bindDetail)
+			throws IOException {
+
+		boolean detailDeferred = false;
+
+		reader.beginObject();
+
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+
+			if (name.equals("detail-type")) {
+				envelope.detailType = reader.nextString();
+			} else if (name.equals("detail")) {
+				if (envelope.detailType == null || !bindDetail) {
+					envelope.detailSkipped = reader.peek() != NULL;
+					reader.skipValue();
+					detailDeferred = true;
+				} else {
+					readDetail(reader, envelope, source);
+				}
+			} else if (!readHeaderProperty(reader, name, envelope)) {
+				reader.skipValue();
+			}
+		}
+
+		reader.endObject();
+
+		if (detailDeferred && envelope.detailType != null && bindDetail) {
+			JsonReader rereader = source.open();
+			rereader.beginObject();
+
+			while (!rereader.nextName().equals("detail")) {
+				rereader.skipValue();
+			}
+
+			readDetail(rereader, envelope, source);
+		}
+	}
+
+	/**
+	 * Reads a header property straight from the reader's tokens, without building a tree. An event whose detail is
+	 * skipped, such as a {@code Scheduled Event}, is so decoded from its header alone.
+	 *
+	 * @return {@code true} if the property was a header property, and has been read
+	 */
+	private static boolean readHeaderProperty(JsonReader reader, String name, Envelope envelope) throws IOException {
+		switch (name) {
+			case "version":
+				envelope.version = readHeaderString(reader);
+				return true;
+			case "id":
+				envelope.id = readHeaderString(reader);
+				return true;
+			case "source":
+				envelope.source = readHeaderString(reader);
+				return true;
+			case "account":
+				envelope.account = readHeaderString(reader);
+				return true;
+			case "time":
+				envelope.time = readHeaderTime(reader);
+				return true;
+			case "region":
+				envelope.region = readHeaderString(reader);
+				return true;
+			case "resources":
+				envelope.resources = readHeaderStrings(reader);
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static String readHeaderString(JsonReader reader) throws IOException {
+		JsonToken token = reader.peek();
+
+		if (token == NULL) {
+			reader.nextNull();
+
+			return null;
+		}
+
+		if (token != STRING && token != NUMBER) {
+			throw new JsonSyntaxException("Expected a string but was " + token + " at path " + reader.getPath());
+		}
+
+		return reader.nextString();
+	}
+
+	private static ZonedDateTime readHeaderTime(JsonReader reader) throws IOException {
+		String path = reader.getPath();
+		String time = readHeaderString(reader);
+
+		try {
+			return time == null ? null : ZonedDateTime.parse(time, ISO_ZONED_DATE_TIME);
+		} catch (DateTimeParseException e) {
+			throw new JsonSyntaxException("Invalid time at path " + path + ": " + time, e);
+		}
+	}
+
+	private static List<String> readHeaderStrings(JsonReader reader) throws IOException {
+		if (reader.peek() == NULL) {
+			reader.nextNull();
+
+			return emptyList();
+		}
+
+		if (reader.peek() != BEGIN_ARRAY) {
+			throw new JsonSyntaxException("Expected an array but was " + reader.peek() + " at path " +
+					reader.getPath());
+		}
+
+		List<String> strings = new ArrayList<>();
+
+		reader.beginArray();
+		while (reader.hasNext()) {
+			strings.add(readHeaderString(reader));
+		}
+		reader.endArray();
+
+		return strings;
+	}
+
+	private void readDetail(JsonReader reader, Envelope envelope, EventSource source) throws IOException {
+		if (reader.peek() == NULL) {
+			reader.nextNull();
+
+			return;
+		}
+
+		TypeAdapter<? extends CloudWatchEvent> adapter = eventAdapters.get(envelope.detailType);
+
+		enterPhase(DispatchPhaseListener.Phase.DETAIL);
+
+		if (adapter instanceof DiscriminatingAdapter) {
+			DiscriminatingAdapter router = (DiscriminatingAdapter) adapter;
+
+			envelope.discriminator = router.discriminator();
+			envelope.discriminatorValue = source.peekDetail(router);
+			adapter = router.adapterFor(envelope.discriminatorValue);
+		}
+
+		if (adapter != null) {
+			envelope.detail = adapter.read(reader);
+		} else if (unknownEventHandler != null) {
+			envelope.detail = new JsonParser().parse(reader);
+		} else {
+			reader.skipValue();
+		}
+
+		envelope.hasDetail = true;
+
+		enterPhase(DispatchPhaseListener.Phase.ENVELOPE);
+	}
+
+	/**
+	 * Finds the value of a property of an event's detail, in a separate pass over the event's tokens that skips every
+	 * other value, so that the detail itself can then be bound in a single pass by the adapter the value selects.
+	 *
+	 * @return the value, or {@code null} if the detail lacks the property, or its value is not a string or number
+	 */
+	private static String peekDetail(JsonReader peeker, String property) throws IOException {
+		peeker.beginObject();
+
+		while (peeker.hasNext()) {
+			if (!peeker.nextName().equals("detail")) {
+				peeker.skipValue();
+			} else if (peeker.peek() != BEGIN_OBJECT) {
+				return null;
+			} else {
+				peeker.beginObject();
+
+				while (peeker.hasNext()) {
+					if (peeker.nextName().equals(property)) {
+						JsonToken token = peeker.peek();
+
+						return token == STRING || token == NUMBER ? peeker.nextString() : null;
+					}
+
+					peeker.skipValue();
+				}
+
+				return null;
+			}
+		}
+
+		return null;
+	}
+
+	private void retain(CloudWatchEvent event, RawEvent raw) {
+		if (!retainEventBytes) {
+			return;
+		}
+
+		try {
+			RawEvents.put(event, raw.detached());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Appends the original bytes of an event to the spool: the message itself, the span of a batch element (located
+	 * in a single pass over the batch), or the unescaped body of a record.
+	 */
+	private void spool(RawEvent raw, String id, String detailType, ZonedDateTime time) {
+		try {
+			spool.append(raw.bytes(), raw.start(), raw.end() - raw.start(), id, detailType, time);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void locateMessage(RawEvent raw) {
+		raw.located(messageBytes, messageStart, messageEnd, messageAscii);
+	}
+
+	/**
+	 * Locates an element of a batch, scanning the message only as far as needed, once for all elements.
+	 */
+	private void locateElement(int index, RawEvent raw) throws MalformedJsonException {
+		scanElements(index);
+
+		raw.located(messageBytes, elementSpans[index * 2], elementSpans[index * 2 + 1], messageAscii);
+	}
+
+	/**
+	 * Scans the batch as far as the end of an element, recording the span of each element passed.
+	 */
+	private void scanElements(int index) throws MalformedJsonException {
+		if (elementScanner == null) {
+			elementScanner = new RawJsonScanner(messageBytes, messageStart, messageEnd);
+			elementScanner.beginArray();
+			elementSpans = new int[32];
+		}
+
+		while (elementCount <= index) {
+			int start = elementScanner.nextElement(elementCount == 0);
+
+			if (start < 0) {
+				throw new MalformedJsonException("Batch has no element " + index);
+			}
+
+			if (elementCount * 2 == elementSpans.length) {
+				elementSpans = Arrays.copyOf(elementSpans, elementSpans.length * 2);
+			}
+
+			elementSpans[elementCount * 2] = start;
+			elementSpans[elementCount * 2 + 1] = elementScanner.position();
+			elementCount++;
+		}
+	}
+
+	/**
+	 * Locates the event carried by a record, by unescaping the record's body.
+	 */
+	private void locateRecord(RecordScanner.Record record, RawEvent raw) throws IOException {
+		StringBuilder body = new StringBuilder();
+		char[] chars = new char[4096];
+
+		try (JsonStringReader reader = new JsonStringReader(message(), record.bodyStart())) {
+			for (int count = reader.read(chars); count >= 0; count = reader.read(chars)) {
+				body.append(chars, 0, count);
+			}
+		}
+
+		byte[] bytes = body.toString().getBytes(UTF_8);
+		raw.located(bytes, 0, bytes.length, Utf8Reader.isAscii(bytes, 0, bytes.length));
+	}
+
+	private void enterPhase(DispatchPhaseListener.Phase phase) {
+		if (phaseListener != null) {
+			phaseListener.enter(phase);
+		}
+
+		if (tracer != null) {
+			tracer.enter(phase);
+		}
+	}
+
+	private JsonReader newReader() {
+		JsonReader reader = new JsonReader(new Utf8Reader(messageBytes, messageStart, messageEnd, messageAscii));
+		reader.setLenient(true);
+
+		return reader;
+	}
+
+	private String message() {
+		if (message == null) {
+			message = new String(messageBytes, messageStart, messageEnd - messageStart, UTF_8);
+		}
+
+		return message;
+	}
+
+	/**
+	 * Opens a new reader, positioned at the start of an event.
+	 */
+	private interface EventSource {
+		JsonReader open() throws IOException;
+
+		/**
+		 * Finds the value of the discriminator of a detail type within the event's detail.
+		 *
+		 * @return the value, or {@code null} if the detail lacks the property, or its value is not a string or number
+		 */
+		default String peekDetail(DiscriminatingAdapter router) throws IOException {
+			return CloudWatchEventDispatcher.peekDetail(open(), router.discriminator());
+		}
+	}
+
+	/**
+	 * Source of an event held as a span of the message bytes: the whole message, or an element of a batch. Elements
+	 * are located by {@link #scanElements(int)}, which passes over the batch once however many events are reopened,
+	 * and the discriminator of a detail is found by scanning the event's bytes, without tokenizing the event.
+	 */
+	private final class SpanSource implements EventSource {
+		private final int index;
+
+		/**
+		 * @param index index of the element of the batch, or {@code -1} for the whole message
+		 */
+		SpanSource(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public JsonReader open() throws IOException {
+			JsonReader reader = new JsonReader(new Utf8Reader(messageBytes, start(), end(), messageAscii));
+			reader.setLenient(true);
+
+			return reader;
+		}
+
+		@Override
+		public String peekDetail(DiscriminatingAdapter router) throws IOException {
+			RawJsonScanner scanner = new RawJsonScanner(messageBytes, start(), end());
+
+			if (!scanner.findMember(DETAIL_NAME) || !scanner.findMember(router.discriminatorBytes())) {
+				return null;
+			}
+
+			int valueStart = scanner.nextValue();
+			int valueEnd = scanner.position();
+			byte first = messageBytes[valueStart];
+
+			if (first != '"') {
+				return first == '-' || (first >= '0' && first <= '9') ?
+						new String(messageBytes, valueStart, valueEnd - valueStart, UTF_8) : null;
+			}
+
+			for (int i = valueStart + 1; i < valueEnd - 1; i++) {
+				if (messageBytes[i] == '\\') {
+					return unescape(valueStart, valueEnd);
+				}
+			}
+
+			return new String(messageBytes, valueStart + 1, valueEnd - valueStart - 2, UTF_8);
+		}
+
+		private String unescape(int valueStart, int valueEnd) throws IOException {
+			JsonReader reader = new JsonReader(new Utf8Reader(messageBytes, valueStart, valueEnd, messageAscii));
+			reader.setLenient(true);
+
+			return reader.nextString();
+		}
+
+		private int start() throws IOException {
+			if (index < 0) {
+				return messageStart;
+			}
+
+			scanElements(index);
+
+			return elementSpans[index * 2];
+		}
+
+		private int end() throws IOException {
+			if (index < 0) {
+				return messageEnd;
+			}
+
+			scanElements(index);
+
+			return elementSpans[index * 2 + 1];
+		}
+	}
+
+	private static class Envelope {
+		private String version;
+		private String id;
+		private String source;
+		private String account;
+		private ZonedDateTime time;
+		private String region;
+		private List<String> resources = emptyList();
+
+		private String detailType;
+		private boolean hasDetail;
+		private Object detail;
+		private String discriminator;
+		private String discriminatorValue;
+		private boolean detailSkipped;
+		private RawEvent.Locator locator;
+
+		private Header header() {
+			return new Header(version, id, source, account, time, region, resources);
+		}
 	}
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailDiscriminator;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DiscriminatorValue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Routes the events of a {@link DetailDiscriminator} detail type to the subclasses registered for it, and to their
+ * handlers.
+ * <p>
+ * The adapter of each subclass is resolved when the subclass is registered, and kept by discriminator value, so that
+ * routing an event costs a lookup. The dispatcher peeks at the discriminator in the token stream, and binds the detail
+ * with {@link #adapterFor(String)} directly; {@link #read(JsonReader)}, which must parse the detail into a tree to find
+ * the discriminator, serves only other users of the adapter.
+ * </p>
+ * <p>
+ * Instances are immutable: registering a subclass creates a new router, so that a {@link SharedEventDispatcher} is
+ * unaffected by later use of its builder.
+ * </p>
+ */
+final class DiscriminatingAdapter extends TypeAdapter<CloudWatchEvent> {
+	private final String discriminator;
+	private final byte[] discriminatorBytes;
+	private final TypeAdapter<? extends CloudWatchEvent> baseAdapter;
+	private final Map<String, TypeAdapter<? extends CloudWatchEvent>> adapters;
+	private final Map<Class<?>, BiFunction<?, Context, ?>> handlers;
+
+	private DiscriminatingAdapter(
+			String discriminator, TypeAdapter<? extends CloudWatchEvent> baseAdapter,
+			Map<String, TypeAdapter<? extends CloudWatchEvent>> adapters,
+			Map<Class<?>, BiFunction<?, Context, ?>> handlers) {
+
+		this.discriminator = discriminator;
+		this.discriminatorBytes = discriminator.getBytes(UTF_8);
+		this.baseAdapter = baseAdapter;
+		this.adapters = adapters;
+		this.handlers = handlers;
+	}
+
+	/**
+	 * Returns the discriminator property of an event type, if it has one.
+	 *
+	 * @return the discriminator property name, or {@code null} if the event type is not discriminated
+	 */
+	static String discriminatorOf(Class<? extends CloudWatchEvent> eventType) {
+		DetailDiscriminator annotation = eventType.getAnnotation(DetailDiscriminator.class);
+
+		return annotation == null ? null : annotation.value();
+	}
+
+	/**
+	 * Adds an event type to a router.
+	 *
+	 * @param router existing router of the event type's detail type, or {@code null} if there is none
+	 * @return a new router, including the event type
+	 * @throws IllegalArgumentException if the existing router routes on a different discriminator
+	 */
+	static DiscriminatingAdapter including(
+			DiscriminatingAdapter router, Class<? extends CloudWatchEvent> eventType,
+			BiFunction<?, Context, ?> handler) {
+
+		String discriminator = discriminatorOf(eventType);
+
+		if (router == null) {
+			router = new DiscriminatingAdapter(discriminator, null, new HashMap<>(), new HashMap<>());
+		} else if (!router.discriminator.equals(discriminator)) {
+			throw new IllegalArgumentException(
+					"Cannot register event handler for event type " + eventType.getName() + "; its discriminator, " +
+							discriminator + ", differs from " + router.discriminator + " of event types already " +
+							"registered for the same detail type"
+			);
+		}
+
+		TypeAdapter<? extends CloudWatchEvent> adapter = CloudWatchEventDispatcher.GSON.getAdapter(eventType);
+		TypeAdapter<? extends CloudWatchEvent> baseAdapter = router.baseAdapter;
+		Map<String, TypeAdapter<? extends CloudWatchEvent>> adapters = new HashMap<>(router.adapters);
+		Map<Class<?>, BiFunction<?, Context, ?>> handlers = new HashMap<>(router.handlers);
+
+		DiscriminatorValue values = eventType.getDeclaredAnnotation(DiscriminatorValue.class);
+
+		if (values == null) {
+			baseAdapter = adapter;
+		} else {
+			for (String value : values.value()) {
+				adapters.put(value, adapter);
+			}
+		}
+
+		handlers.put(eventType, handler);
+
+		return new DiscriminatingAdapter(discriminator, baseAdapter, adapters, handlers);
+	}
+
+	String discriminator() {
+		return discriminator;
+	}
+
+	/**
+	 * Returns the discriminator property name as UTF-8, for comparison with member names in message bytes.
+	 */
+	byte[] discriminatorBytes() {
+		return discriminatorBytes;
+	}
+
+	/**
+	 * Returns the adapter of the subclass registered for a value of the discriminator.
+	 *
+	 * @param value value of the discriminator property, or {@code null} if the detail has none
+	 * @return the subclass adapter, the adapter of the discriminated class itself if no subclass matches, or
+	 * {@code null} if that class was not registered either
+	 */
+	TypeAdapter<? extends CloudWatchEvent> adapterFor(String value) {
+		TypeAdapter<? extends CloudWatchEvent> adapter = value == null ? null : adapters.get(value);
+
+		return adapter != null ? adapter : baseAdapter;
+	}
+
+	/**
+	 * Calls the handler registered for the class of an event bound by this router.
+	 */
+	Object handle(CloudWatchEvent event, Context context) {
+		// The generic type bounds used on the method that registers handlers make this type-safe
+		@SuppressWarnings("unchecked")
+		BiFunction<Object, Context, ?> handler = (BiFunction<Object, Context, ?>) handlers.get(event.getClass());
+
+		return handler.apply(event, context);
+	}
+
+	@Override
+	public CloudWatchEvent read(JsonReader in) throws IOException {
+		JsonElement detail = new JsonParser().parse(in);
+		String value = null;
+
+		if (detail.isJsonObject()) {
+			JsonElement property = detail.getAsJsonObject().get(discriminator);
+
+			if (property instanceof JsonPrimitive) {
+				value = property.getAsString();
+			}
+		}
+
+		TypeAdapter<? extends CloudWatchEvent> adapter = adapterFor(value);
+
+		if (adapter == null) {
+			throw new JsonParseException("No event type registered for " + discriminator + " " + value);
+		}
+
+		return adapter.fromJsonTree(detail);
+	}
+
+	@Override
+	public void write(JsonWriter out, CloudWatchEvent value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+
+			return;
+		}
+
+		// The adapter of an event's own class accepts the event, whatever its class
+		@SuppressWarnings("unchecked")
+		TypeAdapter<CloudWatchEvent> adapter =
+				(TypeAdapter<CloudWatchEvent>) CloudWatchEventDispatcher.GSON.getAdapter(value.getClass());
+
+		adapter.write(out, value);
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+/**
+ * Observer of the phases of a dispatch, notified as each begins, so that tests can attribute costs (such as
+ * allocation) to each phase. Reading the message, which happens on construction of the dispatcher, precedes all of
+ * these.
+ */
+interface DispatchPhaseListener {
+	/**
+	 * Phase of a dispatch.
+	 */
+	enum Phase {
+		/**
+		 * Reading the event's top-level properties, other than {@code detail}.
+		 */
+		ENVELOPE,
+
+		/**
+		 * Binding the {@code detail} property.
+		 */
+		DETAIL,
+
+		/**
+		 * Binding the header properties collected while reading the envelope.
+		 */
+		HEADER,
+
+		/**
+		 * Calling the handler, and recording the outcome.
+		 */
+		HANDLER,
+
+		/**
+		 * The dispatch has finished.
+		 */
+		DONE,
+	}
+
+	void enter(Phase phase);
+}
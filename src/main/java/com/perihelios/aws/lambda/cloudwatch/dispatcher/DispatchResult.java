@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * Outcome of dispatching one message, as returned by {@link CloudWatchEventDispatcher#tryDispatch()}, or of
+ * dispatching one event of a batch, as reported by {@link CloudWatchEventDispatcher#dispatchBatch()}.
+ * <p>
+ * Messages that cannot be delivered to a handler are reported through a result, rather than an exception, so that
+ * functions deliberately receiving mixed traffic pay only for a lookup when rejecting a message. Exceptions thrown by
+ * handlers themselves are not captured by {@code tryDispatch()}; they propagate to the caller as usual. In a batch,
+ * they are captured, so that one failing event does not prevent the others from being dispatched.
+ * </p>
+ */
+public final class DispatchResult {
+	/**
+	 * Classification of the outcome of a dispatch.
+	 */
+	public enum Status {
+		/**
+		 * The event was delivered to the handler registered for its detail type.
+		 */
+		DISPATCHED,
+
+		/**
+		 * The event's detail type had no registered handler, and the event was delivered to the unknown-event
+		 * handler.
+		 */
+		FALLBACK,
+
+		/**
+		 * The event's ID had already been successfully dispatched, and the event was not delivered again.
+		 */
+		DUPLICATE,
+
+		/**
+		 * The event's detail type (or, for a detail type with a
+		 * {@link com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailDiscriminator DetailDiscriminator}, its
+		 * discriminator value) had no registered handler, and no unknown-event handler was registered.
+		 */
+		UNKNOWN_TYPE,
+
+		/**
+		 * The message was JSON, but not a CloudWatch event (missing {@code detail-type} or {@code detail}).
+		 */
+		NOT_CLOUDWATCH_EVENT,
+
+		/**
+		 * The message could not be parsed as a JSON object.
+		 */
+		MALFORMED,
+
+		/**
+		 * The message exceeded the size or nesting depth allowed by the dispatcher's {@link MessageLimits}, and was
+		 * not read in full.
+		 */
+		TOO_LARGE,
+
+		/**
+		 * The event's handler threw an exception, available from {@link #cause()}. Reported only for events in a
+		 * batch.
+		 */
+		FAILED,
+
+		/**
+		 * The event was not started, because too little of the invocation's time remained. Reported only for events
+		 * in a batch.
+		 */
+		DEFERRED,
+
+		/**
+		 * The event was not delivered, because a later event of the same batch, with the same coalescing key,
+		 * supersedes it. Reported only for events in a batch.
+		 */
+		SUPERSEDED,
+	}
+
+	private final Status status;
+	private final String detailType;
+	private final String reason;
+	private final Throwable cause;
+
+	private DispatchResult(Status status, String detailType, String reason, Throwable cause) {
+		this.status = status;
+		this.detailType = detailType;
+		this.reason = reason;
+		this.cause = cause;
+	}
+
+	static DispatchResult dispatched(String detailType) {
+		return new DispatchResult(Status.DISPATCHED, detailType, null, null);
+	}
+
+	static DispatchResult fallback(String detailType) {
+		return new DispatchResult(Status.FALLBACK, detailType, null, null);
+	}
+
+	static DispatchResult duplicate(String detailType) {
+		return new DispatchResult(Status.DUPLICATE, detailType, null, null);
+	}
+
+	static DispatchResult unknownType(String detailType) {
+		return new DispatchResult(
+				Status.UNKNOWN_TYPE,
+				detailType,
+				"Received event of unknown type; detail-type field in message: " + detailType,
+				null
+		);
+	}
+
+	static DispatchResult unknownSubtype(String detailType, String discriminator, String value) {
+		return new DispatchResult(
+				Status.UNKNOWN_TYPE,
+				detailType,
+				"Received event of unknown type; detail-type field in message: " + detailType + ", " + discriminator +
+						" field in detail: " + value,
+				null
+		);
+	}
+
+	static DispatchResult notCloudWatchEvent(String missingProperty) {
+		return new DispatchResult(
+				Status.NOT_CLOUDWATCH_EVENT,
+				null,
+				"Received message is not CloudWatch event (missing \"" + missingProperty + "\" property)",
+				null
+		);
+	}
+
+	static DispatchResult malformed(Throwable cause) {
+		return new DispatchResult(Status.MALFORMED, null, "Failed to parse message as JSON", cause);
+	}
+
+	static DispatchResult tooLarge(String reason) {
+		return new DispatchResult(Status.TOO_LARGE, null, reason, null);
+	}
+
+	static DispatchResult failed(String detailType, Throwable cause) {
+		return new DispatchResult(Status.FAILED, detailType, "Handler for event type " + detailType + " failed", cause);
+	}
+
+	static DispatchResult deferred(String detailType) {
+		return new DispatchResult(Status.DEFERRED, detailType, null, null);
+	}
+
+	static DispatchResult superseded(String detailType) {
+		return new DispatchResult(Status.SUPERSEDED, detailType, null, null);
+	}
+
+	/**
+	 * Returns the classification of the outcome.
+	 *
+	 * @return the outcome status
+	 */
+	public Status status() {
+		return status;
+	}
+
+	/**
+	 * Indicates whether the event was delivered to a handler (either a registered handler or the unknown-event
+	 * handler).
+	 *
+	 * @return {@code true} if status is {@link Status#DISPATCHED DISPATCHED} or {@link Status#FALLBACK FALLBACK}
+	 */
+	public boolean isDispatched() {
+		return status == Status.DISPATCHED || status == Status.FALLBACK;
+	}
+
+	/**
+	 * Indicates whether the message was rejected; that is, whether {@link CloudWatchEventDispatcher#dispatch()} would
+	 * throw for it.
+	 * <p>
+	 * Duplicates and superseded events are not considered rejected: they were intentionally skipped. Nor are deferred
+	 * events, which may be dispatched again later.
+	 * </p>
+	 *
+	 * @return {@code true} if the message was rejected
+	 */
+	public boolean isRejected() {
+		return reason != null;
+	}
+
+	/**
+	 * Returns the {@code detail-type} property of the event, if the message got far enough to have one.
+	 *
+	 * @return the event detail type, or {@code null} if the message was malformed or lacked a detail type
+	 */
+	public String detailType() {
+		return detailType;
+	}
+
+	/**
+	 * Returns a human-readable explanation of why the message was rejected.
+	 *
+	 * @return the rejection reason, or {@code null} if the message was not rejected
+	 */
+	public String reason() {
+		return reason;
+	}
+
+	/**
+	 * Returns the exception raised while parsing a malformed message, or thrown by the handler of a failed event, if
+	 * there was one.
+	 *
+	 * @return the parse or handler failure, or {@code null}
+	 */
+	public Throwable cause() {
+		return cause;
+	}
+
+	IllegalArgumentException toException() {
+		Throwable exceptionCause = cause;
+
+		if (status == Status.MALFORMED && exceptionCause == null) {
+			exceptionCause = new JsonParseException("Message is not a JSON object");
+		}
+
+		return new IllegalArgumentException(reason, exceptionCause);
+	}
+
+	@Override
+	public String toString() {
+		return reason == null ? status + " (" + detailType + ")" : status + ": " + reason;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.EventTrace;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.Span;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.SpanExporter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Records the spans of the dispatch of each event of a message, as the dispatcher enters each phase, and exports them
+ * as each event finishes.
+ * <p>
+ * Span boundaries are recorded into arrays allocated once per message; {@link Span} objects are only created when a
+ * trace is exported. A dispatcher without tracing has no tracer at all.
+ * </p>
+ */
+final class DispatchTracer {
+	private static final int MAX_SPANS = 16;
+
+	private final SpanExporter exporter;
+	private final Context context;
+	private final long readStart;
+	private final long readEnd;
+
+	private final Span.Kind[] kinds = new Span.Kind[MAX_SPANS];
+	private final long[] starts = new long[MAX_SPANS];
+	private final long[] ends = new long[MAX_SPANS];
+	private int count;
+	private boolean open;
+	private boolean readExported;
+	private String eventId;
+	private String detailType;
+
+	/**
+	 * @param readStart {@link System#nanoTime()} when the message began to be read
+	 * @param readEnd   {@link System#nanoTime()} when the message had been read
+	 */
+	DispatchTracer(SpanExporter exporter, Context context, long readStart, long readEnd) {
+		this.exporter = exporter;
+		this.context = context;
+		this.readStart = readStart;
+		this.readEnd = readEnd;
+	}
+
+	/**
+	 * Starts the trace of an event.
+	 */
+	void begin() {
+		count = 0;
+		open = false;
+		eventId = null;
+		detailType = null;
+	}
+
+	/**
+	 * Ends the span of the current phase, if any, and starts a span for the phase entered.
+	 */
+	void enter(DispatchPhaseListener.Phase phase) {
+		long now = System.nanoTime();
+
+		if (open) {
+			ends[count - 1] = now;
+			open = false;
+		}
+
+		Span.Kind kind = kind(phase);
+
+		if (kind != null && count < MAX_SPANS) {
+			kinds[count] = kind;
+			starts[count] = now;
+			count++;
+			open = true;
+		}
+	}
+
+	/**
+	 * Identifies the event being traced, once its header is bound.
+	 */
+	void event(String eventId, String detailType) {
+		this.eventId = eventId;
+		this.detailType = detailType;
+	}
+
+	/**
+	 * Ends the trace of an event, and exports it. The event's ID and {@code detail-type}, where given, take the place
+	 * of any given to {@link #event(String, String)}.
+	 */
+	void end(String eventId, String detailType, DispatchResult.Status status) {
+		enter(DispatchPhaseListener.Phase.DONE);
+
+		List<Span> spans = new ArrayList<>(count + 1);
+
+		// Reading is shared by all events of the message, so is attributed to the first
+		if (!readExported) {
+			spans.add(new Span(Span.Kind.READ, 0, readEnd - readStart));
+			readExported = true;
+		}
+
+		for (int i = 0; i < count; i++) {
+			spans.add(new Span(kinds[i], starts[i] - readStart, ends[i] - starts[i]));
+		}
+
+		exporter.export(new EventTrace(
+				context == null ? null : context.getAwsRequestId(),
+				eventId == null ? this.eventId : eventId,
+				detailType == null ? this.detailType : detailType,
+				status,
+				unmodifiableList(spans)
+		), context);
+
+		begin();
+	}
+
+	private static Span.Kind kind(DispatchPhaseListener.Phase phase) {
+		switch (phase) {
+			case ENVELOPE:
+				return Span.Kind.PARSE;
+			case DETAIL:
+				return Span.Kind.BIND;
+			case HEADER:
+				return Span.Kind.HEADER;
+			case HANDLER:
+				return Span.Kind.HANDLE;
+			default:
+				return null;
+		}
+	}
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.EventFileFormat;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.EventReplayer;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Arrays.asList;
+
+/**
+ * Durable local record of dispatched events, so that they can be found and dispatched again after a failure.
+ * <p>
+ * A dispatcher given a spool (via {@link CloudWatchEventDispatcher#withSpool(EventSpool)} or
+ * {@link SharedEventDispatcher.Builder#withSpool(EventSpool)}) appends each event to it just before calling the
+ * event's handler. Like {@link RecentEventIds}, an instance of this class is intended to be held in a static field, so
+ * that it survives across warm invocations of the function:
+ * </p>
+ * <pre>
+ *     private static final EventSpool SPOOL = EventSpool.open(Paths.get("/tmp/event-spool"));
+ * </pre>
+ * <p>
+ * After a downstream outage, events can be selected by detail type, time, or ID, and dispatched again through the
+ * same handlers:
+ * </p>
+ * <pre>
+ *     BatchResult result = SPOOL.query()
+ *         .withDetailTypes("My Event 1")
+ *         .withTimeRange(outageStart, outageEnd)
+ *         .redispatch(DISPATCHER, context);
+ * </pre>
+ * <p>
+ * The spool is a directory of numbered segments. Each segment is a pair of append-only files: a data file holding
+ * the events, in the {@link EventFileFormat#LENGTH_PREFIXED LENGTH_PREFIXED} layout (so it can also be replayed by an
+ * {@link EventReplayer}), and an index file holding, for each event, its offset in the data file, its time, detail
+ * type, and ID. Appending an event costs one write to each file, without forcing either to disk, so events survive the
+ * failure of the function but not of the host. Opening a spool starts a new segment; once a segment reaches its
+ * maximum size, another is started, and the oldest segments beyond the maximum number are deleted.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ */
+public final class EventSpool implements Closeable {
+	private static final String DATA_SUFFIX = ".events";
+	private static final String INDEX_SUFFIX = ".index";
+	private static final long NO_TIME = Long.MIN_VALUE;
+
+	private final Path directory;
+	private final TreeMap<Integer, Path> segments;
+
+	private long maxSegmentBytes = 64L * 1024 * 1024;
+	private int maxSegments = 16;
+
+	private FileChannel data;
+	private FileChannel index;
+	private long dataSize;
+	private final ByteBuffer header = ByteBuffer.allocate(4);
+	private ByteBuffer entry = ByteBuffer.allocate(256);
+
+	private EventSpool(Path directory, TreeMap<Integer, Path> segments) {
+		this.directory = directory;
+		this.segments = segments;
+	}
+
+	/**
+	 * Opens a spool, creating its directory if necessary, and starts a new segment.
+	 * <p>
+	 * Events spooled previously in the same directory remain available to {@link #query()}.
+	 * </p>
+	 *
+	 * @param directory location of the spool
+	 * @return the opened spool
+	 * @throws IOException if the directory or segment cannot be created
+	 */
+	public static EventSpool open(Path directory) throws IOException {
+		Files.createDirectories(directory);
+
+		TreeMap<Integer, Path> segments = new TreeMap<>();
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + INDEX_SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+
+				try {
+					int number = Integer.parseInt(name.substring(0, name.length() - INDEX_SUFFIX.length()));
+					segments.put(number, directory.resolve(String.format("%08d", number)));
+				} catch (NumberFormatException ignore) {
+					// Not a segment of this spool
+				}
+			}
+		}
+
+		EventSpool spool = new EventSpool(directory, segments);
+		spool.startSegment();
+
+		return spool;
+	}
+
+	/**
+	 * Sets the size of data file at which a new segment is started. The default is 64 MiB.
+	 *
+	 * @param maxSegmentBytes maximum size of a segment's data file, in bytes
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code maxSegmentBytes} is not positive
+	 */
+	public synchronized EventSpool withMaxSegmentBytes(long maxSegmentBytes) {
+		if (maxSegmentBytes <= 0) {
+			throw new IllegalArgumentException("Maximum segment size must be positive: " + maxSegmentBytes);
+		}
+
+		this.maxSegmentBytes = maxSegmentBytes;
+
+		return this;
+	}
+
+	/**
+	 * Sets the number of segments retained; when a new segment is started, the oldest beyond this number are deleted.
+	 * The default is 16.
+	 *
+	 * @param maxSegments maximum number of segments, including the one being appended to
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code maxSegments} is not positive
+	 */
+	public synchronized EventSpool withMaxSegments(int maxSegments) {
+		if (maxSegments <= 0) {
+			throw new IllegalArgumentException("Maximum number of segments must be positive: " + maxSegments);
+		}
+
+		this.maxSegments = maxSegments;
+
+		return this;
+	}
+
+	/**
+	 * Starts a query of the spooled events. With no restrictions added, the query selects every event.
+	 *
+	 * @return a new query
+	 */
+	public Query query() {
+		return new Query();
+	}
+
+	synchronized void append(byte[] event, int offset, int length, String id, String detailType, ZonedDateTime time)
+			throws IOException {
+
+		if (data == null) {
+			throw new IllegalStateException("Spool is closed");
+		}
+
+		if (dataSize >= maxSegmentBytes) {
+			startSegment();
+		}
+
+		byte[] typeBytes = detailType.getBytes(UTF_8);
+		byte[] idBytes = id == null ? new byte[0] : id.getBytes(UTF_8);
+
+		int entryLength = 8 + 8 + 2 + typeBytes.length + 2 + idBytes.length;
+		if (entry.capacity() < 4 + entryLength) {
+			entry = ByteBuffer.allocate(4 + entryLength);
+		}
+
+		// Offsets are taken from the files themselves, and a partly written event is truncated away, so that a failed
+		// append leaves no bytes behind to misalign the index entries of later events
+		long dataOffset = data.position();
+		long indexOffset = index.position();
+
+		entry.clear();
+		entry.putInt(entryLength)
+				.putLong(dataOffset)
+				.putLong(time == null ? NO_TIME : time.toInstant().toEpochMilli())
+				.putShort((short) typeBytes.length).put(typeBytes)
+				.putShort((short) idBytes.length).put(idBytes)
+				.flip();
+
+		header.clear();
+		header.putInt(length).flip();
+
+		try {
+			writeFully(data, header, ByteBuffer.wrap(event, offset, length));
+			writeFully(index, entry);
+		} catch (IOException e) {
+			try {
+				data.truncate(dataOffset).position(dataOffset);
+				index.truncate(indexOffset).position(indexOffset);
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+
+			throw e;
+		}
+
+		dataSize = dataOffset + 4 + length;
+	}
+
+	/**
+	 * Closes the segment being appended to. Events can no longer be appended, but the spool can still be queried.
+	 *
+	 * @throws IOException if the segment's files cannot be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (data == null) {
+			return;
+		}
+
+		try {
+			data.close();
+		} finally {
+			index.close();
+			data = null;
+			index = null;
+		}
+	}
+
+	private void startSegment() throws IOException {
+		close();
+
+		int number = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+		Path base = directory.resolve(String.format("%08d", number));
+
+		data = FileChannel.open(dataFile(base), CREATE_NEW, WRITE);
+		try {
+			index = FileChannel.open(indexFile(base), CREATE_NEW, WRITE);
+		} catch (IOException e) {
+			data.close();
+			data = null;
+
+			throw e;
+		}
+
+		dataSize = 0;
+		segments.put(number, base);
+
+		while (segments.size() > maxSegments) {
+			Path oldest = segments.pollFirstEntry().getValue();
+
+			Files.deleteIfExists(indexFile(oldest));
+			Files.deleteIfExists(dataFile(oldest));
+		}
+	}
+
+	private synchronized List<Path> segmentBases() {
+		return new ArrayList<>(segments.values());
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer... buffers) throws IOException {
+		ByteBuffer last = buffers[buffers.length - 1];
+
+		while (last.hasRemaining()) {
+			channel.write(buffers);
+		}
+	}
+
+	private static Path dataFile(Path base) {
+		return base.resolveSibling(base.getFileName() + DATA_SUFFIX);
+	}
+
+	private static Path indexFile(Path base) {
+		return base.resolveSibling(base.getFileName() + INDEX_SUFFIX);
+	}
+
+	static byte[] read(FileChannel channel, long offset) throws IOException {
+		ByteBuffer length = ByteBuffer.allocate(4);
+		readFully(channel, length, offset);
+
+		ByteBuffer event = ByteBuffer.allocate(length.getInt(0));
+		readFully(channel, event, offset + 4);
+
+		return event.array();
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, offset + buffer.position()) < 0) {
+				throw new IOException("Spooled event at offset " + offset + " is truncated");
+			}
+		}
+	}
+
+	/**
+	 * Selection of spooled events, by detail type, time and ID. Each restriction narrows the selection further.
+	 */
+	public final class Query {
+		private Set<String> detailTypes;
+		private Set<String> ids;
+		private Instant from;
+		private Instant to;
+
+		private Query() {
+		}
+
+		/**
+		 * Restricts the selection to events with the given {@code detail-type} values.
+		 *
+		 * @param detailTypes detail types to select
+		 * @return a reference to this object
+		 */
+		public Query withDetailTypes(String... detailTypes) {
+			this.detailTypes = new HashSet<>(asList(detailTypes));
+
+			return this;
+		}
+
+		/**
+		 * Restricts the selection to events with the given {@code id} values.
+		 *
+		 * @param ids event IDs to select
+		 * @return a reference to this object
+		 */
+		public Query withIds(String... ids) {
+			this.ids = new HashSet<>(asList(ids));
+
+			return this;
+		}
+
+		/**
+		 * Restricts the selection to events whose {@code time} property falls in a range.
+		 * <p>
+		 * Events with no {@code time} property are excluded when a range is set.
+		 * </p>
+		 *
+		 * @param from earliest event time to select (inclusive), or {@code null} for no lower bound
+		 * @param to   latest event time to select (exclusive), or {@code null} for no upper bound
+		 * @return a reference to this object
+		 */
+		public Query withTimeRange(Instant from, Instant to) {
+			this.from = from;
+			this.to = to;
+
+			return this;
+		}
+
+		/**
+		 * Lists the selected events, in the order they were spooled. Only the index is read; the events themselves are
+		 * read by {@link SpooledEvent#read()}.
+		 *
+		 * @return selected events
+		 * @throws IOException if an index file cannot be read
+		 */
+		public List<SpooledEvent> list() throws IOException {
+			List<SpooledEvent> selected = new ArrayList<>();
+
+			for (Path base : segmentBases()) {
+				Path indexFile = indexFile(base);
+
+				if (!Files.exists(indexFile)) {
+					continue;
+				}
+
+				ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+
+				// An entry left incomplete by an interrupted append ends the segment
+				while (entries.remaining() >= 4 && entries.remaining() - 4 >= entries.getInt(entries.position())) {
+					int end = entries.position() + 4 + entries.getInt();
+					SpooledEvent event = entry(dataFile(base), entries);
+
+					if (selects(event)) {
+						selected.add(event);
+					}
+
+					entries.position(end);
+				}
+			}
+
+			return selected;
+		}
+
+		/**
+		 * Dispatches the selected events again, in the order they were spooled, through a dispatcher's handlers.
+		 * <p>
+		 * Each event is reported as for {@link SharedEventDispatcher#dispatchBatch(java.io.InputStream, Context)
+		 * dispatchBatch()}: exceptions thrown by handlers are reported as
+		 * {@link DispatchResult.Status#FAILED FAILED}, and do not prevent following events from being dispatched.
+		 * Events dispatched again are not appended to the spool again, even if the dispatcher has one; they are
+		 * still subject to the dispatcher's deduplication, if any, so events that were handled successfully the
+		 * first time may be reported as {@link DispatchResult.Status#DUPLICATE DUPLICATE}.
+		 * </p>
+		 *
+		 * @param dispatcher dispatcher whose handlers receive the events
+		 * @param context    AWS Lambda context, to be passed to handlers as they are invoked
+		 * @return outcome of the dispatch of each event
+		 * @throws IOException if the spool cannot be read
+		 */
+		public BatchResult redispatch(SharedEventDispatcher dispatcher, Context context) throws IOException {
+			List<BatchResult.Item> items = new ArrayList<>();
+			Path openFile = null;
+			FileChannel channel = null;
+
+			try {
+				for (SpooledEvent event : list()) {
+					if (!event.dataFile().equals(openFile)) {
+						if (channel != null) {
+							channel.close();
+						}
+
+						openFile = event.dataFile();
+						channel = FileChannel.open(openFile, READ);
+					}
+
+					byte[] bytes = read(channel, event.offset());
+
+					DispatchResult result;
+					try {
+						result = new CloudWatchEventDispatcher(new ByteArrayInputStream(bytes), context, dispatcher)
+								.withSpool(null)
+								.tryDispatch();
+					} catch (RuntimeException e) {
+						result = DispatchResult.failed(event.detailType(), e);
+					}
+
+					items.add(new BatchResult.Item(items.size(), event.id(), result));
+				}
+			} finally {
+				if (channel != null) {
+					channel.close();
+				}
+			}
+
+			return new BatchResult(items);
+		}
+
+		private SpooledEvent entry(Path dataFile, ByteBuffer entries) {
+			long offset = entries.getLong();
+			long time = entries.getLong();
+			String detailType = string(entries);
+			String id = string(entries);
+
+			return new SpooledEvent(
+					dataFile, offset, time == NO_TIME ? null : Instant.ofEpochMilli(time), detailType,
+					id.isEmpty() ? null : id
+			);
+		}
+
+		private String string(ByteBuffer entries) {
+			int length = entries.getShort() & 0xffff;
+			String value = new String(entries.array(), entries.position(), length, UTF_8);
+			entries.position(entries.position() + length);
+
+			return value;
+		}
+
+		private boolean selects(SpooledEvent event) {
+			if (detailTypes != null && !detailTypes.contains(event.detailType())) {
+				return false;
+			}
+
+			if (ids != null && !ids.contains(event.id())) {
+				return false;
+			}
+
+			if (from == null && to == null) {
+				return true;
+			}
+
+			Instant time = event.time();
+
+			return time != null && (from == null || !time.isBefore(from)) && (to == null || time.isBefore(to));
+		}
+	}
+}
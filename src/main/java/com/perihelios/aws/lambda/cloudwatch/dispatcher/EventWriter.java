@@ -0,0 +1,432 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.Header;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.UnknownEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher.GSON;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes bound events back to the EventBridge envelope format, for forwarding an event (perhaps enriched) to another
+ * event bus.
+ * <p>
+ * The envelope is written in one pass: the header properties, the {@code detail-type} given by the event class's
+ * {@link DetailType} annotation, and the detail, encoded by the same adapters used to bind it. Properties that have
+ * not changed since the event was dispatched are copied verbatim from the message from which it was bound, rather than
+ * encoded again:
+ * </p>
+ * <ul>
+ *     <li>the header properties, for as long as the event has the {@link Header} it was dispatched with;</li>
+ *     <li>each scalar property of the detail (a string, number, boolean, character or enum) whose field still equals
+ *     the value bound from it; and</li>
+ *     <li>each property of the detail not bound to any field, so that properties the event class does not map are
+ *     still forwarded.</li>
+ * </ul>
+ * <p>
+ * Fields holding objects, arrays or collections are always encoded, as comparing them would cost more. Events not
+ * bound by a dispatcher {@linkplain CloudWatchEventDispatcher#retainEventBytes() retaining event bytes}, and events
+ * whose detail is bound by a handwritten adapter, are encoded in full. An instance reuses its buffers from one event
+ * to the next, and is not thread-safe.
+ * </p>
+ */
+public final class EventWriter {
+	private static final TypeAdapter<String> STRING_ADAPTER = GSON.getAdapter(String.class);
+	private static final TypeAdapter<ZonedDateTime> TIME_ADAPTER = GSON.getAdapter(ZonedDateTime.class);
+	private static final TypeAdapter<JsonElement> TREE_ADAPTER = GSON.getAdapter(JsonElement.class);
+
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+
+	private JsonWriter json;
+	private boolean pending;
+
+	/**
+	 * Writes an event to an output stream. The output stream is not flushed or closed.
+	 *
+	 * @param event  event to write
+	 * @param output stream to which to write the event JSON, encoded as UTF-8
+	 * @throws IOException              if the event cannot be written to the output stream
+	 * @throws IllegalArgumentException if the event's class is not annotated with {@link DetailType}
+	 */
+	public void write(CloudWatchEvent event, OutputStream output) throws IOException {
+		encode(event);
+		buffer.writeTo(output);
+	}
+
+	/**
+	 * Writes an event to a byte array.
+	 *
+	 * @param event event to write
+	 * @return the event JSON, encoded as UTF-8
+	 * @throws IllegalArgumentException if the event's class is not annotated with {@link DetailType}
+	 */
+	public byte[] toBytes(CloudWatchEvent event) {
+		try {
+			encode(event);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Writes an event to a string.
+	 *
+	 * @param event event to write
+	 * @return the event JSON
+	 * @throws IllegalArgumentException if the event's class is not annotated with {@link DetailType}
+	 */
+	public String toJson(CloudWatchEvent event) {
+		return new String(toBytes(event), UTF_8);
+	}
+
+	private void encode(CloudWatchEvent event) throws IOException {
+		String detailType = event instanceof UnknownEvent ? ((UnknownEvent) event).detailType() :
+				CloudWatchEventDispatcher.detailTypeOf(event.getClass(), "write event");
+
+		buffer.reset();
+
+		if (json == null) {
+			json = new JsonWriter(new OutputStreamWriter(buffer, UTF_8));
+
+			// Each value is written as a separate top-level value, between the structure written directly
+			json.setLenient(true);
+		}
+
+		try {
+			encode(event, detailType);
+			direct();
+		} catch (IOException | RuntimeException e) {
+			// The writer may have been left partway through a value
+			json = null;
+			pending = false;
+
+			throw e;
+		}
+	}
+
+	private void encode(CloudWatchEvent event, String detailType) throws IOException {
+		RawEvent raw = RawEvents.get(event);
+		Header header = event.header();
+
+		byte[] bytes = raw == null ? null : raw.bytes();
+		int[] members = raw == null ? null : new RawJsonScanner(bytes, raw.start(), raw.end()).members();
+		boolean verbatimHeader = raw != null && header == raw.header();
+
+		buffer.write('{');
+
+		if (verbatimHeader) {
+			copyMember(bytes, members, "version");
+			copyMember(bytes, members, "id");
+		} else if (header != null) {
+			writeString("version", header.version());
+			writeString("id", header.id());
+		}
+
+		writeString("detail-type", detailType);
+
+		if (verbatimHeader) {
+			copyMember(bytes, members, "source");
+			copyMember(bytes, members, "account");
+			copyMember(bytes, members, "time");
+			copyMember(bytes, members, "region");
+			copyMember(bytes, members, "resources");
+		} else if (header != null) {
+			writeString("source", header.source());
+			writeString("account", header.account());
+
+			if (header.time() != null) {
+				name("time");
+				TIME_ADAPTER.write(json, header.time());
+				pending = true;
+			}
+
+			writeString("region", header.region());
+
+			name("resources");
+			json.beginArray();
+			for (String resource : header.resources()) {
+				json.value(resource);
+			}
+			json.endArray();
+			pending = true;
+		}
+
+		name("detail");
+
+		int detail = members == null ? -1 : find(bytes, members, "detail");
+
+		if (event instanceof UnknownEvent) {
+			TREE_ADAPTER.write(json, ((UnknownEvent) event).detail());
+			pending = true;
+		} else if (detail < 0) {
+			writeDetail(event, raw, bytes, -1, -1);
+		} else {
+			writeDetail(event, raw, bytes, members[detail + 2], members[detail + 3]);
+		}
+
+		direct();
+		buffer.write('}');
+	}
+
+	private void writeDetail(CloudWatchEvent event, RawEvent raw, byte[] bytes, int start, int end) throws IOException {
+		@SuppressWarnings("unchecked")
+		TypeAdapter<Object> adapter = (TypeAdapter<Object>) (TypeAdapter<?>) GSON.getAdapter(event.getClass());
+
+		if (!(adapter instanceof BinderAdapterFactory.Binder)) {
+			adapter.write(json, event);
+			pending = true;
+
+			return;
+		}
+
+		BinderAdapterFactory.Binder<?> binder = (BinderAdapterFactory.Binder<?>) adapter;
+		boolean[] written = new boolean[binder.fieldCount()];
+		boolean first = true;
+
+		direct();
+		buffer.write('{');
+
+		if (start >= 0 && bytes[start] == '{') {
+			int[] members = new RawJsonScanner(bytes, start, end).members();
+
+			for (int m = 0; m < members.length; m += 4) {
+				int index = binder.fieldIndex(memberName(bytes, members[m], members[m + 1]));
+
+				if (index >= 0 && written[index]) {
+					// A repeated property, or the alternate name of one already written; the field is written once
+					continue;
+				}
+
+				if (!first) {
+					buffer.write(',');
+				}
+				first = false;
+
+				// The name, including its quotes
+				buffer.write(bytes, members[m] - 1, members[m + 1] - members[m] + 2);
+				buffer.write(':');
+
+				int valueStart = members[m + 2];
+				int valueEnd = members[m + 3];
+
+				if (index < 0) {
+					buffer.write(bytes, valueStart, valueEnd - valueStart);
+					continue;
+				}
+
+				written[index] = true;
+
+				Object value = binder.fieldValue(event, index);
+				TypeAdapter<Object> fieldAdapter = binder.fieldAdapter(index);
+
+				if (unchanged(fieldAdapter, value, bytes, valueStart, valueEnd, raw.ascii())) {
+					buffer.write(bytes, valueStart, valueEnd - valueStart);
+				} else {
+					writeValue(fieldAdapter, value);
+					direct();
+				}
+			}
+		}
+
+		for (int index = 0; index < written.length; index++) {
+			Object value = binder.fieldValue(event, index);
+
+			// A field whose property was absent, and that has not since been set, remains absent
+			if (!written[index] && (raw == null || !Objects.equals(value, binder.fieldDefault(index)))) {
+				if (!first) {
+					buffer.write(',');
+				}
+				first = false;
+
+				json.value(binder.fieldName(index));
+				pending = true;
+				direct();
+				buffer.write(':');
+
+				writeValue(binder.fieldAdapter(index), value);
+				direct();
+			}
+		}
+
+		buffer.write('}');
+	}
+
+	/**
+	 * Determines whether a field's value is the one bound from its property, where that can be decided more cheaply
+	 * than encoding the value. Strings are compared directly with the property's bytes where possible; other scalars
+	 * (numbers, booleans, characters and enums) are compared with the value bound again from the property. Objects,
+	 * arrays and collections are never considered unchanged, since binding them again would cost more than encoding
+	 * them, and classes without {@code equals()} would never compare equal.
+	 */
+	private static boolean unchanged(TypeAdapter<Object> adapter, Object value, byte[] bytes, int start, int end,
+			boolean ascii) throws IOException {
+
+		byte first = bytes[start];
+
+		if (value == null) {
+			return first == 'n';
+		} else if (first == '{' || first == '[') {
+			return false;
+		} else if (!(value instanceof String || value instanceof Number || value instanceof Boolean ||
+				value instanceof Character || value instanceof Enum)) {
+			return false;
+		}
+
+		if (adapter == (Object) STRING_ADAPTER && value instanceof String && ascii && bytes[start] == '"') {
+			String string = (String) value;
+			int length = end - start - 2;
+
+			for (int i = 0; i < length; i++) {
+				byte b = bytes[start + 1 + i];
+
+				// Up to the first escape, the property's bytes are its characters
+				if (b == '\\') {
+					return unchangedBound(adapter, value, bytes, start, end, ascii);
+				} else if (i == string.length() || b != string.charAt(i)) {
+					return false;
+				}
+			}
+
+			return length == string.length();
+		}
+
+		return unchangedBound(adapter, value, bytes, start, end, ascii);
+	}
+
+	private static boolean unchangedBound(TypeAdapter<Object> adapter, Object value, byte[] bytes, int start, int end,
+			boolean ascii) throws IOException {
+
+		JsonReader reader = new JsonReader(new Utf8Reader(bytes, start, end, ascii));
+		reader.setLenient(true);
+
+		Object bound;
+		try {
+			bound = adapter.read(reader);
+		} catch (RuntimeException e) {
+			// The property did not bind cleanly in the first place, so is written as the field now stands
+			return false;
+		}
+
+		return value.equals(bound);
+	}
+
+	private static String memberName(byte[] bytes, int start, int end) throws IOException {
+		for (int i = start; i < end; i++) {
+			if (bytes[i] == '\\') {
+				JsonReader reader = new JsonReader(new Utf8Reader(bytes, start - 1, end + 1, false));
+				reader.setLenient(true);
+
+				return reader.nextString();
+			}
+		}
+
+		return new String(bytes, start, end - start, UTF_8);
+	}
+
+	private static int find(byte[] bytes, int[] members, String name) {
+		for (int m = 0; m < members.length; m += 4) {
+			int start = members[m];
+
+			if (members[m + 1] - start != name.length()) {
+				continue;
+			}
+
+			boolean equal = true;
+			for (int i = 0; i < name.length() && equal; i++) {
+				equal = bytes[start + i] == name.charAt(i);
+			}
+
+			if (equal) {
+				return m;
+			}
+		}
+
+		return -1;
+	}
+
+	private void copyMember(byte[] bytes, int[] members, String name) throws IOException {
+		int m = find(bytes, members, name);
+
+		if (m >= 0) {
+			name(name);
+			buffer.write(bytes, members[m + 2], members[m + 3] - members[m + 2]);
+		}
+	}
+
+	private void writeString(String name, String value) throws IOException {
+		if (value != null) {
+			name(name);
+			json.value(value);
+			pending = true;
+		}
+	}
+
+	private void writeValue(TypeAdapter<Object> adapter, Object value) throws IOException {
+		if (value == null) {
+			json.nullValue();
+		} else {
+			adapter.write(json, value);
+		}
+
+		pending = true;
+	}
+
+	/**
+	 * Writes the name of an envelope property (which needs no escaping), preceded by a comma unless it is the first.
+	 */
+	private void name(String name) throws IOException {
+		direct();
+
+		if (buffer.size() > 1) {
+			buffer.write(',');
+		}
+
+		buffer.write('"');
+		for (int i = 0; i < name.length(); i++) {
+			buffer.write(name.charAt(i));
+		}
+		buffer.write('"');
+		buffer.write(':');
+	}
+
+	/**
+	 * Flushes values written through the JSON writer into the buffer, before anything is written to the buffer
+	 * directly.
+	 */
+	private void direct() throws IOException {
+		if (pending) {
+			json.flush();
+			pending = false;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Running estimates of how long handlers take, per detail type, used to decide whether another event of a batch can
+ * be handled before an invocation times out.
+ * <p>
+ * An instance of this class is intended to be held in a static field, so that estimates survive across warm
+ * invocations of the function, and passed to {@link CloudWatchEventDispatcher#withLatencyEstimates(HandlerLatencies)}
+ * on each invocation. The dispatcher records the time taken by each handler it calls.
+ * </p>
+ * <p>
+ * For each detail type, an exponentially weighted moving average of latency is kept, along with one of the deviation
+ * from that average. The estimate is the average plus four deviations (the same rule TCP uses to estimate
+ * retransmission timeouts), so that a handler with variable latency is given a correspondingly generous allowance.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ */
+public class HandlerLatencies {
+	private final ConcurrentMap<String, Estimate> estimates = new ConcurrentHashMap<>();
+
+	/**
+	 * Records the time taken by one call to the handler for a detail type.
+	 *
+	 * @param detailType detail type of the event handled
+	 * @param nanos      time taken by the handler, in nanoseconds
+	 */
+	public void record(String detailType, long nanos) {
+		estimates.computeIfAbsent(detailType, type -> new Estimate()).record(nanos);
+	}
+
+	/**
+	 * Returns the expected worst-case time taken by the handler for a detail type.
+	 *
+	 * @param detailType detail type of an event
+	 * @return estimated time, in milliseconds (rounded up); zero if no time has been recorded for the detail type
+	 */
+	public long estimateMillis(String detailType) {
+		Estimate estimate = detailType == null ? null : estimates.get(detailType);
+
+		return estimate == null ? 0 : (estimate.nanos() + 999_999) / 1_000_000;
+	}
+
+	private static class Estimate {
+		private boolean first = true;
+		private long average;
+		private long deviation;
+
+		synchronized void record(long nanos) {
+			if (first) {
+				average = nanos;
+				deviation = nanos / 2;
+				first = false;
+
+				return;
+			}
+
+			// Gains of 1/8 for the average and 1/4 for the deviation, as in RFC 6298
+			deviation += (Math.abs(nanos - average) - deviation) / 4;
+			average += (nanos - average) / 8;
+		}
+
+		synchronized long nanos() {
+			return average + 4 * deviation;
+		}
+	}
+}
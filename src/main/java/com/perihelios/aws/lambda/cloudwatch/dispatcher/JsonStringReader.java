@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the content of a JSON string value, unescaping it as it is read, directly from the message containing it.
+ * <p>
+ * Reading starts just after the opening quote, and ends at the closing quote. This lets JSON embedded as a string in
+ * another document (as in SQS message bodies) be parsed without first being copied out and unescaped.
+ * </p>
+ */
+class JsonStringReader extends Reader {
+	private final String text;
+	private int position;
+	private boolean ended;
+
+	JsonStringReader(String text, int start) {
+		this.text = text;
+		this.position = start;
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		if (ended) {
+			return -1;
+		}
+
+		int count = 0;
+
+		while (count < length) {
+			if (position >= text.length()) {
+				throw new MalformedJsonException("Unterminated string");
+			}
+
+			char c = text.charAt(position++);
+
+			if (c == '"') {
+				ended = true;
+				break;
+			}
+
+			buffer[offset + count++] = c == '\\' ? unescape() : c;
+		}
+
+		return count == 0 && ended ? -1 : count;
+	}
+
+	private char unescape() throws IOException {
+		if (position >= text.length()) {
+			throw new MalformedJsonException("Unterminated escape sequence");
+		}
+
+		char c = text.charAt(position++);
+
+		switch (c) {
+			case '"':
+			case '\\':
+			case '/':
+				return c;
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'u':
+				int value = 0;
+
+				for (int i = 0; i < 4; i++) {
+					int digit = position < text.length() ? Character.digit(text.charAt(position++), 16) : -1;
+
+					if (digit < 0) {
+						throw new MalformedJsonException("Invalid \\u escape sequence");
+					}
+
+					value = value << 4 | digit;
+				}
+
+				return (char) value;
+			default:
+				throw new MalformedJsonException("Invalid escape sequence: \\" + c);
+		}
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+/**
+ * Limits on the size and nesting depth of a message, enforced while the message is read.
+ * <p>
+ * A dispatcher reads the whole message before parsing it. Without limits, a misrouted event source could push an
+ * arbitrarily large message into memory before parsing even fails. Reading stops as soon as a limit is exceeded,
+ * so the memory used is bounded by the limit, not by the input; the message is then rejected, with status
+ * {@link DispatchResult.Status#TOO_LARGE TOO_LARGE}, by whichever terminal operation is called.
+ * </p>
+ * <p>
+ * Depth counts the objects and arrays enclosing a value of the message itself. Events carried as escaped strings
+ * within SQS or SNS records are bounded only by the size of the message.
+ * </p>
+ * <p>
+ * Instances are immutable; the {@code with} methods return a modified copy.
+ * </p>
+ */
+public final class MessageLimits {
+	/**
+	 * Default limits: 6 MiB, the largest payload of a Lambda invocation, and a nesting depth of 256.
+	 */
+	public static final MessageLimits DEFAULT = new MessageLimits(6 * 1024 * 1024, 256);
+
+	private final int maxBytes;
+	private final int maxDepth;
+
+	private MessageLimits(int maxBytes, int maxDepth) {
+		this.maxBytes = maxBytes;
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Returns limits with a different maximum message size.
+	 *
+	 * @param maxBytes maximum size of a message, in bytes
+	 * @return a copy of these limits, with the given maximum size
+	 * @throws IllegalArgumentException if {@code maxBytes} is negative
+	 */
+	public MessageLimits withMaxBytes(int maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Maximum message size must not be negative; got " + maxBytes);
+		}
+
+		return new MessageLimits(maxBytes, maxDepth);
+	}
+
+	/**
+	 * Returns limits with a different maximum nesting depth.
+	 *
+	 * @param maxDepth maximum number of objects and arrays enclosing any value of a message
+	 * @return a copy of these limits, with the given maximum depth
+	 * @throws IllegalArgumentException if {@code maxDepth} is less than 1
+	 */
+	public MessageLimits withMaxDepth(int maxDepth) {
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("Maximum nesting depth must be at least 1; got " + maxDepth);
+		}
+
+		return new MessageLimits(maxBytes, maxDepth);
+	}
+
+	/**
+	 * Returns the maximum size of a message.
+	 *
+	 * @return maximum size, in bytes
+	 */
+	public int maxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Returns the maximum nesting depth of a message.
+	 *
+	 * @return maximum number of objects and arrays enclosing any value
+	 */
+	public int maxDepth() {
+		return maxDepth;
+	}
+
+	@Override
+	public String toString() {
+		return "MessageLimits(maxBytes=" + maxBytes + ", maxDepth=" + maxDepth + ")";
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads a whole message into memory, enforcing {@link MessageLimits} as it goes.
+ * <p>
+ * The buffer is sized by {@link InputStream#available()} where the stream knows its length, and otherwise grows by
+ * doubling, but never beyond the size limit. Nesting is tracked chunk by chunk as bytes arrive, in the manner of
+ * {@link RawJsonScanner}, so that a hostile message is abandoned at the first byte beyond either limit, rather than
+ * once it has been read in full.
+ * </p>
+ */
+final class MessageReader {
+	private static final int MIN_GROWTH = 8192;
+
+	private final MessageLimits limits;
+	private int depth;
+	private boolean inString;
+	private boolean escaped;
+	private String rejection;
+
+	MessageReader(MessageLimits limits) {
+		this.limits = limits;
+	}
+
+	/**
+	 * Reads the stream to its end, or until a limit is exceeded. The stream is closed in either case.
+	 *
+	 * @return the message, or {@code null} if it exceeded a limit, as explained by {@link #rejection()}
+	 */
+	byte[] read(InputStream stream) throws IOException {
+		try {
+			return readBounded(stream);
+		} finally {
+			try {
+				stream.close();
+			} catch (IOException ignore) {
+			}
+		}
+	}
+
+	/**
+	 * Returns why the message was not read in full.
+	 *
+	 * @return the limit exceeded, or {@code null} if the message was within limits
+	 */
+	String rejection() {
+		return rejection;
+	}
+
+	private byte[] readBounded(InputStream stream) throws IOException {
+		int maxBytes = limits.maxBytes();
+		int available = stream.available();
+
+		if (available > maxBytes) {
+			return tooLarge();
+		}
+
+		byte[] bytes = new byte[available];
+		int filled = 0;
+
+		while (true) {
+			if (filled == bytes.length) {
+				// Probe for the end before growing, so that a stream that knew its length needs no copy
+				int next = stream.read();
+
+				if (next < 0) {
+					return bytes;
+				}
+
+				if (filled == maxBytes) {
+					return tooLarge();
+				}
+
+				bytes = Arrays.copyOf(bytes, (int) Math.min(maxBytes, Math.max(MIN_GROWTH, 2L * bytes.length)));
+				bytes[filled++] = (byte) next;
+
+				if (!scan(bytes, filled - 1, filled)) {
+					return tooDeep();
+				}
+			}
+
+			int read = stream.read(bytes, filled, bytes.length - filled);
+
+			if (read < 0) {
+				return Arrays.copyOf(bytes, filled);
+			}
+
+			filled += read;
+
+			if (!scan(bytes, filled - read, filled)) {
+				return tooDeep();
+			}
+		}
+	}
+
+	/**
+	 * Tracks nesting through a chunk of the message, carrying string and escape state over to the next chunk.
+	 * Malformed JSON is not detected here; it is left for the parser to report.
+	 *
+	 * @return {@code false} if the chunk nests deeper than the limit
+	 */
+	private boolean scan(byte[] bytes, int start, int end) {
+		int maxDepth = limits.maxDepth();
+
+		for (int i = start; i < end; i++) {
+			byte b = bytes[i];
+
+			if (inString) {
+				if (escaped) {
+					escaped = false;
+				} else if (b == '\\') {
+					escaped = true;
+				} else if (b == '"') {
+					inString = false;
+				}
+			} else if (b == '"') {
+				inString = true;
+			} else if (b == '{' || b == '[') {
+				if (++depth > maxDepth) {
+					return false;
+				}
+			} else if (b == '}' || b == ']') {
+				depth--;
+			}
+		}
+
+		return true;
+	}
+
+	private byte[] tooLarge() {
+		rejection = "Message exceeds maximum size of " + limits.maxBytes() + " bytes";
+
+		return null;
+	}
+
+	private byte[] tooDeep() {
+		rejection = "Message exceeds maximum nesting depth of " + limits.maxDepth();
+
+		return null;
+	}
+}
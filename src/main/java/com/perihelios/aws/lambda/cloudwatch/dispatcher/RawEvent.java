@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.Header;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The message bytes from which an event was bound, used to spool the event, and retained for {@link EventWriter} (see
+ * {@link RawEvents}) so that it can copy properties that have not changed since the event was dispatched verbatim,
+ * rather than encoding them again.
+ * <p>
+ * Where the event is one of a batch, or is carried in an SQS or SNS record, the bytes of the event within the message
+ * are only located on first use.
+ * </p>
+ */
+final class RawEvent {
+	private final Header header;
+
+	private Locator locator;
+	private byte[] bytes;
+	private int start;
+	private int end;
+	private boolean ascii;
+
+	RawEvent(Header header, Locator locator) {
+		this.header = header;
+		this.locator = locator;
+	}
+
+	/**
+	 * Returns the header bound from the event, which (being immutable) is unchanged for as long as it remains the
+	 * event's header.
+	 */
+	Header header() {
+		return header;
+	}
+
+	byte[] bytes() throws IOException {
+		locate();
+
+		return bytes;
+	}
+
+	int start() throws IOException {
+		locate();
+
+		return start;
+	}
+
+	int end() throws IOException {
+		locate();
+
+		return end;
+	}
+
+	boolean ascii() throws IOException {
+		locate();
+
+		return ascii;
+	}
+
+	/**
+	 * Returns a copy of this raw event holding only the event's own bytes, so that retaining it does not retain the
+	 * rest of the message, or the locator (and so the dispatcher).
+	 */
+	RawEvent detached() throws IOException {
+		locate();
+
+		RawEvent detached = new RawEvent(header, null);
+
+		if (start == 0 && end == bytes.length) {
+			detached.located(bytes, start, end, ascii);
+		} else {
+			detached.located(Arrays.copyOfRange(bytes, start, end), 0, end - start, ascii);
+		}
+
+		return detached;
+	}
+
+	/**
+	 * Sets the location of the event, on behalf of a {@link Locator}.
+	 */
+	void located(byte[] bytes, int start, int end, boolean ascii) {
+		this.bytes = bytes;
+		this.start = start;
+		this.end = end;
+		this.ascii = ascii;
+	}
+
+	private void locate() throws IOException {
+		if (locator != null) {
+			locator.locate(this);
+			locator = null;
+		}
+	}
+
+	/**
+	 * Finds the bytes of an event within the message from which it was bound.
+	 */
+	interface Locator {
+		void locate(RawEvent raw) throws IOException;
+	}
+}
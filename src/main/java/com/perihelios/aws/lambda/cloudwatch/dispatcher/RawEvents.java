@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Associates events with the bytes from which they were bound, for {@link EventWriter}, without holding on to the
+ * events.
+ * <p>
+ * Events are compared by identity, since event classes may define {@code equals()} in terms of mutable fields. An
+ * entry is removed once its event is no longer reachable; its bytes are the event's own, copied from the message, so
+ * that retaining an event retains neither the rest of the message nor the dispatcher.
+ * </p>
+ */
+final class RawEvents {
+	private static final ReferenceQueue<CloudWatchEvent> QUEUE = new ReferenceQueue<>();
+	private static final Map<EventKey, RawEvent> RAW_EVENTS = new HashMap<>();
+
+	private RawEvents() {
+	}
+
+	static synchronized void put(CloudWatchEvent event, RawEvent raw) {
+		expunge();
+		RAW_EVENTS.put(new EventKey(event, QUEUE), raw);
+	}
+
+	/**
+	 * Returns the bytes from which an event was bound.
+	 *
+	 * @return the raw event, or {@code null} if the event was not bound by a dispatcher retaining event bytes
+	 */
+	static synchronized RawEvent get(CloudWatchEvent event) {
+		expunge();
+
+		return RAW_EVENTS.isEmpty() ? null : RAW_EVENTS.get(new EventKey(event, null));
+	}
+
+	static synchronized int size() {
+		expunge();
+
+		return RAW_EVENTS.size();
+	}
+
+	private static void expunge() {
+		for (Object key = QUEUE.poll(); key != null; key = QUEUE.poll()) {
+			RAW_EVENTS.remove(key);
+		}
+	}
+
+	private static final class EventKey extends WeakReference<CloudWatchEvent> {
+		private final int hash;
+
+		EventKey(CloudWatchEvent event, ReferenceQueue<CloudWatchEvent> queue) {
+			super(event, queue);
+			this.hash = System.identityHashCode(event);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o == this) {
+				return true;
+			}
+
+			if (!(o instanceof EventKey)) {
+				return false;
+			}
+
+			CloudWatchEvent event = get();
+
+			return event != null && event == ((EventKey) o).get();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
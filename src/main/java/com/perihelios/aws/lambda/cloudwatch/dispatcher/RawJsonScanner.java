@@ -0,0 +1,279 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.stream.MalformedJsonException;
+
+import java.util.Arrays;
+
+/**
+ * Locates values within JSON held as UTF-8 bytes, without decoding them.
+ * <p>
+ * Only structure is examined: values are skipped by tracking nesting and string boundaries, and are not otherwise
+ * validated. Multi-byte UTF-8 sequences never contain bytes that are significant to JSON structure, so no decoding is
+ * needed to find where values begin and end.
+ * </p>
+ */
+final class RawJsonScanner {
+	private final byte[] bytes;
+	private final int end;
+	private int position;
+
+	RawJsonScanner(byte[] bytes, int start, int end) {
+		this.bytes = bytes;
+		this.end = end;
+		this.position = start;
+	}
+
+	/**
+	 * Returns the position just after the last value read or skipped.
+	 */
+	int position() {
+		return position;
+	}
+
+	/**
+	 * Reads the members of the object at the current position.
+	 *
+	 * @return four positions for each member, in order: the first byte of its name, inside the quotes; the end of its
+	 * name (the closing quote); the first byte of its value; and the end of its value
+	 */
+	int[] members() throws MalformedJsonException {
+		expect('{');
+
+		int[] spans = new int[32];
+		int count = 0;
+
+		if (peek() == '}') {
+			position++;
+
+			return new int[0];
+		}
+
+		do {
+			if (count == spans.length) {
+				spans = Arrays.copyOf(spans, count * 2);
+			}
+
+			spans[count++] = readString();
+			spans[count++] = position - 1;
+
+			expect(':');
+
+			spans[count++] = skipValue();
+			spans[count++] = position;
+		} while (nextIsComma('}'));
+
+		return Arrays.copyOf(spans, count);
+	}
+
+	/**
+	 * Moves to the value of a member of the object at the current position, skipping the members before it without
+	 * recording them. Names are compared byte for byte, so a name written with escapes does not match.
+	 *
+	 * @param name UTF-8 bytes of the member name
+	 * @return {@code false} if the value at the current position is not an object, or the object has no such member
+	 */
+	boolean findMember(byte[] name) throws MalformedJsonException {
+		if (peek() != '{') {
+			return false;
+		}
+
+		position++;
+
+		if (peek() == '}') {
+			return false;
+		}
+
+		do {
+			int nameStart = readString();
+			boolean matches = nameMatches(name, nameStart, position - 1);
+
+			expect(':');
+
+			if (matches) {
+				peek();
+
+				return true;
+			}
+
+			skipValue();
+		} while (nextIsComma('}'));
+
+		return false;
+	}
+
+	/**
+	 * Skips the value at the current position, which ends at {@link #position()}.
+	 *
+	 * @return the position of the first byte of the value
+	 */
+	int nextValue() throws MalformedJsonException {
+		return skipValue();
+	}
+
+	/**
+	 * Enters the array at the current position.
+	 *
+	 * @return {@code false} if the value at the current position is not an array
+	 */
+	boolean beginArray() throws MalformedJsonException {
+		if (peek() != '[') {
+			return false;
+		}
+
+		position++;
+
+		return true;
+	}
+
+	/**
+	 * Skips the next element of the array entered, which ends at {@link #position()}.
+	 *
+	 * @param first whether this is the first element of the array
+	 * @return the position of the first byte of the element, or {@code -1} at the end of the array
+	 */
+	int nextElement(boolean first) throws MalformedJsonException {
+		if (peek() == ']') {
+			return -1;
+		}
+
+		if (!first) {
+			expect(',');
+		}
+
+		return skipValue();
+	}
+
+	private boolean nameMatches(byte[] name, int start, int end) {
+		if (end - start != name.length) {
+			return false;
+		}
+
+		for (int i = 0; i < name.length; i++) {
+			if (bytes[start + i] != name[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Reads past a string, returning the position of its first byte.
+	 */
+	private int readString() throws MalformedJsonException {
+		expect('"');
+
+		int start = position;
+
+		while (position < end) {
+			byte b = bytes[position++];
+
+			if (b == '"') {
+				return start;
+			} else if (b == '\\') {
+				position++;
+			}
+		}
+
+		throw new MalformedJsonException("Unterminated string");
+	}
+
+	/**
+	 * Skips a value, returning the position of its first byte.
+	 */
+	private int skipValue() throws MalformedJsonException {
+		int start = -1;
+		int depth = 0;
+
+		do {
+			char c = peek();
+
+			if (start < 0) {
+				start = position;
+			}
+
+			switch (c) {
+				case '{':
+				case '[':
+					depth++;
+					position++;
+					break;
+				case '}':
+				case ']':
+					depth--;
+					position++;
+					break;
+				case '"':
+					readString();
+					break;
+				case ':':
+				case ',':
+					position++;
+					break;
+				default:
+					while (position < end && ",:{}[]\" \t\r\n".indexOf(bytes[position]) < 0) {
+						position++;
+					}
+			}
+		} while (depth > 0);
+
+		if (depth < 0) {
+			throw new MalformedJsonException("Unexpected end of object or array");
+		}
+
+		return start;
+	}
+
+	private boolean nextIsComma(char close) throws MalformedJsonException {
+		char c = peek();
+		position++;
+
+		if (c == ',') {
+			return true;
+		} else if (c == close) {
+			return false;
+		}
+
+		throw new MalformedJsonException("Expected ',' or '" + close + "' at position " + (position - 1));
+	}
+
+	private void expect(char expected) throws MalformedJsonException {
+		if (peek() != expected) {
+			throw new MalformedJsonException("Expected '" + expected + "' at position " + position);
+		}
+
+		position++;
+	}
+
+	/**
+	 * Skips whitespace, returning the next byte, as a character, without consuming it.
+	 */
+	private char peek() throws MalformedJsonException {
+		while (position < end) {
+			byte b = bytes[position];
+
+			if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+				return (char) (b & 0xFF);
+			}
+
+			position++;
+		}
+
+		throw new MalformedJsonException("Unexpected end of message");
+	}
+}
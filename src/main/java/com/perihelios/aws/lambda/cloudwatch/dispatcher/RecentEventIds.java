@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded memory of the IDs of recently dispatched events, used to skip redelivered events.
+ * <p>
+ * CloudWatch delivers events at least once, so a function may occasionally see the same event (identified by the
+ * {@code id} property of the event) more than once. An instance of this class is intended to be held in a static
+ * field, so that it survives across warm invocations of the function, and passed to
+ * {@link CloudWatchEventDispatcher#withDeduplication(RecentEventIds)} on each invocation:
+ * </p>
+ * <pre>
+ *     private static final RecentEventIds RECENT = new RecentEventIds(1_000);
+ *     ...
+ *     new CloudWatchEventDispatcher(message, context)
+ *         .withEventHandler(MyEvent1.class, new MyEvent1Handler())
+ *         .withDeduplication(RECENT)
+ *         .dispatch();
+ * </pre>
+ * <p>
+ * Only the most recent {@code capacity} IDs are remembered; older IDs are forgotten in the order they were added.
+ * Since each container of a Lambda function has its own memory, this only detects redeliveries to the same container.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe, and do not lock: concurrent additions claim successive slots of the ring
+ * atomically. While additions are in progress, up to one ID per adding thread beyond {@code capacity} may briefly be
+ * remembered.
+ * </p>
+ */
+public class RecentEventIds {
+	private final AtomicReferenceArray<String> ring;
+	private final ConcurrentHashMap<String, Boolean> ids;
+	private final AtomicLong next = new AtomicLong();
+
+	/**
+	 * Creates an empty memory of event IDs.
+	 *
+	 * @param capacity maximum number of IDs remembered
+	 * @throws IllegalArgumentException if {@code capacity} is not positive
+	 */
+	public RecentEventIds(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+
+		this.ring = new AtomicReferenceArray<>(capacity);
+		this.ids = new ConcurrentHashMap<>(capacity * 2);
+	}
+
+	/**
+	 * Indicates whether an ID is currently remembered.
+	 *
+	 * @param id event ID
+	 * @return {@code true} if the ID was added and has not yet been forgotten
+	 */
+	public boolean contains(String id) {
+		return ids.containsKey(id);
+	}
+
+	/**
+	 * Remembers an ID, forgetting the oldest remembered ID if already at capacity.
+	 *
+	 * @param id event ID
+	 * @return {@code true} if the ID was not already remembered
+	 */
+	public boolean add(String id) {
+		if (ids.putIfAbsent(id, Boolean.TRUE) != null) {
+			return false;
+		}
+
+		int slot = (int) (next.getAndIncrement() % ring.length());
+
+		String evicted = ring.getAndSet(slot, id);
+		if (evicted != null) {
+			ids.remove(evicted);
+		}
+
+		return true;
+	}
+}
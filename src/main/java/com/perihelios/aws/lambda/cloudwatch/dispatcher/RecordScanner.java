@@ -0,0 +1,311 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * Walks the records of an SQS or SNS event, as received by Lambda, locating the message body of each record (where
+ * the CloudWatch event is carried, as an escaped JSON string) without copying or unescaping it.
+ * <p>
+ * SQS records carry the body in {@code body}, and are identified by {@code messageId}. SNS records carry it in
+ * {@code Sns.Message}, identified by {@code Sns.MessageId}.
+ * </p>
+ */
+class RecordScanner {
+	private final String text;
+	private int position;
+	private boolean first = true;
+
+	RecordScanner(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Positions the scanner before the first record.
+	 *
+	 * @return {@code false} if the message has no {@code Records} array
+	 */
+	boolean open() throws MalformedJsonException {
+		expect('{');
+
+		if (!findMember("Records")) {
+			return false;
+		}
+
+		if (peek() != '[') {
+			return false;
+		}
+
+		position++;
+
+		return true;
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return the record, or {@code null} at the end of the records
+	 */
+	Record next() throws MalformedJsonException {
+		char c = peek();
+
+		if (c == ']') {
+			position++;
+			return null;
+		}
+
+		if (!first) {
+			expect(',');
+		}
+		first = false;
+
+		Record record = new Record();
+		expect('{');
+
+		if (peek() == '}') {
+			position++;
+			return record;
+		}
+
+		do {
+			int name = readString();
+			int nameEnd = position - 1;
+
+			expect(':');
+
+			if (nameEquals(name, nameEnd, "messageId")) {
+				record.id = readStringValue();
+			} else if (nameEquals(name, nameEnd, "body")) {
+				record.bodyStart = stringStart();
+			} else if (nameEquals(name, nameEnd, "Sns")) {
+				readSns(record);
+			} else {
+				skipValue();
+			}
+		} while (nextIsComma('}'));
+
+		return record;
+	}
+
+	private void readSns(Record record) throws MalformedJsonException {
+		if (peek() != '{') {
+			skipValue();
+			return;
+		}
+
+		position++;
+
+		if (peek() == '}') {
+			position++;
+			return;
+		}
+
+		do {
+			int name = readString();
+			int nameEnd = position - 1;
+
+			expect(':');
+
+			if (nameEquals(name, nameEnd, "MessageId")) {
+				record.id = readStringValue();
+			} else if (nameEquals(name, nameEnd, "Message")) {
+				record.bodyStart = stringStart();
+			} else {
+				skipValue();
+			}
+		} while (nextIsComma('}'));
+	}
+
+	private boolean findMember(String name) throws MalformedJsonException {
+		if (peek() == '}') {
+			return false;
+		}
+
+		do {
+			int start = readString();
+			int end = position - 1;
+
+			expect(':');
+
+			if (nameEquals(start, end, name)) {
+				return true;
+			}
+
+			skipValue();
+		} while (nextIsComma('}'));
+
+		return false;
+	}
+
+	/**
+	 * Skips a string value if one is next, returning the position of its first character.
+	 */
+	private int stringStart() throws MalformedJsonException {
+		if (peek() != '"') {
+			skipValue();
+			return -1;
+		}
+
+		int start = position + 1;
+		readString();
+
+		return start;
+	}
+
+	private String readStringValue() throws MalformedJsonException {
+		if (peek() != '"') {
+			skipValue();
+			return null;
+		}
+
+		int start = position + 1;
+		readString();
+		String value = text.substring(start, position - 1);
+
+		return value.indexOf('\\') < 0 ? value : null;
+	}
+
+	/**
+	 * Reads past a string, returning the position of its first character.
+	 */
+	private int readString() throws MalformedJsonException {
+		expect('"');
+
+		int start = position;
+
+		while (position < text.length()) {
+			char c = text.charAt(position++);
+
+			if (c == '"') {
+				return start;
+			} else if (c == '\\') {
+				position++;
+			}
+		}
+
+		throw new MalformedJsonException("Unterminated string");
+	}
+
+	private boolean nameEquals(int start, int end, String name) {
+		return end - start == name.length() && text.regionMatches(start, name, 0, name.length());
+	}
+
+	private void skipValue() throws MalformedJsonException {
+		int depth = 0;
+
+		do {
+			char c = peek();
+
+			switch (c) {
+				case '{':
+				case '[':
+					depth++;
+					position++;
+					break;
+				case '}':
+				case ']':
+					depth--;
+					position++;
+					break;
+				case '"':
+					readString();
+					break;
+				case ':':
+				case ',':
+					position++;
+					break;
+				default:
+					while (position < text.length() && ",:{}[]\" \t\r\n".indexOf(text.charAt(position)) < 0) {
+						position++;
+					}
+			}
+		} while (depth > 0);
+
+		if (depth < 0) {
+			throw new MalformedJsonException("Unexpected end of object or array");
+		}
+	}
+
+	/**
+	 * Consumes the separator following a member or element.
+	 *
+	 * @return {@code true} if it is a comma; {@code false} if it is the given closing character
+	 */
+	private boolean nextIsComma(char close) throws MalformedJsonException {
+		char c = peek();
+		position++;
+
+		if (c == ',') {
+			return true;
+		} else if (c == close) {
+			return false;
+		}
+
+		throw new MalformedJsonException("Expected ',' or '" + close + "' at position " + (position - 1));
+	}
+
+	private void expect(char expected) throws MalformedJsonException {
+		if (peek() != expected) {
+			throw new MalformedJsonException("Expected '" + expected + "' at position " + position);
+		}
+
+		position++;
+	}
+
+	/**
+	 * Skips whitespace, returning the next character without consuming it.
+	 */
+	private char peek() throws MalformedJsonException {
+		while (position < text.length()) {
+			char c = text.charAt(position);
+
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return c;
+			}
+
+			position++;
+		}
+
+		throw new MalformedJsonException("Unexpected end of message");
+	}
+
+	/**
+	 * Location of one record's message body within the message.
+	 */
+	static final class Record {
+		private String id;
+		private int bodyStart = -1;
+
+		/**
+		 * Returns the SQS message ID or SNS message ID of the record.
+		 *
+		 * @return the message ID, or {@code null} if absent
+		 */
+		String id() {
+			return id;
+		}
+
+		/**
+		 * Returns the position in the message of the first character of the record's body, inside its quotes.
+		 *
+		 * @return the position, or {@code -1} if the record has no body string
+		 */
+		int bodyStart() {
+			return bodyStart;
+		}
+	}
+}
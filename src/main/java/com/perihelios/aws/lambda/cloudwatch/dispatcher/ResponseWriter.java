@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the values returned by handlers, as JSON, directly to a function's output stream.
+ * <p>
+ * One {@link JsonWriter} is used for the whole response, so the values of a batch are written as each handler
+ * returns, without the response being built in memory. Values are written with the adapters of the dispatcher's
+ * {@link Gson} instance, and with its settings, so are written as {@link Gson#toJson(Object)} would write them.
+ * </p>
+ */
+final class ResponseWriter {
+	private final Gson gson;
+	private final JsonWriter writer;
+
+	ResponseWriter(OutputStream output, Gson gson) {
+		this.gson = gson;
+		try {
+			// Configured as Gson configures its own writers: omitting null properties, and escaping HTML characters
+			this.writer = gson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(output, UTF_8), 8192));
+		} catch (IOException e) {
+			// Only writing can fail, and nothing has been written
+			throw new IllegalStateException(e);
+		}
+
+		// Gson applies HTML escaping as it writes, rather than to the writers it creates
+		writer.setHtmlSafe(gson.htmlSafe());
+
+		// Permits a response that is a lone primitive, such as a string
+		writer.setLenient(true);
+	}
+
+	void beginArray() throws IOException {
+		writer.beginArray();
+	}
+
+	void endArray() throws IOException {
+		writer.endArray();
+	}
+
+	void write(Object value) throws IOException {
+		if (value == null) {
+			writer.nullValue();
+
+			return;
+		}
+
+		// The adapter is obtained for the value's own class, so is compatible with the value
+		@SuppressWarnings("unchecked")
+		TypeAdapter<Object> adapter = (TypeAdapter<Object>) gson.getAdapter(value.getClass());
+
+		adapter.write(writer, value);
+	}
+
+	/**
+	 * Flushes the response to the output stream, without closing it.
+	 */
+	void flush() throws IOException {
+		writer.flush();
+	}
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.google.gson.TypeAdapter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.aggregate.Aggregator;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.Header;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.UnknownEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.SpanExporter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Dispatcher configured once, and then used to dispatch any number of messages, from any number of threads
+ * concurrently.
+ * <p>
+ * Where {@link CloudWatchEventDispatcher} is created, configured, and used for a single message, this class separates
+ * configuration from dispatch: handlers and settings are given to a {@link Builder}, and fixed when the dispatcher is
+ * built. The routing tables of the built dispatcher are never modified; all state specific to a message is confined
+ * to the thread dispatching it. This suits runtimes and test harnesses that run many invocations concurrently in one
+ * JVM:
+ * </p>
+ * <pre>
+ *     private static final SharedEventDispatcher DISPATCHER = SharedEventDispatcher.builder()
+ *         .withEventHandler(MyEvent1.class, new MyEvent1Handler())
+ *         .withEventHandler(MyEvent2.class, new MyEvent2Handler())
+ *         .withDeduplication(new RecentEventIds(1_000))
+ *         .build();
+ *     ...
+ *     void myLambdaFunc(InputStream message, Context context) {
+ *         DISPATCHER.dispatch(message, context);
+ *     }
+ * </pre>
+ * <p>
+ * Each dispatch method behaves as the method of the same name of {@code CloudWatchEventDispatcher}. Handlers, and any
+ * {@link RecentEventIds}, {@link HandlerLatencies}, {@link EventSpool}, and {@link Aggregator} given to the builder,
+ * are shared by all dispatches, so must themselves be thread-safe; those of this library are.
+ * </p>
+ */
+public final class SharedEventDispatcher {
+	final Map<String, BiFunction<?, Context, ?>> handlers;
+	final Map<String, TypeAdapter<? extends CloudWatchEvent>> eventAdapters;
+	final List<Aggregator<?>> aggregators;
+	final Map<String, Function<? super Header, ?>> coalescingKeys;
+	final BiConsumer<? super UnknownEvent, Context> unknownEventHandler;
+	final RecentEventIds recentEventIds;
+	final HandlerLatencies handlerLatencies;
+	final long deadlineMarginMillis;
+	final boolean logRawMessage;
+	final boolean retainEventBytes;
+	final EventSpool spool;
+	final SpanExporter spanExporter;
+	final MessageLimits limits;
+
+	private SharedEventDispatcher(Builder builder) {
+		this.handlers = unmodifiableMap(new HashMap<>(builder.handlers));
+		this.eventAdapters = unmodifiableMap(new HashMap<>(builder.eventAdapters));
+		this.aggregators = unmodifiableList(new ArrayList<>(builder.aggregators));
+		this.coalescingKeys = unmodifiableMap(new HashMap<>(builder.coalescingKeys));
+		this.unknownEventHandler = builder.unknownEventHandler;
+		this.recentEventIds = builder.recentEventIds;
+		this.handlerLatencies = builder.handlerLatencies;
+		this.deadlineMarginMillis = builder.deadlineMarginMillis;
+		this.logRawMessage = builder.logRawMessage;
+		this.retainEventBytes = builder.retainEventBytes;
+		this.spool = builder.spool;
+		this.spanExporter = builder.spanExporter;
+		this.limits = builder.limits;
+	}
+
+	/**
+	 * Creates a builder for a shared dispatcher, with no handlers registered.
+	 *
+	 * @return a new builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Dispatches an event to registered handlers.
+	 *
+	 * @param message raw message stream, presumed to contain CloudWatch event JSON
+	 * @param context AWS Lambda context, to be passed to handlers as they are invoked
+	 * @throws IllegalArgumentException under the conditions given by {@link CloudWatchEventDispatcher#dispatch()}
+	 */
+	public void dispatch(InputStream message, Context context) {
+		new CloudWatchEventDispatcher(message, context, this).dispatch();
+	}
+
+	/**
+	 * Dispatches an event to registered handlers, writing the value returned by the handler to an output stream.
+	 * <p>
+	 * The signature of this method matches that of
+	 * {@link com.amazonaws.services.lambda.runtime.RequestStreamHandler#handleRequest(InputStream, OutputStream,
+	 * Context) RequestStreamHandler.handleRequest()}, so that it can be used as a function's handler directly.
+	 * </p>
+	 *
+	 * @param message raw message stream, presumed to contain CloudWatch event JSON
+	 * @param output  stream to which to write the response
+	 * @param context AWS Lambda context, to be passed to handlers as they are invoked
+	 * @throws IllegalArgumentException under the conditions given by {@link CloudWatchEventDispatcher#dispatch()}
+	 * @see CloudWatchEventDispatcher#dispatchTo(OutputStream)
+	 */
+	public void dispatchTo(InputStream message, OutputStream output, Context context) {
+		new CloudWatchEventDispatcher(message, context, this).dispatchTo(output);
+	}
+
+	/**
+	 * Dispatches an event to registered handlers, reporting rather than throwing if the message cannot be dispatched.
+	 *
+	 * @param message raw message stream, presumed to contain CloudWatch event JSON
+	 * @param context AWS Lambda context, to be passed to handlers as they are invoked
+	 * @return outcome of the dispatch, as given by {@link CloudWatchEventDispatcher#tryDispatch()}
+	 */
+	public DispatchResult tryDispatch(InputStream message, Context context) {
+		return new CloudWatchEventDispatcher(message, context, this).tryDispatch();
+	}
+
+	/**
+	 * Dispatches each event of a batch to registered handlers.
+	 *
+	 * @param message raw message stream, presumed to contain a JSON array of CloudWatch events
+	 * @param context AWS Lambda context, to be passed to handlers as they are invoked
+	 * @return outcome of the dispatch of each event, as given by {@link CloudWatchEventDispatcher#dispatchBatch()}
+	 */
+	public BatchResult dispatchBatch(InputStream message, Context context) {
+		return new CloudWatchEventDispatcher(message, context, this).dispatchBatch();
+	}
+
+	/**
+	 * Dispatches each event of a batch to registered handlers, streaming the values returned by handlers to an output
+	 * stream.
+	 *
+	 * @param message raw message stream, presumed to contain a JSON array of CloudWatch events
+	 * @param output  stream to which to write the response
+	 * @param context AWS Lambda context, to be passed to handlers as they are invoked
+	 * @return outcome of the dispatch of each event
+	 * @see CloudWatchEventDispatcher#dispatchBatchTo(OutputStream)
+	 */
+	public BatchResult dispatchBatchTo(InputStream message, OutputStream output, Context context) {
+		return new CloudWatchEventDispatcher(message, context, this).dispatchBatchTo(output);
+	}
+
+	/**
+	 * Dispatches the CloudWatch event carried by each record of an SQS or SNS event.
+	 *
+	 * @param message raw message stream, presumed to contain an SQS or SNS event
+	 * @param context AWS Lambda context, to be passed to handlers as they are invoked
+	 * @return outcome of the dispatch of each record, as given by {@link CloudWatchEventDispatcher#dispatchRecords()}
+	 */
+	public BatchResult dispatchRecords(InputStream message, Context context) {
+		return new CloudWatchEventDispatcher(message, context, this).dispatchRecords();
+	}
+
+	/**
+	 * Collects the handlers and settings of a {@link SharedEventDispatcher}.
+	 * <p>
+	 * Each method corresponds to the {@link CloudWatchEventDispatcher} method of the same name. A builder is not
+	 * thread-safe, but the dispatchers it builds are unaffected by later use of the builder.
+	 * </p>
+	 */
+	public static final class Builder {
+		private final Map<String, BiFunction<?, Context, ?>> handlers = new HashMap<>();
+		private final Map<String, TypeAdapter<? extends CloudWatchEvent>> eventAdapters = new HashMap<>();
+		private final List<Aggregator<?>> aggregators = new ArrayList<>();
+		private final Map<String, Function<? super Header, ?>> coalescingKeys = new HashMap<>();
+
+		private BiConsumer<? super UnknownEvent, Context> unknownEventHandler;
+		private RecentEventIds recentEventIds;
+		private HandlerLatencies handlerLatencies;
+		private long deadlineMarginMillis = -1;
+		private boolean logRawMessage;
+		private boolean retainEventBytes;
+		private EventSpool spool;
+		private SpanExporter spanExporter;
+		private MessageLimits limits = MessageLimits.DEFAULT;
+
+		private Builder() {
+		}
+
+		/**
+		 * Registers an event handler for a particular CloudWatch event type.
+		 *
+		 * @param eventType class to which events will be unmarshalled
+		 * @param handler   consumer of events of {@code eventType} type
+		 * @param <T>       type of event
+		 * @return a reference to this object
+		 * @throws IllegalArgumentException if {@code eventType} is not annotated with {@link DetailType}
+		 * @see CloudWatchEventDispatcher#withEventHandler(Class, BiConsumer)
+		 */
+		public <T extends CloudWatchEvent> Builder withEventHandler(
+				Class<T> eventType, BiConsumer<? super T, Context> handler) {
+
+			CloudWatchEventDispatcher.register(
+					eventType, CloudWatchEventDispatcher.consumerFunction(handler), eventAdapters, handlers
+			);
+
+			return this;
+		}
+
+		/**
+		 * Registers a handler that returns a value, for a particular CloudWatch event type.
+		 *
+		 * @param eventType class to which events will be unmarshalled
+		 * @param handler   function of events of {@code eventType} type, returning the response for the event
+		 * @param <T>       type of event
+		 * @return a reference to this object
+		 * @throws IllegalArgumentException if {@code eventType} is not annotated with {@link DetailType}
+		 * @see CloudWatchEventDispatcher#withEventFunction(Class, BiFunction)
+		 */
+		public <T extends CloudWatchEvent> Builder withEventFunction(
+				Class<T> eventType, BiFunction<? super T, Context, ?> handler) {
+
+			CloudWatchEventDispatcher.register(eventType, handler, eventAdapters, handlers);
+
+			return this;
+		}
+
+		/**
+		 * Registers a handler for events whose {@code detail-type} matches none of the registered event types.
+		 *
+		 * @param handler consumer of events of unregistered types
+		 * @return a reference to this object
+		 * @see CloudWatchEventDispatcher#withUnknownEventHandler(BiConsumer)
+		 */
+		public Builder withUnknownEventHandler(BiConsumer<? super UnknownEvent, Context> handler) {
+			unknownEventHandler = handler;
+
+			return this;
+		}
+
+		/**
+		 * Skips events whose IDs have recently been dispatched successfully.
+		 *
+		 * @param recentEventIds memory of recently dispatched event IDs
+		 * @return a reference to this object
+		 * @see CloudWatchEventDispatcher#withDeduplication(RecentEventIds)
+		 */
+		public Builder withDeduplication(RecentEventIds recentEventIds) {
+			this.recentEventIds = recentEventIds;
+
+			return this;
+		}
+
+		/**
+		 * Delivers only the latest of the events of a type in a batch that concern the same resources.
+		 *
+		 * @param eventType class of events to coalesce
+		 * @return a reference to this object
+		 * @throws IllegalArgumentException if {@code eventType} is not annotated with {@link DetailType}
+		 * @see CloudWatchEventDispatcher#withCoalescing(Class)
+		 */
+		public Builder withCoalescing(Class<? extends CloudWatchEvent> eventType) {
+			return withCoalescing(eventType, header -> null);
+		}
+
+		/**
+		 * Delivers only the latest of the events of a type in a batch that share a key.
+		 *
+		 * @param eventType    class of events to coalesce
+		 * @param keyExtractor returns the part of an event's key other than its detail type and resources
+		 * @return a reference to this object
+		 * @throws IllegalArgumentException if {@code eventType} is not annotated with {@link DetailType}
+		 * @see CloudWatchEventDispatcher#withCoalescing(Class, Function)
+		 */
+		public Builder withCoalescing(
+				Class<? extends CloudWatchEvent> eventType, Function<? super Header, ?> keyExtractor) {
+
+			coalescingKeys.put(CloudWatchEventDispatcher.detailTypeOf(eventType, "coalesce events"), keyExtractor);
+
+			return this;
+		}
+
+		/**
+		 * Stops starting events of a batch once the invocation's remaining time falls below a margin.
+		 *
+		 * @param margin time to keep in reserve at the end of the invocation
+		 * @return a reference to this object
+		 * @throws IllegalArgumentException if {@code margin} is negative
+		 * @see CloudWatchEventDispatcher#withDeadlineMargin(Duration)
+		 */
+		public Builder withDeadlineMargin(Duration margin) {
+			if (margin.isNegative()) {
+				throw new IllegalArgumentException("Deadline margin must not be negative: " + margin);
+			}
+
+			deadlineMarginMillis = margin.toMillis();
+
+			return this;
+		}
+
+		/**
+		 * Records the latency of each handler call, and uses the estimates when dispatching batches.
+		 *
+		 * @param handlerLatencies latency estimates
+		 * @return a reference to this object
+		 * @see CloudWatchEventDispatcher#withLatencyEstimates(HandlerLatencies)
+		 */
+		public Builder withLatencyEstimates(HandlerLatencies handlerLatencies) {
+			this.handlerLatencies = handlerLatencies;
+
+			return this;
+		}
+
+		/**
+		 * Gives an aggregator the opportunity to flush, after each event has been handled.
+		 *
+		 * @param aggregator aggregator appended to by handlers
+		 * @return a reference to this object
+		 * @see CloudWatchEventDispatcher#withAggregator(Aggregator)
+		 */
+		public Builder withAggregator(Aggregator<?> aggregator) {
+			aggregators.add(aggregator);
+
+			return this;
+		}
+
+		/**
+		 * Appends each event to a spool, just before calling the event's handler.
+		 *
+		 * @param spool spool of events
+		 * @return a reference to this object
+		 * @see CloudWatchEventDispatcher#withSpool(EventSpool)
+		 */
+		public Builder withSpool(EventSpool spool) {
+			this.spool = spool;
+
+			return this;
+		}
+
+		/**
+		 * Traces the dispatch of each event, exporting the trace once the event's dispatch has finished. The exporter
+		 * is called from every thread dispatching messages, so must be thread-safe.
+		 *
+		 * @param exporter destination of the traces
+		 * @return a reference to this object
+		 * @see CloudWatchEventDispatcher#withTracing(SpanExporter)
+		 */
+		public Builder withTracing(SpanExporter exporter) {
+			this.spanExporter = exporter;
+
+			return this;
+		}
+
+		/**
+		 * Reads each message within the given limits, in place of {@link MessageLimits#DEFAULT the defaults}.
+		 *
+		 * @param limits maximum size and nesting depth of a message
+		 * @return a reference to this object
+		 * @throws IllegalArgumentException if {@code limits} is {@code null}
+		 * @see CloudWatchEventDispatcher#CloudWatchEventDispatcher(InputStream, Context, MessageLimits)
+		 */
+		public Builder withLimits(MessageLimits limits) {
+			if (limits == null) {
+				throw new IllegalArgumentException("Limits must not be null");
+			}
+
+			this.limits = limits;
+
+			return this;
+		}
+
+		/**
+		 * Logs each incoming message, before it is parsed as JSON.
+		 *
+		 * @return a reference to this object
+		 * @see CloudWatchEventDispatcher#logMessage()
+		 */
+		public Builder logMessage() {
+			logRawMessage = true;
+
+			return this;
+		}
+
+		/**
+		 * Keeps a copy of the bytes of each event bound, for {@link EventWriter}.
+		 *
+		 * @return a reference to this object
+		 * @see CloudWatchEventDispatcher#retainEventBytes()
+		 */
+		public Builder retainEventBytes() {
+			retainEventBytes = true;
+
+			return this;
+		}
+
+		/**
+		 * Builds a dispatcher with the handlers and settings given so far.
+		 *
+		 * @return a new, immutable dispatcher
+		 */
+		public SharedEventDispatcher build() {
+			return new SharedEventDispatcher(this);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Index entry for an event in an {@link EventSpool}, as listed by {@link EventSpool.Query#list()}.
+ */
+public final class SpooledEvent {
+	private final Path dataFile;
+	private final long offset;
+	private final Instant time;
+	private final String detailType;
+	private final String id;
+
+	SpooledEvent(Path dataFile, long offset, Instant time, String detailType, String id) {
+		this.dataFile = dataFile;
+		this.offset = offset;
+		this.time = time;
+		this.detailType = detailType;
+		this.id = id;
+	}
+
+	/**
+	 * Returns the {@code time} property of the event.
+	 *
+	 * @return the event time, or {@code null} if the event had none
+	 */
+	public Instant time() {
+		return time;
+	}
+
+	/**
+	 * Returns the {@code detail-type} property of the event.
+	 *
+	 * @return the detail type
+	 */
+	public String detailType() {
+		return detailType;
+	}
+
+	/**
+	 * Returns the {@code id} property of the event.
+	 *
+	 * @return the event ID, or {@code null} if the event had none
+	 */
+	public String id() {
+		return id;
+	}
+
+	/**
+	 * Reads the event from the spool.
+	 *
+	 * @return the event JSON, encoded as UTF-8
+	 * @throws IOException if the event cannot be read (for instance, because its segment has since been deleted)
+	 */
+	public byte[] read() throws IOException {
+		try (FileChannel channel = FileChannel.open(dataFile, READ)) {
+			return EventSpool.read(channel, offset);
+		}
+	}
+
+	Path dataFile() {
+		return dataFile;
+	}
+
+	long offset() {
+		return offset;
+	}
+
+	@Override
+	public String toString() {
+		return detailType + (id == null ? "" : " (" + id + ")") + (time == null ? "" : " at " + time);
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import java.io.Reader;
+
+/**
+ * Reads UTF-8 text directly from a byte array, decoding only where the text is not ASCII.
+ * <p>
+ * CloudWatch events are almost entirely ASCII, so rather than decoding a whole message into a {@code String} before
+ * parsing it, the parser reads the bytes through this class: each ASCII byte is simply widened to a {@code char}, and
+ * multi-byte sequences (which appear, if at all, only within string values) are decoded where they occur. Malformed
+ * sequences are replaced with U+FFFD, as by {@link String#String(byte[], java.nio.charset.Charset) String(byte[],
+ * UTF_8)}. If the text is known to be entirely ASCII (see {@link #isAscii(byte[], int, int)}), even the per-byte check
+ * is skipped.
+ * </p>
+ */
+final class Utf8Reader extends Reader {
+	private static final char REPLACEMENT = '\uFFFD';
+
+	private final byte[] bytes;
+	private final int end;
+	private final boolean ascii;
+
+	private int position;
+	private char pendingLowSurrogate;
+
+	Utf8Reader(byte[] bytes, int start, int end, boolean ascii) {
+		this.bytes = bytes;
+		this.position = start;
+		this.end = end;
+		this.ascii = ascii;
+	}
+
+	/**
+	 * Indicates whether a range of bytes is entirely ASCII.
+	 * <p>
+	 * Bytes are checked eight at a time, by combining them with bitwise OR and testing the sign of the result; a
+	 * non-ASCII byte has its high bit set. The loop has no per-byte branch, so it is cheap even over large messages,
+	 * and is amenable to vectorization by the JIT compiler.
+	 * </p>
+	 */
+	static boolean isAscii(byte[] bytes, int start, int end) {
+		int i = start;
+
+		for (; i + 8 <= end; i += 8) {
+			if ((bytes[i] | bytes[i + 1] | bytes[i + 2] | bytes[i + 3] |
+					bytes[i + 4] | bytes[i + 5] | bytes[i + 6] | bytes[i + 7]) < 0) {
+
+				return false;
+			}
+		}
+
+		for (; i < end; i++) {
+			if (bytes[i] < 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) {
+		if (length == 0) {
+			return 0;
+		}
+
+		if (position >= end && pendingLowSurrogate == 0) {
+			return -1;
+		}
+
+		if (ascii) {
+			int count = Math.min(length, end - position);
+
+			for (int i = 0; i < count; i++) {
+				buffer[offset + i] = (char) bytes[position + i];
+			}
+
+			position += count;
+
+			return count;
+		}
+
+		int count = 0;
+
+		if (pendingLowSurrogate != 0) {
+			buffer[offset + count++] = pendingLowSurrogate;
+			pendingLowSurrogate = 0;
+		}
+
+		while (count < length && position < end) {
+			byte b = bytes[position];
+
+			if (b >= 0) {
+				buffer[offset + count++] = (char) b;
+				position++;
+
+				continue;
+			}
+
+			int codePoint = decode();
+
+			if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				buffer[offset + count++] = (char) codePoint;
+			} else {
+				buffer[offset + count++] = Character.highSurrogate(codePoint);
+
+				if (count < length) {
+					buffer[offset + count++] = Character.lowSurrogate(codePoint);
+				} else {
+					pendingLowSurrogate = Character.lowSurrogate(codePoint);
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Decodes the multi-byte sequence at the current position. A malformed sequence decodes to U+FFFD, consuming its
+	 * longest valid prefix (at least one byte), as recommended by the Unicode standard.
+	 */
+	private int decode() {
+		int lead = bytes[position++] & 0xff;
+		int continuations;
+		int codePoint;
+		int secondMin = 0x80;
+		int secondMax = 0xbf;
+
+		if (lead >= 0xc2 && lead <= 0xdf) {
+			continuations = 1;
+			codePoint = lead & 0x1f;
+		} else if (lead >= 0xe0 && lead <= 0xef) {
+			continuations = 2;
+			codePoint = lead & 0x0f;
+
+			// Excludes overlong encodings; surrogates are excluded once decoded, as by the JDK's decoder
+			if (lead == 0xe0) {
+				secondMin = 0xa0;
+			}
+		} else if (lead >= 0xf0 && lead <= 0xf4) {
+			continuations = 3;
+			codePoint = lead & 0x07;
+
+			// Excludes overlong encodings, and code points beyond U+10FFFF
+			if (lead == 0xf0) {
+				secondMin = 0x90;
+			} else if (lead == 0xf4) {
+				secondMax = 0x8f;
+			}
+		} else {
+			return REPLACEMENT;
+		}
+
+		for (int i = 0; i < continuations; i++) {
+			if (position >= end) {
+				return REPLACEMENT;
+			}
+
+			int next = bytes[position] & 0xff;
+
+			if (next < (i == 0 ? secondMin : 0x80) || next > (i == 0 ? secondMax : 0xbf)) {
+				return REPLACEMENT;
+			}
+
+			codePoint = codePoint << 6 | next & 0x3f;
+			position++;
+		}
+
+		return codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE ? REPLACEMENT : codePoint;
+	}
+
+	@Override
+	public void close() {
+	}
+}
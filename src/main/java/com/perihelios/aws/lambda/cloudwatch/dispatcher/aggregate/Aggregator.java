@@ -0,0 +1,376 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aggregate;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Buffers records produced by handlers, across warm invocations of a function, and writes them downstream in batches.
+ * <p>
+ * Handlers that write one record downstream per event pay the cost of a downstream request per event. An aggregator
+ * instead collects records in memory, and passes them to a {@link BatchSink} in batches. It is intended to be held in a
+ * static field, so that it survives across warm invocations, appended to by handlers, and passed to
+ * {@link CloudWatchEventDispatcher#withAggregator(Aggregator)} on each invocation:
+ * </p>
+ * <pre>
+ *     private static final Aggregator&lt;String&gt; OUTPUT = new Aggregator&lt;&gt;(new MyQueueSink())
+ *         .withMaxRecords(500)
+ *         .withMaxAge(Duration.ofSeconds(30));
+ *     ...
+ *     new CloudWatchEventDispatcher(message, context)
+ *         .withEventHandler(MyEvent1.class, (event, ctx) -&gt; OUTPUT.append(summarize(event)))
+ *         .withAggregator(OUTPUT)
+ *         .dispatch();
+ * </pre>
+ * <p>
+ * A batch is flushed as soon as an appended record brings the buffer to the configured maximum number of records or
+ * bytes. In addition, the dispatcher calls {@link #flushIfDue(Context)} after each event is handled, which flushes
+ * the buffer if its oldest record has reached the configured maximum age, or if the invocation has less time remaining
+ * than the configured margin.
+ * </p>
+ * <p>
+ * A record, once appended, is never thrown back at the handler that appended it: if a flush triggered by an append
+ * fails, the record stays buffered, and the flush is retried by later appends and flushes. So that a failing sink
+ * does not grow the buffer without bound, the buffer holds at most a fixed number of records (by default, ten
+ * batches), and a record appended to a full buffer is handled by the configured {@link Overflow overflow policy}.
+ * </p>
+ * <p>
+ * Records still buffered when the Lambda service retires a container are lost; a container is not notified before it
+ * is retired. The maximum age bounds how long records wait while the function continues to be invoked, but cannot
+ * bound it if invocations stop. Use an aggregator only for output that can tolerate this, or call {@link #flush()}
+ * when a record must not be delayed.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ *
+ * @param <T> type of record
+ */
+public class Aggregator<T> {
+	private final BatchSink<T> sink;
+	private final LongSupplier nanoClock;
+
+	private int maxRecords = 1_000;
+	private long maxBytes = Long.MAX_VALUE;
+	private ToLongFunction<? super T> sizer = record -> 0;
+	private long maxAgeNanos = Long.MAX_VALUE;
+	private long deadlineMarginMillis = 1_000;
+	private int capacity = -1;
+	private Overflow overflow = Overflow.REJECT;
+
+	private final Deque<T> buffer = new ArrayDeque<>();
+	private final Deque<Long> sizes = new ArrayDeque<>();
+	private long bufferedBytes;
+	private long oldestNanos;
+	private long dropped;
+
+	/**
+	 * Policy for a record appended to a full buffer.
+	 */
+	public enum Overflow {
+		/**
+		 * Rejects the appended record, by throwing {@link IllegalStateException} from {@link #append(Object)}.
+		 */
+		REJECT,
+
+		/**
+		 * Discards the appended record.
+		 */
+		DROP_NEWEST,
+
+		/**
+		 * Discards the oldest buffered record to make room for the appended record.
+		 */
+		DROP_OLDEST
+	}
+
+	/**
+	 * Creates an empty aggregator writing to a sink.
+	 * <p>
+	 * By default, batches are flushed at 1,000 records, with no limit on size or age, and when less than one second of
+	 * the invocation remains. The buffer holds at most ten batches, and rejects records appended beyond them.
+	 * </p>
+	 *
+	 * @param sink destination of flushed batches
+	 */
+	public Aggregator(BatchSink<T> sink) {
+		this(sink, System::nanoTime);
+	}
+
+	Aggregator(BatchSink<T> sink, LongSupplier nanoClock) {
+		this.sink = sink;
+		this.nanoClock = nanoClock;
+	}
+
+	/**
+	 * Sets the number of records at which the buffer is flushed.
+	 *
+	 * @param maxRecords maximum number of records in a batch
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code maxRecords} is not positive
+	 */
+	public synchronized Aggregator<T> withMaxRecords(int maxRecords) {
+		if (maxRecords <= 0) {
+			throw new IllegalArgumentException("Maximum records must be positive: " + maxRecords);
+		}
+
+		this.maxRecords = maxRecords;
+
+		return this;
+	}
+
+	/**
+	 * Sets the total size of records at which the buffer is flushed.
+	 * <p>
+	 * Size is measured by the given function, in whatever unit suits the sink (typically, the encoded length in
+	 * bytes of the record). A record that alone exceeds the limit is flushed in a batch by itself.
+	 * </p>
+	 *
+	 * @param maxBytes maximum size of a batch
+	 * @param sizer    function measuring the size of a record
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code maxBytes} is not positive
+	 */
+	public synchronized Aggregator<T> withMaxBytes(long maxBytes, ToLongFunction<? super T> sizer) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Maximum bytes must be positive: " + maxBytes);
+		}
+
+		this.maxBytes = maxBytes;
+		this.sizer = sizer;
+
+		return this;
+	}
+
+	/**
+	 * Sets the age of the oldest buffered record at which the buffer is flushed by {@link #flushIfDue(Context)}.
+	 *
+	 * @param maxAge maximum time a record waits in the buffer while the function is being invoked
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code maxAge} is negative
+	 */
+	public synchronized Aggregator<T> withMaxAge(Duration maxAge) {
+		if (maxAge.isNegative()) {
+			throw new IllegalArgumentException("Maximum age must not be negative: " + maxAge);
+		}
+
+		this.maxAgeNanos = maxAge.toNanos();
+
+		return this;
+	}
+
+	/**
+	 * Sets the remaining invocation time below which {@link #flushIfDue(Context)} flushes the buffer.
+	 *
+	 * @param margin time needed to flush a batch before the invocation times out
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code margin} is negative
+	 */
+	public synchronized Aggregator<T> withDeadlineMargin(Duration margin) {
+		if (margin.isNegative()) {
+			throw new IllegalArgumentException("Deadline margin must not be negative: " + margin);
+		}
+
+		this.deadlineMarginMillis = margin.toMillis();
+
+		return this;
+	}
+
+	/**
+	 * Sets the number of records the buffer holds, and what becomes of a record appended to a full buffer.
+	 * <p>
+	 * The buffer fills only while the sink is failing; otherwise, it is flushed long before it is full.
+	 * </p>
+	 *
+	 * @param capacity maximum number of records buffered
+	 * @param overflow policy for a record appended to a full buffer
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code capacity} is not positive, or {@code overflow} is {@code null}
+	 */
+	public synchronized Aggregator<T> withCapacity(int capacity, Overflow overflow) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		if (overflow == null) {
+			throw new IllegalArgumentException("Overflow policy must not be null");
+		}
+
+		this.capacity = capacity;
+		this.overflow = overflow;
+
+		return this;
+	}
+
+	/**
+	 * Adds a record to the buffer, flushing the buffer if it has reached its maximum number of records or size.
+	 * <p>
+	 * If the flush fails, the record nevertheless remains buffered, and the failure is not thrown; the flush is
+	 * retried by later appends and flushes. If the buffer is full, the record is handled by the
+	 * {@linkplain #withCapacity(int, Overflow) overflow policy}.
+	 * </p>
+	 *
+	 * @param record record to write downstream
+	 * @throws IllegalStateException if the buffer is full, and the overflow policy is {@link Overflow#REJECT REJECT}
+	 */
+	public synchronized void append(T record) {
+		long size = sizer.applyAsLong(record);
+
+		if (!buffer.isEmpty() && bufferedBytes + size > maxBytes) {
+			tryFlush();
+		}
+
+		if (buffer.size() >= capacity()) {
+			tryFlush();
+		}
+
+		if (buffer.size() >= capacity()) {
+			switch (overflow) {
+				case REJECT:
+					throw new IllegalStateException("Aggregator buffer full at " + buffer.size() +
+							" records; sink is failing");
+				case DROP_NEWEST:
+					dropped++;
+					return;
+				default:
+					bufferedBytes -= sizes.removeFirst();
+					buffer.removeFirst();
+					dropped++;
+			}
+		}
+
+		if (buffer.isEmpty()) {
+			oldestNanos = nanoClock.getAsLong();
+		}
+
+		buffer.addLast(record);
+		sizes.addLast(size);
+		bufferedBytes += size;
+
+		if (buffer.size() >= maxRecords || bufferedBytes >= maxBytes) {
+			tryFlush();
+		}
+	}
+
+	/**
+	 * Flushes the buffer if its oldest record has reached the maximum age, or if the invocation is about to run out
+	 * of time.
+	 *
+	 * @param context context of the current invocation; if {@code null}, only the age of the buffer is considered
+	 * @return {@code true} if a batch was flushed
+	 * @throws UncheckedIOException if the sink fails
+	 */
+	public synchronized boolean flushIfDue(Context context) {
+		if (buffer.isEmpty()) {
+			return false;
+		}
+
+		boolean expired = nanoClock.getAsLong() - oldestNanos >= maxAgeNanos;
+		boolean deadline = context != null && context.getRemainingTimeInMillis() < deadlineMarginMillis;
+
+		if (expired || deadline) {
+			flush();
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Writes all buffered records to the sink, in batches of at most the maximum number of records and size.
+	 * <p>
+	 * If the sink fails, the records not yet written remain buffered, and are offered again on the next flush.
+	 * </p>
+	 *
+	 * @throws UncheckedIOException if the sink throws {@link IOException}; any unchecked exception thrown by the sink
+	 *                              propagates unchanged
+	 */
+	public synchronized void flush() {
+		while (!buffer.isEmpty()) {
+			List<T> batch = new ArrayList<>(Math.min(buffer.size(), maxRecords));
+			long batchBytes = 0;
+			Iterator<T> records = buffer.iterator();
+			Iterator<Long> recordSizes = sizes.iterator();
+
+			while (records.hasNext() && batch.size() < maxRecords) {
+				long size = recordSizes.next();
+
+				if (!batch.isEmpty() && batchBytes + size > maxBytes) {
+					break;
+				}
+
+				batch.add(records.next());
+				batchBytes += size;
+			}
+
+			try {
+				sink.write(batch);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			for (int i = 0; i < batch.size(); i++) {
+				buffer.removeFirst();
+				sizes.removeFirst();
+			}
+
+			bufferedBytes -= batchBytes;
+		}
+	}
+
+	/**
+	 * Returns the number of records currently buffered.
+	 *
+	 * @return number of records not yet written to the sink
+	 */
+	public synchronized int size() {
+		return buffer.size();
+	}
+
+	/**
+	 * Returns the number of records discarded because the buffer was full.
+	 *
+	 * @return number of records dropped by the {@linkplain #withCapacity(int, Overflow) overflow policy}
+	 */
+	public synchronized long dropped() {
+		return dropped;
+	}
+
+	private void tryFlush() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			// Whether the sink threw IOException or an unchecked exception, the records remain buffered, and are
+			// offered again on the next flush
+		}
+	}
+
+	private int capacity() {
+		return capacity > 0 ? capacity : (int) Math.min(Integer.MAX_VALUE, 10L * maxRecords);
+	}
+}
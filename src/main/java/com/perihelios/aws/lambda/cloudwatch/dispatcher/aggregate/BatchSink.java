@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aggregate;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the batches of records flushed by an {@link Aggregator}.
+ *
+ * @param <T> type of record
+ */
+@FunctionalInterface
+public interface BatchSink<T> {
+	/**
+	 * Writes a batch of records downstream.
+	 * <p>
+	 * If this method throws, the aggregator keeps the records, and offers them again (with any records appended in
+	 * the meantime) on the next flush. The list must not be retained after this method returns.
+	 * </p>
+	 *
+	 * @param batch records, in the order they were appended; never empty
+	 * @throws IOException if the batch cannot be written
+	 */
+	void write(List<T> batch) throws IOException;
+}
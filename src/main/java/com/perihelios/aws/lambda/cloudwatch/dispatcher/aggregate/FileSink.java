@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aggregate;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Sink that appends each record to a file as one line of text, for use in tests and local runs.
+ * <p>
+ * The file is opened for each batch, and closed once the batch has been written, so it can be inspected between
+ * flushes. Records are written with {@link Object#toString()}, and must not contain line breaks.
+ * </p>
+ *
+ * @param <T> type of record
+ */
+public class FileSink<T> implements BatchSink<T> {
+	private final Path path;
+
+	/**
+	 * Creates a sink appending to a file, which is created on the first flush if it does not exist.
+	 *
+	 * @param path location of the file
+	 */
+	public FileSink(Path path) {
+		this.path = path;
+	}
+
+	@Override
+	public synchronized void write(List<T> batch) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(path, UTF_8, CREATE, APPEND)) {
+			for (T record : batch) {
+				writer.write(String.valueOf(record));
+				writer.write('\n');
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aggregate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Sink that keeps every batch written to it, for use in tests.
+ *
+ * @param <T> type of record
+ */
+public class InMemorySink<T> implements BatchSink<T> {
+	private final List<List<T>> batches = new ArrayList<>();
+
+	@Override
+	public synchronized void write(List<T> batch) {
+		batches.add(unmodifiableList(new ArrayList<>(batch)));
+	}
+
+	/**
+	 * Returns the batches written so far.
+	 *
+	 * @return copy of the list of batches, in the order they were written
+	 */
+	public synchronized List<List<T>> batches() {
+		return new ArrayList<>(batches);
+	}
+
+	/**
+	 * Returns the records written so far, across all batches.
+	 *
+	 * @return records, in the order they were written
+	 */
+	public synchronized List<T> records() {
+		List<T> records = new ArrayList<>();
+
+		for (List<T> batch : batches) {
+			records.addAll(batch);
+		}
+
+		return records;
+	}
+}
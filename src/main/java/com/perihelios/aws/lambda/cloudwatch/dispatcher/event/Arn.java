@@ -0,0 +1,236 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.event;
+
+/**
+ * Lightweight view of an Amazon Resource Name (ARN), as found in {@link Header#resources()}.
+ * <p>
+ * An ARN has the general form {@code arn:partition:service:region:account:resource}. Creating a view does no work
+ * beyond holding a reference to the ARN string; the positions of its components are located the first time any
+ * component is requested, and remembered thereafter. Components are only extracted when asked for.
+ * </p>
+ * <p>
+ * The leading {@code partition}, {@code service}, {@code region} and {@code account} components of most ARNs seen by
+ * a given Lambda function are drawn from a small set (typically, one account in one region). These components are
+ * shared through a small cache, which persists across warm invocations of the function, so that repeated ARNs with a
+ * common prefix do not each produce their own copies of these strings.
+ * </p>
+ * <p>
+ * Strings that do not have the form of an ARN (fewer than six colon-separated components, or not starting with
+ * {@code arn:}) produce views for which {@link #isValid()} returns {@code false} and all component accessors return
+ * {@code null}.
+ * </p>
+ */
+public final class Arn {
+	private static final int UNPARSED = -2;
+	private static final int INVALID = -1;
+
+	private final String arn;
+
+	private int prefixEnd = UNPARSED;
+	private ArnPrefixCache.Prefix prefix;
+
+	private Arn(String arn) {
+		this.arn = arn;
+	}
+
+	/**
+	 * Creates a view of an ARN string.
+	 * <p>
+	 * The string is not examined until one of the component accessors, or {@link #isValid()}, is called.
+	 * </p>
+	 *
+	 * @param arn ARN string
+	 * @return view of {@code arn}
+	 * @throws NullPointerException if {@code arn} is {@code null}
+	 */
+	public static Arn of(String arn) {
+		if (arn == null) {
+			throw new NullPointerException("arn");
+		}
+
+		return new Arn(arn);
+	}
+
+	/**
+	 * Indicates whether the viewed string has the form of an ARN.
+	 *
+	 * @return {@code true} if the string is an ARN
+	 */
+	public boolean isValid() {
+		return parse() != INVALID;
+	}
+
+	/**
+	 * Returns the partition component of the ARN (e.g., {@code aws}).
+	 *
+	 * @return the partition, or {@code null} if the string is not an ARN
+	 */
+	public String partition() {
+		return prefix() == null ? null : prefix.partition();
+	}
+
+	/**
+	 * Returns the service component of the ARN (e.g., {@code ec2}).
+	 *
+	 * @return the service, or {@code null} if the string is not an ARN
+	 */
+	public String service() {
+		return prefix() == null ? null : prefix.service();
+	}
+
+	/**
+	 * Returns the region component of the ARN (e.g., {@code us-east-1}).
+	 * <p>
+	 * Some services (such as IAM and S3) produce ARNs with an empty region.
+	 * </p>
+	 *
+	 * @return the region, or {@code null} if the string is not an ARN
+	 */
+	public String region() {
+		return prefix() == null ? null : prefix.region();
+	}
+
+	/**
+	 * Returns the account component of the ARN.
+	 * <p>
+	 * Some services (such as S3) produce ARNs with an empty account.
+	 * </p>
+	 *
+	 * @return the account ID, or {@code null} if the string is not an ARN
+	 */
+	public String account() {
+		return prefix() == null ? null : prefix.account();
+	}
+
+	/**
+	 * Returns the resource component of the ARN&mdash;everything following the account.
+	 * <p>
+	 * For {@code arn:aws:ec2:us-east-1:123456789012:instance/i-abcd1111}, this is {@code instance/i-abcd1111}.
+	 * </p>
+	 *
+	 * @return the resource, or {@code null} if the string is not an ARN
+	 */
+	public String resource() {
+		int end = parse();
+
+		return end == INVALID ? null : arn.substring(end);
+	}
+
+	/**
+	 * Returns the resource type, when the resource component is qualified by one.
+	 * <p>
+	 * The resource type is the portion of the resource component preceding the first {@code /} or {@code :}. For
+	 * {@code arn:aws:ec2:us-east-1:123456789012:instance/i-abcd1111}, this is {@code instance}.
+	 * </p>
+	 *
+	 * @return the resource type, or {@code null} if the resource component is unqualified or the string is not an ARN
+	 */
+	public String resourceType() {
+		int end = parse();
+		if (end == INVALID) {
+			return null;
+		}
+
+		int separator = resourceSeparator(end);
+
+		return separator < 0 ? null : arn.substring(end, separator);
+	}
+
+	/**
+	 * Returns the resource ID: the resource component, less any resource type qualifier.
+	 * <p>
+	 * For {@code arn:aws:ec2:us-east-1:123456789012:instance/i-abcd1111}, this is {@code i-abcd1111}. For
+	 * {@code arn:aws:sns:us-east-1:123456789012:my-topic}, this is {@code my-topic}.
+	 * </p>
+	 *
+	 * @return the resource ID, or {@code null} if the string is not an ARN
+	 */
+	public String resourceId() {
+		int end = parse();
+		if (end == INVALID) {
+			return null;
+		}
+
+		int separator = resourceSeparator(end);
+
+		return arn.substring(separator < 0 ? end : separator + 1);
+	}
+
+	/**
+	 * Returns the viewed string, unchanged.
+	 *
+	 * @return the ARN string
+	 */
+	@Override
+	public String toString() {
+		return arn;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof Arn && ((Arn) o).arn.equals(arn);
+	}
+
+	@Override
+	public int hashCode() {
+		return arn.hashCode();
+	}
+
+	private ArnPrefixCache.Prefix prefix() {
+		if (prefix == null && parse() != INVALID) {
+			prefix = ArnPrefixCache.lookup(arn, prefixEnd);
+		}
+
+		return prefix;
+	}
+
+	private int parse() {
+		if (prefixEnd == UNPARSED) {
+			prefixEnd = findPrefixEnd(arn);
+		}
+
+		return prefixEnd;
+	}
+
+	private int resourceSeparator(int start) {
+		for (int i = start; i < arn.length(); i++) {
+			char c = arn.charAt(i);
+
+			if (c == '/' || c == ':') {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	private static int findPrefixEnd(String arn) {
+		if (!arn.startsWith("arn:")) {
+			return INVALID;
+		}
+
+		int colons = 1;
+
+		for (int i = 4; i < arn.length(); i++) {
+			if (arn.charAt(i) == ':' && ++colons == 5) {
+				return i + 1;
+			}
+		}
+
+		return INVALID;
+	}
+}
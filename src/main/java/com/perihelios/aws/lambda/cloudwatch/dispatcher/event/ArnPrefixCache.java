@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.event;
+
+/**
+ * Small, direct-mapped cache of recently seen ARN prefixes ({@code arn:partition:service:region:account:}).
+ * <p>
+ * Entries are immutable and published through a plain array; concurrent lookups may race to fill the same slot, which
+ * at worst costs an extra parse. A colliding prefix simply replaces the previous occupant of its slot.
+ * </p>
+ */
+final class ArnPrefixCache {
+	private static final int SIZE = 64;
+
+	private static final Prefix[] SLOTS = new Prefix[SIZE];
+
+	private ArnPrefixCache() {
+	}
+
+	static Prefix lookup(String arn, int prefixEnd) {
+		int hash = 0;
+		for (int i = 0; i < prefixEnd; i++) {
+			hash = 31 * hash + arn.charAt(i);
+		}
+
+		int slot = (hash ^ (hash >>> 16)) & (SIZE - 1);
+
+		Prefix prefix = SLOTS[slot];
+		if (prefix != null && prefix.matches(arn, prefixEnd)) {
+			return prefix;
+		}
+
+		prefix = new Prefix(arn, prefixEnd);
+		SLOTS[slot] = prefix;
+
+		return prefix;
+	}
+
+	static final class Prefix {
+		private final String text;
+		private final String partition;
+		private final String service;
+		private final String region;
+		private final String account;
+
+		private Prefix(String arn, int prefixEnd) {
+			text = arn.substring(0, prefixEnd);
+
+			int serviceStart = text.indexOf(':', 4) + 1;
+			int regionStart = text.indexOf(':', serviceStart) + 1;
+			int accountStart = text.indexOf(':', regionStart) + 1;
+
+			partition = text.substring(4, serviceStart - 1);
+			service = text.substring(serviceStart, regionStart - 1);
+			region = text.substring(regionStart, accountStart - 1);
+			account = text.substring(accountStart, prefixEnd - 1);
+		}
+
+		String partition() {
+			return partition;
+		}
+
+		String service() {
+			return service;
+		}
+
+		String region() {
+			return region;
+		}
+
+		String account() {
+			return account;
+		}
+
+		private boolean matches(String arn, int prefixEnd) {
+			return text.length() == prefixEnd && arn.regionMatches(0, text, 0, prefixEnd);
+		}
+	}
+}
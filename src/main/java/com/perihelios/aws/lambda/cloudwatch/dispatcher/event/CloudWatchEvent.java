@@ -64,6 +64,12 @@ import java.util.function.BiConsumer;
  * {@link CloudWatchEventDispatcher#withEventHandler(Class, BiConsumer) CloudWatchEventDispatcher.withEventHandler()}
  * in order to be used during event dispatch.
  * </p>
+ * <p>
+ * Fields may be {@code final}. A subclass with a no-argument constructor has its fields set after construction;
+ * otherwise, if all its fields are {@code final}, it may instead declare a constructor taking every field, in
+ * declaration order, which is called with the unmarshalled values. Within the event, nested objects may likewise be
+ * immutable classes of either kind, or records.
+ * </p>
  */
 public class CloudWatchEvent {
 	private Header header;
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.event;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotates a {@link DetailType} class whose {@code detail} varies in shape with the value of one of its properties,
+ * naming that property. Subclasses annotated with {@link DiscriminatorValue} are bound in place of the annotated class
+ * when the property has one of their values.
+ * <p>
+ * For example, CloudTrail API call events share a detail type, but their request and response parameters depend on
+ * the API called, named by {@code eventName}:
+ * </p>
+ * <pre>
+ *     &#64;DetailType("AWS API Call via CloudTrail")
+ *     &#64;DetailDiscriminator("eventName")
+ *     class ApiCallEvent extends CloudWatchEvent {
+ *         private String eventSource;
+ *     }
+ *
+ *     &#64;DiscriminatorValue("RunInstances")
+ *     class RunInstancesEvent extends ApiCallEvent {
+ *         private RunInstancesRequest requestParameters;
+ *     }
+ * </pre>
+ * <p>
+ * Each subclass is registered with its own handler. The annotated class itself need not be registered; if it is, it
+ * is bound for values that match no registered subclass.
+ * </p>
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DetailDiscriminator {
+	/**
+	 * Name of the property of {@code detail} whose value selects the subclass.
+	 *
+	 * @return the discriminator property name
+	 */
+	String value();
+}
@@ -24,7 +24,8 @@ import java.lang.annotation.Target;
  * Annotates subtypes of {@link CloudWatchEvent}, identifying the text in the {@code detail-type} property of the
  * JSON-marshalled event that should indicate the use of the subtype.
  * <p>
- * See the general description of {@link CloudWatchEvent} for an example of using this annotation.
+ * See the general description of {@link CloudWatchEvent} for an example of using this annotation. The annotation is
+ * not inherited: only subclasses annotated with {@link DiscriminatorValue} take the detail type of their superclass.
  * </p>
  */
 @Retention(RetentionPolicy.RUNTIME)
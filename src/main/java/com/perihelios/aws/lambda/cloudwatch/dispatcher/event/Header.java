@@ -16,7 +16,9 @@
 package com.perihelios.aws.lambda.cloudwatch.dispatcher.event;
 
 import java.time.ZonedDateTime;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 import static java.util.Collections.emptyList;
 
@@ -31,6 +33,10 @@ import static java.util.Collections.emptyList;
  * {@code detail} property is unmarshalled as the body of the identified subtype, and so is also not included in the
  * header.
  * </p>
+ * <p>
+ * Headers are read by the dispatcher directly from the event's tokens rather than by reflection, so that they bind
+ * identically, and without reflection metadata, in GraalVM native images.
+ * </p>
  */
 @SuppressWarnings("unused")
 public class Header {
@@ -42,6 +48,37 @@ public class Header {
 	private String region;
 	private List<String> resources = emptyList();
 
+	private transient List<Arn> arns;
+
+	/**
+	 * Creates an empty header.
+	 */
+	public Header() {
+	}
+
+	/**
+	 * Creates a header with the given properties.
+	 *
+	 * @param version the event version
+	 * @param id the event ID
+	 * @param source the event source
+	 * @param account the AWS account ID
+	 * @param time the event timestamp
+	 * @param region the AWS region
+	 * @param resources the ARNs of the resources involved in the event
+	 */
+	public Header(String version, String id, String source, String account, ZonedDateTime time, String region,
+			List<String> resources) {
+
+		this.version = version;
+		this.id = id;
+		this.source = source;
+		this.account = account;
+		this.time = time;
+		this.region = region;
+		this.resources = resources;
+	}
+
 	/**
 	 * Returns the CloudWatch event version.
 	 * <p>
@@ -111,4 +148,49 @@ public class Header {
 	public List<String> resources() {
 		return resources;
 	}
+
+	/**
+	 * Returns views of the AWS resources affected by the event, as {@link Arn ARNs}.
+	 * <p>
+	 * The returned list corresponds element-for-element with {@link #resources()}. Each view is created the first time
+	 * it is retrieved from the list, and parses its ARN only when one of its components is requested; the same view is
+	 * returned on subsequent retrievals, so parsing happens at most once per resource.
+	 * </p>
+	 *
+	 * @return ARN views of the resources affected by the event
+	 */
+	public List<Arn> arns() {
+		if (arns == null) {
+			arns = resources.isEmpty() ? emptyList() : new ArnList(resources);
+		}
+
+		return arns;
+	}
+
+	private static class ArnList extends AbstractList<Arn> implements RandomAccess {
+		private final List<String> resources;
+		private final Arn[] views;
+
+		ArnList(List<String> resources) {
+			this.resources = resources;
+			this.views = new Arn[resources.size()];
+		}
+
+		@Override
+		public Arn get(int index) {
+			Arn view = views[index];
+
+			if (view == null) {
+				view = Arn.of(resources.get(index));
+				views[index] = view;
+			}
+
+			return view;
+		}
+
+		@Override
+		public int size() {
+			return views.length;
+		}
+	}
 }
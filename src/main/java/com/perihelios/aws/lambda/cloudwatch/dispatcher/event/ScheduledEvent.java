@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.event;
+
+import com.google.gson.annotations.JsonAdapter;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Event delivered by a scheduled (cron or rate) CloudWatch Events / EventBridge rule.
+ * <p>
+ * The {@code detail} of a scheduled event is always empty; everything a scheduled function needs is in the header.
+ * The scheduled time is the event's {@link Header#time() time}, and the rule that fired is its one
+ * {@link Header#resources() resource}:
+ * </p>
+ * <pre>
+ *     new CloudWatchEventDispatcher(message, context)
+ *         .withEventHandler(ScheduledEvent.class, (event, ctx) -&gt;
+ *             runJob(event.ruleName(), event.scheduledTime()))
+ *         .dispatch();
+ * </pre>
+ * <p>
+ * Since there is nothing to bind, the detail is skipped without being examined, rather than bound reflectively, and
+ * the event is decoded from its header alone, read straight from the message without building a tree.
+ * </p>
+ */
+@DetailType("Scheduled Event")
+@JsonAdapter(ScheduledEventAdapter.class)
+public class ScheduledEvent extends CloudWatchEvent {
+	/**
+	 * Returns the time for which the event was scheduled.
+	 *
+	 * @return the event time, from the header
+	 */
+	public ZonedDateTime scheduledTime() {
+		return header().time();
+	}
+
+	/**
+	 * Returns the ARN of the rule that produced the event.
+	 *
+	 * @return view of the rule ARN, or {@code null} if the event names no resources
+	 */
+	public Arn ruleArn() {
+		List<Arn> arns = header().arns();
+
+		return arns.isEmpty() ? null : arns.get(0);
+	}
+
+	/**
+	 * Returns the name of the rule that produced the event.
+	 * <p>
+	 * For a rule ARN of {@code arn:aws:events:us-east-1:123456789012:rule/my-schedule}, this is
+	 * {@code my-schedule}.
+	 * </p>
+	 *
+	 * @return the rule name, or {@code null} if the event names no resources, or its first resource is not an ARN
+	 */
+	public String ruleName() {
+		Arn arn = ruleArn();
+
+		return arn == null ? null : arn.resourceId();
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.event;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import static com.google.gson.stream.JsonToken.NULL;
+
+/**
+ * Binds the (always empty) detail of a {@link ScheduledEvent} by skipping it.
+ */
+class ScheduledEventAdapter extends TypeAdapter<ScheduledEvent> {
+	@Override
+	public void write(JsonWriter out, ScheduledEvent value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+		} else {
+			out.beginObject().endObject();
+		}
+	}
+
+	@Override
+	public ScheduledEvent read(JsonReader in) throws IOException {
+		if (in.peek() == NULL) {
+			in.nextNull();
+
+			return null;
+		}
+
+		in.skipValue();
+
+		return new ScheduledEvent();
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.event;
+
+import com.google.gson.JsonElement;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+
+import java.util.function.BiConsumer;
+
+/**
+ * An event whose {@code detail-type} has no registered event type.
+ * <p>
+ * Events of this type are passed to the handler registered with
+ * {@link CloudWatchEventDispatcher#withUnknownEventHandler(BiConsumer)
+ * CloudWatchEventDispatcher.withUnknownEventHandler()}. The header is unmarshalled as for any other event; since
+ * there is no class to which to unmarshal the {@code detail} property, it is left as a JSON tree.
+ * </p>
+ */
+public class UnknownEvent extends CloudWatchEvent {
+	private final String detailType;
+	private final JsonElement detail;
+
+	/**
+	 * Creates an unknown event.
+	 *
+	 * @param detailType value of the {@code detail-type} property
+	 * @param detail     value of the {@code detail} property
+	 */
+	public UnknownEvent(String detailType, JsonElement detail) {
+		this.detailType = detailType;
+		this.detail = detail;
+	}
+
+	/**
+	 * Returns the value of the {@code detail-type} property of the event.
+	 *
+	 * @return the event detail type
+	 */
+	public String detailType() {
+		return detailType;
+	}
+
+	/**
+	 * Returns the value of the {@code detail} property of the event.
+	 *
+	 * @return the event detail, as a JSON tree
+	 */
+	public JsonElement detail() {
+		return detail;
+	}
+}
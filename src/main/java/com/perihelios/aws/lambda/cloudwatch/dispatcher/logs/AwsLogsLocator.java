@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.logs;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Finds the {@code awslogs.data} property of a subscription message by scanning the raw bytes of the message, and
+ * opens a stream of the decoded (but still compressed) data, without first reading the property's value into memory.
+ * <p>
+ * Other properties, at either level, are skipped.
+ * </p>
+ */
+class AwsLogsLocator {
+	private final InputStream in;
+	private int peeked = -2;
+
+	AwsLogsLocator(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Positions the underlying stream at the start of the data, returning a stream of the base64-decoded data.
+	 *
+	 * @return stream of the decoded data, or {@code null} if the message has no {@code awslogs.data} property
+	 * @throws MalformedPayloadException if the message is not a JSON object, or is malformed before the data is
+	 *                                   reached
+	 */
+	InputStream openData() throws IOException {
+		if (!findMember("awslogs") || peek() != '{' || !findMember("data")) {
+			return null;
+		}
+
+		if (next() != '"') {
+			throw new MalformedPayloadException("CloudWatch Logs data is not a string");
+		}
+
+		return new Base64StringInputStream(in);
+	}
+
+	/**
+	 * Reads an object's members up to the value of the one named, skipping others.
+	 *
+	 * @return {@code true} if the stream is positioned at the named member's value; {@code false} if the object ended
+	 * without one
+	 */
+	private boolean findMember(String name) throws IOException {
+		expect('{');
+
+		if (peek() == '}') {
+			return false;
+		}
+
+		while (true) {
+			expect('"');
+			boolean found = readStringMatches(name);
+			expect(':');
+
+			if (found) {
+				return true;
+			}
+
+			skipValue();
+
+			int c = next();
+			if (c == '}') {
+				return false;
+			} else if (c != ',') {
+				throw malformed();
+			}
+		}
+	}
+
+	private boolean readStringMatches(String expected) throws IOException {
+		int index = 0;
+		boolean matches = true;
+
+		for (int c = in.read(); c != '"'; c = in.read()) {
+			if (c < 0) {
+				throw malformed();
+			}
+
+			if (c == '\\') {
+				// Escaped member names never match; only skip the escaped character
+				in.read();
+				matches = false;
+			} else {
+				matches &= index < expected.length() && expected.charAt(index) == c;
+			}
+
+			index++;
+		}
+
+		return matches && index == expected.length();
+	}
+
+	private void skipValue() throws IOException {
+		int depth = 0;
+
+		do {
+			int c = next();
+
+			switch (c) {
+				case '{':
+				case '[':
+					depth++;
+					break;
+				case '}':
+				case ']':
+					depth--;
+					break;
+				case '"':
+					readStringMatches("");
+					break;
+				case ':':
+				case ',':
+					break;
+				case -1:
+					throw malformed();
+				default:
+					skipLiteral();
+			}
+		} while (depth > 0);
+
+		if (depth < 0) {
+			throw malformed();
+		}
+	}
+
+	private void skipLiteral() throws IOException {
+		while (true) {
+			int c = in.read();
+
+			if (c < 0 || c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+				peeked = c;
+				return;
+			}
+		}
+	}
+
+	private void expect(int expected) throws IOException {
+		if (next() != expected) {
+			throw malformed();
+		}
+	}
+
+	private int peek() throws IOException {
+		int c = next();
+		peeked = c;
+
+		return c;
+	}
+
+	/**
+	 * Returns the next byte that is not whitespace.
+	 */
+	private int next() throws IOException {
+		int c = peeked == -2 ? in.read() : peeked;
+		peeked = -2;
+
+		while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+			c = in.read();
+		}
+
+		return c;
+	}
+
+	private static MalformedPayloadException malformed() {
+		return new MalformedPayloadException("Malformed CloudWatch Logs subscription message");
+	}
+}
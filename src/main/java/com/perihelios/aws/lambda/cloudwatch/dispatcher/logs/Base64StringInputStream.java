@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.logs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Decodes base64 directly from the characters of a JSON string value, as they are read from the underlying stream.
+ * <p>
+ * The stream must be positioned just after the opening quote of the string; decoding ends at the closing quote,
+ * which is consumed. Only the escapes a JSON encoder might apply to base64 text ({@code \/} and {@code \}{@code u}
+ * escapes) are accepted.
+ * </p>
+ */
+class Base64StringInputStream extends InputStream {
+	private static final int[] VALUES = new int[128];
+
+	static {
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+		Arrays.fill(VALUES, -1);
+		for (int i = 0; i < alphabet.length(); i++) {
+			VALUES[alphabet.charAt(i)] = i;
+		}
+	}
+
+	private static final int END = -1;
+	private static final int PAD = -2;
+
+	private final InputStream source;
+	private final byte[] decoded = new byte[3];
+	private int position;
+	private int limit;
+	private boolean ended;
+
+	Base64StringInputStream(InputStream source) {
+		this.source = source;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+
+		return decoded[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+
+		int count = 0;
+
+		while (count < length) {
+			if (position == limit && !fill()) {
+				break;
+			}
+
+			int available = Math.min(limit - position, length - count);
+			System.arraycopy(decoded, position, bytes, offset + count, available);
+			position += available;
+			count += available;
+		}
+
+		return count == 0 ? -1 : count;
+	}
+
+	private boolean fill() throws IOException {
+		if (ended) {
+			return false;
+		}
+
+		int first = nextValue();
+		if (first == END) {
+			ended = true;
+			return false;
+		}
+
+		int second = nextValue();
+		int third = nextValue();
+		int fourth = nextValue();
+
+		if (first == PAD || second < 0 || third == END || fourth == END || (third == PAD && fourth != PAD)) {
+			throw new MalformedPayloadException("Invalid base64 in CloudWatch Logs data");
+		}
+
+		decoded[0] = (byte) (first << 2 | second >> 4);
+		limit = 1;
+
+		if (third != PAD) {
+			decoded[1] = (byte) (second << 4 | third >> 2);
+			limit = 2;
+
+			if (fourth != PAD) {
+				decoded[2] = (byte) (third << 6 | fourth);
+				limit = 3;
+			}
+		}
+
+		if (fourth == PAD) {
+			if (nextValue() != END) {
+				throw new MalformedPayloadException("Invalid base64 in CloudWatch Logs data; content after padding");
+			}
+
+			ended = true;
+		}
+
+		position = 0;
+
+		return true;
+	}
+
+	private int nextValue() throws IOException {
+		int c = source.read();
+
+		if (c == '\\') {
+			c = unescape();
+		} else if (c == '"') {
+			return END;
+		}
+
+		if (c == '=') {
+			return PAD;
+		}
+
+		if (c < 0) {
+			throw new MalformedPayloadException("Unterminated CloudWatch Logs data");
+		}
+
+		int value = c < VALUES.length ? VALUES[c] : -1;
+
+		if (value < 0) {
+			throw new MalformedPayloadException("Invalid base64 in CloudWatch Logs data");
+		}
+
+		return value;
+	}
+
+	private int unescape() throws IOException {
+		int c = source.read();
+
+		if (c == '/') {
+			return c;
+		}
+
+		if (c != 'u') {
+			throw new MalformedPayloadException("Invalid escape in CloudWatch Logs data");
+		}
+
+		int value = 0;
+		for (int i = 0; i < 4; i++) {
+			int digit = Character.digit(source.read(), 16);
+
+			if (digit < 0) {
+				throw new MalformedPayloadException("Invalid escape in CloudWatch Logs data");
+			}
+
+			value = value << 4 | digit;
+		}
+
+		return value;
+	}
+}
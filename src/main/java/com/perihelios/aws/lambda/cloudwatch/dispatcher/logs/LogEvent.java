@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.logs;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+import static java.time.ZoneOffset.UTC;
+
+/**
+ * A single log event from a CloudWatch Logs subscription message.
+ */
+public class LogEvent {
+	private final LogSubscription subscription;
+	private final String id;
+	private final long timestamp;
+	private final String message;
+
+	LogEvent(LogSubscription subscription, String id, long timestamp, String message) {
+		this.subscription = subscription;
+		this.id = id;
+		this.timestamp = timestamp;
+		this.message = message;
+	}
+
+	/**
+	 * Returns the metadata of the message containing the event, including its log group and stream.
+	 *
+	 * @return the subscription metadata
+	 */
+	public LogSubscription subscription() {
+		return subscription;
+	}
+
+	/**
+	 * Returns the ID of the log event.
+	 *
+	 * @return the event ID
+	 */
+	public String id() {
+		return id;
+	}
+
+	/**
+	 * Returns the time of the log event, in milliseconds since the epoch.
+	 *
+	 * @return the event timestamp
+	 */
+	public long timestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Returns the time of the log event.
+	 *
+	 * @return the event time, in UTC
+	 */
+	public ZonedDateTime time() {
+		return Instant.ofEpochMilli(timestamp).atZone(UTC);
+	}
+
+	/**
+	 * Returns the logged message.
+	 *
+	 * @return the message text
+	 */
+	public String message() {
+		return message;
+	}
+}
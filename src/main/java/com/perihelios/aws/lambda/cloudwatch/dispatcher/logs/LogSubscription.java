@@ -0,0 +1,111 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.logs;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Metadata of a CloudWatch Logs subscription message: the log group and stream from which its log events came, and
+ * the subscription filters they matched.
+ */
+public class LogSubscription {
+	static final String CONTROL_MESSAGE = "CONTROL_MESSAGE";
+
+	private String messageType;
+	private String owner;
+	private String logGroup;
+	private String logStream;
+	private List<String> subscriptionFilters = emptyList();
+
+	LogSubscription() {
+	}
+
+	/**
+	 * Returns the type of the message: {@code DATA_MESSAGE} for log events, or {@code CONTROL_MESSAGE} for the
+	 * messages CloudWatch Logs sends to check that the destination is reachable.
+	 *
+	 * @return the message type
+	 */
+	public String messageType() {
+		return messageType;
+	}
+
+	/**
+	 * Returns the ID of the AWS account that owns the log group.
+	 *
+	 * @return the account ID
+	 */
+	public String owner() {
+		return owner;
+	}
+
+	/**
+	 * Returns the name of the log group.
+	 *
+	 * @return the log group name
+	 */
+	public String logGroup() {
+		return logGroup;
+	}
+
+	/**
+	 * Returns the name of the log stream.
+	 *
+	 * @return the log stream name
+	 */
+	public String logStream() {
+		return logStream;
+	}
+
+	/**
+	 * Returns the names of the subscription filters the log events matched.
+	 *
+	 * @return unmodifiable list of filter names
+	 */
+	public List<String> subscriptionFilters() {
+		return subscriptionFilters;
+	}
+
+	boolean isControlMessage() {
+		return CONTROL_MESSAGE.equals(messageType);
+	}
+
+	boolean isComplete() {
+		return messageType != null && logGroup != null && logStream != null;
+	}
+
+	void setMessageType(String messageType) {
+		this.messageType = messageType;
+	}
+
+	void setOwner(String owner) {
+		this.owner = owner;
+	}
+
+	void setLogGroup(String logGroup) {
+		this.logGroup = logGroup;
+	}
+
+	void setLogStream(String logStream) {
+		this.logStream = logStream;
+	}
+
+	void setSubscriptionFilters(List<String> subscriptionFilters) {
+		this.subscriptionFilters = subscriptionFilters;
+	}
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.logs;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+import static com.google.gson.stream.JsonToken.NULL;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Dispatches the log events of a CloudWatch Logs subscription message to handlers, as the counterpart of
+ * {@link CloudWatchEventDispatcher} for functions subscribed to log groups.
+ * <p>
+ * Subscription messages carry their log events base64-encoded and gzip-compressed:
+ * {@code {"awslogs": {"data": "H4sIAAAA..."}}}. Decompressed, a single message can run to megabytes. This dispatcher
+ * never holds the decoded data in memory: it decodes the base64 as it is read from the message stream, inflates it
+ * as it is decoded, and parses the log events from the inflated stream one at a time, handing each to handlers as
+ * soon as it is parsed. Only the log events of a chunk, for a chunk handler, are held at once.
+ * </p>
+ * <pre>
+ *     public void handle(InputStream message, Context context) {
+ *         new LogsSubscriptionDispatcher(message, context)
+ *             .withLogEventHandler((event, ctx) -&gt;
+ *                 index(event.subscription().logGroup(), event.timestamp(), event.message()))
+ *             .dispatch();
+ *     }
+ * </pre>
+ * <p>
+ * Control messages, sent by CloudWatch Logs to check that a subscription's destination is reachable, are not
+ * dispatched.
+ * </p>
+ */
+public class LogsSubscriptionDispatcher {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final InputStream message;
+	private final Context context;
+
+	private BiConsumer<? super LogEvent, Context> eventHandler;
+	private BiConsumer<? super List<LogEvent>, Context> chunkHandler;
+	private int chunkSize;
+	private List<LogEvent> chunk;
+
+	/**
+	 * Creates a dispatcher for a CloudWatch Logs subscription message, ready for further configuration.
+	 *
+	 * @param message raw message stream, presumed to contain a subscription message; read only when
+	 *                {@link #dispatch()} is called
+	 * @param context AWS Lambda context, to be passed to handlers as they are invoked
+	 */
+	public LogsSubscriptionDispatcher(InputStream message, Context context) {
+		this.message = message;
+		this.context = context;
+	}
+
+	/**
+	 * Registers a handler to be invoked once for each log event, as it is parsed.
+	 *
+	 * @param handler consumer of log events
+	 * @return a reference to this object
+	 */
+	public LogsSubscriptionDispatcher withLogEventHandler(BiConsumer<? super LogEvent, Context> handler) {
+		this.eventHandler = handler;
+
+		return this;
+	}
+
+	/**
+	 * Registers a handler to be invoked with log events in chunks of a given size, for handlers that work more
+	 * efficiently in batches (such as those forwarding events to another service).
+	 * <p>
+	 * Each chunk but the last has exactly {@code chunkSize} events; the last has the remainder. Chunks are invoked in
+	 * order. If a handler was also registered with {@link #withLogEventHandler(BiConsumer) withLogEventHandler()},
+	 * it is invoked for each event first, as the event is parsed.
+	 * </p>
+	 *
+	 * @param chunkSize maximum number of log events passed in one invocation of the handler
+	 * @param handler   consumer of chunks of log events
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code chunkSize} is not positive
+	 */
+	public LogsSubscriptionDispatcher withLogEventChunkHandler(
+			int chunkSize, BiConsumer<? super List<LogEvent>, Context> handler) {
+
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive; got " + chunkSize);
+		}
+
+		this.chunkSize = chunkSize;
+		this.chunkHandler = handler;
+
+		return this;
+	}
+
+	/**
+	 * Dispatches the log events of the message to registered handlers, as a terminal operation.
+	 * <p>
+	 * Log events are dispatched while the message is being read. If the message turns out to be malformed partway
+	 * through, the events before that point will already have been dispatched. Exceptions thrown by handlers
+	 * propagate to the caller, and stop the dispatch.
+	 * </p>
+	 *
+	 * @throws IllegalArgumentException if the message is not a CloudWatch Logs subscription message, or its data is
+	 *                                  not well-formed
+	 * @throws UncheckedIOException     if the message cannot be read
+	 */
+	public void dispatch() {
+		chunk = chunkHandler == null ? null : new ArrayList<>(chunkSize);
+
+		try (InputStream in = new BufferedInputStream(message, BUFFER_SIZE)) {
+			InputStream data = new AwsLogsLocator(in).openData();
+
+			if (data == null) {
+				throw new IllegalArgumentException(
+						"Message is not a CloudWatch Logs subscription message; missing awslogs.data property"
+				);
+			}
+
+			JsonReader reader = new JsonReader(
+					new InputStreamReader(new GZIPInputStream(data, BUFFER_SIZE), UTF_8)
+			);
+
+			readLogData(reader);
+			flushChunk();
+		} catch (HandlerFailure e) {
+			throw e.getCause();
+		} catch (MalformedPayloadException | ZipException | MalformedJsonException | EOFException |
+				IllegalStateException | NumberFormatException | JsonParseException e) {
+			throw new IllegalArgumentException("Malformed CloudWatch Logs subscription message", e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readLogData(JsonReader reader) throws IOException {
+		LogSubscription subscription = new LogSubscription();
+		List<LogEvent> early = null;
+
+		reader.beginObject();
+
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "messageType":
+					subscription.setMessageType(nextString(reader));
+					break;
+				case "owner":
+					subscription.setOwner(nextString(reader));
+					break;
+				case "logGroup":
+					subscription.setLogGroup(nextString(reader));
+					break;
+				case "logStream":
+					subscription.setLogStream(nextString(reader));
+					break;
+				case "subscriptionFilters":
+					subscription.setSubscriptionFilters(readStrings(reader));
+					break;
+				case "logEvents":
+					if (subscription.isControlMessage() || reader.peek() == NULL) {
+						reader.skipValue();
+					} else if (subscription.isComplete()) {
+						readLogEvents(reader, subscription, null);
+					} else {
+						// Metadata normally precedes the events; if not, the events must wait for it
+						early = new ArrayList<>();
+						readLogEvents(reader, subscription, early);
+					}
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+
+		reader.endObject();
+
+		if (early != null && !subscription.isControlMessage()) {
+			for (LogEvent event : early) {
+				deliver(event);
+			}
+		}
+	}
+
+	private void readLogEvents(JsonReader reader, LogSubscription subscription, List<LogEvent> early)
+			throws IOException {
+
+		reader.beginArray();
+
+		while (reader.hasNext()) {
+			LogEvent event = readLogEvent(reader, subscription);
+
+			if (early == null) {
+				deliver(event);
+			} else {
+				early.add(event);
+			}
+		}
+
+		reader.endArray();
+	}
+
+	private static LogEvent readLogEvent(JsonReader reader, LogSubscription subscription) throws IOException {
+		String id = null;
+		long timestamp = 0;
+		String message = null;
+
+		reader.beginObject();
+
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "id":
+					id = nextString(reader);
+					break;
+				case "timestamp":
+					timestamp = reader.nextLong();
+					break;
+				case "message":
+					message = nextString(reader);
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+
+		reader.endObject();
+
+		return new LogEvent(subscription, id, timestamp, message);
+	}
+
+	private void deliver(LogEvent event) {
+		try {
+			if (eventHandler != null) {
+				eventHandler.accept(event, context);
+			}
+
+			if (chunk != null) {
+				chunk.add(event);
+
+				if (chunk.size() == chunkSize) {
+					flushChunk();
+				}
+			}
+		} catch (HandlerFailure e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw new HandlerFailure(e);
+		}
+	}
+
+	private void flushChunk() {
+		if (chunk == null || chunk.isEmpty()) {
+			return;
+		}
+
+		List<LogEvent> full = unmodifiableList(chunk);
+		chunk = new ArrayList<>(chunkSize);
+
+		try {
+			chunkHandler.accept(full, context);
+		} catch (RuntimeException e) {
+			throw new HandlerFailure(e);
+		}
+	}
+
+	private static String nextString(JsonReader reader) throws IOException {
+		if (reader.peek() == NULL) {
+			reader.nextNull();
+
+			return null;
+		}
+
+		return reader.nextString();
+	}
+
+	private static List<String> readStrings(JsonReader reader) throws IOException {
+		List<String> strings = new ArrayList<>();
+
+		reader.beginArray();
+		while (reader.hasNext()) {
+			strings.add(nextString(reader));
+		}
+		reader.endArray();
+
+		return unmodifiableList(strings);
+	}
+
+	/**
+	 * Carries an exception thrown by a handler past the handling of exceptions thrown while parsing.
+	 */
+	private static final class HandlerFailure extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		HandlerFailure(RuntimeException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized RuntimeException getCause() {
+			return (RuntimeException) super.getCause();
+		}
+	}
+}
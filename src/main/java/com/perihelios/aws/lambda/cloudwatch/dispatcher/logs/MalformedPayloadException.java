@@ -0,0 +1,29 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.logs;
+
+import java.io.IOException;
+
+/**
+ * Signals that a subscription message, or the compressed data within it, is not well-formed.
+ */
+class MalformedPayloadException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	MalformedPayloadException(String message) {
+		super(message);
+	}
+}
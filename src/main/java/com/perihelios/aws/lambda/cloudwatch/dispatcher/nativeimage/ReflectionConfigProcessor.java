@@ -0,0 +1,295 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.nativeimage;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Annotation processor generating GraalVM native-image reflection metadata for event types annotated with
+ * {@link com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType DetailType} or
+ * {@link com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DiscriminatorValue DiscriminatorValue}.
+ * <p>
+ * Event types are unmarshalled by GSON, which discovers their fields, and instantiates them, reflectively. A native
+ * image includes reflection metadata only for classes it is told about; this processor tells it about every class
+ * annotated with either, and every class reachable from such a class through its superclasses and the
+ * declared types of its fields (including type arguments and array components). Type adapters named by
+ * {@link com.google.gson.annotations.JsonAdapter JsonAdapter} on those classes or fields are registered for
+ * instantiation. Records are registered with their methods, which describe their components. Classes in the
+ * {@code java}, {@code javax} and GSON packages are not registered. The library's own
+ * classes are covered by metadata shipped in its JAR.
+ * </p>
+ * <p>
+ * The metadata is written to {@value #DEFAULT_DIRECTORY}/reflect-config.json in the class output, where
+ * {@code native-image} finds it automatically. Projects whose classes are combined into one JAR with those of other
+ * projects using this processor should give each project its own directory with the {@value #DIRECTORY_OPTION}
+ * processor option (e.g., {@code -A}{@value #DIRECTORY_OPTION}{@code =META-INF/native-image/my-group/my-project}).
+ * </p>
+ * <p>
+ * The processor is not registered as a service in the library JAR, so that it does not run for every project compiling
+ * against the library. It is registered in the JAR published with the {@code processor} classifier, which is listed
+ * as an annotation processor to enable it; with Gradle:
+ * </p>
+ * <pre>
+ *     annotationProcessor("com.perihelios.aws:cloudwatch-lambda-event-dispatcher:1.0.0:processor")
+ * </pre>
+ * <p>
+ * Alternatively, the processor may be named explicitly to the compiler with
+ * {@code -processor com.perihelios.aws.lambda.cloudwatch.dispatcher.nativeimage.ReflectionConfigProcessor}.
+ * </p>
+ */
+@SupportedAnnotationTypes({ReflectionConfigProcessor.DETAIL_TYPE, ReflectionConfigProcessor.DISCRIMINATOR_VALUE})
+@SupportedOptions(ReflectionConfigProcessor.DIRECTORY_OPTION)
+public class ReflectionConfigProcessor extends AbstractProcessor {
+	/**
+	 * Name of the processor option that sets the directory, relative to the class output, to which metadata is
+	 * written.
+	 */
+	public static final String DIRECTORY_OPTION = "cloudwatch.dispatcher.nativeImageDirectory";
+
+	/**
+	 * Directory, relative to the class output, to which metadata is written if {@value #DIRECTORY_OPTION} is not
+	 * given.
+	 */
+	public static final String DEFAULT_DIRECTORY = "META-INF/native-image/cloudwatch-lambda-event-dispatcher/events";
+
+	static final String DETAIL_TYPE = "com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType";
+	static final String DISCRIMINATOR_VALUE =
+			"com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DiscriminatorValue";
+
+	private static final String CLOUDWATCH_EVENT = CloudWatchEvent.class.getName();
+	private static final String JSON_ADAPTER = "com.google.gson.annotations.JsonAdapter";
+
+	private final Map<String, Registration> registrations = new TreeMap<>();
+	private final List<Element> originatingElements = new ArrayList<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (TypeElement annotation : annotations) {
+			for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+				originatingElements.add(type);
+				registerClass(type);
+			}
+		}
+
+		if (roundEnv.processingOver() && !registrations.isEmpty()) {
+			writeConfig();
+		}
+
+		// The annotations are the library's own, so no other processor needs to see them
+		return true;
+	}
+
+	private void registerClass(TypeElement type) {
+		String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+
+		if (isExcluded(name) || registrations.containsKey(name)) {
+			return;
+		}
+
+		Registration registration = new Registration(name);
+		registrations.put(name, registration);
+
+		registration.fields = true;
+		registration.publicFields = type.getKind() == ElementKind.ENUM;
+		registration.methods = isRecord(type.getKind());
+		registration.constructors = type.getKind() == ElementKind.CLASS || registration.methods;
+		registration.unsafeAllocated = type.getKind() == ElementKind.CLASS &&
+				!type.getModifiers().contains(Modifier.ABSTRACT) && !hasNoArgConstructor(type);
+
+		registerAdapter(type);
+
+		if (type.getSuperclass() instanceof DeclaredType) {
+			registerType(type.getSuperclass());
+		}
+
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			Set<Modifier> modifiers = field.getModifiers();
+
+			if (field.getKind() == ElementKind.FIELD && !modifiers.contains(Modifier.STATIC) &&
+					!modifiers.contains(Modifier.TRANSIENT)) {
+
+				registerAdapter(field);
+				registerType(field.asType());
+			}
+		}
+	}
+
+	private void registerType(TypeMirror type) {
+		if (type instanceof DeclaredType) {
+			DeclaredType declared = (DeclaredType) type;
+			ElementKind kind = declared.asElement().getKind();
+
+			if (kind == ElementKind.CLASS || kind == ElementKind.ENUM || isRecord(kind)) {
+				registerClass((TypeElement) declared.asElement());
+			}
+
+			for (TypeMirror argument : declared.getTypeArguments()) {
+				registerType(argument);
+			}
+		} else if (type instanceof ArrayType) {
+			registerType(((ArrayType) type).getComponentType());
+		} else if (type instanceof WildcardType) {
+			WildcardType wildcard = (WildcardType) type;
+
+			if (wildcard.getExtendsBound() != null) {
+				registerType(wildcard.getExtendsBound());
+			}
+		} else if (type instanceof TypeVariable) {
+			registerType(((TypeVariable) type).getUpperBound());
+		}
+	}
+
+	private void registerAdapter(Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			Element annotationType = annotation.getAnnotationType().asElement();
+
+			if (!((TypeElement) annotationType).getQualifiedName().contentEquals(JSON_ADAPTER)) {
+				continue;
+			}
+
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+					annotation.getElementValues().entrySet()) {
+
+				if (entry.getKey().getSimpleName().contentEquals("value")) {
+					TypeMirror adapterType = (TypeMirror) entry.getValue().getValue();
+					TypeElement adapter = (TypeElement) ((DeclaredType) adapterType).asElement();
+					String name = processingEnv.getElementUtils().getBinaryName(adapter).toString();
+
+					if (!isExcluded(name)) {
+						registrations.computeIfAbsent(name, Registration::new).constructors = true;
+					}
+				}
+			}
+		}
+	}
+
+	private void writeConfig() {
+		String directory = processingEnv.getOptions().getOrDefault(DIRECTORY_OPTION, DEFAULT_DIRECTORY);
+
+		StringBuilder json = new StringBuilder("[\n");
+		String separator = "";
+
+		for (Registration registration : registrations.values()) {
+			json.append(separator);
+			registration.appendTo(json);
+			separator = ",\n";
+		}
+
+		json.append("\n]\n");
+
+		try {
+			FileObject file = processingEnv.getFiler().createResource(
+					StandardLocation.CLASS_OUTPUT, "", directory + "/reflect-config.json",
+					originatingElements.toArray(new Element[0])
+			);
+
+			try (Writer writer = file.openWriter()) {
+				writer.write(json.toString());
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(
+					Diagnostic.Kind.ERROR, "Cannot write native-image reflection metadata: " + e
+			);
+		}
+	}
+
+	private static boolean isRecord(ElementKind kind) {
+		// Compared by name, as the RECORD constant does not exist in the Java 8 API
+		return kind.name().equals("RECORD");
+	}
+
+	private static boolean hasNoArgConstructor(TypeElement type) {
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean isExcluded(String name) {
+		return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("com.google.gson.") ||
+				name.equals(CLOUDWATCH_EVENT);
+	}
+
+	private static class Registration {
+		private final String name;
+
+		private boolean fields;
+		private boolean publicFields;
+		private boolean methods;
+		private boolean constructors;
+		private boolean unsafeAllocated;
+
+		Registration(String name) {
+			this.name = name;
+		}
+
+		void appendTo(StringBuilder json) {
+			json.append("  {\n    \"name\": \"").append(name).append('"');
+
+			appendFlag(json, "allDeclaredFields", fields);
+			appendFlag(json, "allPublicFields", publicFields);
+			appendFlag(json, "allDeclaredMethods", methods);
+			appendFlag(json, "allDeclaredConstructors", constructors);
+			appendFlag(json, "unsafeAllocated", unsafeAllocated);
+
+			json.append("\n  }");
+		}
+
+		private static void appendFlag(StringBuilder json, String flag, boolean value) {
+			if (value) {
+				json.append(",\n    \"").append(flag).append("\": true");
+			}
+		}
+	}
+}
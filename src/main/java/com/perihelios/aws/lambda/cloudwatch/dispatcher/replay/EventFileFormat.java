@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Layouts of files containing archived events, one event per record.
+ */
+public enum EventFileFormat {
+	/**
+	 * Newline-delimited JSON: each event is a single line of JSON, terminated by {@code \n} (optionally preceded by
+	 * {@code \r}). Blank lines are ignored. The final line need not be terminated.
+	 */
+	NDJSON {
+		@Override
+		int split(ByteBuffer window, boolean last, Consumer<? super ByteBuffer> action) {
+			int limit = window.limit();
+			int start = 0;
+
+			for (int i = 0; i < limit; i++) {
+				if (window.get(i) == '\n') {
+					emitLine(window, start, i, action);
+					start = i + 1;
+				}
+			}
+
+			if (last && start < limit) {
+				emitLine(window, start, limit, action);
+				start = limit;
+			}
+
+			return start;
+		}
+
+		private void emitLine(ByteBuffer window, int start, int end, Consumer<? super ByteBuffer> action) {
+			if (end > start && window.get(end - 1) == '\r') {
+				end--;
+			}
+
+			if (end > start) {
+				action.accept(slice(window, start, end));
+			}
+		}
+	},
+
+	/**
+	 * Length-prefixed records: each event is preceded by its length in bytes, as a four-byte, big-endian integer.
+	 */
+	LENGTH_PREFIXED {
+		@Override
+		int split(ByteBuffer window, boolean last, Consumer<? super ByteBuffer> action) throws IOException {
+			int limit = window.limit();
+			int start = 0;
+
+			while (limit - start >= 4) {
+				int length = window.getInt(start);
+
+				if (length < 0) {
+					throw new IOException("Negative record length " + length + " at window offset " + start);
+				}
+
+				if (limit - start - 4 < length) {
+					break;
+				}
+
+				action.accept(slice(window, start + 4, start + 4 + length));
+				start += 4 + length;
+			}
+
+			if (last && start < limit) {
+				throw new IOException("Truncated record at end of file");
+			}
+
+			return start;
+		}
+	},
+	;
+
+	/**
+	 * Passes each complete record in a window of a file to {@code action}.
+	 *
+	 * @param window region of the file, positioned at a record boundary
+	 * @param last   whether the window extends to the end of the file
+	 * @param action consumer of records
+	 * @return number of bytes of {@code window} consumed, always ending at a record boundary
+	 * @throws IOException if the window contents are not valid for this format
+	 */
+	abstract int split(ByteBuffer window, boolean last, Consumer<? super ByteBuffer> action) throws IOException;
+
+	static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+		ByteBuffer view = buffer.duplicate();
+		view.limit(end);
+		view.position(start);
+
+		return view.slice();
+	}
+}
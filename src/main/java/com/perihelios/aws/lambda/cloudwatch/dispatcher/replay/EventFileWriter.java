@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes events to a file in one of the layouts read by {@link MappedEventFile}.
+ */
+public class EventFileWriter implements Closeable {
+	private final DataOutputStream out;
+	private final EventFileFormat format;
+
+	/**
+	 * Creates (or truncates) a file of events.
+	 *
+	 * @param path   location of the file
+	 * @param format layout of the file
+	 * @throws IOException if the file cannot be created
+	 */
+	public EventFileWriter(Path path, EventFileFormat format) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 65_536));
+		this.format = format;
+	}
+
+	/**
+	 * Appends one event to the file.
+	 *
+	 * @param event event JSON; for {@link EventFileFormat#NDJSON NDJSON}, must not contain line breaks
+	 * @throws IOException if the event cannot be written
+	 */
+	public void write(String event) throws IOException {
+		write(event.getBytes(UTF_8));
+	}
+
+	/**
+	 * Appends one event, already encoded as UTF-8, to the file.
+	 *
+	 * @param event event JSON; for {@link EventFileFormat#NDJSON NDJSON}, must not contain line breaks
+	 * @throws IOException if the event cannot be written
+	 */
+	public void write(byte[] event) throws IOException {
+		if (format == EventFileFormat.LENGTH_PREFIXED) {
+			out.writeInt(event.length);
+			out.write(event);
+		} else {
+			out.write(event);
+			out.write('\n');
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
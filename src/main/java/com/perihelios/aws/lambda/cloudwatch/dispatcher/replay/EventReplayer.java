@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Replays archived events from a file through the same dispatcher configuration used by a Lambda function.
+ * <p>
+ * The replayer is given a factory that configures a {@link CloudWatchEventDispatcher} exactly as the function's
+ * handler method does, so that the function's own handlers process the replayed events:
+ * </p>
+ * <pre>
+ *     ReplayReport report = new EventReplayer((message, context) -&gt;
+ *             new CloudWatchEventDispatcher(message, context)
+ *                 .withEventHandler(MyEvent1.class, new MyEvent1Handler())
+ *                 .withEventHandler(MyEvent2.class, new MyEvent2Handler())
+ *         )
+ *         .withDetailTypes("My Event 1")
+ *         .replay(Paths.get("events.ndjson"), EventFileFormat.NDJSON);
+ * </pre>
+ * <p>
+ * Events are read from a memory-mapped file (see {@link MappedEventFile}), and dispatched as fast as possible unless
+ * a replay speed is set. Exceptions thrown by handlers are counted and logged, and do not stop the replay.
+ * </p>
+ */
+public class EventReplayer {
+	private final BiFunction<InputStream, Context, CloudWatchEventDispatcher> dispatcherFactory;
+
+	private Set<String> detailTypes;
+	private Instant from;
+	private Instant to;
+	private double speed;
+	private LambdaLogger logger = new DiscardingLogger();
+	private Duration timeout = Duration.ofMinutes(15);
+
+	/**
+	 * Creates a replayer, ready for further configuration.
+	 *
+	 * @param dispatcherFactory creates and configures a dispatcher for each event, given the event message and a
+	 *                          context simulating an AWS Lambda invocation
+	 */
+	public EventReplayer(BiFunction<InputStream, Context, CloudWatchEventDispatcher> dispatcherFactory) {
+		this.dispatcherFactory = dispatcherFactory;
+	}
+
+	/**
+	 * Restricts the replay to events with the given {@code detail-type} values.
+	 *
+	 * @param detailTypes detail types to replay
+	 * @return a reference to this object
+	 */
+	public EventReplayer withDetailTypes(String... detailTypes) {
+		this.detailTypes = new HashSet<>(asList(detailTypes));
+
+		return this;
+	}
+
+	/**
+	 * Restricts the replay to events whose {@code time} property falls in a range.
+	 * <p>
+	 * Events with no {@code time} property are excluded when a range is set.
+	 * </p>
+	 *
+	 * @param from earliest event time to replay (inclusive), or {@code null} for no lower bound
+	 * @param to   latest event time to replay (exclusive), or {@code null} for no upper bound
+	 * @return a reference to this object
+	 */
+	public EventReplayer withTimeRange(Instant from, Instant to) {
+		this.from = from;
+		this.to = to;
+
+		return this;
+	}
+
+	/**
+	 * Paces the replay according to the {@code time} property of the events.
+	 * <p>
+	 * At speed {@code 1.0}, events are dispatched with the same spacing they originally had; at speed {@code 60.0}, an
+	 * hour of events is replayed in a minute. At speed {@code 0} (the default), events are dispatched as fast as
+	 * possible. Events that are out of order, or have no time, are dispatched without pause.
+	 * </p>
+	 *
+	 * @param speed multiple of real time at which to replay events, or {@code 0} for no pacing
+	 * @return a reference to this object
+	 */
+	public EventReplayer atSpeed(double speed) {
+		if (speed < 0) {
+			throw new IllegalArgumentException("Speed must not be negative: " + speed);
+		}
+
+		this.speed = speed;
+
+		return this;
+	}
+
+	/**
+	 * Sets the logger supplied to handlers through {@link Context#getLogger()}, and used to report handler failures.
+	 * <p>
+	 * By default, log output is discarded.
+	 * </p>
+	 *
+	 * @param logger logger to use
+	 * @return a reference to this object
+	 */
+	public EventReplayer withLogger(LambdaLogger logger) {
+		this.logger = logger;
+
+		return this;
+	}
+
+	/**
+	 * Sets the simulated function timeout reported, per event, by {@link Context#getRemainingTimeInMillis()}.
+	 * <p>
+	 * The default is fifteen minutes.
+	 * </p>
+	 *
+	 * @param timeout simulated function timeout
+	 * @return a reference to this object
+	 */
+	public EventReplayer withTimeout(Duration timeout) {
+		this.timeout = timeout;
+
+		return this;
+	}
+
+	/**
+	 * Replays all events in a file.
+	 *
+	 * @param file   file of archived events
+	 * @param format layout of {@code file}
+	 * @return summary of the replay
+	 * @throws IOException if the file cannot be read, or is malformed
+	 */
+	public ReplayReport replay(Path file, EventFileFormat format) throws IOException {
+		try (MappedEventFile events = MappedEventFile.open(file, format)) {
+			return replay(events);
+		}
+	}
+
+	ReplayReport replay(MappedEventFile events) throws IOException {
+		Run run = new Run();
+
+		events.forEachRecord(run::replay);
+
+		return run.report();
+	}
+
+	private class Run {
+		private final long startNanos = System.nanoTime();
+		private final long timeoutNanos = timeout.toNanos();
+		private final boolean summarize = detailTypes != null || from != null || to != null || speed > 0;
+		private final Map<Status, Long> outcomes = new EnumMap<>(Status.class);
+		private final LatencyHistogram latencies = new LatencyHistogram();
+
+		private long records;
+		private long filtered;
+		private long failed;
+
+		private Instant firstEventTime;
+		private long firstEventNanos;
+
+		void replay(ByteBuffer record) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+
+			records++;
+
+			if (summarize) {
+				RecordSummary summary = RecordSummary.peek(record);
+
+				if (excluded(summary)) {
+					filtered++;
+					return;
+				}
+
+				pace(summary.time());
+			}
+
+			String requestId = "replay-" + records;
+			long dispatchStart = System.nanoTime();
+
+			try {
+				Context context = new ReplayContext(requestId, logger, timeoutNanos);
+				DispatchResult result =
+						dispatcherFactory.apply(new ByteBufferInputStream(record), context).tryDispatch();
+
+				outcomes.merge(result.status(), 1L, Long::sum);
+			} catch (RuntimeException e) {
+				failed++;
+				logger.log("Handler failed for record " + records + ": " + e + "\n");
+			} finally {
+				latencies.record(System.nanoTime() - dispatchStart);
+			}
+		}
+
+		ReplayReport report() {
+			return new ReplayReport(records, filtered, failed, outcomes, System.nanoTime() - startNanos, latencies);
+		}
+
+		private boolean excluded(RecordSummary summary) {
+			if (detailTypes != null && !detailTypes.contains(summary.detailType())) {
+				return true;
+			}
+
+			if (from == null && to == null) {
+				return false;
+			}
+
+			Instant time = summary.time();
+
+			return time == null || (from != null && time.isBefore(from)) || (to != null && !time.isBefore(to));
+		}
+
+		private void pace(Instant eventTime) {
+			if (speed == 0 || eventTime == null) {
+				return;
+			}
+
+			if (firstEventTime == null) {
+				firstEventTime = eventTime;
+				firstEventNanos = System.nanoTime();
+
+				return;
+			}
+
+			long offsetNanos = (long) (Duration.between(firstEventTime, eventTime).toNanos() / speed);
+			long waitNanos = firstEventNanos + offsetNanos - System.nanoTime();
+
+			if (waitNanos > 0) {
+				try {
+					Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	private static class DiscardingLogger implements LambdaLogger {
+		@Override
+		public void log(String message) {
+		}
+
+		@Override
+		public void log(byte[] message) {
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+/**
+ * Fixed-size histogram of durations, with buckets of roughly 3% relative width.
+ * <p>
+ * Memory use is independent of the number of recorded values, so that latencies of arbitrarily long replays can be
+ * summarized. Reported percentiles are the upper bounds of the buckets into which they fall.
+ * </p>
+ */
+class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+
+	private long total;
+	private long max;
+
+	void record(long nanos) {
+		long value = Math.max(0, nanos);
+
+		counts[bucket(value)]++;
+		total++;
+		max = Math.max(max, value);
+	}
+
+	long count() {
+		return total;
+	}
+
+	long max() {
+		return max;
+	}
+
+	long percentile(double percentile) {
+		if (total == 0) {
+			return 0;
+		}
+
+		long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+		long seen = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+
+			if (seen >= target) {
+				return Math.min(upperBound(i), max);
+			}
+		}
+
+		return max;
+	}
+
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+		int subBucket = (int) (value >>> magnitude) & (SUB_BUCKETS - 1);
+
+		return magnitude * SUB_BUCKETS + subBucket;
+	}
+
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+
+		// The sub-bucket of a value of magnitude 1 or more is its top SUB_BUCKET_BITS bits, so already in the upper half
+		// of the sub-buckets; each bucket spans 1 / 32 to 1 / 64 of its values
+		int magnitude = bucket / SUB_BUCKETS;
+		long subBucket = bucket % SUB_BUCKETS;
+
+		return ((subBucket + 1) << magnitude) - 1;
+	}
+}
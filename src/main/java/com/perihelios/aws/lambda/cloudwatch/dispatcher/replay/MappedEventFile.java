@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A file of archived events, read through memory mapping.
+ * <p>
+ * Records are handed out as {@link ByteBuffer} views of the mapped file; no record is copied onto the heap. Files
+ * larger than can be mapped at once are mapped in successive windows, each starting at a record boundary.
+ * </p>
+ */
+public final class MappedEventFile implements Closeable {
+	private static final long MAX_WINDOW = Integer.MAX_VALUE;
+
+	private final FileChannel channel;
+	private final EventFileFormat format;
+	private final long maxWindow;
+
+	MappedEventFile(FileChannel channel, EventFileFormat format, long maxWindow) {
+		this.channel = channel;
+		this.format = format;
+		this.maxWindow = maxWindow;
+	}
+
+	/**
+	 * Opens a file of archived events.
+	 *
+	 * @param path   location of the file
+	 * @param format layout of the file
+	 * @return the opened file
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static MappedEventFile open(Path path, EventFileFormat format) throws IOException {
+		return new MappedEventFile(FileChannel.open(path, READ), format, MAX_WINDOW);
+	}
+
+	/**
+	 * Passes each record in the file, in order, to {@code action}.
+	 * <p>
+	 * Each buffer passed to {@code action} is positioned at the start of the record, with its limit at the end of the
+	 * record. Buffers are read-only views of the mapping, and must not be retained beyond the call to {@code action}
+	 * if the file may subsequently be closed.
+	 * </p>
+	 *
+	 * @param action consumer of records
+	 * @throws IOException if the file cannot be read, is malformed, or contains a record too large to map
+	 */
+	public void forEachRecord(Consumer<? super ByteBuffer> action) throws IOException {
+		long size = channel.size();
+		long position = 0;
+
+		while (position < size) {
+			long windowSize = Math.min(size - position, maxWindow);
+			boolean last = position + windowSize == size;
+
+			MappedByteBuffer window = channel.map(READ_ONLY, position, windowSize);
+			int consumed = format.split(window, last, action);
+
+			if (consumed == 0 && !last) {
+				throw new IOException("Record at offset " + position + " is larger than maximum mappable size");
+			}
+
+			position += last ? windowSize : consumed;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+import static com.google.gson.stream.JsonToken.BEGIN_OBJECT;
+import static com.google.gson.stream.JsonToken.STRING;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.DateTimeFormatter.ISO_ZONED_DATE_TIME;
+
+/**
+ * The {@code detail-type} and {@code time} properties of a record, read without binding the rest of the event.
+ */
+class RecordSummary {
+	private final String detailType;
+	private final Instant time;
+
+	private RecordSummary(String detailType, Instant time) {
+		this.detailType = detailType;
+		this.time = time;
+	}
+
+	static RecordSummary peek(ByteBuffer record) {
+		String detailType = null;
+		Instant time = null;
+
+		ByteBufferInputStream stream = new ByteBufferInputStream(record.duplicate());
+
+		try (JsonReader reader = new JsonReader(new InputStreamReader(stream, UTF_8))) {
+			if (reader.peek() != BEGIN_OBJECT) {
+				return new RecordSummary(null, null);
+			}
+
+			reader.beginObject();
+
+			while ((detailType == null || time == null) && reader.hasNext()) {
+				String name = reader.nextName();
+
+				if (name.equals("detail-type") && reader.peek() == STRING) {
+					detailType = reader.nextString();
+				} else if (name.equals("time") && reader.peek() == STRING) {
+					time = ZonedDateTime.parse(reader.nextString(), ISO_ZONED_DATE_TIME).toInstant();
+				} else {
+					reader.skipValue();
+				}
+			}
+		} catch (IOException | RuntimeException ignore) {
+			// Malformed records are summarized as far as they could be read, and left for the dispatcher to reject
+		}
+
+		return new RecordSummary(detailType, time);
+	}
+
+	String detailType() {
+		return detailType;
+	}
+
+	Instant time() {
+		return time;
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+class ReplayContext implements Context {
+	private final String requestId;
+	private final LambdaLogger logger;
+	private final long deadlineNanos;
+
+	ReplayContext(String requestId, LambdaLogger logger, long timeoutNanos) {
+		this.requestId = requestId;
+		this.logger = logger;
+		this.deadlineNanos = System.nanoTime() + timeoutNanos;
+	}
+
+	@Override
+	public String getAwsRequestId() {
+		return requestId;
+	}
+
+	@Override
+	public String getLogGroupName() {
+		return "/aws/lambda/replay";
+	}
+
+	@Override
+	public String getLogStreamName() {
+		return "replay";
+	}
+
+	@Override
+	public String getFunctionName() {
+		return "replay";
+	}
+
+	@Override
+	public String getFunctionVersion() {
+		return "$LATEST";
+	}
+
+	@Override
+	public String getInvokedFunctionArn() {
+		return "arn:aws:lambda:local:000000000000:function:replay";
+	}
+
+	@Override
+	public CognitoIdentity getIdentity() {
+		return null;
+	}
+
+	@Override
+	public ClientContext getClientContext() {
+		return null;
+	}
+
+	@Override
+	public int getRemainingTimeInMillis() {
+		return (int) Math.max(0, (deadlineNanos - System.nanoTime()) / 1_000_000);
+	}
+
+	@Override
+	public int getMemoryLimitInMB() {
+		return (int) (Runtime.getRuntime().maxMemory() / (1024 * 1024));
+	}
+
+	@Override
+	public LambdaLogger getLogger() {
+		return logger;
+	}
+}
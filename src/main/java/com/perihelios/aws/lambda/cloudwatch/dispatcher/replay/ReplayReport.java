@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Summary of a replay: how many records were read and what became of them, overall throughput, and the distribution
+ * of per-event dispatch latency.
+ * <p>
+ * Latency covers creation of the dispatcher, parsing and binding of the event, and execution of the handler; it does
+ * not include reading records from the file, filtering, or pauses for speed control. Percentiles are approximate,
+ * accurate to within about 3%.
+ * </p>
+ */
+public final class ReplayReport {
+	private final long records;
+	private final long filtered;
+	private final long failed;
+	private final Map<Status, Long> outcomes;
+	private final long elapsedNanos;
+	private final LatencyHistogram latencies;
+
+	ReplayReport(
+			long records, long filtered, long failed, Map<Status, Long> outcomes, long elapsedNanos,
+			LatencyHistogram latencies) {
+
+		this.records = records;
+		this.filtered = filtered;
+		this.failed = failed;
+		this.outcomes = new EnumMap<>(outcomes);
+		this.elapsedNanos = elapsedNanos;
+		this.latencies = latencies;
+	}
+
+	/**
+	 * Returns the number of records read from the file.
+	 *
+	 * @return number of records read
+	 */
+	public long records() {
+		return records;
+	}
+
+	/**
+	 * Returns the number of records skipped by detail-type or time range filters.
+	 *
+	 * @return number of records filtered out
+	 */
+	public long filtered() {
+		return filtered;
+	}
+
+	/**
+	 * Returns the number of records for which the dispatch completed with the given status.
+	 *
+	 * @param status dispatch outcome
+	 * @return number of records with that outcome
+	 */
+	public long count(Status status) {
+		return outcomes.getOrDefault(status, 0L);
+	}
+
+	/**
+	 * Returns the number of records whose handler threw an exception.
+	 *
+	 * @return number of failed records
+	 */
+	public long failed() {
+		return failed;
+	}
+
+	/**
+	 * Returns the wall-clock duration of the replay, including any pauses for speed control.
+	 *
+	 * @return elapsed time
+	 */
+	public Duration elapsed() {
+		return Duration.ofNanos(elapsedNanos);
+	}
+
+	/**
+	 * Returns the number of records dispatched (including those rejected or failed) per second of elapsed time.
+	 *
+	 * @return throughput, in events per second
+	 */
+	public double throughput() {
+		return elapsedNanos == 0 ? 0 : latencies.count() * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Returns a percentile of per-event dispatch latency.
+	 *
+	 * @param percentile percentile to return, from 0 to 100
+	 * @return latency at that percentile
+	 */
+	public Duration latency(double percentile) {
+		return Duration.ofNanos(latencies.percentile(percentile));
+	}
+
+	/**
+	 * Returns the maximum per-event dispatch latency.
+	 *
+	 * @return maximum latency
+	 */
+	public Duration maxLatency() {
+		return Duration.ofNanos(latencies.max());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(256)
+				.append("records=").append(records)
+				.append(" filtered=").append(filtered)
+				.append(" failed=").append(failed);
+
+		for (Map.Entry<Status, Long> outcome : outcomes.entrySet()) {
+			builder.append(' ').append(outcome.getKey().name().toLowerCase()).append('=').append(outcome.getValue());
+		}
+
+		return builder
+				.append(String.format(" elapsed=%.3fs", elapsedNanos / 1e9))
+				.append(String.format(" throughput=%.0f/s", throughput()))
+				.append(String.format(" p50=%dus", latencies.percentile(50) / 1_000))
+				.append(String.format(" p90=%dus", latencies.percentile(90) / 1_000))
+				.append(String.format(" p99=%dus", latencies.percentile(99) / 1_000))
+				.append(String.format(" p99.9=%dus", latencies.percentile(99.9) / 1_000))
+				.append(String.format(" max=%dus", latencies.max() / 1_000))
+				.toString();
+	}
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.runtime;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Lightweight custom-runtime bootstrap: polls the Lambda Runtime API for invocations and passes each to a handler.
+ * <p>
+ * When deployed with a custom runtime ({@code provided}), or in a native image, a function can use this class as its
+ * entry point instead of relying on the managed Java runtime. One HTTP connection, one set of read buffers, and one
+ * response buffer are reused across all invocations; each invocation's body is streamed from the connection directly
+ * into the handler, with no intermediate copy. Handlers receive a {@link RuntimeContext}.
+ * </p>
+ * <p>
+ * The simplest use is as the {@code main} class, naming the handler in Lambda's usual {@code class::method} notation,
+ * either as the first argument or in the {@code _HANDLER} environment variable (set from the function's handler
+ * configuration). The handler class must have a public, no-argument constructor; the method must accept either
+ * {@code (InputStream, Context)}, as in the usage example for {@link CloudWatchEventDispatcher}, or
+ * {@code (InputStream, OutputStream, Context)}. If the class implements {@link RequestStreamHandler}, the method name
+ * may be omitted.
+ * </p>
+ * <p>
+ * Alternatively, a function can construct an instance with a handler directly and call {@link #run()}, avoiding
+ * reflection entirely. This is the better choice in a GraalVM native image, where a handler named by class would
+ * need reflection metadata of its own:
+ * </p>
+ * <pre>
+ *     public static void main(String[] args) {
+ *         new CustomRuntime((input, output, context) -&gt;
+ *             new CloudWatchEventDispatcher(input, context)
+ *                 .withEventHandler(MyEvent1.class, new MyEvent1Handler())
+ *                 .dispatch()
+ *         ).run();
+ *     }
+ * </pre>
+ */
+public final class CustomRuntime {
+	private final RuntimeApiClient client;
+	private final RequestStreamHandler handler;
+	private final RuntimeContext.Environment environment;
+	private final ResponseBuffer response = new ResponseBuffer();
+
+	/**
+	 * Creates a runtime polling the Runtime API named by the {@code AWS_LAMBDA_RUNTIME_API} environment variable.
+	 *
+	 * @param handler handler for each invocation
+	 */
+	public CustomRuntime(RequestStreamHandler handler) {
+		this(System.getenv("AWS_LAMBDA_RUNTIME_API"), handler, RuntimeContext.Environment.fromSystem());
+	}
+
+	CustomRuntime(String runtimeApi, RequestStreamHandler handler, RuntimeContext.Environment environment) {
+		if (runtimeApi == null) {
+			throw new IllegalStateException("AWS_LAMBDA_RUNTIME_API not set; not running in a Lambda custom runtime");
+		}
+
+		this.client = new RuntimeApiClient(runtimeApi);
+		this.handler = handler;
+		this.environment = environment;
+	}
+
+	/**
+	 * Entry point for use as a custom runtime's bootstrap.
+	 *
+	 * @param args optionally, the handler in {@code class::method} notation; if absent, the {@code _HANDLER}
+	 *             environment variable is used
+	 */
+	public static void main(String[] args) {
+		String runtimeApi = System.getenv("AWS_LAMBDA_RUNTIME_API");
+		String handlerName = args.length > 0 ? args[0] : System.getenv("_HANDLER");
+
+		RequestStreamHandler handler;
+		try {
+			handler = loadHandler(handlerName);
+		} catch (RuntimeException e) {
+			reportInitError(runtimeApi, e);
+			throw e;
+		}
+
+		new CustomRuntime(runtimeApi, handler, RuntimeContext.Environment.fromSystem()).run();
+	}
+
+	/**
+	 * Processes invocations until the process is terminated.
+	 *
+	 * @throws UncheckedIOException if communication with the Runtime API fails
+	 */
+	public void run() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				handleNext();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	void handleNext() throws IOException {
+		client.next();
+
+		String requestId = client.requestId();
+		RuntimeContext context = new RuntimeContext(
+				requestId, client.functionArn(), client.deadlineMs(), environment
+		);
+
+		// Cleared when absent, so that an invocation is never attributed to the trace of the one before it
+		String traceId = client.traceId();
+		if (traceId != null) {
+			System.setProperty("com.amazonaws.xray.traceHeader", traceId);
+		} else {
+			System.clearProperty("com.amazonaws.xray.traceHeader");
+		}
+
+		response.reset();
+
+		try {
+			handler.handleRequest(client.body(), response, context);
+		} catch (Throwable t) {
+			client.postError(requestId, errorJson(t));
+			return;
+		}
+
+		client.postResponse(requestId, response.buffer(), response.size());
+	}
+
+	static RequestStreamHandler loadHandler(String handlerName) {
+		if (handlerName == null) {
+			throw new IllegalArgumentException("No handler specified in arguments or _HANDLER environment variable");
+		}
+
+		int separator = handlerName.indexOf("::");
+		String className = separator < 0 ? handlerName : handlerName.substring(0, separator);
+		String methodName = separator < 0 ? "handleRequest" : handlerName.substring(separator + 2);
+
+		try {
+			Object instance = Class.forName(className).getConstructor().newInstance();
+
+			if (instance instanceof RequestStreamHandler && methodName.equals("handleRequest")) {
+				return (RequestStreamHandler) instance;
+			}
+
+			for (Method method : instance.getClass().getMethods()) {
+				if (!method.getName().equals(methodName)) {
+					continue;
+				}
+
+				Class<?>[] types = method.getParameterTypes();
+
+				if (types.length == 2 && types[0] == InputStream.class && types[1] == Context.class) {
+					return (input, output, context) -> invoke(method, instance, input, context);
+				}
+
+				if (types.length == 3 && types[0] == InputStream.class && types[1] == OutputStream.class &&
+						types[2] == Context.class) {
+					return (input, output, context) -> invoke(method, instance, input, output, context);
+				}
+			}
+
+			throw new IllegalArgumentException("No method " + methodName + "(InputStream, [OutputStream, ]Context) " +
+					"found in handler class " + className);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Cannot instantiate handler class " + className, e);
+		}
+	}
+
+	private static void invoke(Method method, Object instance, Object... args) throws IOException {
+		try {
+			method.invoke(instance, args);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+
+			throw new UndeclaredThrowableException(cause);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void reportInitError(String runtimeApi, Throwable t) {
+		if (runtimeApi == null) {
+			return;
+		}
+
+		try (RuntimeApiClient client = new RuntimeApiClient(runtimeApi)) {
+			client.postInitError(errorJson(t));
+		} catch (IOException ignore) {
+			// The original failure is more informative; it is rethrown by the caller
+		}
+	}
+
+	static byte[] errorJson(Throwable t) {
+		return ("{\"errorType\":\"" + escape(t.getClass().getName()) + "\"," +
+				"\"errorMessage\":\"" + escape(String.valueOf(t.getMessage())) + "\"}").getBytes(UTF_8);
+	}
+
+	private static String escape(String text) {
+		StringBuilder escaped = new StringBuilder(text.length() + 16);
+
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			if (c == '"' || c == '\\') {
+				escaped.append('\\').append(c);
+			} else if (c < 0x20) {
+				escaped.append(String.format("\\u%04x", (int) c));
+			} else {
+				escaped.append(c);
+			}
+		}
+
+		return escaped.toString();
+	}
+
+	private static final class ResponseBuffer extends ByteArrayOutputStream {
+		ResponseBuffer() {
+			super(4096);
+		}
+
+		byte[] buffer() {
+			return buf;
+		}
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.runtime;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Minimal HTTP/1.1 client for the Lambda Runtime API, holding one persistent connection and one set of buffers for
+ * the life of the runtime.
+ * <p>
+ * Only what the Runtime API needs is supported: {@code GET} and {@code POST} requests, and responses delimited by
+ * {@code Content-Length}. The connection is re-established if the server closes it.
+ * </p>
+ */
+final class RuntimeApiClient implements Closeable {
+	private static final String PREFIX = "/2018-06-01/runtime/";
+
+	private final String host;
+	private final int port;
+
+	private final byte[] buffer = new byte[65_536];
+	private final StringBuilder line = new StringBuilder(256);
+	private final BodyStream body = new BodyStream();
+
+	private Socket socket;
+	private InputStream in;
+	private OutputStream out;
+	private int position;
+	private int limit;
+
+	private int status;
+	private long contentLength;
+	private boolean connectionClose;
+	private String requestId;
+	private String deadlineMs;
+	private String functionArn;
+	private String traceId;
+
+	RuntimeApiClient(String runtimeApi) {
+		int colon = runtimeApi.lastIndexOf(':');
+
+		this.host = colon < 0 ? runtimeApi : runtimeApi.substring(0, colon);
+		this.port = colon < 0 ? 80 : Integer.parseInt(runtimeApi.substring(colon + 1));
+	}
+
+	/**
+	 * Blocks until the next invocation is available, and reads its headers.
+	 * <p>
+	 * The invocation's body is then available from {@link #body()}, streamed directly from the connection.
+	 * </p>
+	 */
+	void next() throws IOException {
+		request("GET", PREFIX + "invocation/next", null, null, 0);
+
+		if (status != 200) {
+			drain();
+			throw new IOException("Runtime API returned status " + status + " for next invocation");
+		}
+
+		body.remaining = contentLength;
+	}
+
+	String requestId() {
+		return requestId;
+	}
+
+	long deadlineMs() {
+		return deadlineMs == null ? Long.MAX_VALUE : Long.parseLong(deadlineMs);
+	}
+
+	String functionArn() {
+		return functionArn;
+	}
+
+	String traceId() {
+		return traceId;
+	}
+
+	InputStream body() {
+		return body;
+	}
+
+	void postResponse(String requestId, byte[] response, int length) throws IOException {
+		post(PREFIX + "invocation/" + requestId + "/response", null, response, length);
+	}
+
+	void postError(String requestId, byte[] error) throws IOException {
+		post(PREFIX + "invocation/" + requestId + "/error", "Unhandled", error, error.length);
+	}
+
+	void postInitError(byte[] error) throws IOException {
+		post(PREFIX + "init/error", "Unhandled", error, error.length);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (socket != null) {
+			socket.close();
+			socket = null;
+		}
+	}
+
+	private void post(String path, String errorType, byte[] content, int length) throws IOException {
+		// Any unread part of the invocation body must be consumed before the connection can be reused
+		drain();
+
+		request("POST", path, errorType, content, length);
+		drain();
+
+		if (status / 100 != 2) {
+			throw new IOException("Runtime API returned status " + status + " for " + path);
+		}
+	}
+
+	private void request(String method, String path, String errorType, byte[] content, int length)
+			throws IOException {
+
+		boolean reused = socket != null;
+
+		if (!reused) {
+			connect();
+		}
+
+		try {
+			send(method, path, errorType, content, length);
+			readResponseHead();
+		} catch (IOException e) {
+			close();
+
+			// A persistent connection may have been closed by the server while idle; retry once on a fresh one
+			if (!reused) {
+				throw e;
+			}
+
+			connect();
+			send(method, path, errorType, content, length);
+			readResponseHead();
+		}
+	}
+
+	private void send(String method, String path, String errorType, byte[] content, int length) throws IOException {
+		writeAscii(method);
+		writeAscii(" ");
+		writeAscii(path);
+		writeAscii(" HTTP/1.1\r\nHost: ");
+		writeAscii(host);
+		writeAscii("\r\n");
+
+		if (content != null) {
+			writeAscii("Content-Type: application/json\r\nContent-Length: ");
+			writeAscii(Integer.toString(length));
+			writeAscii("\r\n");
+
+			if (errorType != null) {
+				writeAscii("Lambda-Runtime-Function-Error-Type: ");
+				writeAscii(errorType);
+				writeAscii("\r\n");
+			}
+		}
+
+		writeAscii("\r\n");
+
+		if (content != null) {
+			out.write(content, 0, length);
+		}
+
+		out.flush();
+	}
+
+	private void connect() throws IOException {
+		socket = new Socket();
+		socket.setTcpNoDelay(true);
+		socket.setKeepAlive(true);
+		socket.connect(new InetSocketAddress(host, port));
+
+		in = socket.getInputStream();
+		out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+		position = 0;
+		limit = 0;
+	}
+
+	private void readResponseHead() throws IOException {
+		String statusLine = readLine();
+
+		if (!statusLine.startsWith("HTTP/1.") || statusLine.length() < 12) {
+			throw new IOException("Malformed status line from Runtime API: " + statusLine);
+		}
+
+		status = Integer.parseInt(statusLine.substring(9, 12));
+		contentLength = 0;
+		connectionClose = false;
+		requestId = null;
+		deadlineMs = null;
+		functionArn = null;
+		traceId = null;
+
+		String header;
+		while (!(header = readLine()).isEmpty()) {
+			int colon = header.indexOf(':');
+			if (colon < 0) {
+				continue;
+			}
+
+			String name = header.substring(0, colon);
+			String value = header.substring(colon + 1).trim();
+
+			if (name.equalsIgnoreCase("Content-Length")) {
+				contentLength = Long.parseLong(value);
+			} else if (name.equalsIgnoreCase("Transfer-Encoding") && !value.equalsIgnoreCase("identity")) {
+				throw new IOException("Unsupported transfer encoding from Runtime API: " + value);
+			} else if (name.equalsIgnoreCase("Connection")) {
+				connectionClose = value.equalsIgnoreCase("close");
+			} else if (name.equalsIgnoreCase("Lambda-Runtime-Aws-Request-Id")) {
+				requestId = value;
+			} else if (name.equalsIgnoreCase("Lambda-Runtime-Deadline-Ms")) {
+				deadlineMs = value;
+			} else if (name.equalsIgnoreCase("Lambda-Runtime-Invoked-Function-Arn")) {
+				functionArn = value;
+			} else if (name.equalsIgnoreCase("Lambda-Runtime-Trace-Id")) {
+				traceId = value;
+			}
+		}
+
+		body.remaining = contentLength;
+	}
+
+	private void drain() throws IOException {
+		if (socket == null) {
+			return;
+		}
+
+		while (body.remaining > 0) {
+			if (body.skip(body.remaining) == 0 && body.read() < 0) {
+				break;
+			}
+		}
+
+		if (connectionClose) {
+			close();
+		}
+	}
+
+	private String readLine() throws IOException {
+		line.setLength(0);
+
+		while (true) {
+			if (position == limit && !fill()) {
+				throw new EOFException("Runtime API closed connection");
+			}
+
+			char c = (char) (buffer[position++] & 0xff);
+
+			if (c == '\n') {
+				int length = line.length();
+
+				if (length > 0 && line.charAt(length - 1) == '\r') {
+					line.setLength(length - 1);
+				}
+
+				return line.toString();
+			}
+
+			line.append(c);
+		}
+	}
+
+	private boolean fill() throws IOException {
+		int read = in.read(buffer, 0, buffer.length);
+
+		if (read <= 0) {
+			return false;
+		}
+
+		position = 0;
+		limit = read;
+
+		return true;
+	}
+
+	private void writeAscii(String text) throws IOException {
+		out.write(text.getBytes(US_ASCII));
+	}
+
+	private class BodyStream extends InputStream {
+		private long remaining;
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0 || (position == limit && !fill())) {
+				return -1;
+			}
+
+			remaining--;
+
+			return buffer[position++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+
+			if (remaining <= 0 || (position == limit && !fill())) {
+				return -1;
+			}
+
+			int count = (int) Math.min(Math.min(length, limit - position), remaining);
+			System.arraycopy(buffer, position, bytes, offset, count);
+
+			position += count;
+			remaining -= count;
+
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			if (n <= 0 || remaining <= 0 || (position == limit && !fill())) {
+				return 0;
+			}
+
+			int count = (int) Math.min(Math.min(n, limit - position), remaining);
+
+			position += count;
+			remaining -= count;
+
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(limit - position, remaining);
+		}
+
+		@Override
+		public void close() {
+			// The body is part of the shared connection; it is drained, not closed
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.runtime;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+import java.io.PrintStream;
+
+/**
+ * {@link Context} supplied to handlers by {@link CustomRuntime}, populated from the Runtime API's invocation headers
+ * and the function's environment.
+ */
+public final class RuntimeContext implements Context {
+	private final String requestId;
+	private final String invokedFunctionArn;
+	private final long deadlineMs;
+	private final Environment environment;
+
+	RuntimeContext(String requestId, String invokedFunctionArn, long deadlineMs, Environment environment) {
+		this.requestId = requestId;
+		this.invokedFunctionArn = invokedFunctionArn;
+		this.deadlineMs = deadlineMs;
+		this.environment = environment;
+	}
+
+	@Override
+	public String getAwsRequestId() {
+		return requestId;
+	}
+
+	@Override
+	public String getLogGroupName() {
+		return environment.logGroupName;
+	}
+
+	@Override
+	public String getLogStreamName() {
+		return environment.logStreamName;
+	}
+
+	@Override
+	public String getFunctionName() {
+		return environment.functionName;
+	}
+
+	@Override
+	public String getFunctionVersion() {
+		return environment.functionVersion;
+	}
+
+	@Override
+	public String getInvokedFunctionArn() {
+		return invokedFunctionArn;
+	}
+
+	/**
+	 * Returns {@code null}; Cognito identity is not supplied to custom runtimes for asynchronous invocations.
+	 *
+	 * @return {@code null}
+	 */
+	@Override
+	public CognitoIdentity getIdentity() {
+		return null;
+	}
+
+	/**
+	 * Returns {@code null}; client context is not supplied to custom runtimes for asynchronous invocations.
+	 *
+	 * @return {@code null}
+	 */
+	@Override
+	public ClientContext getClientContext() {
+		return null;
+	}
+
+	@Override
+	public int getRemainingTimeInMillis() {
+		return (int) Math.max(0, Math.min(Integer.MAX_VALUE, deadlineMs - System.currentTimeMillis()));
+	}
+
+	@Override
+	public int getMemoryLimitInMB() {
+		return environment.memoryLimitInMB;
+	}
+
+	@Override
+	public LambdaLogger getLogger() {
+		return environment.logger;
+	}
+
+	/**
+	 * Per-process values of the context, read once from the environment.
+	 */
+	static final class Environment {
+		private final String functionName;
+		private final String functionVersion;
+		private final String logGroupName;
+		private final String logStreamName;
+		private final int memoryLimitInMB;
+		private final LambdaLogger logger;
+
+		Environment(
+				String functionName, String functionVersion, String logGroupName, String logStreamName,
+				int memoryLimitInMB, PrintStream log) {
+
+			this.functionName = functionName;
+			this.functionVersion = functionVersion;
+			this.logGroupName = logGroupName;
+			this.logStreamName = logStreamName;
+			this.memoryLimitInMB = memoryLimitInMB;
+			this.logger = new StreamLogger(log);
+		}
+
+		static Environment fromSystem() {
+			String memory = System.getenv("AWS_LAMBDA_FUNCTION_MEMORY_SIZE");
+
+			return new Environment(
+					System.getenv("AWS_LAMBDA_FUNCTION_NAME"),
+					System.getenv("AWS_LAMBDA_FUNCTION_VERSION"),
+					System.getenv("AWS_LAMBDA_LOG_GROUP_NAME"),
+					System.getenv("AWS_LAMBDA_LOG_STREAM_NAME"),
+					memory == null ? 0 : Integer.parseInt(memory),
+					System.out
+			);
+		}
+	}
+
+	/**
+	 * Custom runtimes log by writing to standard output, which Lambda forwards to CloudWatch Logs.
+	 */
+	private static final class StreamLogger implements LambdaLogger {
+		private final PrintStream out;
+
+		StreamLogger(PrintStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void log(String message) {
+			out.print(message);
+			out.flush();
+		}
+
+		@Override
+		public void log(byte[] message) {
+			out.write(message, 0, message.length);
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.synthetic;
+
+/**
+ * Order in which the top-level properties of a synthetic event are written.
+ */
+public enum KeyOrder {
+	/**
+	 * The order used by CloudWatch itself: {@code version}, {@code id}, {@code detail-type}, {@code source},
+	 * {@code account}, {@code time}, {@code region}, {@code resources}, {@code detail}.
+	 */
+	CANONICAL,
+
+	/**
+	 * As {@link #CANONICAL}, but with {@code detail} first, ahead of {@code detail-type}; the least favorable order
+	 * for a streaming parser.
+	 */
+	DETAIL_FIRST,
+
+	/**
+	 * A random order, chosen independently for each event (and for each object within {@code detail}).
+	 */
+	SHUFFLED,
+}
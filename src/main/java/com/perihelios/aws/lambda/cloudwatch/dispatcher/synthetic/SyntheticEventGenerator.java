@@ -0,0 +1,601 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.synthetic;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonWriter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.NameValueListAdapter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.Header;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.EventFileFormat;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.EventFileWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static java.time.format.DateTimeFormatter.ISO_ZONED_DATE_TIME;
+import static java.util.Arrays.asList;
+
+/**
+ * Generates realistic, reproducible synthetic CloudWatch events for registered event types, for use in load and
+ * regression testing.
+ * <p>
+ * Each generated event has the standard envelope (see {@link Header}), with the {@code detail-type} taken from the
+ * {@link DetailType} annotation of one of the registered event types, chosen at random according to the weights given
+ * at registration. The {@code detail} property is populated by examining the fields of the event type, so that every
+ * field the type declares is bound when the event is dispatched. Additional, unmapped properties can be added to
+ * {@code detail} to reach a target payload size and nesting depth, as real events commonly carry far more than a
+ * handler maps.
+ * </p>
+ * <p>
+ * Property names are taken from the fields (and their {@link SerializedName} annotations), so event types whose
+ * detail, or any class within it, is bound by a handwritten {@link JsonAdapter} cannot be generated: the adapter, not
+ * the fields, decides the names.
+ * </p>
+ * <pre>
+ *     new SyntheticEventGenerator(42)
+ *         .withEventType(MyEvent1.class, 9)
+ *         .withEventType(MyEvent2.class, 1)
+ *         .withPayloadSize(4_096)
+ *         .withKeyOrder(KeyOrder.SHUFFLED)
+ *         .write(Paths.get("events.ndjson"), EventFileFormat.NDJSON, 1_000_000);
+ * </pre>
+ * <p>
+ * The same seed and configuration always produce the same sequence of events.
+ * </p>
+ */
+public class SyntheticEventGenerator {
+	private static final String[] ENVELOPE = {
+			"version", "id", "detail-type", "source", "account", "time", "region", "resources", "detail"
+	};
+
+	private static final String[] REGIONS = {"us-east-1", "us-east-2", "us-west-2", "eu-west-1", "ap-southeast-2"};
+
+	private final Random random;
+	private final List<Class<? extends CloudWatchEvent>> eventTypes = new ArrayList<>();
+	private final List<Integer> weights = new ArrayList<>();
+	private final Map<Class<?>, List<Field>> fieldsByType = new HashMap<>();
+	private final String account;
+
+	private int totalWeight;
+	private int payloadSize;
+	private int nestingDepth = 2;
+	private int listLength = 3;
+	private int resourceCount = 1;
+	private KeyOrder keyOrder = KeyOrder.CANONICAL;
+	private Instant time = Instant.parse("2019-01-01T00:00:00Z");
+
+	/**
+	 * Creates a generator, ready for further configuration.
+	 *
+	 * @param seed seed for all random choices made by the generator
+	 */
+	public SyntheticEventGenerator(long seed) {
+		this.random = new Random(seed);
+		this.account = String.format("%012d", (random.nextLong() & Long.MAX_VALUE) % 1_000_000_000_000L);
+	}
+
+	/**
+	 * Registers an event type for which events will be generated.
+	 *
+	 * @param eventType class annotated with {@link DetailType}
+	 * @param weight    relative frequency of events of this type in the generated mix
+	 * @return a reference to this object
+	 * @throws IllegalArgumentException if {@code eventType} is not annotated with {@code DetailType}, if it or a class
+	 *                                  within its detail is bound by a handwritten adapter, or if {@code weight} is
+	 *                                  not positive
+	 */
+	public SyntheticEventGenerator withEventType(Class<? extends CloudWatchEvent> eventType, int weight) {
+		if (eventType.getAnnotation(DetailType.class) == null) {
+			throw new IllegalArgumentException(
+					"Cannot generate events of type " + eventType.getName() +
+							"; event type not annotated with " + DetailType.class.getName()
+			);
+		}
+
+		if (weight <= 0) {
+			throw new IllegalArgumentException("Weight must be positive: " + weight);
+		}
+
+		rejectHandwrittenAdapters(eventType, new HashSet<>());
+
+		eventTypes.add(eventType);
+		weights.add(weight);
+		totalWeight += weight;
+
+		return this;
+	}
+
+	/**
+	 * Sets the approximate minimum size, in characters, of the {@code detail} property.
+	 * <p>
+	 * If the fields declared by an event type produce less than this, unmapped properties are added to make up the
+	 * difference. The default is {@code 0}: only declared fields are generated.
+	 * </p>
+	 *
+	 * @param payloadSize target size of {@code detail}
+	 * @return a reference to this object
+	 */
+	public SyntheticEventGenerator withPayloadSize(int payloadSize) {
+		this.payloadSize = payloadSize;
+
+		return this;
+	}
+
+	/**
+	 * Sets the depth to which nested objects are generated, both for declared fields of object type and for
+	 * unmapped padding properties.
+	 * <p>
+	 * The default is {@code 2}.
+	 * </p>
+	 *
+	 * @param nestingDepth maximum depth of nested objects within {@code detail}
+	 * @return a reference to this object
+	 */
+	public SyntheticEventGenerator withNestingDepth(int nestingDepth) {
+		this.nestingDepth = nestingDepth;
+
+		return this;
+	}
+
+	/**
+	 * Sets the number of elements generated for lists, arrays, maps and name/value lists (see
+	 * {@link NameValueListAdapter}).
+	 * <p>
+	 * The default is {@code 3}.
+	 * </p>
+	 *
+	 * @param listLength number of elements in each generated collection
+	 * @return a reference to this object
+	 */
+	public SyntheticEventGenerator withListLength(int listLength) {
+		this.listLength = listLength;
+
+		return this;
+	}
+
+	/**
+	 * Sets the number of ARNs generated in the {@code resources} property.
+	 * <p>
+	 * The default is {@code 1}.
+	 * </p>
+	 *
+	 * @param resourceCount number of resources per event
+	 * @return a reference to this object
+	 */
+	public SyntheticEventGenerator withResourceCount(int resourceCount) {
+		this.resourceCount = resourceCount;
+
+		return this;
+	}
+
+	/**
+	 * Sets the order in which properties are written.
+	 * <p>
+	 * The default is {@link KeyOrder#CANONICAL}.
+	 * </p>
+	 *
+	 * @param keyOrder property order
+	 * @return a reference to this object
+	 */
+	public SyntheticEventGenerator withKeyOrder(KeyOrder keyOrder) {
+		this.keyOrder = keyOrder;
+
+		return this;
+	}
+
+	/**
+	 * Sets the {@code time} of the first generated event.
+	 * <p>
+	 * Subsequent events follow at random intervals of up to two seconds, so that generated sequences are in time
+	 * order. The default is the start of 2019, UTC.
+	 * </p>
+	 *
+	 * @param startTime time of the first event
+	 * @return a reference to this object
+	 */
+	public SyntheticEventGenerator withStartTime(Instant startTime) {
+		this.time = startTime;
+
+		return this;
+	}
+
+	/**
+	 * Generates the next event.
+	 *
+	 * @return event JSON, on a single line
+	 * @throws IllegalStateException if no event types are registered
+	 */
+	public String next() {
+		if (eventTypes.isEmpty()) {
+			throw new IllegalStateException("No event types registered");
+		}
+
+		Class<? extends CloudWatchEvent> eventType = chooseEventType();
+		StringWriter buffer = new StringWriter(512 + payloadSize);
+
+		try {
+			writeEvent(new JsonWriter(buffer), eventType);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return buffer.toString();
+	}
+
+	/**
+	 * Generates events into a file.
+	 *
+	 * @param path   location of the file, which is created or truncated
+	 * @param format layout of the file
+	 * @param count  number of events to generate
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(Path path, EventFileFormat format, long count) throws IOException {
+		try (EventFileWriter writer = new EventFileWriter(path, format)) {
+			for (long i = 0; i < count; i++) {
+				writer.write(next());
+			}
+		}
+	}
+
+	private Class<? extends CloudWatchEvent> chooseEventType() {
+		int choice = random.nextInt(totalWeight);
+
+		for (int i = 0; i < eventTypes.size(); i++) {
+			choice -= weights.get(i);
+
+			if (choice < 0) {
+				return eventTypes.get(i);
+			}
+		}
+
+		throw new AssertionError();
+	}
+
+	private void writeEvent(JsonWriter out, Class<? extends CloudWatchEvent> eventType) throws IOException {
+		String region = REGIONS[random.nextInt(REGIONS.length)];
+		time = time.plusMillis(random.nextInt(2_000));
+
+		out.beginObject();
+
+		for (String name : keys(ENVELOPE)) {
+			out.name(name);
+
+			switch (name) {
+				case "version":
+					out.value("0");
+					break;
+				case "id":
+					out.value(new UUID(random.nextLong(), random.nextLong()).toString());
+					break;
+				case "detail-type":
+					out.value(eventType.getAnnotation(DetailType.class).value());
+					break;
+				case "source":
+					out.value("aws.synthetic");
+					break;
+				case "account":
+					out.value(account);
+					break;
+				case "time":
+					out.value(ZonedDateTime.ofInstant(time, ZoneOffset.UTC).format(ISO_ZONED_DATE_TIME));
+					break;
+				case "region":
+					out.value(region);
+					break;
+				case "resources":
+					writeResources(out, region);
+					break;
+				default:
+					writeDetail(out, eventType);
+			}
+		}
+
+		out.endObject();
+	}
+
+	private List<String> keys(String... names) {
+		List<String> keys = new ArrayList<>(asList(names));
+
+		if (keyOrder == KeyOrder.SHUFFLED) {
+			Collections.shuffle(keys, random);
+		} else if (keyOrder == KeyOrder.DETAIL_FIRST && keys.remove("detail")) {
+			keys.add(0, "detail");
+		}
+
+		return keys;
+	}
+
+	private void writeResources(JsonWriter out, String region) throws IOException {
+		out.beginArray();
+
+		for (int i = 0; i < resourceCount; i++) {
+			out.value("arn:aws:synthetic:" + region + ":" + account + ":resource/r-" + token(12));
+		}
+
+		out.endArray();
+	}
+
+	private void writeDetail(JsonWriter out, Class<?> eventType) throws IOException {
+		StringWriter buffer = new StringWriter(256 + payloadSize);
+		JsonWriter detail = new JsonWriter(buffer);
+
+		detail.beginObject();
+		writeFields(detail, eventType, 1);
+
+		int padding = 0;
+		while (buffer.getBuffer().length() < payloadSize) {
+			detail.name("unmapped-" + padding++);
+			writePadding(detail, 1);
+		}
+
+		detail.endObject();
+		detail.flush();
+
+		out.jsonValue(buffer.toString());
+	}
+
+	private void writeFields(JsonWriter out, Class<?> type, int depth) throws IOException {
+		List<Field> fields = fieldsByType.computeIfAbsent(type, SyntheticEventGenerator::boundFields);
+
+		if (keyOrder == KeyOrder.SHUFFLED) {
+			fields = new ArrayList<>(fields);
+			Collections.shuffle(fields, random);
+		}
+
+		for (Field field : fields) {
+			out.name(propertyName(field));
+
+			if (isNameValueList(field)) {
+				writeNameValueList(out);
+			} else {
+				writeValue(out, field.getGenericType(), depth);
+			}
+		}
+	}
+
+	/**
+	 * Returns the fields bound by reflection, those of each class ahead of its superclass's, and those of each class
+	 * ordered by property name; {@link Class#getDeclaredFields()} returns them in no particular order, which would
+	 * make the generated events differ from one JVM to another.
+	 */
+	private static List<Field> boundFields(Class<?> type) {
+		List<Field> fields = new ArrayList<>();
+
+		for (Class<?> c = type; c != null && c != CloudWatchEvent.class && c != Object.class; c = c.getSuperclass()) {
+			List<Field> declared = new ArrayList<>();
+
+			for (Field field : c.getDeclaredFields()) {
+				if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0 && !field.isSynthetic()) {
+					declared.add(field);
+				}
+			}
+
+			declared.sort(Comparator.comparing(SyntheticEventGenerator::propertyName));
+			fields.addAll(declared);
+		}
+
+		return fields;
+	}
+
+	private static void rejectHandwrittenAdapters(Type type, Set<Class<?>> seen) {
+		Class<?> raw = rawType(type);
+
+		if (raw.isArray()) {
+			rejectHandwrittenAdapters(elementType(type, raw), seen);
+		} else if (Collection.class.isAssignableFrom(raw)) {
+			rejectHandwrittenAdapters(typeArgument(type, 0), seen);
+		} else if (Map.class.isAssignableFrom(raw)) {
+			rejectHandwrittenAdapters(typeArgument(type, 1), seen);
+		} else if (!raw.isPrimitive() && !raw.isEnum() && !raw.getName().startsWith("java.") && seen.add(raw)) {
+			List<Field> fields = boundFields(raw);
+
+			if (raw.isAnnotationPresent(JsonAdapter.class) && !fields.isEmpty()) {
+				throw new IllegalArgumentException(
+						"Cannot generate events containing " + raw.getName() + "; it is bound by a handwritten " +
+								"adapter, whose property names cannot be taken from its fields"
+				);
+			}
+
+			for (Field field : fields) {
+				if (!isNameValueList(field)) {
+					rejectHandwrittenAdapters(field.getGenericType(), seen);
+				}
+			}
+		}
+	}
+
+	private static String propertyName(Field field) {
+		SerializedName serializedName = field.getAnnotation(SerializedName.class);
+
+		return serializedName == null ? field.getName() : serializedName.value();
+	}
+
+	private static boolean isNameValueList(Field field) {
+		JsonAdapter adapter = field.getAnnotation(JsonAdapter.class);
+
+		return adapter != null && adapter.value() == NameValueListAdapter.class;
+	}
+
+	private void writeValue(JsonWriter out, Type type, int depth) throws IOException {
+		Class<?> raw = rawType(type);
+
+		if (raw == String.class || raw == Object.class) {
+			out.value(token(8 + random.nextInt(9)));
+		} else if (raw == boolean.class || raw == Boolean.class) {
+			out.value(random.nextBoolean());
+		} else if (raw == int.class || raw == Integer.class || raw == short.class || raw == Short.class) {
+			out.value(random.nextInt(Short.MAX_VALUE));
+		} else if (raw == byte.class || raw == Byte.class) {
+			out.value(random.nextInt(Byte.MAX_VALUE));
+		} else if (raw == long.class || raw == Long.class) {
+			out.value(random.nextLong() & Long.MAX_VALUE);
+		} else if (raw == double.class || raw == Double.class || raw == float.class || raw == Float.class) {
+			out.value(Math.round(random.nextDouble() * 1e6) / 1e3);
+		} else if (raw == char.class || raw == Character.class) {
+			out.value(String.valueOf((char) ('a' + random.nextInt(26))));
+		} else if (raw == ZonedDateTime.class) {
+			out.value(ZonedDateTime.ofInstant(time, ZoneOffset.UTC).format(ISO_ZONED_DATE_TIME));
+		} else if (raw.isEnum()) {
+			writeEnum(out, raw);
+		} else if (raw.isArray()) {
+			writeList(out, elementType(type, raw), depth);
+		} else if (Collection.class.isAssignableFrom(raw)) {
+			writeList(out, typeArgument(type, 0), depth);
+		} else if (Map.class.isAssignableFrom(raw)) {
+			writeMap(out, typeArgument(type, 1), depth);
+		} else if (depth >= nestingDepth || raw.isInterface() || Modifier.isAbstract(raw.getModifiers())) {
+			out.nullValue();
+		} else {
+			out.beginObject();
+			writeFields(out, raw, depth + 1);
+			out.endObject();
+		}
+	}
+
+	private void writeEnum(JsonWriter out, Class<?> enumType) throws IOException {
+		Object[] constants = enumType.getEnumConstants();
+		Enum<?> constant = (Enum<?>) constants[random.nextInt(constants.length)];
+
+		try {
+			SerializedName serializedName =
+					enumType.getField(constant.name()).getAnnotation(SerializedName.class);
+
+			out.value(serializedName == null ? constant.name() : serializedName.value());
+		} catch (NoSuchFieldException e) {
+			out.value(constant.name());
+		}
+	}
+
+	private void writeList(JsonWriter out, Type elementType, int depth) throws IOException {
+		out.beginArray();
+
+		for (int i = 0; i < listLength; i++) {
+			writeValue(out, elementType, depth);
+		}
+
+		out.endArray();
+	}
+
+	private void writeMap(JsonWriter out, Type valueType, int depth) throws IOException {
+		out.beginObject();
+
+		for (int i = 0; i < listLength; i++) {
+			out.name("key-" + i);
+			writeValue(out, valueType, depth);
+		}
+
+		out.endObject();
+	}
+
+	private void writeNameValueList(JsonWriter out) throws IOException {
+		out.beginArray();
+
+		for (int i = 0; i < listLength; i++) {
+			out.beginObject();
+			out.name("name").value("name-" + i);
+			out.name("value").value(token(8));
+			out.endObject();
+		}
+
+		out.endArray();
+	}
+
+	private void writePadding(JsonWriter out, int depth) throws IOException {
+		if (depth >= nestingDepth) {
+			out.value(token(32));
+			return;
+		}
+
+		out.beginObject();
+
+		for (int i = 0; i < listLength; i++) {
+			out.name("field-" + i);
+			writePadding(out, depth + 1);
+		}
+
+		out.endObject();
+	}
+
+	private String token(int length) {
+		char[] chars = new char[length];
+
+		for (int i = 0; i < length; i++) {
+			int digit = random.nextInt(36);
+			chars[i] = (char) (digit < 10 ? '0' + digit : 'a' + digit - 10);
+		}
+
+		return new String(chars);
+	}
+
+	private static Class<?> rawType(Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			return rawType(((ParameterizedType) type).getRawType());
+		} else if (type instanceof GenericArrayType) {
+			return Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+		} else if (type instanceof WildcardType) {
+			return rawType(((WildcardType) type).getUpperBounds()[0]);
+		}
+
+		return Object.class;
+	}
+
+	private static Type elementType(Type type, Class<?> raw) {
+		return type instanceof GenericArrayType ?
+				((GenericArrayType) type).getGenericComponentType() :
+				raw.getComponentType();
+	}
+
+	private static Type typeArgument(Type type, int index) {
+		if (type instanceof ParameterizedType) {
+			Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+
+			if (index < arguments.length) {
+				return arguments[index];
+			}
+		}
+
+		return String.class;
+	}
+}
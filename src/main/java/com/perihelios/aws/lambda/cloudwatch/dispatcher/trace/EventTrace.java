@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.trace;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.Header;
+
+import java.util.List;
+
+/**
+ * The spans of the dispatch of one event, identified by the event and by the invocation that dispatched it.
+ */
+public class EventTrace {
+	private final String requestId;
+	private final String eventId;
+	private final String detailType;
+	private final DispatchResult.Status status;
+	private final List<Span> spans;
+
+	/**
+	 * Creates a trace.
+	 *
+	 * @param requestId  Lambda request ID of the invocation
+	 * @param eventId    ID of the event
+	 * @param detailType {@code detail-type} of the event
+	 * @param status     outcome of the dispatch
+	 * @param spans      spans of the dispatch, in order
+	 */
+	public EventTrace(String requestId, String eventId, String detailType, DispatchResult.Status status,
+			List<Span> spans) {
+
+		this.requestId = requestId;
+		this.eventId = eventId;
+		this.detailType = detailType;
+		this.status = status;
+		this.spans = spans;
+	}
+
+	/**
+	 * Returns the Lambda request ID of the invocation that dispatched the event, from its context.
+	 *
+	 * @return the request ID, or {@code null} if there was no context
+	 */
+	public String requestId() {
+		return requestId;
+	}
+
+	/**
+	 * Returns the ID of the event, as given by {@link Header#id()}.
+	 *
+	 * @return the event ID, or {@code null} if the event was not read as far as its header
+	 */
+	public String eventId() {
+		return eventId;
+	}
+
+	/**
+	 * Returns the {@code detail-type} of the event.
+	 *
+	 * @return the detail type, or {@code null} if the event has none
+	 */
+	public String detailType() {
+		return detailType;
+	}
+
+	/**
+	 * Returns the outcome of the dispatch. A handler that threw is reported as
+	 * {@link DispatchResult.Status#FAILED FAILED}, even where the exception propagated to the caller.
+	 *
+	 * @return the status
+	 */
+	public DispatchResult.Status status() {
+		return status;
+	}
+
+	/**
+	 * Returns the spans of the dispatch.
+	 *
+	 * @return spans, in the order they began
+	 */
+	public List<Span> spans() {
+		return spans;
+	}
+
+	/**
+	 * Returns the total time of the spans.
+	 *
+	 * @return the sum of the spans' durations, in nanoseconds
+	 */
+	public long durationNanos() {
+		long duration = 0;
+
+		for (Span span : spans) {
+			duration += span.durationNanos();
+		}
+
+		return duration;
+	}
+}
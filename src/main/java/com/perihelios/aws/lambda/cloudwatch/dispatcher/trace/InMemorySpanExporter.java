@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.trace;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exporter that keeps every trace exported to it, for use in tests.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+	private final List<EventTrace> traces = new ArrayList<>();
+
+	@Override
+	public synchronized void export(EventTrace trace, Context context) {
+		traces.add(trace);
+	}
+
+	/**
+	 * Returns the traces exported so far.
+	 *
+	 * @return copy of the list of traces, in the order they were exported
+	 */
+	public synchronized List<EventTrace> traces() {
+		return new ArrayList<>(traces);
+	}
+
+	/**
+	 * Discards the traces exported so far.
+	 */
+	public synchronized void clear() {
+		traces.clear();
+	}
+}
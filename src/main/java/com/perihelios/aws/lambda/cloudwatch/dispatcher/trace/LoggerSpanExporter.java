@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.trace;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+/**
+ * Exporter that writes each trace to the function's log, through the {@code LambdaLogger} of the invocation, as one
+ * compact line:
+ * <pre>
+ *     TRACE request=8f5c0a52-... event=85085726-... type="Fictitious Event" status=DISPATCHED total=311 read=0+152
+ *     parse=152+40 bind=192+12 parse=204+3 header=207+30 handle=237+74</pre>
+ * <p>
+ * (Shown here wrapped; it is written as a single line.) Each span is written as its kind, then its offset from when
+ * the message began to be read, then its duration; all times are in microseconds. Nothing is written when there is
+ * no context.
+ * </p>
+ */
+public class LoggerSpanExporter implements SpanExporter {
+	@Override
+	public void export(EventTrace trace, Context context) {
+		if (context == null) {
+			return;
+		}
+
+		StringBuilder line = new StringBuilder(160)
+				.append("TRACE request=").append(trace.requestId())
+				.append(" event=").append(trace.eventId())
+				.append(" type=");
+
+		if (trace.detailType() == null) {
+			line.append("null");
+		} else {
+			line.append('"').append(trace.detailType().replace("\"", "\\\"")).append('"');
+		}
+
+		line.append(" status=").append(trace.status())
+				.append(" total=").append(trace.durationNanos() / 1000);
+
+		for (Span span : trace.spans()) {
+			line.append(' ').append(span);
+		}
+
+		context.getLogger().log(line.toString());
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.trace;
+
+/**
+ * A timed phase of the dispatch of one event.
+ */
+public class Span {
+	private final Kind kind;
+	private final long offsetNanos;
+	private final long durationNanos;
+
+	/**
+	 * Creates a span.
+	 *
+	 * @param kind          phase of the dispatch
+	 * @param offsetNanos   start of the span, in nanoseconds since the message began to be read
+	 * @param durationNanos length of the span, in nanoseconds
+	 */
+	public Span(Kind kind, long offsetNanos, long durationNanos) {
+		this.kind = kind;
+		this.offsetNanos = offsetNanos;
+		this.durationNanos = durationNanos;
+	}
+
+	/**
+	 * Returns the phase of the dispatch covered by the span.
+	 *
+	 * @return the kind of span
+	 */
+	public Kind kind() {
+		return kind;
+	}
+
+	/**
+	 * Returns the start of the span, relative to when the message began to be read, so that the spans of all events
+	 * of a batch share one timeline.
+	 *
+	 * @return the offset, in nanoseconds
+	 */
+	public long offsetNanos() {
+		return offsetNanos;
+	}
+
+	/**
+	 * Returns the length of the span.
+	 *
+	 * @return the duration, in nanoseconds
+	 */
+	public long durationNanos() {
+		return durationNanos;
+	}
+
+	@Override
+	public String toString() {
+		return kind.label() + "=" + offsetNanos / 1000 + "+" + durationNanos / 1000;
+	}
+
+	/**
+	 * Phase of the dispatch of an event.
+	 */
+	public enum Kind {
+		/**
+		 * Reading the message from the input stream; recorded only in the trace of the first event of a message.
+		 */
+		READ("read"),
+
+		/**
+		 * Parsing the event's top-level properties. Where binding the detail interrupts parsing, parsing is recorded
+		 * as two spans, either side of the binding.
+		 */
+		PARSE("parse"),
+
+		/**
+		 * Binding the {@code detail} property to the event type.
+		 */
+		BIND("bind"),
+
+		/**
+		 * Binding the header properties, and checking for duplicates.
+		 */
+		HEADER("header"),
+
+		/**
+		 * Calling the handler.
+		 */
+		HANDLE("handle"),
+
+		;
+
+		private final String label;
+
+		Kind(String label) {
+			this.label = label;
+		}
+
+		/**
+		 * Returns the short name of the phase, as written by {@link LoggerSpanExporter}.
+		 *
+		 * @return the label
+		 */
+		public String label() {
+			return label;
+		}
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.trace;
+
+import com.amazonaws.services.lambda.runtime.Context;
+
+/**
+ * Destination of the traces recorded by a dispatcher with tracing enabled.
+ */
+@FunctionalInterface
+public interface SpanExporter {
+	/**
+	 * Exports the trace of one event, once the event's dispatch has finished.
+	 * <p>
+	 * This method is called on the thread dispatching the event, so should return quickly, and should not throw.
+	 * </p>
+	 *
+	 * @param trace   spans of the event's dispatch
+	 * @param context AWS Lambda context of the invocation (may be {@code null} outside of Lambda)
+	 */
+	void export(EventTrace trace, Context context);
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchPhaseListener.Phase;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.ScheduledEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+import static java.util.Arrays.fill;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the bytes allocated by each phase of a dispatch against regression.
+ * <p>
+ * Budgets are recorded in {@code allocation-budgets.properties}, keyed by event and phase. Each measurement is the
+ * minimum over many warmed-up dispatches, so is stable from run to run; when a change legitimately alters a phase's
+ * allocation, the measurements printed by this test are the basis for a new budget.
+ * </p>
+ */
+class AllocationBudgetTest {
+	private static final int WARMUP = 5_000;
+	private static final int SAMPLES = 200;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	@Test
+	void dispatch_phases_stay_within_allocation_budgets() throws IOException {
+		assumeTrue(THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled());
+
+		Properties budgets = new Properties();
+		try (InputStream in = AllocationBudgetTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+			budgets.load(in);
+		}
+
+		List<String> measured = new ArrayList<>();
+		List<String> exceeded = new ArrayList<>();
+
+		check("fictitious", "/fictitious-event.json",
+				dispatcher -> dispatcher.withEventHandler(FictitiousEvent.class, (event, context) -> {}),
+				budgets, measured, exceeded);
+		check("scheduled", "/scheduled-event.json",
+				dispatcher -> dispatcher.withEventHandler(ScheduledEvent.class, (event, context) -> {}),
+				budgets, measured, exceeded);
+		check("tagged", "/tagged-event.json",
+				dispatcher -> dispatcher.withEventHandler(TaggedEvent.class, (event, context) -> {}),
+				budgets, measured, exceeded);
+
+		assertThat(exceeded).as("phases over budget; measured %s", measured).isEmpty();
+	}
+
+	private static void check(
+			String name, String resource, Consumer<CloudWatchEventDispatcher> registration, Properties budgets,
+			List<String> measured, List<String> exceeded) throws IOException {
+
+		for (Map.Entry<Stage, Long> entry : measure(readAllBytes(resource), registration).entrySet()) {
+			String key = name + "." + entry.getKey().name().toLowerCase();
+			String budget = budgets.getProperty(key);
+
+			measured.add(key + "=" + entry.getValue() + " B");
+
+			if (budget == null) {
+				exceeded.add(key + ": no budget recorded; measured " + entry.getValue() + " B");
+			} else if (entry.getValue() > Long.parseLong(budget)) {
+				exceeded.add(key + ": measured " + entry.getValue() + " B; budget " + budget + " B");
+			}
+		}
+	}
+
+	private static Map<Stage, Long> measure(byte[] message, Consumer<CloudWatchEventDispatcher> registration) {
+		long[] minimum = new long[Stage.values().length];
+		fill(minimum, Long.MAX_VALUE);
+
+		long[] sample = new long[minimum.length];
+
+		for (int i = 0; i < WARMUP + SAMPLES; i++) {
+			dispatch(message, registration, sample);
+
+			if (i >= WARMUP) {
+				for (int stage = 0; stage < sample.length; stage++) {
+					minimum[stage] = Math.min(minimum[stage], sample[stage]);
+				}
+			}
+		}
+
+		Map<Stage, Long> measured = new EnumMap<>(Stage.class);
+		for (Stage stage : Stage.values()) {
+			measured.put(stage, minimum[stage.ordinal()]);
+		}
+
+		return measured;
+	}
+
+	private static void dispatch(byte[] message, Consumer<CloudWatchEventDispatcher> registration, long[] sample) {
+		fill(sample, 0);
+
+		InputStream in = new ByteArrayInputStream(message);
+
+		long before = allocated();
+		CloudWatchEventDispatcher dispatcher = new CloudWatchEventDispatcher(in, null);
+		sample[Stage.READ.ordinal()] = allocated() - before;
+
+		registration.accept(dispatcher);
+
+		PhaseRecorder recorder = new PhaseRecorder(sample);
+		DispatchResult result = dispatcher.withPhaseListener(recorder).tryDispatch();
+
+		assertThat(result.isDispatched()).as("dispatched; %s", result).isTrue();
+	}
+
+	private static long allocated() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static byte[] readAllBytes(String resource) throws IOException {
+		try (InputStream in = AllocationBudgetTest.class.getResourceAsStream(resource)) {
+			return in.readAllBytes();
+		}
+	}
+
+	/**
+	 * Phases budgeted: reading the message, followed by the phases of the dispatch itself.
+	 */
+	private enum Stage {
+		READ,
+		ENVELOPE,
+		DETAIL,
+		HEADER,
+		HANDLER,
+	}
+
+	private static final class PhaseRecorder implements DispatchPhaseListener {
+		private final long[] sample;
+		private Phase current;
+		private long start;
+
+		PhaseRecorder(long[] sample) {
+			this.sample = sample;
+		}
+
+		@Override
+		public void enter(Phase phase) {
+			long now = allocated();
+
+			if (current != null) {
+				sample[Stage.valueOf(current.name()).ordinal()] += now - start;
+			}
+
+			current = phase;
+			start = allocated();
+		}
+	}
+
+	@DetailType("Tagged Resource Change")
+	static class TaggedEvent extends CloudWatchEvent {
+		@SerializedName("resource-id")
+		private String resourceId;
+
+		private String state;
+		private long size;
+		private List<String> zones;
+
+		@JsonAdapter(NameValueListAdapter.class)
+		private Map<String, String> tags;
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BinderAdapterFactoryTest {
+	private final BinderAdapterFactory factory = new BinderAdapterFactory();
+	private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(factory).create();
+
+	@TempDir
+	Path output;
+
+	@Test
+	void binds_final_fields_of_event_with_no_arg_constructor() {
+		ImmutableEvent event = gson.fromJson(
+				"{\"name\":\"n\",\"count\":3,\"alias\":\"a\",\"unmapped\":{\"x\":[1]}," +
+						"\"tags\":[{\"name\":\"k\",\"value\":\"v\"}]}",
+				ImmutableEvent.class
+		);
+
+		assertThat(event.name).isEqualTo("n");
+		assertThat(event.count).isEqualTo(3);
+		assertThat(event.renamed).isEqualTo("a");
+		assertThat(event.tags).containsEntry("k", "v");
+	}
+
+	@Test
+	void binds_all_final_class_through_field_constructor() {
+		ImmutableEvent event = gson.fromJson(
+				"{\"points\":[{\"x\":1,\"label\":\"one\"},{\"label\":\"none\",\"x\":null}]}",
+				ImmutableEvent.class
+		);
+
+		assertThat(event.points).hasSize(2);
+		assertThat(event.points.get(0).x).isEqualTo(1);
+		assertThat(event.points.get(0).label).isEqualTo("one");
+		assertThat(event.points.get(0).constructed).isTrue();
+		assertThat(event.points.get(1).x).isZero();
+	}
+
+	@Test
+	void writes_bound_fields() {
+		ImmutableEvent event = gson.fromJson("{\"name\":\"n\",\"points\":[{\"x\":1}]}", ImmutableEvent.class);
+
+		assertThat(gson.toJson(event)).isEqualTo("{\"name\":\"n\",\"count\":0,\"points\":[{\"x\":1}]}");
+	}
+
+	@Test
+	void leaves_other_classes_to_gson() {
+		assertThat(factory.create(gson, TypeToken.get(String.class))).isNull();
+		assertThat(factory.create(gson, TypeToken.get(MutableValue.class))).isNull();
+		assertThat(factory.create(gson, TypeToken.get(GenericValue.class))).isNull();
+		assertThat(factory.create(gson, TypeToken.get(ImmutableEvent.class))).isNotNull();
+		assertThat(factory.create(gson, TypeToken.get(Point.class))).isNotNull();
+	}
+
+	@Test
+	void binds_records() throws Exception {
+		assumeTrue(recordsSupported(), "records require Java 16 or later");
+
+		Path source = output.resolve("Pair.java");
+		Files.write(source, String.join("\n",
+				"import com.google.gson.annotations.SerializedName;",
+				"public record Pair(@SerializedName(\"left-value\") String left, int right) {",
+				"}"
+		).getBytes(UTF_8));
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		int status = compiler.run(null, null, null,
+				"-classpath", location(Gson.class), "-d", output.toString(), source.toString()
+		);
+		assertThat(status).isZero();
+
+		URL[] urls = {output.toUri().toURL()};
+		try (URLClassLoader loader = new URLClassLoader(urls, getClass().getClassLoader())) {
+			Class<?> pairType = loader.loadClass("Pair");
+
+			Object pair = gson.fromJson("{\"right\":2,\"left-value\":\"one\"}", pairType);
+
+			assertThat(pair).hasToString("Pair[left=one, right=2]");
+			assertThat(gson.toJson(pair)).isEqualTo("{\"left-value\":\"one\",\"right\":2}");
+		}
+	}
+
+	private static boolean recordsSupported() {
+		try {
+			Class.class.getMethod("isRecord");
+
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static String location(Class<?> type) throws URISyntaxException {
+		return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+	}
+
+	@SuppressWarnings("unused")
+	static class ImmutableEvent extends CloudWatchEvent {
+		private final String name;
+		private final int count;
+
+		@SerializedName(value = "renamed", alternate = "alias")
+		private final String renamed;
+
+		@JsonAdapter(NameValueListAdapter.class)
+		private final Map<String, String> tags;
+
+		private final List<Point> points;
+
+		ImmutableEvent() {
+			name = null;
+			count = 0;
+			renamed = null;
+			tags = null;
+			points = null;
+		}
+	}
+
+	static final class Point {
+		private final int x;
+		private final String label;
+
+		private final transient boolean constructed;
+
+		Point(int x, String label) {
+			this.x = x;
+			this.label = label;
+			this.constructed = true;
+		}
+	}
+
+	@SuppressWarnings("unused")
+	static class MutableValue {
+		private String value;
+	}
+
+	@SuppressWarnings("unused")
+	static class GenericValue<T> {
+		private final T value = null;
+	}
+}
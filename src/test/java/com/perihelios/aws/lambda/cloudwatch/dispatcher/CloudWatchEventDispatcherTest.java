@@ -17,21 +17,46 @@ package com.perihelios.aws.lambda.cloudwatch.dispatcher;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.google.gson.JsonPrimitive;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.aggregate.Aggregator;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.aggregate.InMemorySink;
 import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
 import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.Header;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.UnknownEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.EventTrace;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.InMemorySpanExporter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.Span;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.DEFERRED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.DISPATCHED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.DUPLICATE;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.FAILED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.FALLBACK;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.MALFORMED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.NOT_CLOUDWATCH_EVENT;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.SUPERSEDED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.TOO_LARGE;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.UNKNOWN_TYPE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.fill;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.contains;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -106,6 +131,8 @@ class CloudWatchEventDispatcherTest {
 					assertThat(header.time()).isEqualTo(ZonedDateTime.parse("2019-06-16T22:20:01Z"));
 					assertThat(header.region()).isEqualTo("us-west-7");
 					assertThat(header.resources()).containsExactly("arn:aws:fiction:us-west-7:261421242815:item/path");
+					assertThat(header.arns()).hasSize(1);
+					assertThat(header.arns().get(0).resourceId()).isEqualTo("path");
 
 					assertThat(event.biscuit()).isEqualTo("flaky");
 				})
@@ -153,6 +180,726 @@ class CloudWatchEventDispatcherTest {
 				.dispatch();
 	}
 
+	@Test
+	void rejects_message_larger_than_limit_without_reading_it() {
+		AtomicInteger bytesRead = new AtomicInteger();
+
+		InputStream stream = new InputStream() {
+			@Override
+			public int available() {
+				return 1_000_000;
+			}
+
+			@Override
+			public int read() {
+				bytesRead.incrementAndGet();
+				return ' ';
+			}
+		};
+
+		assertThatThrownBy(() ->
+				new CloudWatchEventDispatcher(stream, null, MessageLimits.DEFAULT.withMaxBytes(1_000))
+						.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+						.dispatch()
+		)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Message exceeds maximum size of 1000 bytes");
+
+		assertThat(bytesRead).hasValue(0);
+	}
+
+	@Test
+	void stops_reading_stream_of_unknown_length_at_limit() {
+		AtomicInteger bytesRead = new AtomicInteger();
+		AtomicInteger closed = new AtomicInteger();
+
+		InputStream endless = new InputStream() {
+			@Override
+			public int read() {
+				bytesRead.incrementAndGet();
+				return '[';
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				fill(b, off, off + len, (byte) ' ');
+				bytesRead.addAndGet(len);
+				return len;
+			}
+
+			@Override
+			public void close() {
+				closed.incrementAndGet();
+			}
+		};
+
+		DispatchResult result = new CloudWatchEventDispatcher(endless, null, MessageLimits.DEFAULT.withMaxBytes(50_000))
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+				.tryDispatch();
+
+		assertThat(result.status()).isEqualTo(TOO_LARGE);
+		assertThat(result.isRejected()).isTrue();
+		assertThat(bytesRead.get()).isBetween(50_000, 50_001);
+		assertThat(closed).hasValue(1);
+	}
+
+	@Test
+	void rejects_batch_nested_deeper_than_limit() {
+		char[] brackets = new char[10_000];
+		fill(brackets, '[');
+
+		BatchResult result = new CloudWatchEventDispatcher(
+				stringStream(new String(brackets)), null, MessageLimits.DEFAULT.withMaxDepth(8)
+		)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+				.dispatchBatch();
+
+		assertThat(result.items()).hasSize(1);
+		assertThat(result.items().get(0).result().status()).isEqualTo(TOO_LARGE);
+		assertThat(result.items().get(0).result().reason()).isEqualTo("Message exceeds maximum nesting depth of 8");
+	}
+
+	@Test
+	void does_not_count_brackets_within_strings_toward_depth() {
+		AtomicReference<FictitiousEvent> received = new AtomicReference<>();
+
+		String biscuit = "[[{\\\"[";
+
+		new CloudWatchEventDispatcher(stringStream(event("e1", biscuit)), null, MessageLimits.DEFAULT.withMaxDepth(2))
+				.withEventHandler(FictitiousEvent.class, (event, context) -> received.set(event))
+				.dispatch();
+
+		assertThat(received.get().biscuit()).isEqualTo("[[{\"[");
+	}
+
+	@Test
+	void dispatches_event_with_non_ascii_detail() {
+		AtomicReference<FictitiousEvent> received = new AtomicReference<>();
+
+		new CloudWatchEventDispatcher(stringStream("\n  " + event("e1", "caf\u00e9 \ud83c\udf6a") + "  \n"), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> received.set(event))
+				.dispatch();
+
+		assertThat(received.get().biscuit()).isEqualTo("caf\u00e9 \ud83c\udf6a");
+		assertThat(received.get().header().id()).isEqualTo("e1");
+	}
+
+	@Test
+	void reports_unhandled_event_type() {
+		DispatchResult result = new CloudWatchEventDispatcher(classpathFile("unknown-event.json"), null)
+				.withEventHandler(FictitiousEvent.class, (a, b) -> {})
+				.tryDispatch();
+
+		assertThat(result.status()).isEqualTo(UNKNOWN_TYPE);
+		assertThat(result.detailType()).isEqualTo("Unknown Event");
+		assertThat(result.reason())
+				.isEqualTo("Received event of unknown type; detail-type field in message: Unknown Event");
+	}
+
+	@Test
+	void reports_malformed_and_non_cloudwatch_messages() {
+		DispatchResult notJson = new CloudWatchEventDispatcher(stringStream("xyz"), null).tryDispatch();
+		DispatchResult truncated = new CloudWatchEventDispatcher(stringStream("{\"a\":"), null).tryDispatch();
+		DispatchResult missingDetail = new CloudWatchEventDispatcher(classpathFile("missing-detail.json"), null)
+				.tryDispatch();
+
+		assertThat(notJson.status()).isEqualTo(MALFORMED);
+		assertThat(truncated.status()).isEqualTo(MALFORMED);
+		assertThat(truncated.cause()).isNotNull();
+		assertThat(missingDetail.status()).isEqualTo(NOT_CLOUDWATCH_EVENT);
+		assertThat(missingDetail.isRejected()).isTrue();
+	}
+
+	@Test
+	void reports_header_property_of_wrong_type_as_malformed() {
+		DispatchResult result = new CloudWatchEventDispatcher(
+				stringStream("{\"id\":{},\"detail-type\":\"Fictitious Event\",\"detail\":{}}"), null
+		)
+				.withEventHandler(FictitiousEvent.class, (a, b) -> {})
+				.tryDispatch();
+
+		assertThat(result.status()).isEqualTo(MALFORMED);
+		assertThat(result.cause()).hasMessageContaining("$.id");
+	}
+
+	@Test
+	void reports_unparseable_time_as_malformed() {
+		String event = "{\"id\":\"e1\",\"time\":\"yesterday\",\"detail-type\":\"Fictitious Event\",\"detail\":{}}";
+		List<String> biscuits = new ArrayList<>();
+
+		DispatchResult result = new CloudWatchEventDispatcher(stringStream(event), null)
+				.withEventHandler(FictitiousEvent.class, (a, b) -> {})
+				.tryDispatch();
+		BatchResult batch = new CloudWatchEventDispatcher(
+				stringStream("[" + event + "," + event("e2", "soft") + "]"), null
+		)
+				.withEventHandler(FictitiousEvent.class, (e, context) -> biscuits.add(e.biscuit()))
+				.dispatchBatch();
+
+		assertThat(result.status()).isEqualTo(MALFORMED);
+		assertThat(result.cause()).hasMessageContaining("$.time");
+		assertThat(batch.items()).extracting(item -> item.result().status()).containsExactly(MALFORMED, DISPATCHED);
+		assertThat(biscuits).containsExactly("soft");
+	}
+
+	@Test
+	void reports_trailing_content_as_malformed() {
+		DispatchResult result = new CloudWatchEventDispatcher(
+				stringStream("{\"detail-type\":\"Fictitious Event\",\"detail\":{}} {}"), null
+		)
+				.withEventHandler(FictitiousEvent.class, (a, b) -> {})
+				.tryDispatch();
+
+		assertThat(result.status()).isEqualTo(MALFORMED);
+	}
+
+	@Test
+	void binds_detail_preceding_detail_type_and_skips_unmapped_properties() {
+		AtomicReference<FictitiousEvent> received = new AtomicReference<>();
+
+		DispatchResult result = new CloudWatchEventDispatcher(stringStream(
+				"{\"detail\":{\"requestParameters\":{\"a\":[{\"b\":{\"c\":[1,2,3]}}]},\"biscuit-type\":\"crumbly\"}," +
+						"\"id\":\"event-1\",\"unmapped\":{\"x\":[null]},\"detail-type\":\"Fictitious Event\"}"
+		), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> received.set(event))
+				.tryDispatch();
+
+		assertThat(result.status()).isEqualTo(DISPATCHED);
+		assertThat(received.get().biscuit()).isEqualTo("crumbly");
+		assertThat(received.get().header().id()).isEqualTo("event-1");
+		assertThat(received.get().header().resources()).isEmpty();
+	}
+
+	@Test
+	void dispatches_unhandled_event_type_to_fallback() {
+		AtomicReference<UnknownEvent> received = new AtomicReference<>();
+
+		DispatchResult result = new CloudWatchEventDispatcher(classpathFile("unknown-event.json"), null)
+				.withEventHandler(FictitiousEvent.class, (a, b) -> {})
+				.withUnknownEventHandler((event, context) -> received.set(event))
+				.tryDispatch();
+
+		assertThat(result.status()).isEqualTo(FALLBACK);
+		assertThat(result.isDispatched()).isTrue();
+		assertThat(received.get().detailType()).isEqualTo("Unknown Event");
+		assertThat(received.get().detail().isJsonObject()).isTrue();
+	}
+
+	@Test
+	void skips_duplicate_events() {
+		RecentEventIds recentEventIds = new RecentEventIds(10);
+		AtomicInteger count = new AtomicInteger();
+
+		DispatchResult first = new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> count.incrementAndGet())
+				.withDeduplication(recentEventIds)
+				.tryDispatch();
+		DispatchResult second = new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> count.incrementAndGet())
+				.withDeduplication(recentEventIds)
+				.tryDispatch();
+
+		assertThat(first.status()).isEqualTo(DISPATCHED);
+		assertThat(second.status()).isEqualTo(DUPLICATE);
+		assertThat(second.isRejected()).isFalse();
+		assertThat(count).hasValue(1);
+	}
+
+	@Test
+	void does_not_remember_events_whose_handler_failed() {
+		RecentEventIds recentEventIds = new RecentEventIds(10);
+
+		assertThatThrownBy(() -> new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {
+					throw new IllegalStateException("downstream failure");
+				})
+				.withDeduplication(recentEventIds)
+				.tryDispatch()
+		).isInstanceOf(IllegalStateException.class);
+
+		assertThat(recentEventIds.contains("85085726-4d64-918b-c9bb-62b172316c7c")).isFalse();
+	}
+
+	@Test
+	void offers_aggregator_flush_after_handling_event() {
+		InMemorySink<String> sink = new InMemorySink<>();
+		Aggregator<String> aggregator = new Aggregator<>(sink).withDeadlineMargin(Duration.ofSeconds(1));
+		Context context = mock(Context.class);
+
+		when(context.getRemainingTimeInMillis()).thenReturn(60_000);
+		new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), context)
+				.withEventHandler(FictitiousEvent.class, (event, ctx) -> aggregator.append(event.biscuit()))
+				.withAggregator(aggregator)
+				.dispatch();
+
+		assertThat(sink.records()).isEmpty();
+
+		when(context.getRemainingTimeInMillis()).thenReturn(900);
+		new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), context)
+				.withEventHandler(FictitiousEvent.class, (event, ctx) -> aggregator.append(event.biscuit()))
+				.withAggregator(aggregator)
+				.dispatch();
+
+		assertThat(sink.records()).containsExactly("flaky", "flaky");
+	}
+
+	@Test
+	void logs_aggregator_flush_failure_without_failing_handled_event() {
+		Aggregator<String> aggregator = new Aggregator<String>(batch -> {
+			throw new IOException("unavailable");
+		}).withDeadlineMargin(Duration.ofSeconds(1));
+		Context context = mock(Context.class);
+		LambdaLogger logger = mock(LambdaLogger.class);
+
+		when(context.getRemainingTimeInMillis()).thenReturn(900);
+		when(context.getLogger()).thenReturn(logger);
+
+		DispatchResult result = new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), context)
+				.withEventHandler(FictitiousEvent.class, (event, ctx) -> aggregator.append(event.biscuit()))
+				.withAggregator(aggregator)
+				.tryDispatch();
+
+		assertThat(result.status()).isEqualTo(DISPATCHED);
+		assertThat(aggregator.size()).isEqualTo(1);
+		verify(logger).log(contains("1 records remain buffered"));
+	}
+
+	@Test
+	void dispatches_batch_capturing_handler_failures() {
+		List<String> biscuits = new ArrayList<>();
+
+		BatchResult result = new CloudWatchEventDispatcher(
+				stringStream("[" + event("e1", "flaky") + "," + event("e2", "stale") + "," + event("e3", "soft") + "]"),
+				null
+		)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {
+					if (event.biscuit().equals("stale")) {
+						throw new IllegalStateException("rejected");
+					}
+
+					biscuits.add(event.biscuit());
+				})
+				.dispatchBatch();
+
+		assertThat(biscuits).containsExactly("flaky", "soft");
+		assertThat(result.items()).extracting(item -> item.result().status())
+				.containsExactly(DISPATCHED, FAILED, DISPATCHED);
+		assertThat(result.failed()).hasSize(1);
+		assertThat(result.failed().get(0).eventId()).isEqualTo("e2");
+		assertThat(result.failed().get(0).result().cause()).hasMessage("rejected");
+		assertThat(result.isComplete()).isFalse();
+	}
+
+	@Test
+	void defers_batch_events_that_do_not_fit_in_remaining_time() {
+		HandlerLatencies latencies = new HandlerLatencies();
+		latencies.record("Fictitious Event", Duration.ofMillis(300).toNanos());
+
+		Context context = mock(Context.class);
+		when(context.getRemainingTimeInMillis()).thenReturn(2_000, 1_000);
+
+		BatchResult result = new CloudWatchEventDispatcher(
+				stringStream("[" + event("e1", "flaky") + "," + event("e2", "stale") + "," + event("e3", "soft") + "]"),
+				context
+		)
+				.withEventHandler(FictitiousEvent.class, (event, ctx) -> {})
+				.withDeadlineMargin(Duration.ofMillis(500))
+				.withLatencyEstimates(latencies)
+				.dispatchBatch();
+
+		assertThat(result.items()).extracting(item -> item.result().status())
+				.containsExactly(DISPATCHED, DEFERRED, DEFERRED);
+		assertThat(result.deferred()).extracting(BatchResult.Item::eventId).containsExactly("e2", "e3");
+		assertThat(result.deferred().get(0).result().isRejected()).isFalse();
+	}
+
+	@Test
+	void ends_batch_at_malformed_content() {
+		List<String> biscuits = new ArrayList<>();
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream("[" + event("e1", "flaky") + ",{\"a\":"), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> biscuits.add(event.biscuit()))
+				.dispatchBatch();
+
+		assertThat(biscuits).containsExactly("flaky");
+		assertThat(result.items()).extracting(item -> item.result().status()).containsExactly(DISPATCHED, MALFORMED);
+		assertThat(result.items().get(1).index()).isEqualTo(1);
+	}
+
+	@Test
+	void reports_unbindable_batch_events_and_dispatches_the_rest() {
+		List<String> biscuits = new ArrayList<>();
+		String unbindable = "{\"id\":\"e2\",\"detail-type\":\"Fictitious Event\",\"detail\":{\"biscuit-type\":[1]}}";
+		String badHeader = "{\"id\":{},\"detail-type\":\"Fictitious Event\",\"detail\":{}}";
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream(
+				"[" + event("e1", "flaky") + ", " + unbindable + ",\n" + badHeader + " ," + event("e4", "soft") + "]"
+		), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> biscuits.add(event.biscuit()))
+				.dispatchBatch();
+
+		assertThat(biscuits).containsExactly("flaky", "soft");
+		assertThat(result.items()).extracting(item -> item.result().status())
+				.containsExactly(DISPATCHED, MALFORMED, MALFORMED, DISPATCHED);
+		assertThat(result.items()).extracting(BatchResult.Item::index).containsExactly(0, 1, 2, 3);
+	}
+
+	@Test
+	void dispatches_single_event_as_batch_of_one() {
+		BatchResult result = new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+				.dispatchBatch();
+
+		assertThat(result.items()).hasSize(1);
+		assertThat(result.items().get(0).eventId()).isEqualTo("85085726-4d64-918b-c9bb-62b172316c7c");
+		assertThat(result.isComplete()).isTrue();
+	}
+
+	@Test
+	void writes_handler_value_to_output() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), null)
+				.withEventFunction(FictitiousEvent.class, (event, context) ->
+						new Receipt(event.biscuit(), event.header().time())
+				)
+				.dispatchTo(output);
+
+		assertThat(new String(output.toByteArray(), UTF_8))
+				.isEqualTo("{\"biscuit\":\"flaky\",\"received\":\"2019-06-16T22:20:01Z\"}");
+	}
+
+	@Test
+	void omits_null_properties_of_handler_value_as_gson_does() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Receipt receipt = new Receipt("<flaky>", null);
+
+		new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), null)
+				.withEventFunction(FictitiousEvent.class, (event, context) -> receipt)
+				.dispatchTo(output);
+
+		assertThat(new String(output.toByteArray(), UTF_8))
+				.isEqualTo("{\"biscuit\":\"\\u003cflaky\\u003e\"}");
+	}
+
+	@Test
+	void writes_null_to_output_for_handler_without_value_and_duplicate_event() {
+		RecentEventIds recentEventIds = new RecentEventIds(10);
+		ByteArrayOutputStream first = new ByteArrayOutputStream();
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+		new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+				.withDeduplication(recentEventIds)
+				.dispatchTo(first);
+		new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), null)
+				.withEventFunction(FictitiousEvent.class, (event, context) -> event.biscuit())
+				.withDeduplication(recentEventIds)
+				.dispatchTo(second);
+
+		assertThat(new String(first.toByteArray(), UTF_8)).isEqualTo("null");
+		assertThat(new String(second.toByteArray(), UTF_8)).isEqualTo("null");
+	}
+
+	@Test
+	void writes_nothing_to_output_when_event_rejected() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		assertThatThrownBy(() -> new CloudWatchEventDispatcher(stringStream("{}"), null)
+				.withEventFunction(FictitiousEvent.class, (event, context) -> event.biscuit())
+				.dispatchTo(output)
+		).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(output.toByteArray()).isEmpty();
+	}
+
+	@Test
+	void streams_batch_handler_values_to_output() {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		BatchResult result = new CloudWatchEventDispatcher(
+				stringStream("[" + event("e1", "flaky") + "," + event("e2", "stale") + "," + event("e3", "soft") +
+						",{\"a\":"),
+				null
+		)
+				.withEventFunction(FictitiousEvent.class, (event, context) -> {
+					if (event.biscuit().equals("stale")) {
+						throw new IllegalStateException("rejected");
+					}
+
+					return event.biscuit().length();
+				})
+				.dispatchBatchTo(output);
+
+		assertThat(result.items()).extracting(item -> item.result().status())
+				.containsExactly(DISPATCHED, FAILED, DISPATCHED, MALFORMED);
+		assertThat(new String(output.toByteArray(), UTF_8)).isEqualTo("[5,null,4,null]");
+	}
+
+	@Test
+	void traces_phases_of_event() {
+		InMemorySpanExporter exporter = new InMemorySpanExporter();
+		Context context = mock(Context.class);
+		when(context.getAwsRequestId()).thenReturn("request-1");
+
+		new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), context)
+				.withEventHandler(FictitiousEvent.class, (event, ctx) -> {})
+				.withTracing(exporter)
+				.dispatch();
+
+		assertThat(exporter.traces()).hasSize(1);
+
+		EventTrace trace = exporter.traces().get(0);
+
+		assertThat(trace.requestId()).isEqualTo("request-1");
+		assertThat(trace.eventId()).isEqualTo("85085726-4d64-918b-c9bb-62b172316c7c");
+		assertThat(trace.detailType()).isEqualTo("Fictitious Event");
+		assertThat(trace.status()).isEqualTo(DISPATCHED);
+		assertThat(trace.spans()).extracting(Span::kind).containsExactly(
+				Span.Kind.READ, Span.Kind.PARSE, Span.Kind.BIND, Span.Kind.PARSE, Span.Kind.HEADER, Span.Kind.HANDLE
+		);
+
+		// Spans are in order, and do not overlap
+		long offset = 0;
+		for (Span span : trace.spans()) {
+			assertThat(span.offsetNanos()).isGreaterThanOrEqualTo(offset);
+			assertThat(span.durationNanos()).isNotNegative();
+			offset = span.offsetNanos() + span.durationNanos();
+		}
+	}
+
+	@Test
+	void traces_each_event_of_batch() {
+		InMemorySpanExporter exporter = new InMemorySpanExporter();
+
+		new CloudWatchEventDispatcher(
+				stringStream("[" + event("e1", "flaky") + "," + event("e2", "stale") + ",{\"detail\":{}},{\"a\":"),
+				null
+		)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {
+					if (event.biscuit().equals("stale")) {
+						throw new IllegalStateException("rejected");
+					}
+				})
+				.withTracing(exporter)
+				.dispatchBatch();
+
+		List<EventTrace> traces = exporter.traces();
+
+		assertThat(traces).extracting(EventTrace::eventId).containsExactly("e1", "e2", null, null);
+		assertThat(traces).extracting(EventTrace::status)
+				.containsExactly(DISPATCHED, FAILED, NOT_CLOUDWATCH_EVENT, MALFORMED);
+		assertThat(traces.get(0).spans().get(0).kind()).isEqualTo(Span.Kind.READ);
+		assertThat(traces.get(1).spans()).extracting(Span::kind)
+				.doesNotContain(Span.Kind.READ)
+				.contains(Span.Kind.HANDLE);
+		assertThat(traces.get(1).requestId()).isNull();
+	}
+
+	@Test
+	void traces_event_whose_handler_throws() {
+		InMemorySpanExporter exporter = new InMemorySpanExporter();
+
+		assertThatThrownBy(() -> new CloudWatchEventDispatcher(classpathFile("fictitious-event.json"), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {
+					throw new IllegalStateException("downstream failure");
+				})
+				.withTracing(exporter)
+				.dispatch()
+		).isInstanceOf(IllegalStateException.class);
+
+		assertThat(exporter.traces()).extracting(EventTrace::status).containsExactly(FAILED);
+		assertThat(exporter.traces().get(0).detailType()).isEqualTo("Fictitious Event");
+	}
+
+	@Test
+	void coalesces_batch_events_keeping_latest_per_resource() {
+		List<String> biscuits = new ArrayList<>();
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream("[" +
+				stateEvent("e1", "2019-06-16T22:20:01Z", "r1", "flaky") + "," +
+				stateEvent("e2", "2019-06-16T22:20:01Z", "r2", "stale") + "," +
+				stateEvent("e3", "2019-06-16T22:20:03Z", "r1", "soft") + "," +
+				stateEvent("e4", "2019-06-16T22:20:02Z", "r1", "crumbly") + "," +
+				"{\"id\":\"e5\",\"detail-type\":\"Fictitious Event\",\"resources\":[\"r2\"]}" +
+				"]"), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> biscuits.add(event.biscuit()))
+				.withCoalescing(FictitiousEvent.class)
+				.dispatchBatch();
+
+		assertThat(biscuits).containsExactly("stale", "soft");
+		assertThat(result.items()).extracting(item -> item.result().status())
+				.containsExactly(SUPERSEDED, DISPATCHED, DISPATCHED, SUPERSEDED, NOT_CLOUDWATCH_EVENT);
+		assertThat(result.items()).extracting(BatchResult.Item::eventId)
+				.containsExactly("e1", "e2", "e3", "e4", "e5");
+		assertThat(result.items().get(0).result().isRejected()).isFalse();
+	}
+
+	@Test
+	void coalesces_batch_events_by_extracted_key() {
+		List<String> biscuits = new ArrayList<>();
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream("[" +
+				stateEvent("e1", "2019-06-16T22:20:01Z", "r1", "flaky") + "," +
+				stateEvent("e2", "2019-06-16T22:20:02Z", "r1", "stale") + "," +
+				stateEvent("e3", "2019-06-16T22:20:03Z", "r1", "soft") +
+				"]"), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> biscuits.add(event.biscuit()))
+				.withCoalescing(FictitiousEvent.class, header -> header.id().equals("e2"))
+				.dispatchBatch();
+
+		assertThat(biscuits).containsExactly("stale", "soft");
+		assertThat(result.items()).extracting(item -> item.result().status())
+				.containsExactly(SUPERSEDED, DISPATCHED, DISPATCHED);
+	}
+
+	@Test
+	void coalesces_events_from_sqs_records() {
+		List<String> biscuits = new ArrayList<>();
+		String message = "{\"Records\":[" +
+				sqsRecord("m1", stateEvent("e1", "2019-06-16T22:20:01Z", "r1", "flaky")) + "," +
+				sqsRecord("m2", stateEvent("e2", "2019-06-16T22:20:02Z", "r1", "stale")) +
+				"]}";
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream(message), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> biscuits.add(event.biscuit()))
+				.withCoalescing(FictitiousEvent.class)
+				.dispatchRecords();
+
+		assertThat(biscuits).containsExactly("stale");
+		assertThat(result.items()).extracting(item -> item.result().status()).containsExactly(SUPERSEDED, DISPATCHED);
+		assertThat(result.items()).extracting(BatchResult.Item::recordId).containsExactly("m1", "m2");
+		assertThat(result.toSqsBatchResponse()).isEqualTo("{\"batchItemFailures\":[]}");
+	}
+
+	@Test
+	void throws_when_coalesced_event_type_missing_detail_type_annotation() {
+		assertThatThrownBy(() -> new CloudWatchEventDispatcher(stringStream("{}"), null)
+				.withCoalescing(UnannotatedEvent.class)
+		).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void dispatches_events_from_sqs_records_reporting_failures() {
+		List<String> biscuits = new ArrayList<>();
+		String message = "{\"Records\":[" +
+				sqsRecord("m1", event("e1", "flaky")) + "," +
+				sqsRecord("m2", event("e2", "stale")) + "," +
+				sqsRecord("m3", "{\"detail\":{\"biscuit-type\":\"soft \\\"n\\\" \\u00e9\"}," +
+						"\"id\":\"e3\",\"detail-type\":\"Fictitious Event\"}") + "," +
+				sqsRecord("m4", "{\"id\":") +
+				"]}";
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream(message), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {
+					if (event.biscuit().equals("stale")) {
+						throw new IllegalStateException("rejected");
+					}
+
+					biscuits.add(event.biscuit());
+				})
+				.dispatchRecords();
+
+		assertThat(biscuits).containsExactly("flaky", "soft \"n\" \u00e9");
+		assertThat(result.items()).extracting(item -> item.result().status())
+				.containsExactly(DISPATCHED, FAILED, DISPATCHED, MALFORMED);
+		assertThat(result.items()).extracting(BatchResult.Item::recordId).containsExactly("m1", "m2", "m3", "m4");
+		assertThat(result.items()).extracting(BatchResult.Item::eventId).containsExactly("e1", "e2", "e3", null);
+		assertThat(result.toSqsBatchResponse()).isEqualTo("{\"batchItemFailures\":[{\"itemIdentifier\":\"m2\"}]}");
+		assertThat(result.toSqsBatchResponse(EnumSet.of(FAILED, MALFORMED)))
+				.isEqualTo("{\"batchItemFailures\":[{\"itemIdentifier\":\"m2\"},{\"itemIdentifier\":\"m4\"}]}");
+	}
+
+	@Test
+	void reports_only_retryable_records_in_sqs_batch_response() {
+		String message = "{\"Records\":[" +
+				sqsRecord("m1", event("e1", "flaky")) + "," +
+				sqsRecord("m2", "{\"id\":\"e2\",\"detail-type\":\"Unheard Of\",\"detail\":{}}") + "," +
+				sqsRecord("m3", "{\"id\":\"e3\"}") + "," +
+				sqsRecord("m4", event("e4", "stale")) +
+				"]}";
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream(message), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {
+					if (event.biscuit().equals("stale")) {
+						throw new IllegalStateException("rejected");
+					}
+				})
+				.dispatchRecords();
+
+		assertThat(result.items()).extracting(item -> item.result().status())
+				.containsExactly(DISPATCHED, UNKNOWN_TYPE, NOT_CLOUDWATCH_EVENT, FAILED);
+		assertThat(result.toSqsBatchResponse()).isEqualTo("{\"batchItemFailures\":[{\"itemIdentifier\":\"m4\"}]}");
+	}
+
+	@Test
+	void dispatches_event_from_sns_record() {
+		AtomicReference<FictitiousEvent> received = new AtomicReference<>();
+		String message = "{\"Records\":[{\"EventSource\":\"aws:sns\",\"Sns\":{\"Type\":\"Notification\"," +
+				"\"MessageId\":\"n1\",\"Message\":" + new JsonPrimitive(event("e1", "flaky")) + "}}]}";
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream(message), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> received.set(event))
+				.dispatchRecords();
+
+		assertThat(received.get().biscuit()).isEqualTo("flaky");
+		assertThat(result.items().get(0).recordId()).isEqualTo("n1");
+		assertThat(result.isComplete()).isTrue();
+		assertThat(result.toSqsBatchResponse()).isEqualTo("{\"batchItemFailures\":[]}");
+	}
+
+	@Test
+	void reports_messages_without_records() {
+		BatchResult result = new CloudWatchEventDispatcher(stringStream(event("e1", "flaky")), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+				.dispatchRecords();
+
+		assertThat(result.items()).extracting(item -> item.result().status()).containsExactly(NOT_CLOUDWATCH_EVENT);
+	}
+
+	@Test
+	void fails_whole_sqs_batch_when_records_are_malformed() {
+		BatchResult result = new CloudWatchEventDispatcher(
+				stringStream("{\"Records\":[" + sqsRecord("m1", event("e1", "flaky")) + ",{\"messageId\":"),
+				null
+		)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+				.dispatchRecords();
+
+		assertThat(result.items()).extracting(item -> item.result().status()).containsExactly(DISPATCHED, MALFORMED);
+		assertThat(result.toSqsBatchResponse()).isEqualTo("{\"batchItemFailures\":[{\"itemIdentifier\":\"\"}]}");
+	}
+
+	private static final class Receipt {
+		private final String biscuit;
+		private final ZonedDateTime received;
+
+		Receipt(String biscuit, ZonedDateTime received) {
+			this.biscuit = biscuit;
+			this.received = received;
+		}
+	}
+
+	private static String sqsRecord(String messageId, String body) {
+		return "{\"messageId\":\"" + messageId + "\",\"receiptHandle\":\"AQEB\",\"body\":" +
+				new JsonPrimitive(body) + ",\"attributes\":{\"ApproximateReceiveCount\":\"1\"}," +
+				"\"messageAttributes\":{},\"eventSource\":\"aws:sqs\"}";
+	}
+
+	private static String event(String id, String biscuit) {
+		return "{\"id\":\"" + id + "\",\"detail-type\":\"Fictitious Event\"," +
+				"\"detail\":{\"biscuit-type\":\"" + biscuit + "\"}}";
+	}
+
+	private static String stateEvent(String id, String time, String resource, String biscuit) {
+		return "{\"id\":\"" + id + "\",\"detail-type\":\"Fictitious Event\",\"time\":\"" + time + "\"," +
+				"\"resources\":[\"" + resource + "\"],\"detail\":{\"biscuit-type\":\"" + biscuit + "\"}}";
+	}
+
+	private static ByteArrayInputStream stringStream(String message) {
+		return new ByteArrayInputStream(message.getBytes(UTF_8));
+	}
+
 	private static ByteArrayInputStream classpathFile(String filename) {
 		if (!filename.startsWith("/")) {
 			filename = "/" + filename;
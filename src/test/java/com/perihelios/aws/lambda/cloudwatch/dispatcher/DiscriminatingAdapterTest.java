@@ -0,0 +1,243 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailDiscriminator;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DiscriminatorValue;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.UnknownEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.DISPATCHED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.FALLBACK;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.UNKNOWN_TYPE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DiscriminatingAdapterTest {
+	@Test
+	void routes_detail_to_subclass_by_discriminator() {
+		List<ApiCallEvent> received = new ArrayList<>();
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream("[" +
+				apiCall("RunInstances", "\"instanceType\":\"t3.micro\"") + "," +
+				apiCall("StopInstances", "\"force\":true") +
+				"]"), null)
+				.withEventHandler(RunInstancesEvent.class, (event, context) -> received.add(event))
+				.withEventHandler(StopInstancesEvent.class, (event, context) -> received.add(event))
+				.dispatchBatch();
+
+		assertThat(result.items()).extracting(item -> item.result().status()).containsExactly(DISPATCHED, DISPATCHED);
+		assertThat(received).hasSize(2);
+		assertThat(received.get(0)).isInstanceOf(RunInstancesEvent.class);
+		assertThat(((RunInstancesEvent) received.get(0)).instanceType).isEqualTo("t3.micro");
+		assertThat(received.get(0).eventSource).isEqualTo("ec2.amazonaws.com");
+		assertThat(received.get(0).header().id()).isEqualTo("RunInstances-id");
+		assertThat(received.get(1)).isInstanceOf(StopInstancesEvent.class);
+		assertThat(((StopInstancesEvent) received.get(1)).force).isTrue();
+	}
+
+	@Test
+	void routes_several_values_to_one_subclass() {
+		AtomicReference<StopInstancesEvent> received = new AtomicReference<>();
+
+		new CloudWatchEventDispatcher(stringStream(apiCall("TerminateInstances", "\"force\":true")), null)
+				.withEventHandler(StopInstancesEvent.class, (event, context) -> received.set(event))
+				.dispatch();
+
+		assertThat(received.get().force).isTrue();
+	}
+
+	@Test
+	void routes_when_detail_precedes_detail_type() {
+		AtomicReference<RunInstancesEvent> received = new AtomicReference<>();
+
+		new CloudWatchEventDispatcher(stringStream(
+				"{\"detail\":{\"instanceType\":\"m5.large\",\"eventName\":\"RunInstances\"}," +
+						"\"detail-type\":\"Fictitious API Call\"}"
+		), null)
+				.withEventHandler(RunInstancesEvent.class, (event, context) -> received.set(event))
+				.dispatch();
+
+		assertThat(received.get().instanceType).isEqualTo("m5.large");
+	}
+
+	@Test
+	void routes_batch_elements_whose_detail_precedes_detail_type() {
+		List<ApiCallEvent> received = new ArrayList<>();
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream("[" +
+				apiCall("RunInstances", "\"instanceType\":\"t3.micro\"") + ", " +
+				"{\"detail\":{\"eventName\":\"Stop\\u0049nstances\",\"force\":true}," +
+				"\"detail-type\":\"Fictitious API Call\"}, " +
+				"{\"detail\":{\"eventName\":\"RunInstances\",\"instanceType\":\"m5.large\"}," +
+				"\"detail-type\":\"Fictitious API Call\"}" +
+				"]"), null)
+				.withEventHandler(RunInstancesEvent.class, (event, context) -> received.add(event))
+				.withEventHandler(StopInstancesEvent.class, (event, context) -> received.add(event))
+				.dispatchBatch();
+
+		assertThat(result.items()).extracting(item -> item.result().status())
+				.containsExactly(DISPATCHED, DISPATCHED, DISPATCHED);
+		assertThat(received).extracting(Object::getClass).containsExactly(
+				new Class<?>[] {RunInstancesEvent.class, StopInstancesEvent.class, RunInstancesEvent.class}
+		);
+		assertThat(((RunInstancesEvent) received.get(2)).instanceType).isEqualTo("m5.large");
+	}
+
+	@Test
+	void routes_events_of_records() {
+		List<ApiCallEvent> received = new ArrayList<>();
+
+		String stop = apiCall("StopInstances", "\"force\":true");
+		String run = apiCall("RunInstances", "");
+
+		BatchResult result = new CloudWatchEventDispatcher(stringStream("{\"Records\":[" +
+				"{\"messageId\":\"m1\",\"body\":" + new JsonPrimitive(stop) + "}," +
+				"{\"messageId\":\"m2\",\"body\":" + new JsonPrimitive(run) + "}" +
+				"]}"), null)
+				.withEventHandler(RunInstancesEvent.class, (event, context) -> received.add(event))
+				.withEventHandler(StopInstancesEvent.class, (event, context) -> received.add(event))
+				.dispatchRecords();
+
+		assertThat(result.items()).extracting(item -> item.result().status()).containsExactly(DISPATCHED, DISPATCHED);
+		assertThat(received).extracting(Object::getClass)
+				.containsExactly(new Class<?>[] {StopInstancesEvent.class, RunInstancesEvent.class});
+	}
+
+	@Test
+	void binds_discriminated_class_for_unmatched_value_when_registered() {
+		List<String> handled = new ArrayList<>();
+
+		new CloudWatchEventDispatcher(stringStream(apiCall("DescribeInstances", "")), null)
+				.withEventHandler(RunInstancesEvent.class, (event, context) -> handled.add("run"))
+				.withEventHandler(ApiCallEvent.class, (event, context) -> handled.add("any " + event.eventSource))
+				.dispatch();
+
+		assertThat(handled).containsExactly("any ec2.amazonaws.com");
+	}
+
+	@Test
+	void reports_unmatched_value_as_unknown_type() {
+		DispatchResult result = new CloudWatchEventDispatcher(stringStream(apiCall("DescribeInstances", "")), null)
+				.withEventHandler(RunInstancesEvent.class, (event, context) -> {})
+				.tryDispatch();
+
+		assertThat(result.status()).isEqualTo(UNKNOWN_TYPE);
+		assertThat(result.reason()).isEqualTo("Received event of unknown type; detail-type field in message: " +
+				"Fictitious API Call, eventName field in detail: DescribeInstances");
+	}
+
+	@Test
+	void delivers_unmatched_value_to_unknown_event_handler() {
+		AtomicReference<UnknownEvent> received = new AtomicReference<>();
+
+		DispatchResult result = new CloudWatchEventDispatcher(stringStream(apiCall("DescribeInstances", "")), null)
+				.withEventHandler(RunInstancesEvent.class, (event, context) -> {})
+				.withUnknownEventHandler((event, context) -> received.set(event))
+				.tryDispatch();
+
+		assertThat(result.status()).isEqualTo(FALLBACK);
+		assertThat(received.get().detail().getAsJsonObject().get("eventName").getAsString())
+				.isEqualTo("DescribeInstances");
+	}
+
+	@Test
+	void does_not_inherit_detail_type_without_discriminator_value() {
+		assertThatThrownBy(() -> new CloudWatchEventDispatcher(stringStream("{}"), null)
+				.withEventHandler(SpecialFictitiousEvent.class, (event, context) -> {})
+		).isInstanceOf(IllegalArgumentException.class);
+
+		assertThatThrownBy(() -> new CloudWatchEventDispatcher(stringStream("{}"), null)
+				.withEventHandler(UnvaluedApiCallEvent.class, (event, context) -> {})
+		).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void rejects_event_type_with_different_discriminator_for_same_detail_type() {
+		CloudWatchEventDispatcher dispatcher =
+				new CloudWatchEventDispatcher(stringStream(apiCall("RunInstances", "")), null)
+						.withEventHandler(RunInstancesEvent.class, (event, context) -> {});
+
+		assertThatThrownBy(() -> dispatcher.withEventHandler(ByStatusApiCallEvent.class, (event, context) -> {}))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("status")
+				.hasMessageContaining("eventName");
+
+		assertThat(dispatcher.tryDispatch().status()).isEqualTo(DISPATCHED);
+	}
+
+	@Test
+	void reads_detail_as_tree_when_used_as_plain_adapter() throws IOException {
+		DiscriminatingAdapter router = DiscriminatingAdapter.including(null, RunInstancesEvent.class, null);
+
+		CloudWatchEvent event = router.read(new JsonReader(new StringReader(
+				"{\"instanceType\":\"c5.xlarge\",\"eventName\":\"RunInstances\"}"
+		)));
+
+		assertThat(event).isInstanceOf(RunInstancesEvent.class);
+		assertThat(((RunInstancesEvent) event).instanceType).isEqualTo("c5.xlarge");
+	}
+
+	private static String apiCall(String eventName, String parameters) {
+		return "{\"id\":\"" + eventName + "-id\",\"detail-type\":\"Fictitious API Call\"," +
+				"\"detail\":{\"eventVersion\":\"1.08\",\"userIdentity\":{\"type\":\"Root\",\"ids\":[1,2]}," +
+				"\"eventSource\":\"ec2.amazonaws.com\",\"eventName\":\"" + eventName + "\"" +
+				(parameters.isEmpty() ? "" : "," + parameters) + "}}";
+	}
+
+	private static ByteArrayInputStream stringStream(String message) {
+		return new ByteArrayInputStream(message.getBytes(UTF_8));
+	}
+
+	@DetailType("Fictitious API Call")
+	@DetailDiscriminator("eventName")
+	static class ApiCallEvent extends CloudWatchEvent {
+		String eventSource;
+	}
+
+	@DiscriminatorValue("RunInstances")
+	static class RunInstancesEvent extends ApiCallEvent {
+		String instanceType;
+	}
+
+	@DiscriminatorValue({"StopInstances", "TerminateInstances"})
+	static class StopInstancesEvent extends ApiCallEvent {
+		boolean force;
+	}
+
+	static class UnvaluedApiCallEvent extends ApiCallEvent {
+	}
+
+	@DetailType("Fictitious API Call")
+	@DetailDiscriminator("status")
+	static class ByStatusApiCallEvent extends CloudWatchEvent {
+	}
+
+	static class SpecialFictitiousEvent extends FictitiousEvent {
+	}
+}
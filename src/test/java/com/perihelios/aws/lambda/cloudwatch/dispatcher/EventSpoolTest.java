@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.JsonPrimitive;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.EventFileFormat;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.MappedEventFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.DISPATCHED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.FAILED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventSpoolTest {
+	@TempDir
+	Path directory;
+
+	@Test
+	void spools_dispatched_events_and_redispatches_selected_events() throws IOException {
+		List<String> handled = new ArrayList<>();
+
+		try (EventSpool spool = EventSpool.open(directory)) {
+			SharedEventDispatcher failing = SharedEventDispatcher.builder()
+					.withEventHandler(FictitiousEvent.class, (event, context) -> {
+						if (event.biscuit().equals("flaky")) {
+							throw new IllegalStateException("downstream failure");
+						}
+					})
+					.withSpool(spool)
+					.build();
+
+			failing.tryDispatch(stream(event("a", "2019-06-16T22:20:01Z", "tea")), null);
+			assertThatThrownBy(() -> failing.tryDispatch(stream(event("b", "2019-06-16T22:20:02Z", "flaky")), null))
+					.isInstanceOf(IllegalStateException.class);
+			failing.tryDispatch(stream(event("c", "2019-06-16T22:20:03Z", "digestive")), null);
+
+			SharedEventDispatcher recovered = SharedEventDispatcher.builder()
+					.withEventHandler(FictitiousEvent.class, (event, context) -> handled.add(event.biscuit()))
+					.withSpool(spool)
+					.build();
+
+			BatchResult result = spool.query().withIds("b").redispatch(recovered, null);
+
+			assertThat(result.items()).hasSize(1);
+			assertThat(result.items().get(0).eventId()).isEqualTo("b");
+			assertThat(result.items().get(0).result().status()).isEqualTo(DISPATCHED);
+			assertThat(handled).containsExactly("flaky");
+			assertThat(spool.query().list()).extracting(SpooledEvent::id).containsExactly("a", "b", "c");
+		}
+	}
+
+	@Test
+	void reports_handler_failures_during_redispatch() throws IOException {
+		try (EventSpool spool = EventSpool.open(directory)) {
+			new CloudWatchEventDispatcher(stream(event("a", "2019-06-16T22:20:01Z", "tea")), null)
+					.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+					.withSpool(spool)
+					.dispatch();
+
+			SharedEventDispatcher failing = SharedEventDispatcher.builder()
+					.withEventHandler(FictitiousEvent.class, (event, context) -> {
+						throw new IllegalStateException("still down");
+					})
+					.build();
+
+			BatchResult result = spool.query().redispatch(failing, null);
+
+			assertThat(result.failed()).hasSize(1);
+			assertThat(result.items().get(0).result().status()).isEqualTo(FAILED);
+		}
+	}
+
+	@Test
+	void selects_events_by_detail_type_and_time() throws IOException {
+		try (EventSpool spool = EventSpool.open(directory)) {
+			SharedEventDispatcher dispatcher = SharedEventDispatcher.builder()
+					.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+					.withUnknownEventHandler((event, context) -> {})
+					.withSpool(spool)
+					.build();
+
+			dispatcher.dispatch(stream(event("a", "2019-06-16T22:20:01Z", "tea")), null);
+			dispatcher.dispatch(stream(event("b", "2019-06-16T22:30:00Z", "tea")), null);
+			dispatcher.dispatch(stream(
+					"{\"id\":\"c\",\"time\":\"2019-06-16T22:20:30Z\",\"detail-type\":\"Other Event\",\"detail\":{}}"
+			), null);
+
+			assertThat(spool.query().withDetailTypes("Fictitious Event").list())
+					.extracting(SpooledEvent::id).containsExactly("a", "b");
+			assertThat(spool.query()
+					.withTimeRange(Instant.parse("2019-06-16T22:20:00Z"), Instant.parse("2019-06-16T22:30:00Z"))
+					.list()
+			).extracting(SpooledEvent::id).containsExactly("a", "c");
+
+			SpooledEvent spooled = spool.query().withIds("a").list().get(0);
+
+			assertThat(spooled.time()).isEqualTo(Instant.parse("2019-06-16T22:20:01Z"));
+			assertThat(new String(spooled.read(), UTF_8)).isEqualTo(event("a", "2019-06-16T22:20:01Z", "tea"));
+		}
+	}
+
+	@Test
+	void spools_original_bytes_of_batch_events() throws IOException {
+		String second = "{ \"id\": \"b\", \"time\": \"2019-06-16T22:20:02Z\", \"detail-type\": \"Fictitious Event\", " +
+				"\"detail\": {\"biscuit-type\": \"<digestive> caf\\u00e9\"} }";
+
+		try (EventSpool spool = EventSpool.open(directory)) {
+			new CloudWatchEventDispatcher(stream("[\n" +
+					event("a", "2019-06-16T22:20:01Z", "tea") + ",\n  " + second + "\n]"
+			), null)
+					.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+					.withSpool(spool)
+					.dispatchBatch();
+
+			List<SpooledEvent> events = spool.query().list();
+
+			assertThat(events).extracting(SpooledEvent::id).containsExactly("a", "b");
+			assertThat(new String(events.get(1).read(), UTF_8)).isEqualTo(second);
+		}
+	}
+
+	@Test
+	void spools_unescaped_bodies_of_records() throws IOException {
+		String body = event("a", "2019-06-16T22:20:01Z", "<tea>");
+
+		try (EventSpool spool = EventSpool.open(directory)) {
+			new CloudWatchEventDispatcher(stream("{\"Records\":[{\"messageId\":\"m1\",\"body\":" +
+					new JsonPrimitive(body) + "}]}"
+			), null)
+					.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+					.withSpool(spool)
+					.dispatchRecords();
+
+			assertThat(new String(spool.query().list().get(0).read(), UTF_8)).isEqualTo(body);
+		}
+	}
+
+	@Test
+	void lists_events_of_earlier_spools_and_deletes_oldest_segments() throws IOException {
+		try (EventSpool spool = EventSpool.open(directory)) {
+			dispatchTo(spool, "a");
+		}
+
+		try (EventSpool spool = EventSpool.open(directory).withMaxSegmentBytes(1).withMaxSegments(3)) {
+			assertThat(spool.query().list()).extracting(SpooledEvent::id).containsExactly("a");
+
+			dispatchTo(spool, "b");
+			dispatchTo(spool, "c");
+			dispatchTo(spool, "d");
+
+			assertThat(spool.query().list()).extracting(SpooledEvent::id).containsExactly("b", "c", "d");
+		}
+	}
+
+	@Test
+	void writes_data_files_readable_as_length_prefixed_event_files() throws IOException {
+		try (EventSpool spool = EventSpool.open(directory)) {
+			dispatchTo(spool, "a");
+			dispatchTo(spool, "b");
+		}
+
+		List<String> events = new ArrayList<>();
+
+		try (MappedEventFile file = MappedEventFile.open(directory.resolve("00000000.events"),
+				EventFileFormat.LENGTH_PREFIXED)) {
+
+			file.forEachRecord(record -> events.add(UTF_8.decode(record).toString()));
+		}
+
+		assertThat(events).containsExactly(
+				event("a", "2019-06-16T22:20:01Z", "tea"), event("b", "2019-06-16T22:20:01Z", "tea")
+		);
+	}
+
+	@Test
+	void ignores_incomplete_index_entry() throws IOException {
+		try (EventSpool spool = EventSpool.open(directory)) {
+			dispatchTo(spool, "a");
+
+			Files.write(directory.resolve("00000000.index"), new byte[] {0, 0, 0, 40, 0, 0}, APPEND);
+
+			assertThat(spool.query().list()).extracting(SpooledEvent::id).containsExactly("a");
+		}
+	}
+
+	@Test
+	void rejects_non_positive_limits() throws IOException {
+		try (EventSpool spool = EventSpool.open(directory)) {
+			assertThatThrownBy(() -> spool.withMaxSegmentBytes(0)).isInstanceOf(IllegalArgumentException.class);
+			assertThatThrownBy(() -> spool.withMaxSegments(0)).isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+	private static void dispatchTo(EventSpool spool, String id) {
+		new CloudWatchEventDispatcher(stream(event(id, "2019-06-16T22:20:01Z", "tea")), null)
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+				.withSpool(spool)
+				.dispatch();
+	}
+
+	private static String event(String id, String time, String biscuit) {
+		return "{\"id\":\"" + id + "\",\"time\":\"" + time + "\",\"detail-type\":\"Fictitious Event\"," +
+				"\"detail\":{\"biscuit-type\":\"" + biscuit + "\"}}";
+	}
+
+	private static ByteArrayInputStream stream(String message) {
+		return new ByteArrayInputStream(message.getBytes(UTF_8));
+	}
+}
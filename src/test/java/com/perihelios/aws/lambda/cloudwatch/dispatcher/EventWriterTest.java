@@ -0,0 +1,216 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.google.gson.JsonPrimitive;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.Header;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventWriterTest {
+	private static final String EVENT = "{ \"version\": \"0\", \"id\": \"e1\", \"detail-type\": \"Volume Change\"," +
+			" \"source\": \"aws.fiction\", \"time\": \"2019-06-16T22:20:01.000Z\", \"extra\": [1]," +
+			" \"resources\": [ \"r1\" ], \"detail\": { \"size\": 500.0, \"state\": \"available\"," +
+			" \"unmapped\": {\"a\": [1, 2]}, \"zones\": [\"us-west-7a\"] } }";
+
+	@Test
+	void copies_unchanged_event_verbatim() {
+		assertThat(forward(EVENT, event -> {}))
+				.isEqualTo("{\"version\":\"0\",\"id\":\"e1\",\"detail-type\":\"Volume Change\"," +
+						"\"source\":\"aws.fiction\",\"time\":\"2019-06-16T22:20:01.000Z\",\"resources\":[ \"r1\" ]," +
+						"\"detail\":{\"size\":500.0,\"state\":\"available\",\"unmapped\":{\"a\": [1, 2]}," +
+						"\"zones\":[\"us-west-7a\"]}}");
+	}
+
+	@Test
+	void encodes_changed_detail_fields() {
+		String forwarded = forward(EVENT, event -> {
+			event.state = "in-use";
+			event.zones = new ArrayList<>(event.zones);
+			event.zones.add("us-west-7b");
+			event.attachment = "i-1234";
+		});
+
+		assertThat(forwarded).endsWith(
+				"\"detail\":{\"size\":500.0,\"state\":\"in-use\",\"unmapped\":{\"a\": [1, 2]}," +
+						"\"zones\":[\"us-west-7a\",\"us-west-7b\"],\"attachment\":\"i-1234\"}}"
+		);
+	}
+
+	@Test
+	void compares_escaped_strings_by_value() {
+		String event = EVENT.replace("\"available\"", "\"avail\\u0061ble\"");
+
+		assertThat(forward(event, e -> {})).contains("\"state\":\"avail\\u0061ble\"");
+		assertThat(forward(event, e -> e.state = "available")).contains("\"state\":\"avail\\u0061ble\"");
+		assertThat(forward(event, e -> e.state = "gone")).contains("\"state\":\"gone\"");
+	}
+
+	@Test
+	void encodes_collections_rather_than_comparing_them() {
+		String event = EVENT.replace("[\"us-west-7a\"]", "[ \"us-west-7a\" ]");
+
+		assertThat(forward(event, e -> {})).contains("\"size\":500.0,").endsWith("\"zones\":[\"us-west-7a\"]}}");
+	}
+
+	@Test
+	void encodes_replaced_header() {
+		assertThat(forward(EVENT, event -> event.setHeader(new Header())))
+				.startsWith("{\"detail-type\":\"Volume Change\",\"resources\":[],\"detail\":{\"size\":500.0,");
+	}
+
+	@Test
+	void encodes_event_not_bound_by_dispatcher() {
+		VolumeEvent event = new VolumeEvent();
+		event.state = "creating";
+		event.zones = asList("us-west-7a");
+
+		assertThat(new EventWriter().toJson(event)).isEqualTo(
+				"{\"detail-type\":\"Volume Change\",\"detail\":{\"state\":\"creating\",\"size\":0," +
+						"\"zones\":[\"us-west-7a\"],\"attachment\":null}}"
+		);
+	}
+
+	@Test
+	void copies_events_of_batch_and_records_verbatim() {
+		String first = "{\"id\":\"e1\",\"detail-type\":\"Volume Change\",\"detail\":{\"state\":\"available\"}}";
+		String second = "{\"id\":\"e2\",\"detail-type\":\"Volume Change\",\"detail\":{\"state\":\"in-use\"}}";
+		List<VolumeEvent> events = new ArrayList<>();
+
+		new CloudWatchEventDispatcher(stringStream("[" + first + ",\n" + second + "]"), null)
+				.retainEventBytes()
+				.withEventHandler(VolumeEvent.class, (event, context) -> events.add(event))
+				.dispatchBatch();
+		new CloudWatchEventDispatcher(stringStream(
+				"{\"Records\":[{\"messageId\":\"m1\",\"body\":" + new JsonPrimitive(second) + "}]}"
+		), null)
+				.retainEventBytes()
+				.withEventHandler(VolumeEvent.class, (event, context) -> events.add(event))
+				.dispatchRecords();
+
+		EventWriter writer = new EventWriter();
+
+		assertThat(writer.toJson(events.get(1))).isEqualTo(second);
+		assertThat(writer.toJson(events.get(0))).isEqualTo(first);
+		assertThat(writer.toJson(events.get(2))).isEqualTo(second);
+	}
+
+	@Test
+	void retains_only_the_bytes_of_each_event() throws IOException {
+		String first = "{\"id\":\"e1\",\"detail-type\":\"Volume Change\",\"detail\":{\"state\":\"available\"}}";
+		List<VolumeEvent> events = new ArrayList<>();
+
+		new CloudWatchEventDispatcher(stringStream("[" + first + ", {}]"), null)
+				.retainEventBytes()
+				.withEventHandler(VolumeEvent.class, (event, context) -> events.add(event))
+				.dispatchBatch();
+
+		RawEvent raw = RawEvents.get(events.get(0));
+
+		assertThat(raw.start()).isZero();
+		assertThat(raw.bytes()).hasSize(first.length());
+	}
+
+	@Test
+	void encodes_events_in_full_unless_dispatcher_retains_event_bytes() {
+		List<VolumeEvent> events = new ArrayList<>();
+
+		new CloudWatchEventDispatcher(stringStream(EVENT), null)
+				.withEventHandler(VolumeEvent.class, (event, context) -> events.add(event))
+				.dispatch();
+
+		assertThat(new EventWriter().toJson(events.get(0))).isEqualTo(
+				"{\"version\":\"0\",\"id\":\"e1\",\"detail-type\":\"Volume Change\"," +
+						"\"source\":\"aws.fiction\",\"time\":\"2019-06-16T22:20:01Z\",\"resources\":[\"r1\"]," +
+						"\"detail\":{\"state\":\"available\",\"size\":500," +
+						"\"zones\":[\"us-west-7a\"],\"attachment\":null}}"
+		);
+	}
+
+	@Test
+	void writes_unknown_event_detail() {
+		String event = "{\"id\":\"e1\",\"detail-type\":\"Other\",\"detail\":{\"a\":1.50}}";
+		List<String> forwarded = new ArrayList<>();
+
+		new CloudWatchEventDispatcher(stringStream(event), null)
+				.retainEventBytes()
+				.withUnknownEventHandler((unknown, context) -> forwarded.add(new EventWriter().toJson(unknown)))
+				.dispatch();
+
+		assertThat(forwarded).containsExactly(event);
+	}
+
+	@Test
+	void writes_to_output_stream() throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		VolumeEvent event = new VolumeEvent();
+
+		new EventWriter().write(event, output);
+
+		assertThat(new String(output.toByteArray(), UTF_8)).startsWith("{\"detail-type\":\"Volume Change\"");
+	}
+
+	@Test
+	void throws_when_event_type_missing_detail_type_annotation() {
+		assertThatThrownBy(() -> new EventWriter().toJson(new UnannotatedEvent()))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Cannot write event for event type " + UnannotatedEvent.class.getName() +
+						"; event type not annotated with " + DetailType.class.getName());
+	}
+
+	private static String forward(String message, Enrichment enrichment) {
+		List<String> forwarded = new ArrayList<>();
+		EventWriter writer = new EventWriter();
+
+		new CloudWatchEventDispatcher(stringStream(message), null)
+				.retainEventBytes()
+				.withEventHandler(VolumeEvent.class, (event, context) -> {
+					enrichment.enrich(event);
+					forwarded.add(writer.toJson(event));
+				})
+				.dispatch();
+
+		return forwarded.get(0);
+	}
+
+	private static ByteArrayInputStream stringStream(String message) {
+		return new ByteArrayInputStream(message.getBytes(UTF_8));
+	}
+
+	private interface Enrichment {
+		void enrich(VolumeEvent event);
+	}
+
+	@DetailType("Volume Change")
+	static class VolumeEvent extends CloudWatchEvent {
+		private String state;
+		private long size;
+		private List<String> zones;
+		private String attachment;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HandlerLatenciesTest {
+	@Test
+	void estimates_nothing_for_unseen_detail_type() {
+		assertThat(new HandlerLatencies().estimateMillis("Unseen")).isZero();
+		assertThat(new HandlerLatencies().estimateMillis(null)).isZero();
+	}
+
+	@Test
+	void allows_for_variation_in_latency() {
+		HandlerLatencies latencies = new HandlerLatencies();
+
+		latencies.record("Steady", 10_000_000);
+		assertThat(latencies.estimateMillis("Steady")).isEqualTo(30);
+
+		for (int i = 0; i < 100; i++) {
+			latencies.record("Steady", 10_000_000);
+			latencies.record("Erratic", i % 2 == 0 ? 2_000_000 : 18_000_000);
+		}
+
+		assertThat(latencies.estimateMillis("Steady")).isBetween(10L, 11L);
+		assertThat(latencies.estimateMillis("Erratic")).isGreaterThan(30);
+	}
+}
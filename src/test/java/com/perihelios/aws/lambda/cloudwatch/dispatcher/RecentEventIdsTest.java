@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentEventIdsTest {
+	@Test
+	void remembers_added_ids() {
+		RecentEventIds ids = new RecentEventIds(2);
+
+		assertThat(ids.add("a")).isTrue();
+		assertThat(ids.add("a")).isFalse();
+		assertThat(ids.contains("a")).isTrue();
+		assertThat(ids.contains("b")).isFalse();
+	}
+
+	@Test
+	void forgets_oldest_ids_beyond_capacity() {
+		RecentEventIds ids = new RecentEventIds(2);
+
+		ids.add("a");
+		ids.add("b");
+		ids.add("c");
+
+		assertThat(ids.contains("a")).isFalse();
+		assertThat(ids.contains("b")).isTrue();
+		assertThat(ids.contains("c")).isTrue();
+	}
+
+	@Test
+	void remembers_each_id_once_when_added_concurrently() throws InterruptedException {
+		RecentEventIds ids = new RecentEventIds(100_000);
+		AtomicInteger added = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[4];
+
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				for (int i = 0; i < 10_000; i++) {
+					if (ids.add("id-" + i)) {
+						added.incrementAndGet();
+					}
+				}
+			});
+			threads[t].start();
+		}
+
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(added).hasValue(10_000);
+		assertThat(ids.contains("id-0")).isTrue();
+		assertThat(ids.contains("id-9999")).isTrue();
+	}
+}
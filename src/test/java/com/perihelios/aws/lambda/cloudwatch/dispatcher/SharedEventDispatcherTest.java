@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.EventTrace;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.trace.InMemorySpanExporter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.DISPATCHED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.DUPLICATE;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.TOO_LARGE;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.UNKNOWN_TYPE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SharedEventDispatcherTest {
+	@Test
+	void dispatches_concurrently_from_many_threads() throws Exception {
+		Set<String> biscuits = ConcurrentHashMap.newKeySet();
+		SharedEventDispatcher dispatcher = SharedEventDispatcher.builder()
+				.withEventHandler(FictitiousEvent.class, (event, context) -> biscuits.add(event.biscuit()))
+				.withDeduplication(new RecentEventIds(10_000))
+				.build();
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<DispatchResult>> results = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < 2_000; i++) {
+				String message = event("id-" + i, "biscuit-" + i);
+
+				results.add(executor.submit(() -> dispatcher.tryDispatch(stringStream(message), null)));
+			}
+
+			for (Future<DispatchResult> result : results) {
+				assertThat(result.get().status()).isEqualTo(DISPATCHED);
+			}
+		} finally {
+			executor.shutdown();
+			assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		}
+
+		assertThat(biscuits).hasSize(2_000).contains("biscuit-0", "biscuit-1999");
+	}
+
+	@Test
+	void traces_every_dispatch() {
+		InMemorySpanExporter exporter = new InMemorySpanExporter();
+		SharedEventDispatcher dispatcher = SharedEventDispatcher.builder()
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+				.withTracing(exporter)
+				.build();
+
+		dispatcher.dispatch(stringStream(event("e1", "flaky")), null);
+		dispatcher.dispatch(stringStream(event("e2", "stale")), null);
+
+		assertThat(exporter.traces()).extracting(EventTrace::eventId).containsExactly("e1", "e2");
+	}
+
+	@Test
+	void shares_deduplication_across_dispatches() {
+		SharedEventDispatcher dispatcher = SharedEventDispatcher.builder()
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+				.withDeduplication(new RecentEventIds(10))
+				.build();
+
+		assertThat(dispatcher.tryDispatch(stringStream(event("a", "tea")), null).status()).isEqualTo(DISPATCHED);
+		assertThat(dispatcher.tryDispatch(stringStream(event("a", "tea")), null).status()).isEqualTo(DUPLICATE);
+	}
+
+	@Test
+	void is_unaffected_by_later_use_of_builder() {
+		SharedEventDispatcher.Builder builder = SharedEventDispatcher.builder();
+		SharedEventDispatcher dispatcher = builder.build();
+
+		builder.withEventHandler(FictitiousEvent.class, (event, context) -> {});
+
+		assertThat(dispatcher.tryDispatch(stringStream(event("a", "tea")), null).status()).isEqualTo(UNKNOWN_TYPE);
+		assertThat(builder.build().tryDispatch(stringStream(event("a", "tea")), null).status())
+				.isEqualTo(DISPATCHED);
+	}
+
+	@Test
+	void reads_messages_within_limits() {
+		SharedEventDispatcher dispatcher = SharedEventDispatcher.builder()
+				.withEventHandler(FictitiousEvent.class, (event, context) -> {})
+				.withLimits(MessageLimits.DEFAULT.withMaxBytes(100))
+				.build();
+
+		assertThat(dispatcher.tryDispatch(stringStream(event("a", "tea")), null).status()).isEqualTo(DISPATCHED);
+		assertThat(dispatcher.tryDispatch(stringStream(event("b", repeat('t', 100))), null).status())
+				.isEqualTo(TOO_LARGE);
+	}
+
+	@Test
+	void throws_when_handler_event_type_missing_detail_type_annotation() {
+		assertThatThrownBy(() -> SharedEventDispatcher.builder()
+				.withEventHandler(UnannotatedEvent.class, (event, context) -> {})
+		).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static String event(String id, String biscuit) {
+		return "{\"id\":\"" + id + "\",\"detail-type\":\"Fictitious Event\"," +
+				"\"detail\":{\"biscuit-type\":\"" + biscuit + "\"}}";
+	}
+
+	private static String repeat(char c, int count) {
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+
+		return new String(chars);
+	}
+
+	private static ByteArrayInputStream stringStream(String message) {
+		return new ByteArrayInputStream(message.getBytes(UTF_8));
+	}
+}
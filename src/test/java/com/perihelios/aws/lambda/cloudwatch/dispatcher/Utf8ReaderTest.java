@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Utf8ReaderTest {
+	@Test
+	void detects_non_ascii_bytes_at_any_position() {
+		byte[] bytes = new byte[19];
+
+		assertThat(Utf8Reader.isAscii(bytes, 0, bytes.length)).isTrue();
+
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) 0x80;
+
+			assertThat(Utf8Reader.isAscii(bytes, 0, bytes.length)).as("non-ASCII at %d", i).isFalse();
+			assertThat(Utf8Reader.isAscii(bytes, i + 1, bytes.length)).isTrue();
+
+			bytes[i] = 'a';
+		}
+	}
+
+	@Test
+	void reads_ascii_and_multi_byte_characters() {
+		String text = "{\"biscuit\":\"caf\u00e9 \u20ac \ud83c\udf6a\"}";
+
+		assertThat(read(text.getBytes(UTF_8), 1)).isEqualTo(text);
+		assertThat(read(text.getBytes(UTF_8), 1024)).isEqualTo(text);
+	}
+
+	@Test
+	void decodes_as_string_constructor_does_including_malformed_sequences() {
+		Random random = new Random(42);
+		byte[] interesting = {
+				'a', '"', (byte) 0x80, (byte) 0xbf, (byte) 0xc0, (byte) 0xc2, (byte) 0xdf, (byte) 0xe0, (byte) 0xa0,
+				(byte) 0xed, (byte) 0x9f, (byte) 0xef, (byte) 0xf0, (byte) 0x90, (byte) 0xf4, (byte) 0x8f, (byte) 0xf5,
+				(byte) 0xff
+		};
+
+		for (int trial = 0; trial < 20_000; trial++) {
+			byte[] bytes = new byte[random.nextInt(12)];
+
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = random.nextBoolean()
+						? interesting[random.nextInt(interesting.length)]
+						: (byte) random.nextInt();
+			}
+
+			assertThat(read(bytes, 1 + random.nextInt(3))).as("trial %d", trial).isEqualTo(new String(bytes, UTF_8));
+		}
+	}
+
+	private static String read(byte[] bytes, int chunk) {
+		Utf8Reader reader = new Utf8Reader(bytes, 0, bytes.length, Utf8Reader.isAscii(bytes, 0, bytes.length));
+		StringBuilder text = new StringBuilder();
+		char[] buffer = new char[chunk];
+
+		for (int read = reader.read(buffer, 0, chunk); read >= 0; read = reader.read(buffer, 0, chunk)) {
+			text.append(buffer, 0, read);
+		}
+
+		return text.toString();
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.aggregate;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AggregatorTest {
+	private final AtomicLong now = new AtomicLong();
+	private final InMemorySink<String> sink = new InMemorySink<>();
+
+	@Test
+	void flushes_at_maximum_records() {
+		Aggregator<String> aggregator = new Aggregator<>(sink, now::get).withMaxRecords(2);
+
+		aggregator.append("a");
+		aggregator.append("b");
+		aggregator.append("c");
+
+		assertThat(sink.batches()).containsExactly(asList("a", "b"));
+		assertThat(aggregator.size()).isEqualTo(1);
+	}
+
+	@Test
+	void flushes_before_exceeding_maximum_bytes() {
+		Aggregator<String> aggregator = new Aggregator<>(sink, now::get).withMaxBytes(5, String::length);
+
+		aggregator.append("ab");
+		aggregator.append("cd");
+		aggregator.append("ef");
+		aggregator.append("toolong");
+
+		assertThat(sink.batches()).containsExactly(asList("ab", "cd"), asList("ef"), asList("toolong"));
+		assertThat(aggregator.size()).isZero();
+	}
+
+	@Test
+	void flushes_when_oldest_record_expires() {
+		Aggregator<String> aggregator = new Aggregator<>(sink, now::get).withMaxAge(Duration.ofSeconds(10));
+
+		aggregator.append("a");
+		now.addAndGet(Duration.ofSeconds(9).toNanos());
+		aggregator.append("b");
+
+		assertThat(aggregator.flushIfDue(null)).isFalse();
+
+		now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+		assertThat(aggregator.flushIfDue(null)).isTrue();
+		assertThat(sink.records()).containsExactly("a", "b");
+	}
+
+	@Test
+	void flushes_when_invocation_nearly_out_of_time() {
+		Aggregator<String> aggregator = new Aggregator<>(sink, now::get).withDeadlineMargin(Duration.ofMillis(500));
+		Context context = mock(Context.class);
+
+		aggregator.append("a");
+
+		when(context.getRemainingTimeInMillis()).thenReturn(500);
+		assertThat(aggregator.flushIfDue(context)).isFalse();
+
+		when(context.getRemainingTimeInMillis()).thenReturn(499);
+		assertThat(aggregator.flushIfDue(context)).isTrue();
+		assertThat(sink.records()).containsExactly("a");
+	}
+
+	@Test
+	void keeps_records_when_sink_fails() {
+		AtomicLong failures = new AtomicLong(1);
+		Aggregator<String> aggregator = new Aggregator<String>(batch -> {
+			if (failures.getAndDecrement() > 0) {
+				throw new IOException("unavailable");
+			}
+
+			sink.write(batch);
+		}, now::get);
+
+		aggregator.append("a");
+
+		assertThatThrownBy(aggregator::flush).isInstanceOf(UncheckedIOException.class);
+		assertThat(aggregator.size()).isEqualTo(1);
+
+		aggregator.append("b");
+		aggregator.flush();
+
+		assertThat(sink.batches()).containsExactly(asList("a", "b"));
+	}
+
+	@Test
+	void keeps_appended_record_when_triggered_flush_fails() {
+		AtomicLong failures = new AtomicLong(1);
+		Aggregator<String> aggregator = new Aggregator<String>(batch -> {
+			if (failures.getAndDecrement() > 0) {
+				throw new IOException("unavailable");
+			}
+
+			sink.write(batch);
+		}, now::get).withMaxRecords(2);
+
+		aggregator.append("a");
+		aggregator.append("b");
+
+		assertThat(aggregator.size()).isEqualTo(2);
+
+		aggregator.append("c");
+
+		assertThat(sink.batches()).containsExactly(asList("a", "b"), asList("c"));
+		assertThat(aggregator.size()).isZero();
+	}
+
+	@Test
+	void keeps_appended_record_when_sink_throws_unchecked_exception() {
+		AtomicLong failures = new AtomicLong(1);
+		Aggregator<String> aggregator = new Aggregator<String>(batch -> {
+			if (failures.getAndDecrement() > 0) {
+				throw new IllegalStateException("throttled");
+			}
+
+			sink.write(batch);
+		}, now::get).withMaxRecords(1);
+
+		aggregator.append("a");
+
+		assertThat(aggregator.size()).isEqualTo(1);
+
+		aggregator.append("b");
+
+		assertThat(sink.batches()).containsExactly(asList("a"), asList("b"));
+	}
+
+	@Test
+	void rejects_records_beyond_capacity() {
+		Aggregator<String> aggregator = new Aggregator<String>(batch -> {
+			throw new IOException("unavailable");
+		}, now::get).withMaxRecords(2).withCapacity(3, Aggregator.Overflow.REJECT);
+
+		aggregator.append("a");
+		aggregator.append("b");
+		aggregator.append("c");
+
+		assertThatThrownBy(() -> aggregator.append("d")).isInstanceOf(IllegalStateException.class);
+		assertThat(aggregator.size()).isEqualTo(3);
+	}
+
+	@Test
+	void drops_records_beyond_capacity() {
+		AtomicLong failures = new AtomicLong(3);
+		Aggregator<String> newest = new Aggregator<String>(batch -> {
+			throw new IOException("unavailable");
+		}, now::get).withMaxRecords(2).withCapacity(2, Aggregator.Overflow.DROP_NEWEST);
+		Aggregator<String> oldest = new Aggregator<String>(batch -> {
+			if (failures.getAndDecrement() > 0) {
+				throw new IOException("unavailable");
+			}
+
+			sink.write(batch);
+		}, now::get).withMaxRecords(2).withCapacity(2, Aggregator.Overflow.DROP_OLDEST);
+
+		for (String record : asList("a", "b", "c")) {
+			newest.append(record);
+			oldest.append(record);
+		}
+		oldest.flush();
+
+		assertThat(newest.size()).isEqualTo(2);
+		assertThat(newest.dropped()).isEqualTo(1);
+		assertThat(oldest.dropped()).isEqualTo(1);
+		assertThat(sink.batches()).containsExactly(asList("b", "c"));
+	}
+
+	@Test
+	void flushes_buffer_in_batches_of_maximum_records() {
+		AtomicLong failures = new AtomicLong(2);
+		Aggregator<String> aggregator = new Aggregator<String>(batch -> {
+			if (failures.getAndDecrement() > 0) {
+				throw new IOException("unavailable");
+			}
+
+			sink.write(batch);
+		}, now::get).withMaxRecords(2);
+
+		aggregator.append("a");
+		aggregator.append("b");
+		aggregator.append("c");
+		aggregator.flush();
+
+		assertThat(sink.batches()).containsExactly(asList("a", "b"), asList("c"));
+	}
+
+	@Test
+	void appends_batches_to_file(@TempDir Path directory) throws IOException {
+		Path file = directory.resolve("out.txt");
+		Aggregator<Integer> aggregator = new Aggregator<>(new FileSink<Integer>(file), now::get).withMaxRecords(2);
+
+		aggregator.append(1);
+		aggregator.append(2);
+		aggregator.append(3);
+		aggregator.flush();
+
+		assertThat(new String(Files.readAllBytes(file), UTF_8)).isEqualTo("1\n2\n3\n");
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.event;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArnTest {
+	@Test
+	void parses_components() {
+		Arn arn = Arn.of("arn:aws:ec2:us-east-1:123456789012:instance/i-abcd1111");
+
+		assertThat(arn.isValid()).isTrue();
+		assertThat(arn.partition()).isEqualTo("aws");
+		assertThat(arn.service()).isEqualTo("ec2");
+		assertThat(arn.region()).isEqualTo("us-east-1");
+		assertThat(arn.account()).isEqualTo("123456789012");
+		assertThat(arn.resource()).isEqualTo("instance/i-abcd1111");
+		assertThat(arn.resourceType()).isEqualTo("instance");
+		assertThat(arn.resourceId()).isEqualTo("i-abcd1111");
+	}
+
+	@Test
+	void parses_colon_qualified_and_unqualified_resources() {
+		Arn function = Arn.of("arn:aws:lambda:us-west-2:123456789012:function:my-function");
+		Arn topic = Arn.of("arn:aws:sns:us-west-2:123456789012:my-topic");
+
+		assertThat(function.resourceType()).isEqualTo("function");
+		assertThat(function.resourceId()).isEqualTo("my-function");
+		assertThat(topic.resourceType()).isNull();
+		assertThat(topic.resourceId()).isEqualTo("my-topic");
+	}
+
+	@Test
+	void parses_empty_region_and_account() {
+		Arn arn = Arn.of("arn:aws:s3:::my-bucket/key");
+
+		assertThat(arn.isValid()).isTrue();
+		assertThat(arn.region()).isEmpty();
+		assertThat(arn.account()).isEmpty();
+		assertThat(arn.resourceType()).isEqualTo("my-bucket");
+		assertThat(arn.resourceId()).isEqualTo("key");
+	}
+
+	@Test
+	void shares_components_of_common_prefixes() {
+		Arn first = Arn.of("arn:aws:ec2:us-east-1:123456789012:instance/i-1");
+		Arn second = Arn.of("arn:aws:ec2:us-east-1:123456789012:instance/i-2");
+
+		assertThat(second.account()).isSameAs(first.account());
+		assertThat(second.region()).isSameAs(first.region());
+		assertThat(second.resourceId()).isEqualTo("i-2");
+	}
+
+	@Test
+	void reports_non_arns_as_invalid() {
+		Arn notArn = Arn.of("i-abcd1111");
+		Arn truncated = Arn.of("arn:aws:ec2:us-east-1");
+
+		assertThat(notArn.isValid()).isFalse();
+		assertThat(notArn.service()).isNull();
+		assertThat(notArn.resourceId()).isNull();
+		assertThat(truncated.isValid()).isFalse();
+		assertThat(truncated.toString()).isEqualTo("arn:aws:ec2:us-east-1");
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.event;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScheduledEventTest {
+	@Test
+	void dispatches_scheduled_event() {
+		AtomicReference<ScheduledEvent> received = new AtomicReference<>();
+		InputStream message = ScheduledEventTest.class.getResourceAsStream("/scheduled-event.json");
+
+		new CloudWatchEventDispatcher(message, null)
+				.withEventHandler(ScheduledEvent.class, (event, context) -> received.set(event))
+				.dispatch();
+
+		ScheduledEvent event = received.get();
+
+		assertThat(event.scheduledTime()).isEqualTo(ZonedDateTime.parse("2019-06-17T00:00:00Z"));
+		assertThat(event.ruleArn().service()).isEqualTo("events");
+		assertThat(event.ruleName()).isEqualTo("nightly-report");
+		assertThat(event.header().id()).isEqualTo("89d1a02d-5ec7-412e-82f5-13505f849b41");
+	}
+
+	@Test
+	void decodes_every_header_property() {
+		AtomicReference<ScheduledEvent> received = new AtomicReference<>();
+		InputStream message = ScheduledEventTest.class.getResourceAsStream("/scheduled-event.json");
+
+		new CloudWatchEventDispatcher(message, null)
+				.withEventHandler(ScheduledEvent.class, (event, context) -> received.set(event))
+				.dispatch();
+
+		Header header = received.get().header();
+
+		assertThat(header.version()).isEqualTo("0");
+		assertThat(header.source()).isEqualTo("aws.events");
+		assertThat(header.account()).isEqualTo("123456789012");
+		assertThat(header.region()).isEqualTo("us-east-1");
+		assertThat(header.resources()).containsExactly("arn:aws:events:us-east-1:123456789012:rule/nightly-report");
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.logs;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LogsSubscriptionDispatcherTest {
+	private static final String METADATA = "\"messageType\": \"DATA_MESSAGE\", \"owner\": \"123456789012\", " +
+			"\"logGroup\": \"/aws/lambda/my-function\", \"logStream\": \"2019/06/17/[$LATEST]abcdef\", " +
+			"\"subscriptionFilters\": [\"errors\"]";
+
+	@Test
+	void dispatches_each_log_event() {
+		List<LogEvent> received = new ArrayList<>();
+
+		new LogsSubscriptionDispatcher(message(data(METADATA, 3)), null)
+				.withLogEventHandler((event, context) -> received.add(event))
+				.dispatch();
+
+		assertThat(received).extracting(LogEvent::id).containsExactly("id-0", "id-1", "id-2");
+		assertThat(received).extracting(LogEvent::message).containsExactly("message 0", "message 1", "message 2");
+
+		LogEvent first = received.get(0);
+		assertThat(first.timestamp()).isEqualTo(1560729600000L);
+		assertThat(first.time()).isEqualTo(ZonedDateTime.parse("2019-06-17T00:00:00Z"));
+		assertThat(first.subscription().owner()).isEqualTo("123456789012");
+		assertThat(first.subscription().logGroup()).isEqualTo("/aws/lambda/my-function");
+		assertThat(first.subscription().logStream()).isEqualTo("2019/06/17/[$LATEST]abcdef");
+		assertThat(first.subscription().subscriptionFilters()).containsExactly("errors");
+		assertThat(first.subscription().messageType()).isEqualTo("DATA_MESSAGE");
+	}
+
+	@Test
+	void dispatches_log_events_in_chunks() {
+		List<List<String>> chunks = new ArrayList<>();
+
+		new LogsSubscriptionDispatcher(message(data(METADATA, 7)), null)
+				.withLogEventChunkHandler(3, (chunk, context) ->
+						chunks.add(chunk.stream().map(LogEvent::id).collect(toList())))
+				.dispatch();
+
+		assertThat(chunks).containsExactly(
+				asList("id-0", "id-1", "id-2"),
+				asList("id-3", "id-4", "id-5"),
+				asList("id-6")
+		);
+	}
+
+	@Test
+	void dispatches_events_before_the_message_is_fully_read() {
+		byte[] message = messageBytes(data(METADATA, 20_000));
+		CountingInputStream in = new CountingInputStream(message);
+		long[] readAtFirstEvent = {-1};
+
+		new LogsSubscriptionDispatcher(in, null)
+				.withLogEventHandler((event, context) -> {
+					if (readAtFirstEvent[0] < 0) {
+						readAtFirstEvent[0] = in.count;
+					}
+				})
+				.dispatch();
+
+		assertThat(readAtFirstEvent[0]).isLessThan(message.length / 4);
+		assertThat(in.count).isEqualTo(message.length);
+	}
+
+	@Test
+	void waits_for_metadata_following_log_events() {
+		List<LogEvent> received = new ArrayList<>();
+		String data = "{\"logEvents\": [" + logEvent(0) + "], " + METADATA + "}";
+
+		new LogsSubscriptionDispatcher(message(data), null)
+				.withLogEventHandler((event, context) -> received.add(event))
+				.dispatch();
+
+		assertThat(received).hasSize(1);
+		assertThat(received.get(0).subscription().logGroup()).isEqualTo("/aws/lambda/my-function");
+	}
+
+	@Test
+	void skips_control_messages() {
+		List<LogEvent> received = new ArrayList<>();
+		String data = "{\"messageType\": \"CONTROL_MESSAGE\", \"owner\": \"CloudwatchLogs\", \"logGroup\": \"\", " +
+				"\"logStream\": \"\", \"subscriptionFilters\": [], \"logEvents\": [" + logEvent(0) + "]}";
+
+		new LogsSubscriptionDispatcher(message(data), null)
+				.withLogEventHandler((event, context) -> received.add(event))
+				.dispatch();
+
+		assertThat(received).isEmpty();
+	}
+
+	@Test
+	void finds_data_among_other_properties_and_escapes() {
+		String encoded = Base64.getEncoder().encodeToString(gzip(data(METADATA, 50))).replace("/", "\\/");
+		String message = "{\"other\": {\"a\": [1, \"}\", {\"b\": null}], \"c\": true}, " +
+				"\"awslogs\": {\"type\": \"x\", \"data\": \"" + encoded + "\"}}";
+		List<LogEvent> received = new ArrayList<>();
+
+		new LogsSubscriptionDispatcher(new ByteArrayInputStream(message.getBytes(UTF_8)), null)
+				.withLogEventHandler((event, context) -> received.add(event))
+				.dispatch();
+
+		assertThat(received).hasSize(50);
+	}
+
+	@Test
+	void rejects_message_without_logs_data() {
+		InputStream message = new ByteArrayInputStream("{\"detail-type\": \"x\", \"detail\": {}}".getBytes(UTF_8));
+
+		assertThatThrownBy(() -> new LogsSubscriptionDispatcher(message, null).dispatch())
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("missing awslogs.data");
+	}
+
+	@Test
+	void rejects_malformed_data() {
+		String[] messages = {
+				"{\"awslogs\": {\"data\": \"not base64!\"}}",
+				"{\"awslogs\": {\"data\": \"" + Base64.getEncoder().encodeToString("not gzip".getBytes(UTF_8)) + "\"}}",
+				"{\"awslogs\": {\"data\": \"" + Base64.getEncoder().encodeToString(gzip("{\"logEvents\": [")) + "\"}}",
+				"{\"awslogs\": {\"data\": \"H4sI",
+		};
+
+		for (String message : messages) {
+			assertThatThrownBy(() -> new LogsSubscriptionDispatcher(
+					new ByteArrayInputStream(message.getBytes(UTF_8)), null
+			).dispatch())
+					.as(message)
+					.isInstanceOf(IllegalArgumentException.class)
+					.hasMessage("Malformed CloudWatch Logs subscription message");
+		}
+	}
+
+	@Test
+	void propagates_handler_exceptions() {
+		IllegalStateException failure = new IllegalStateException("handler failed");
+
+		assertThatThrownBy(() -> new LogsSubscriptionDispatcher(message(data(METADATA, 2)), null)
+				.withLogEventHandler((event, context) -> {
+					throw failure;
+				})
+				.dispatch()
+		).isSameAs(failure);
+	}
+
+	@Test
+	void rejects_non_positive_chunk_size() {
+		assertThatThrownBy(() -> new LogsSubscriptionDispatcher(message(data(METADATA, 1)), null)
+				.withLogEventChunkHandler(0, (chunk, context) -> {
+				})
+		).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static String data(String metadata, int events) {
+		StringBuilder data = new StringBuilder("{").append(metadata).append(", \"logEvents\": [");
+
+		for (int i = 0; i < events; i++) {
+			data.append(i == 0 ? "" : ", ").append(logEvent(i));
+		}
+
+		return data.append("]}").toString();
+	}
+
+	private static String logEvent(int index) {
+		return "{\"id\": \"id-" + index + "\", \"timestamp\": " + (1560729600000L + index) + ", " +
+				"\"message\": \"message " + index + "\"}";
+	}
+
+	private static InputStream message(String data) {
+		return new ByteArrayInputStream(messageBytes(data));
+	}
+
+	private static byte[] messageBytes(String data) {
+		String encoded = Base64.getEncoder().encodeToString(gzip(data));
+
+		return ("{\"awslogs\": {\"data\": \"" + encoded + "\"}}").getBytes(UTF_8);
+	}
+
+	private static byte[] gzip(String text) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(text.getBytes(UTF_8));
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private static final class CountingInputStream extends ByteArrayInputStream {
+		long count;
+
+		CountingInputStream(byte[] bytes) {
+			super(bytes);
+		}
+
+		@Override
+		public synchronized int read(byte[] bytes, int offset, int length) {
+			int read = super.read(bytes, offset, length);
+			count += Math.max(read, 0);
+
+			return read;
+		}
+	}
+}
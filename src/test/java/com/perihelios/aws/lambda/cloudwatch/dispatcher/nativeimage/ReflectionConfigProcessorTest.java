@@ -0,0 +1,235 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.nativeimage;
+
+import com.google.gson.Gson;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReflectionConfigProcessorTest {
+	@TempDir
+	Path output;
+
+	@Test
+	void registers_event_types_and_reachable_classes() throws IOException {
+		compile(
+				source("example.StateEvent",
+						"package example;",
+						"import com.google.gson.annotations.JsonAdapter;",
+						"import com.perihelios.aws.lambda.cloudwatch.dispatcher.NameValueListAdapter;",
+						"import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;",
+						"import java.util.List;",
+						"import java.util.Map;",
+						"@DetailType(\"State Change\")",
+						"public class StateEvent extends BaseEvent {",
+						"    private State state;",
+						"    private List<Item> items;",
+						"    @JsonAdapter(NameValueListAdapter.class) private Map<String, String> tags;",
+						"    private transient Ignored ignored;",
+						"    private static Ignored alsoIgnored;",
+						"}"
+				),
+				source("example.BaseEvent",
+						"package example;",
+						"public abstract class BaseEvent",
+						"        extends com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent {",
+						"    private String common;",
+						"}"
+				),
+				source("example.State", "package example;", "public enum State { RUNNING, STOPPED }"),
+				source("example.Item",
+						"package example;",
+						"public class Item {",
+						"    private final Item[] children;",
+						"    public Item(Item[] children) { this.children = children; }",
+						"    public static class Nested {}",
+						"}"
+				),
+				source("example.Ignored", "package example;", "public class Ignored {}")
+		);
+
+		String config = new String(Files.readAllBytes(
+				output.resolve(ReflectionConfigProcessor.DEFAULT_DIRECTORY).resolve("reflect-config.json")
+		), UTF_8);
+
+		assertThat(config).isEqualTo(String.join("\n",
+				"[",
+				"  {",
+				"    \"name\": \"com.perihelios.aws.lambda.cloudwatch.dispatcher.NameValueListAdapter\",",
+				"    \"allDeclaredConstructors\": true",
+				"  },",
+				"  {",
+				"    \"name\": \"example.BaseEvent\",",
+				"    \"allDeclaredFields\": true,",
+				"    \"allDeclaredConstructors\": true",
+				"  },",
+				"  {",
+				"    \"name\": \"example.Item\",",
+				"    \"allDeclaredFields\": true,",
+				"    \"allDeclaredConstructors\": true,",
+				"    \"unsafeAllocated\": true",
+				"  },",
+				"  {",
+				"    \"name\": \"example.State\",",
+				"    \"allDeclaredFields\": true,",
+				"    \"allPublicFields\": true",
+				"  },",
+				"  {",
+				"    \"name\": \"example.StateEvent\",",
+				"    \"allDeclaredFields\": true,",
+				"    \"allDeclaredConstructors\": true",
+				"  }",
+				"]",
+				""
+		));
+	}
+
+	@Test
+	void registers_subtypes_selected_by_discriminator() throws IOException {
+		compile(
+				source("example.ApiCallEvent",
+						"package example;",
+						"import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.*;",
+						"@DetailType(\"API Call\")",
+						"@DetailDiscriminator(\"eventName\")",
+						"public class ApiCallEvent extends CloudWatchEvent {",
+						"}"
+				),
+				source("example.RunInstancesEvent",
+						"package example;",
+						"import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DiscriminatorValue;",
+						"@DiscriminatorValue(\"RunInstances\")",
+						"public class RunInstancesEvent extends ApiCallEvent {",
+						"    private Parameters requestParameters;",
+						"}"
+				),
+				source("example.Parameters", "package example;", "public class Parameters {}")
+		);
+
+		String config = new String(Files.readAllBytes(
+				output.resolve(ReflectionConfigProcessor.DEFAULT_DIRECTORY).resolve("reflect-config.json")
+		), UTF_8);
+
+		assertThat(config)
+				.contains("\"name\": \"example.ApiCallEvent\"")
+				.contains("\"name\": \"example.RunInstancesEvent\"")
+				.contains("\"name\": \"example.Parameters\"");
+	}
+
+	@Test
+	void writes_to_directory_given_by_option() {
+		compile(
+				asList("-A" + ReflectionConfigProcessor.DIRECTORY_OPTION + "=META-INF/native-image/my/project"),
+				source("example.MyEvent",
+						"package example;",
+						"import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;",
+						"import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;",
+						"@DetailType(\"My Event\")",
+						"public class MyEvent extends CloudWatchEvent {",
+						"}"
+				)
+		);
+
+		assertThat(output.resolve("META-INF/native-image/my/project/reflect-config.json")).exists();
+		assertThat(output.resolve(ReflectionConfigProcessor.DEFAULT_DIRECTORY)).doesNotExist();
+	}
+
+	@Test
+	void writes_nothing_without_event_types() {
+		compile(source("example.Plain", "package example;", "public class Plain {}"));
+
+		assertThat(output.resolve(ReflectionConfigProcessor.DEFAULT_DIRECTORY)).doesNotExist();
+	}
+
+	@Test
+	void claims_event_type_annotations() {
+		List<Diagnostic<? extends JavaFileObject>> diagnostics = compile(asList("-Xlint:processing"),
+				source("example.StateEvent",
+						"package example;",
+						"import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;",
+						"import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;",
+						"@DetailType(\"State Change\")",
+						"public class StateEvent extends CloudWatchEvent {}"
+				)
+		);
+
+		assertThat(diagnostics).extracting(Diagnostic::getKind)
+				.doesNotContain(Diagnostic.Kind.WARNING, Diagnostic.Kind.MANDATORY_WARNING);
+	}
+
+	private void compile(JavaFileObject... sources) {
+		compile(asList(), sources);
+	}
+
+	private List<Diagnostic<? extends JavaFileObject>> compile(List<String> options, JavaFileObject... sources) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+		List<String> allOptions = new ArrayList<>(options);
+		allOptions.addAll(asList(
+				"-classpath", location(CloudWatchEvent.class) + File.pathSeparator + location(Gson.class),
+				"-d", output.toString()
+		));
+
+		JavaCompiler.CompilationTask task =
+				compiler.getTask(null, null, diagnostics, allOptions, null, asList(sources));
+		task.setProcessors(asList(new ReflectionConfigProcessor()));
+
+		assertThat(task.call()).as("compilation, with diagnostics %s", diagnostics.getDiagnostics()).isTrue();
+
+		return diagnostics.getDiagnostics();
+	}
+
+	private static String location(Class<?> type) {
+		try {
+			return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static JavaFileObject source(String className, String... lines) {
+		URI uri = URI.create("string:///" + className.replace('.', '/') + ".java");
+
+		return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return String.join("\n", lines);
+			}
+		};
+	}
+}
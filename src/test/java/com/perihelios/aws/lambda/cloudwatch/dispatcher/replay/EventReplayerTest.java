@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.DISPATCHED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.MALFORMED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.UNKNOWN_TYPE;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.EventFileFormat.NDJSON;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventReplayerTest {
+	private static final String EVENTS = String.join("\n",
+			event("Replayed Event", "2019-06-16T22:20:01Z", "one"),
+			event("Other Event", "2019-06-16T22:20:02Z", "two"),
+			event("Replayed Event", "2019-06-16T22:20:03Z", "three"),
+			"not json",
+			event("Replayed Event", "2019-06-16T22:20:04Z", "four")
+	);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replays_all_events() throws IOException {
+		List<String> values = new ArrayList<>();
+
+		ReplayReport report = replayer(values).replay(file(), NDJSON);
+
+		assertThat(values).containsExactly("one", "three", "four");
+		assertThat(report.records()).isEqualTo(5);
+		assertThat(report.count(DISPATCHED)).isEqualTo(3);
+		assertThat(report.count(UNKNOWN_TYPE)).isEqualTo(1);
+		assertThat(report.count(MALFORMED)).isEqualTo(1);
+		assertThat(report.latency(50)).isLessThanOrEqualTo(report.maxLatency());
+		assertThat(report.throughput()).isPositive();
+	}
+
+	@Test
+	void filters_by_detail_type_and_time() throws IOException {
+		List<String> values = new ArrayList<>();
+
+		ReplayReport report = replayer(values)
+				.withDetailTypes("Replayed Event")
+				.withTimeRange(Instant.parse("2019-06-16T22:20:02Z"), Instant.parse("2019-06-16T22:20:04Z"))
+				.replay(file(), NDJSON);
+
+		assertThat(values).containsExactly("three");
+		assertThat(report.filtered()).isEqualTo(4);
+		assertThat(report.count(DISPATCHED)).isEqualTo(1);
+	}
+
+	@Test
+	void paces_events_by_time() throws IOException {
+		ReplayReport report = replayer(new ArrayList<>())
+				.atSpeed(10)
+				.replay(file(), NDJSON);
+
+		assertThat(report.elapsed().toMillis()).isGreaterThanOrEqualTo(300);
+	}
+
+	@Test
+	void counts_handler_failures() throws IOException {
+		ReplayReport report = new EventReplayer((message, context) ->
+				new CloudWatchEventDispatcher(message, context)
+						.withEventHandler(ReplayedEvent.class, (event, ctx) -> {
+							throw new IllegalStateException("failed");
+						})
+		).replay(file(), NDJSON);
+
+		assertThat(report.failed()).isEqualTo(3);
+	}
+
+	private static EventReplayer replayer(List<String> values) {
+		return new EventReplayer((message, context) ->
+				new CloudWatchEventDispatcher(message, context)
+						.withEventHandler(ReplayedEvent.class, (event, ctx) -> values.add(event.value))
+		);
+	}
+
+	private Path file() throws IOException {
+		return Files.write(directory.resolve("events.ndjson"), EVENTS.getBytes(UTF_8));
+	}
+
+	private static String event(String detailType, String time, String value) {
+		return "{\"id\":\"" + value + "\",\"detail-type\":\"" + detailType + "\",\"time\":\"" + time + "\"," +
+				"\"detail\":{\"value\":\"" + value + "\"}}";
+	}
+
+	@DetailType("Replayed Event")
+	static class ReplayedEvent extends CloudWatchEvent {
+		private String value;
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+	@Test
+	void reports_small_values_exactly() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		for (long value = 1; value <= 40; value++) {
+			histogram.record(value);
+		}
+
+		assertThat(histogram.percentile(50)).isEqualTo(20);
+		assertThat(histogram.percentile(100)).isEqualTo(40);
+	}
+
+	@Test
+	void reports_percentiles_within_three_percent() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		for (long millis = 1; millis <= 100; millis++) {
+			histogram.record(millis * 1_000_000);
+		}
+
+		assertThat(histogram.percentile(5)).isBetween(5_000_000L, 5_150_000L);
+		assertThat(histogram.percentile(33)).isBetween(33_000_000L, 33_990_000L);
+		assertThat(histogram.percentile(50)).isBetween(50_000_000L, 51_500_000L);
+		assertThat(histogram.percentile(99)).isBetween(99_000_000L, 100_000_000L);
+		assertThat(histogram.percentile(100)).isEqualTo(100_000_000L);
+	}
+
+	@Test
+	void reports_microsecond_latencies_within_three_percent() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		histogram.record(100_000);
+		histogram.record(200_000);
+
+		assertThat(histogram.percentile(50)).isBetween(100_000L, 103_000L);
+	}
+}
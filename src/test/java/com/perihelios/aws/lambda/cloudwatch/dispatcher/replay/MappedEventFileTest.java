@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.replay;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.EventFileFormat.LENGTH_PREFIXED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.EventFileFormat.NDJSON;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedEventFileTest {
+	@TempDir
+	Path directory;
+
+	@Test
+	void splits_ndjson_records() throws IOException {
+		Path file = write("{\"a\":1}\n\n{\"b\":2}\r\n{\"c\":3}");
+
+		assertThat(records(file, NDJSON, Long.MAX_VALUE)).containsExactly("{\"a\":1}", "{\"b\":2}", "{\"c\":3}");
+	}
+
+	@Test
+	void splits_ndjson_records_across_windows() throws IOException {
+		Path file = write("{\"a\":1}\n{\"bb\":2}\n{\"c\":3}\n");
+
+		assertThat(records(file, NDJSON, 12)).containsExactly("{\"a\":1}", "{\"bb\":2}", "{\"c\":3}");
+	}
+
+	@Test
+	void splits_length_prefixed_records_across_windows() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+
+		for (String record : new String[]{"{\"a\":1}", "{\"bb\":2}", "{}"}) {
+			data.writeInt(record.length());
+			data.write(record.getBytes(UTF_8));
+		}
+
+		Path file = Files.write(directory.resolve("events.bin"), bytes.toByteArray());
+
+		assertThat(records(file, LENGTH_PREFIXED, 14)).containsExactly("{\"a\":1}", "{\"bb\":2}", "{}");
+	}
+
+	@Test
+	void rejects_truncated_length_prefixed_file() throws IOException {
+		Path file = Files.write(directory.resolve("events.bin"), new byte[]{0, 0, 0, 9, '{', '}'});
+
+		assertThatThrownBy(() -> records(file, LENGTH_PREFIXED, Long.MAX_VALUE))
+				.isInstanceOf(IOException.class)
+				.hasMessage("Truncated record at end of file");
+	}
+
+	@Test
+	void rejects_record_larger_than_window() throws IOException {
+		Path file = write("{\"a\":1}\n{\"much-longer\":2}\n");
+
+		assertThatThrownBy(() -> records(file, NDJSON, 12))
+				.isInstanceOf(IOException.class)
+				.hasMessage("Record at offset 8 is larger than maximum mappable size");
+	}
+
+	private Path write(String content) throws IOException {
+		return Files.write(directory.resolve("events.ndjson"), content.getBytes(UTF_8));
+	}
+
+	private static List<String> records(Path file, EventFileFormat format, long maxWindow) throws IOException {
+		List<String> records = new ArrayList<>();
+
+		try (MappedEventFile events = new MappedEventFile(FileChannel.open(file, READ), format, maxWindow)) {
+			events.forEachRecord(record -> records.add(UTF_8.decode(record).toString()));
+		}
+
+		return records;
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.runtime;
+
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomRuntimeTest {
+	private static final String EVENT =
+			"{\"id\":\"%s\",\"detail-type\":\"Runtime Event\",\"detail\":{\"value\":\"%s\"}}";
+
+	private final Deque<String> events = new ArrayDeque<>();
+	private final Map<String, String> outcomes = new LinkedHashMap<>();
+	private final Map<String, String> traceIds = new LinkedHashMap<>();
+	private final Set<Integer> clientPorts = new HashSet<>();
+	private final List<String> values = new ArrayList<>();
+	private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+	private HttpServer server;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	void handles_invocations_over_one_connection() throws IOException {
+		events.add(String.format(EVENT, "1", "first"));
+		events.add(String.format(EVENT, "2", "second"));
+		events.add(String.format(EVENT, "3", "fail"));
+
+		CustomRuntime runtime = runtime();
+
+		runtime.handleNext();
+		runtime.handleNext();
+		runtime.handleNext();
+
+		assertThat(values).containsExactly("first", "second", "fail");
+		assertThat(outcomes).containsEntry("request-1/response", "result:first");
+		assertThat(outcomes).containsEntry("request-2/response", "result:second");
+		assertThat(outcomes.get("request-3/error"))
+				.isEqualTo("{\"errorType\":\"java.lang.IllegalStateException\",\"errorMessage\":\"failed\"}");
+		assertThat(clientPorts).hasSize(1);
+		assertThat(new String(log.toByteArray(), UTF_8))
+				.isEqualTo("request-1 in my-function\nrequest-2 in my-function\nrequest-3 in my-function\n");
+	}
+
+	@Test
+	void clears_trace_header_of_invocation_without_trace() throws IOException {
+		events.add(String.format(EVENT, "1", "first"));
+		events.add(String.format(EVENT, "2", "second"));
+		traceIds.put("1", "Root=1-5759e988-bd862e3fe1be46a994272793");
+
+		CustomRuntime runtime = runtime();
+
+		runtime.handleNext();
+		assertThat(System.getProperty("com.amazonaws.xray.traceHeader"))
+				.isEqualTo("Root=1-5759e988-bd862e3fe1be46a994272793");
+
+		runtime.handleNext();
+		assertThat(System.getProperty("com.amazonaws.xray.traceHeader")).isNull();
+	}
+
+	@Test
+	void loads_handler_by_name() {
+		assertThat(CustomRuntime.loadHandler(TestHandler.class.getName() + "::handle")).isNotNull();
+	}
+
+	private CustomRuntime runtime() {
+		InetSocketAddress address = server.getAddress();
+		RuntimeContext.Environment environment = new RuntimeContext.Environment(
+				"my-function", "$LATEST", "/aws/lambda/my-function", "stream", 128,
+				new PrintStream(log, true)
+		);
+
+		return new CustomRuntime(address.getHostString() + ":" + address.getPort(), (input, output, context) -> {
+			context.getLogger().log(context.getAwsRequestId() + " in " + context.getFunctionName() + "\n");
+
+			new CloudWatchEventDispatcher(input, context)
+					.withEventHandler(RuntimeEvent.class, (event, ctx) -> {
+						values.add(event.value);
+
+						if (event.value.equals("fail")) {
+							throw new IllegalStateException("failed");
+						}
+					})
+					.dispatch();
+
+			output.write(("result:" + values.get(values.size() - 1)).getBytes(UTF_8));
+		}, environment);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		clientPorts.add(exchange.getRemoteAddress().getPort());
+
+		String path = exchange.getRequestURI().getPath();
+		byte[] request = readAll(exchange.getRequestBody());
+		byte[] response = new byte[0];
+
+		if (path.equals("/2018-06-01/runtime/invocation/next")) {
+			String event = events.removeFirst();
+			String id = event.substring(7, 8);
+
+			exchange.getResponseHeaders().add("Lambda-Runtime-Aws-Request-Id", "request-" + id);
+			exchange.getResponseHeaders().add(
+					"Lambda-Runtime-Deadline-Ms", Long.toString(System.currentTimeMillis() + 10_000)
+			);
+			if (traceIds.containsKey(id)) {
+				exchange.getResponseHeaders().add("Lambda-Runtime-Trace-Id", traceIds.get(id));
+			}
+			response = event.getBytes(UTF_8);
+		} else {
+			outcomes.put(path.substring("/2018-06-01/runtime/invocation/".length()), new String(request, UTF_8));
+		}
+
+		exchange.sendResponseHeaders(path.endsWith("next") ? 200 : 202, response.length == 0 ? -1 : response.length);
+
+		// Writing to an empty response body, even zero bytes, makes the server close the connection
+		if (response.length == 0) {
+			exchange.close();
+			return;
+		}
+
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(response);
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+
+		int read;
+		while ((read = in.read(buffer)) >= 0) {
+			bytes.write(buffer, 0, read);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	@DetailType("Runtime Event")
+	static class RuntimeEvent extends CloudWatchEvent {
+		private String value;
+	}
+
+	public static class TestHandler {
+		@SuppressWarnings("unused")
+		public void handle(InputStream input, com.amazonaws.services.lambda.runtime.Context context) {
+		}
+	}
+}
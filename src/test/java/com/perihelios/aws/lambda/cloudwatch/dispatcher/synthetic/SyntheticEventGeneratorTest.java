@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.synthetic;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.CloudWatchEventDispatcher;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.NameValueListAdapter;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.CloudWatchEvent;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.event.DetailType;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.EventReplayer;
+import com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.ReplayReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.DISPATCHED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.replay.EventFileFormat.LENGTH_PREFIXED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyntheticEventGeneratorTest {
+	@TempDir
+	Path directory;
+
+	@Test
+	void generates_reproducible_events() {
+		SyntheticEventGenerator first = new SyntheticEventGenerator(7).withEventType(GeneratedEvent.class, 1);
+		SyntheticEventGenerator second = new SyntheticEventGenerator(7).withEventType(GeneratedEvent.class, 1);
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(first.next()).isEqualTo(second.next());
+		}
+	}
+
+	@Test
+	void generates_bindable_events() {
+		SyntheticEventGenerator generator = new SyntheticEventGenerator(7)
+				.withEventType(GeneratedEvent.class, 1)
+				.withListLength(4)
+				.withKeyOrder(KeyOrder.SHUFFLED);
+		List<GeneratedEvent> events = new ArrayList<>();
+
+		for (int i = 0; i < 20; i++) {
+			new CloudWatchEventDispatcher(stream(generator.next()), null)
+					.withEventHandler(GeneratedEvent.class, (event, context) -> events.add(event))
+					.dispatch();
+		}
+
+		assertThat(events).hasSize(20).allSatisfy(event -> {
+			assertThat(event.name).isNotEmpty();
+			assertThat(event.state).isNotNull();
+			assertThat(event.tags).hasSize(4);
+			assertThat(event.items).hasSize(4);
+			assertThat(event.nested.count).isNotNull();
+			assertThat(event.header().time()).isNotNull();
+			assertThat(event.header().arns().get(0).service()).isEqualTo("synthetic");
+		});
+	}
+
+	@Test
+	void pads_detail_to_payload_size() {
+		String event = new SyntheticEventGenerator(7)
+				.withEventType(GeneratedEvent.class, 1)
+				.withPayloadSize(10_000)
+				.withNestingDepth(4)
+				.next();
+
+		JsonObject detail = new JsonParser().parse(event).getAsJsonObject().getAsJsonObject("detail");
+
+		assertThat(detail.toString().length()).isGreaterThanOrEqualTo(10_000);
+		assertThat(detail.getAsJsonObject("unmapped-0").getAsJsonObject("field-0").getAsJsonObject("field-0"))
+				.isNotNull();
+	}
+
+	@Test
+	void writes_detail_properties_in_name_order() {
+		String event = new SyntheticEventGenerator(7).withEventType(GeneratedEvent.class, 1).next();
+		JsonObject detail = new JsonParser().parse(event).getAsJsonObject().getAsJsonObject("detail");
+
+		assertThat(detail.keySet()).containsExactly("instance-name", "items", "nested", "state", "tags");
+	}
+
+	@Test
+	void rejects_event_types_bound_by_handwritten_adapters() {
+		SyntheticEventGenerator generator = new SyntheticEventGenerator(7);
+
+		assertThatThrownBy(() -> generator.withEventType(AdaptedEvent.class, 1))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining(AdaptedEvent.class.getName());
+		assertThatThrownBy(() -> generator.withEventType(ContainingAdaptedEvent.class, 1))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining(Adapted.class.getName());
+	}
+
+	@Test
+	void writes_detail_first() {
+		String event = new SyntheticEventGenerator(7)
+				.withEventType(GeneratedEvent.class, 1)
+				.withKeyOrder(KeyOrder.DETAIL_FIRST)
+				.next();
+
+		assertThat(event).startsWith("{\"detail\":");
+	}
+
+	@Test
+	void mixes_event_types_by_weight() {
+		SyntheticEventGenerator generator = new SyntheticEventGenerator(7)
+				.withEventType(GeneratedEvent.class, 3)
+				.withEventType(OtherGeneratedEvent.class, 1);
+		int generated = 0;
+
+		for (int i = 0; i < 4_000; i++) {
+			if (generator.next().contains("\"detail-type\":\"Generated Event\"")) {
+				generated++;
+			}
+		}
+
+		assertThat(generated).isBetween(2_800, 3_200);
+	}
+
+	@Test
+	void writes_files_for_replay() throws IOException {
+		Path file = directory.resolve("events.bin");
+
+		new SyntheticEventGenerator(7)
+				.withEventType(GeneratedEvent.class, 1)
+				.withEventType(OtherGeneratedEvent.class, 1)
+				.write(file, LENGTH_PREFIXED, 1_000);
+
+		ReplayReport report = new EventReplayer((message, context) ->
+				new CloudWatchEventDispatcher(message, context)
+						.withEventHandler(GeneratedEvent.class, (event, ctx) -> {})
+						.withEventHandler(OtherGeneratedEvent.class, (event, ctx) -> {})
+		).replay(file, LENGTH_PREFIXED);
+
+		assertThat(report.count(DISPATCHED)).isEqualTo(1_000);
+	}
+
+	private static ByteArrayInputStream stream(String message) {
+		return new ByteArrayInputStream(message.getBytes(UTF_8));
+	}
+
+	enum State {
+		@SerializedName("running")
+		RUNNING,
+
+		@SerializedName("shutting-down")
+		SHUTTING_DOWN,
+	}
+
+	static class Nested {
+		private Long count;
+	}
+
+	@DetailType("Generated Event")
+	static class GeneratedEvent extends CloudWatchEvent {
+		@SerializedName("instance-name")
+		private String name;
+
+		private State state;
+
+		@JsonAdapter(NameValueListAdapter.class)
+		private Map<String, String> tags;
+
+		private List<Integer> items;
+
+		private Nested nested;
+	}
+
+	@DetailType("Other Generated Event")
+	static class OtherGeneratedEvent extends CloudWatchEvent {
+		private double value;
+	}
+
+	@DetailType("Adapted Event")
+	@JsonAdapter(AdaptedEventAdapter.class)
+	static class AdaptedEvent extends CloudWatchEvent {
+		private String value;
+	}
+
+	static class AdaptedEventAdapter extends TypeAdapter<AdaptedEvent> {
+		@Override
+		public void write(JsonWriter out, AdaptedEvent value) throws IOException {
+			out.beginObject().name("Value").value(value.value).endObject();
+		}
+
+		@Override
+		public AdaptedEvent read(JsonReader in) {
+			return new AdaptedEvent();
+		}
+	}
+
+	@JsonAdapter(AdaptedAdapter.class)
+	static class Adapted {
+		private String value;
+	}
+
+	static class AdaptedAdapter extends TypeAdapter<Adapted> {
+		@Override
+		public void write(JsonWriter out, Adapted value) throws IOException {
+			out.value(value.value);
+		}
+
+		@Override
+		public Adapted read(JsonReader in) {
+			return new Adapted();
+		}
+	}
+
+	@DetailType("Containing Adapted Event")
+	static class ContainingAdaptedEvent extends CloudWatchEvent {
+		private List<Adapted> values;
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 Perihelios LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.perihelios.aws.lambda.cloudwatch.dispatcher.trace;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import org.junit.jupiter.api.Test;
+
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.DISPATCHED;
+import static com.perihelios.aws.lambda.cloudwatch.dispatcher.DispatchResult.Status.MALFORMED;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LoggerSpanExporterTest {
+	@Test
+	void writes_trace_as_one_line() {
+		LambdaLogger logger = mock(LambdaLogger.class);
+		Context context = mock(Context.class);
+		when(context.getLogger()).thenReturn(logger);
+
+		new LoggerSpanExporter().export(new EventTrace("r-1", "e-1", "Some \"Quoted\" Event", DISPATCHED, asList(
+				new Span(Span.Kind.READ, 0, 152_400),
+				new Span(Span.Kind.PARSE, 152_400, 40_000),
+				new Span(Span.Kind.HANDLE, 192_400, 1_250_000)
+		)), context);
+
+		verify(logger).log("TRACE request=r-1 event=e-1 type=\"Some \\\"Quoted\\\" Event\" status=DISPATCHED " +
+				"total=1442 read=0+152 parse=152+40 handle=192+1250");
+	}
+
+	@Test
+	void writes_trace_of_unidentified_event() {
+		LambdaLogger logger = mock(LambdaLogger.class);
+		Context context = mock(Context.class);
+		when(context.getLogger()).thenReturn(logger);
+
+		new LoggerSpanExporter().export(new EventTrace("r-1", null, null, MALFORMED, emptyList()), context);
+
+		verify(logger).log("TRACE request=r-1 event=null type=null status=MALFORMED total=0");
+	}
+
+	@Test
+	void writes_nothing_without_context() {
+		new LoggerSpanExporter().export(new EventTrace(null, null, null, MALFORMED, emptyList()), null);
+	}
+}